@@ -0,0 +1,57 @@
+package mag5.draw;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ Implementation of the projection loops using the JDK Vector API (SIMD).
+ 
+ <P>WARNING: this class needs the jdk.incubator.vector module, both to compile and to run.
+ That's why it lives in its own source directory, <code>src-vector</code>, which is compiled only when asked for:
+ <pre>javac --add-modules jdk.incubator.vector ...
+java --add-modules jdk.incubator.vector -Dmag5vector=true ...</pre>
+ It's never referred to directly; it's loaded by name in {@link ProjectionKernels}.
+ 
+ <P>The tail of each array (less than one vector's worth) is done with a mask.
+*/
+final class VectorProjectionKernels implements ProjectionKernels {
+
+  @Override public void sinusoidal(double[] dec, double[] ra, double[] outX, double[] outY, int n, 
+    double x0, double y0, double sign, double distancePerRad, double raCenter, boolean straddlesVernalEquinox
+  ) {
+    double wrap = straddlesVernalEquinox ? 2*Math.PI : 0.0;
+    for(int i = 0; i < n; i += SPECIES.length()) {
+      VectorMask<Double> inRange = SPECIES.indexInRange(i, n);
+      DoubleVector δ = DoubleVector.fromArray(SPECIES, dec, i, inRange);
+      DoubleVector α = DoubleVector.fromArray(SPECIES, ra, i, inRange);
+      DoubleVector deltaRa = α.sub(raCenter).add(wrap, α.lt(Math.PI));
+      DoubleVector y = δ.mul(sign).mul(distancePerRad).add(y0);
+      DoubleVector x = deltaRa.mul(sign).mul(distancePerRad).mul(δ.lanewise(VectorOperators.COS)).add(x0);
+      y.intoArray(outY, i, inRange);
+      x.intoArray(outX, i, inRange);
+    }
+  }
+
+  @Override public void azimuthalEquidistant(double[] dec, double[] ra, double[] outX, double[] outY, int n, 
+    double x0, double y0, double sign, double distancePerRad, double thetaShift
+  ) {
+    DoubleVector halfPi = DoubleVector.broadcast(SPECIES, Math.PI/2.0);
+    for(int i = 0; i < n; i += SPECIES.length()) {
+      VectorMask<Double> inRange = SPECIES.indexInRange(i, n);
+      DoubleVector δ = DoubleVector.fromArray(SPECIES, dec, i, inRange);
+      DoubleVector α = DoubleVector.fromArray(SPECIES, ra, i, inRange);
+      DoubleVector rho = halfPi.sub(δ.mul(sign)).mul(distancePerRad);
+      DoubleVector theta = α.sub(thetaShift);
+      DoubleVector x = rho.mul(theta.lanewise(VectorOperators.COS)).add(x0);
+      DoubleVector y = rho.mul(sign).mul(theta.lanewise(VectorOperators.SIN)).add(y0);
+      x.intoArray(outX, i, inRange);
+      y.intoArray(outY, i, inRange);
+    }
+  }
+  
+  // PRIVATE
+  
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+}
@@ -0,0 +1,188 @@
+package mag5.book;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import mag5.chartlabels.ChartLabel;
+import mag5.deepskyobject.DeepSkyObject;
+import mag5.draw.Bounds;
+import mag5.draw.RenderContext;
+import mag5.star.Star;
+import mag5.translate.GreekAlphabet;
+
+/**
+ A hash of everything that goes into drawing a single chart.
+
+ <P>If two charts have the same hash, then they look the same, and the old one can be reused
+ instead of drawing it again. See {@link IncrementalBuild}.
+ The hash is a SHA-256 over:
+ <ul>
+  <li>the kind of chart, its number, and its bounds
+  <li>the stars on the chart, including where their Bayer letters are placed
+  <li>the names of constellations, asterisms, and bright stars placed on the chart
+  <li>the constellation lines that touch the stars on the chart
+  <li>all deep sky objects
+  <li>all translated text, in the chart's language, including the names of the Greek letters
+  <li>the page size, and the settings passed as <code>-Dmag5...</code> system properties
+  <li>the compiled code itself (the .class files, but not the data files beside them)
+ </ul>
+
+ <P>The last item takes care of the many constants in the code (line widths, font sizes, and so on).
+ Any change to the code makes all of the charts dirty, which is what you want.
+ A change to a data file makes dirty only the charts that use the data that changed.
+*/
+final class ChartHash {
+
+  /**
+   Returns a hash as a hex string.
+   @param kind the kind of chart, 'polar' or 'equatorial'
+   @param stars the stars shown on the chart
+  */
+  static String of(String kind, int chartNum, Bounds bounds, List<Star> stars, RenderContext context) {
+    Digest digest = new Digest();
+    digest.add(CODE_FINGERPRINT);
+    digest.add(settings());
+    digest.add(kind, chartNum, context.WIDTH, context.HEIGHT, context.LANG, context.HEMISPHERE);
+    digest.add(bounds.minDecDeg, bounds.maxDecDeg, bounds.minRaHours, bounds.maxRaHours, bounds.hemisphere, bounds.isTopChart());
+    Set<Integer> starIds = new HashSet<>();
+    for(Star star : stars) {
+      digest.add(star.INDEX, star.NAME, star.BAYER_COMPASS_POINT, star.RA, star.DEC, star.MAG, star.PROPER_NAME);
+      starIds.add(star.INDEX);
+    }
+    List<ChartLabel> chartLabels = context.chartLabels(chartNum);
+    if (chartLabels != null) {
+      for(ChartLabel label : chartLabels) {
+        digest.add(label.TEXT, label.RA, label.DEC, label.TYPE);
+      }
+    }
+    for(Map.Entry<String, List<List<Integer>>> entry : context.CONSTELLATION_LINES.all().entrySet()) {
+      for(List<Integer> polyline : entry.getValue()) {
+        if (!Collections.disjoint(polyline, starIds)) {
+          digest.add(entry.getKey(), polyline);
+        }
+      }
+    }
+    for(DeepSkyObject dso : context.DEEP_SKY_OBJECTS) {
+      digest.add(dso.getDesig(), dso.getRa(), dso.getDec(), dso.getNickName(), dso.getDsoType(), dso.getCompassPoint());
+    }
+    digest.add(context.LABELS.all(context.LANG));
+    digest.add(new GreekAlphabet().namesOfLetters(context.LANG));
+    return digest.hex();
+  }
+
+  // PRIVATE
+
+  /** Computed once. The code doesn't change while the program is running. */
+  private static final String CODE_FINGERPRINT = codeFingerprint();
+
+  /**
+   Properties that don't change the look of a chart.
+   The parallel setting changes how the pages are put together, but not what's on them.
+  */
+  private static final List<String> IGNORED_PROPERTIES = List.of(
+    "mag5output", GeneratePdf.PARALLEL_PROPERTY, IncrementalBuild.INCREMENTAL_PROPERTY, WatchMode.WATCH_PROPERTY
+  );
+
+  /** All of the -Dmag5... settings, sorted by name. */
+  private static Map<String, String> settings() {
+    Map<String, String> result = new TreeMap<>();
+    for(String name : System.getProperties().stringPropertyNames()) {
+      if (name.startsWith("mag5") && !IGNORED_PROPERTIES.contains(name)) {
+        result.put(name, System.getProperty(name));
+      }
+    }
+    return result;
+  }
+
+  /**
+   A hash of all of the .class files, in the directory or jar that this class was loaded from.
+   If that can't be found, then a value that's different every time is returned, so that nothing is reused.
+  */
+  private static String codeFingerprint() {
+    Digest digest = new Digest();
+    try {
+      CodeSource codeSource = ChartHash.class.getProtectionDomain().getCodeSource();
+      Path location = Paths.get(codeSource.getLocation().toURI());
+      if (Files.isDirectory(location)) {
+        List<Path> classFiles = null;
+        try (Stream<Path> paths = Files.walk(location)) {
+          classFiles = paths.filter(p -> p.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+        }
+        for(Path classFile : classFiles) {
+          digest.add(location.relativize(classFile).toString());
+          digest.addBytes(Files.readAllBytes(classFile));
+        }
+      }
+      else {
+        try (ZipFile jar = new ZipFile(location.toFile())) {
+          List<ZipEntry> classFiles = new ArrayList<>();
+          jar.stream().filter(e -> e.getName().endsWith(".class")).forEach(classFiles::add);
+          classFiles.sort((a, b) -> a.getName().compareTo(b.getName()));
+          for(ZipEntry classFile : classFiles) {
+            digest.add(classFile.getName());
+            try (InputStream input = jar.getInputStream(classFile)) {
+              digest.addBytes(input.readAllBytes());
+            }
+          }
+        }
+      }
+    }
+    catch(IOException | URISyntaxException | RuntimeException ex) {
+      log("Can't find the compiled code, so no charts will be reused: " + ex);
+      digest.add(System.nanoTime());
+    }
+    return digest.hex();
+  }
+
+  /** SHA-256. Each item is added as text, followed by a separator, so that adjacent items can't run together. */
+  static final class Digest {
+    Digest(){
+      try {
+        sha = MessageDigest.getInstance("SHA-256");
+      }
+      catch (NoSuchAlgorithmException ex) {
+        throw new RuntimeException("SHA-256 is always present in the JDK.", ex);
+      }
+    }
+    void add(Object... items) {
+      for(Object item : items) {
+        sha.update(String.valueOf(item).getBytes(StandardCharsets.UTF_8));
+        sha.update((byte)0);
+      }
+    }
+    void addBytes(byte[] bytes) {
+      sha.update(bytes);
+    }
+    String hex() {
+      StringBuilder result = new StringBuilder();
+      for(byte b : sha.digest()) {
+        result.append(String.format("%02x", b));
+      }
+      return result.toString();
+    }
+    private MessageDigest sha;
+  }
+
+  private static void log(String msg) {
+    System.out.println(msg);
+  }
+}
@@ -0,0 +1,68 @@
+package mag5.book;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import mag5.draw.display.RasterRenderer;
+
+/**
+Generate a PNG image of each chart, for use on the web, and in e-readers.
+
+<P>The charts are drawn in exactly the same way as for the PDF, but into a display list, which is then
+rendered to an image by {@link RasterRenderer}, using more than one thread.
+There's one image for each page of charts in the book, named like 'chart-3-top.png'.
+
+<P>Settings, as System properties:
+<ul>
+ <li><code>-Dmag5pngdir=my-full-dir-name</code>: where to put the images. Default {@value #OUTPUT_DIR}.
+ <li><code>-Dmag5dpi=600</code>: the resolution of the images. Default {@value #DPI}.
+ <li><code>-Dmag5tilesize=512</code>: if set, then each image is also cut into square tiles of this many pixels, placed
+ in a directory having the same name as the image. Default none.
+</ul>
+Run with <code>-Djava.awt.headless=true</code> on a machine with no screen.
+*/
+public final class GenerateImages {
+
+  /** Default output directory - {@value}. */
+  static final String OUTPUT_DIR = "C:\\temp\\mag5-png\\";
+
+  /** Default resolution, in dots per inch - {@value}. */
+  static final int DPI = 300;
+
+  public static void main(String... args) throws IOException {
+    log("Mag 5 Star Atlas: starting PNG generation.");
+    Path dir = Paths.get(System.getProperty("mag5pngdir", OUTPUT_DIR));
+    int dpi = Integer.valueOf(System.getProperty("mag5dpi", String.valueOf(DPI)));
+    int tileSize = Integer.valueOf(System.getProperty("mag5tilesize", "0"));
+    Files.createDirectories(dir);
+    long start = System.nanoTime();
+    try (RasterRenderer renderer = new RasterRenderer(PdfConfig.WIDTH, PdfConfig.HEIGHT, dpi)){
+      new GeneratePdf().recordCharts((chartName, chart, hits) -> {
+        String fileName = chartName.replace(' ', '-');
+        long chartStart = System.nanoTime();
+        BufferedImage image = renderer.render(chart);
+        long rendered = System.nanoTime();
+        renderer.writePng(image, dir.resolve(fileName + ".png"));
+        if (tileSize > 0) {
+          renderer.writeTiles(image, tileSize, dir.resolve(fileName));
+        }
+        log(fileName + ": " + image.getWidth() + "x" + image.getHeight() + " pixels, rendered in " + millis(chartStart, rendered) +
+          " ms, written in " + millis(rendered, System.nanoTime()) + " ms.");
+      });
+    }
+    log("All images done in " + millis(start, System.nanoTime()) + " ms, at " + dpi + " dpi. Output directory: " + dir);
+  }
+
+  // PRIVATE
+
+  private static long millis(long start, long end) {
+    return (end - start) / 1000000;
+  }
+
+  private static void log(String msg) {
+    System.out.println(msg);
+  }
+}
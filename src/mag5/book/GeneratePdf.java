@@ -8,10 +8,16 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
 
 import com.itextpdf.awt.PdfGraphics2D;
 import com.itextpdf.text.Document;
@@ -23,6 +29,7 @@ import com.itextpdf.text.Paragraph;
 import com.itextpdf.text.Rectangle;
 import com.itextpdf.text.pdf.ColumnText;
 import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfImportedPage;
 import com.itextpdf.text.pdf.PdfPageEventHelper;
 import com.itextpdf.text.pdf.PdfTemplate;
 import com.itextpdf.text.pdf.PdfWriter;
@@ -33,9 +40,16 @@ import mag5.constellation.ConstellationLines;
 import mag5.deepskyobject.DeepSkyObject;
 import mag5.deepskyobject.DeepSkyObjects;
 import mag5.draw.Bounds;
+import mag5.draw.ChartHits;
 import mag5.draw.ChartUtil;
-import mag5.draw.Drawer;
+import mag5.draw.CurveSimplifier;
+import mag5.draw.DrawChart;
 import mag5.draw.Hemisphere;
+import mag5.draw.RenderContext;
+import mag5.draw.TextMetrics;
+import mag5.draw.display.DisplayList;
+import mag5.draw.display.RecordingGraphics;
+import mag5.draw.display.StateBatcher;
 import mag5.draw.equatorial.DrawEquatorialChart;
 import mag5.draw.polar.DrawPolarChart;
 import mag5.star.BayerLetterPlacement;
@@ -114,35 +128,181 @@ public class GeneratePdf {
   /** UTF-8 everywhere. */
   static final Charset ENCODING = StandardCharsets.UTF_8;
   
+  /** 
+   The name of the System property for rendering the charts in parallel - {@value}.
+   By default, the charts are rendered one after the other.
+   To render them at the same time, use <code>-Dmag5parallel=N</code>, where N is the number of threads. 
+   Each chart is recorded into a display list on a pool of threads, and those lists are 
+   then written into the book, in order, by the book's own writer.
+   The result is the same, and so is the size of the file, since the fonts are still embedded only once.
+  */
+  static final String PARALLEL_PROPERTY = "mag5parallel";
+  
+  /** 
+   The name of the System property for choosing how the charts are written to the PDF - {@value}.
+   By default, the charts are drawn with iText's Graphics2D.
+   To write the PDF operators directly instead, use <code>-Dmag5backend=direct</code>. 
+   See {@link PdfContentRenderer}.
+   The time taken and the size of each chart are logged, so the two can be compared.
+  */
+  static final String BACKEND_PROPERTY = "mag5backend";
+  
   /** Generate the star atlas as a single pdf file. */
   public static void main(String... args) throws DocumentException, IOException {
     log("Mag 5 Star Atlas: starting PDF generation.");
     GeneratePdf generator = new GeneratePdf();
-    generator.outputPdf();
+    if (WatchMode.isOn()) {
+      new WatchMode(generator).run();
+    }
+    else {
+      generator.outputPdf();
+    }
     log("Done.");
   }
   
-  /** Build the output PDF file from scratch. */
+  /** 
+   Build the output PDF file from scratch.
+   If this object is kept warm, then the chart data is read in only the first time, and unchanged charts are always reused.
+  */
   void outputPdf() throws DocumentException, MalformedURLException, IOException {
     String outputFile = outputFileName();
+    incremental = (warm || IncrementalBuild.isOn()) ? new IncrementalBuild(outputFile) : null;
+    symbols = SymbolLibrary.forNewPdf();
     initPdf(outputFile, fontDirectory());
-    initChartData();
+    if (north == null) {
+      initChartData();
+    }
     addMetadata();
     frontMatter(); 
     mainContent();
     pageCountDivisibleByFour();
     finalizeIt();
+    if (incremental != null) {
+      incremental.save();
+    }
     log("Output file: " + outputFile);
   }
   
+  /** 
+   Keep the chart data in memory between builds, and always reuse the charts that haven't changed.
+   Used by {@link WatchMode}. 
+  */
+  void keepWarm() {
+    warm = true;
+  }
+  
+  /* 
+   The reload methods read each file in full before replacing the old data. 
+   If a file can't be parsed (it's been saved half-edited, say), then an exception is thrown, and the old data is kept.
+  */
+  
+  /** Re-read the translations, along with the chart labels (which are translated). */
+  void reloadLabels() {
+    Label newLabels = new Label();
+    Map<Integer, List<ChartLabel>> newChartLabels = new ChartLabels(newLabels).readData();
+    labels = newLabels;
+    chartLabelMap = newChartLabels;
+    initContexts();
+  }
+  
+  /** Re-read the names of constellations, asterisms, and bright stars placed on each chart. */
+  void reloadChartLabels() {
+    Map<Integer, List<ChartLabel>> newChartLabels = new ChartLabels(labels).readData();
+    chartLabelMap = newChartLabels;
+    initContexts();
+  }
+  
+  /** Re-read where the Bayer letter of each star is placed. */
+  void reloadBayerLetterPlacement() {
+    BayerLetterPlacement placement = new BayerLetterPlacement();
+    placement.readData();
+    for(Star star : starCatalog.all()) {
+      star.BAYER_COMPASS_POINT = null;
+    }
+    placement.addBayerPlacementTo(starCatalog.all());
+  }
+  
+  /** 
+   Re-read the constellation lines.
+   The star catalog is rebuilt only if the stars that are part of the lines have changed, since they're never fused with close doubles.
+  */
+  void reloadConstellationLines() throws IOException {
+    ConstellationLines newLines = new ConstellationLines();
+    newLines.readData();
+    Set<Integer> oldStarIds = constellationLines.allStarIds();
+    constellationLines = newLines;
+    if (!oldStarIds.equals(constellationLines.allStarIds())) {
+      initStars();
+    }
+    initContexts();
+  }
+  
+  Map<Integer, List<ChartLabel>> chartLabels() {
+    return chartLabelMap;
+  }
+  
+  List<Star> stars(){
+    return starCatalog.all();
+  }
+  
+  /** Null until the chart data has been read in. */
+  StarCatalog starCatalog() {
+    return starCatalog;
+  }
+  
+  ConstellationLines constellationLines() {
+    return constellationLines;
+  }
+  
+  /** The names of all chart pages, in order. */
+  List<String> allCharts(){
+    return chartNames(page -> true);
+  }
+  
+  /** The names of the chart pages having any of the given chart numbers. */
+  List<String> chartsNumbered(Set<Integer> chartNums){
+    return chartNames(page -> chartNums.contains(page.chartNum));
+  }
+  
+  /** The names of the chart pages that show any of the given stars. */
+  List<String> chartsShowingAnyOf(Set<Integer> starIds){
+    return chartNames(page -> page.stars.stream().anyMatch(star -> starIds.contains(star.INDEX)));
+  }
+  
+  /** Receives each chart, as it's recorded, along with what's drawn where on it. */
+  interface ChartSink {
+    void accept(String chartName, DisplayList chart, ChartHits hits) throws IOException;
+  }
+  
+  /** 
+   Record each chart in a display list, in order, and pass it to the given sink. No PDF is written.
+   The chart data is read in the first time. Used by {@link GenerateImages}, {@link GenerateSvg}, and {@link TileServer}.
+  */
+  void recordCharts(ChartSink sink) throws IOException {
+    if (north == null) {
+      initChartData();
+    }
+    for(ChartPage page : chartPages()) {
+      RecordingGraphics recorder = new RecordingGraphics(PdfConfig.WIDTH, PdfConfig.HEIGHT);
+      withDefaults(recorder);
+      DrawChart chart = page.draw(recorder);
+      sink.accept(page.name, recorder.displayList(), chart.hits());
+    }
+  }
+  
   // PRIVATE
 
+  private boolean warm;
   private Document document;  
   private PdfWriter writer;
   
   private Graphics2D g;
   private PdfContentByte contentByte;
   private PdfTemplate template;
+  /** Star and deep sky object symbols, shared by all of the charts in the book. */
+  private SymbolLibrary symbols;
+  /** Unchanged charts are copied from the previous PDF. Null if that's turned off. */
+  private IncrementalBuild incremental;
   
   private Label labels = new Label();
   private Map<Integer, List<ChartLabel>> chartLabelMap;
@@ -150,6 +310,11 @@ public class GeneratePdf {
   private ConstellationLines constellationLines;
   private List<DeepSkyObject> dsos;
   
+  /** The data shared by the charts for the northern hemisphere. */
+  private RenderContext north;
+  /** The data shared by the charts for the southern hemisphere. */
+  private RenderContext south;
+  
   private String outputFileName() {
     return System.getProperty("mag5output", OUTPUT_FILE);
   }
@@ -184,20 +349,33 @@ public class GeneratePdf {
   }
   
   private void initChartData() throws IOException {
-    starCatalog = new StarCatalog();
-    starCatalog.generateIntermediateStarCatalog();
-    
     constellationLines = new ConstellationLines();
     constellationLines.readData();
     
+    initStars();
+    
     DeepSkyObjects dso = new DeepSkyObjects();
     dsos = dso.list();
     
     chartLabelMap = new ChartLabels(labels).readData();
+    initContexts();
+  }
+  
+  /** The star catalog, with the placement of Bayer letters. */
+  private void initStars() throws IOException {
+    starCatalog = new StarCatalog();
+    starCatalog.generateIntermediateStarCatalog(constellationLines.allStarIds());
     BayerLetterPlacement bayerLetterPlacement = new BayerLetterPlacement();
     bayerLetterPlacement.addBayerPlacementTo(starCatalog.all());
   }
   
+  private void initContexts() {
+    north = new RenderContext(
+      Hemisphere.NORTH, ChartUtil.lang(), PdfConfig.WIDTH, PdfConfig.HEIGHT, constellationLines, dsos, labels, chartLabelMap
+    );
+    south = north.withHemisphere(Hemisphere.SOUTH);
+  }
+  
   /** Text is defined in label-files, specific to each language. */
   private String text(String key) {
     return labels.text(key, ChartUtil.lang());
@@ -245,8 +423,6 @@ public class GeneratePdf {
     bothHemispheres();
     //DEBUGGING ONLY: to save time, you may want to restrict to a subset of the full set of charts
     //oneHemisphere();
-    //northPole(1);
-    //equatorialChartForNorth(2, 20.0, 2.0);
     listConstellations();
     about();
   }
@@ -254,24 +430,27 @@ public class GeneratePdf {
   /** For debugging. */
   @SuppressWarnings("unused")
   private void oneHemisphere() {
-    if (Hemisphere.NORTH == ChartUtil.HEMISPHERE) {
-      northPole(1);
-      equatorialChartForNorth(2, 20.0, 2.0);
-      equatorialChartForNorth(3, 1.0, 7.0);
-      equatorialChartForNorth(4, 5.0, 11.0);
-      equatorialChartForNorth(5, 10.0, 16.0);
-      equatorialChartForNorth(6, 15.0, 21.0);
-      southPole(7);
+    List<ChartPage> pages = new ArrayList<>();
+    RenderContext context = north; //change this to south, as desired
+    if (Hemisphere.NORTH == context.HEMISPHERE) {
+      northPole(1, context, pages);
+      equatorialChartFor(2, 20.0, 2.0, context, pages);
+      equatorialChartFor(3, 1.0, 7.0, context, pages);
+      equatorialChartFor(4, 5.0, 11.0, context, pages);
+      equatorialChartFor(5, 10.0, 16.0, context, pages);
+      equatorialChartFor(6, 15.0, 21.0, context, pages);
+      southPole(7, context, pages);
     }
     else {
-      southPole(1);
-      equatorialChartForSouth(2, 20.0, 2.0);
-      equatorialChartForSouth(3, 1.0, 7.0);
-      equatorialChartForSouth(4, 5.0, 11.0);
-      equatorialChartForSouth(5, 10.0, 16.0);
-      equatorialChartForSouth(6, 15.0, 21.0);
-      northPole(7);
+      southPole(1, context, pages);
+      equatorialChartFor(2, 20.0, 2.0, context, pages);
+      equatorialChartFor(3, 1.0, 7.0, context, pages);
+      equatorialChartFor(4, 5.0, 11.0, context, pages);
+      equatorialChartFor(5, 10.0, 16.0, context, pages);
+      equatorialChartFor(6, 15.0, 21.0, context, pages);
+      northPole(7, context, pages);
     }
+    drawThePages(pages);
   }
 
   /** 
@@ -280,22 +459,51 @@ public class GeneratePdf {
    You can use the charts to dream about traveling to the other hemisphere. 
   */
   private void bothHemispheres() {
-    ChartUtil.HEMISPHERE = Hemisphere.NORTH;
-    northPole(1);
-    equatorialChartForNorth(2, 20.0, 2.0);
-    equatorialChartForNorth(3, 1.0, 7.0);
-    equatorialChartForNorth(4, 5.0, 11.0);
-    equatorialChartForNorth(5, 10.0, 16.0);
-    equatorialChartForNorth(6, 15.0, 21.0);
+    List<ChartPage> pages = chartPages();
+    long start = System.nanoTime();
+    drawThePages(pages);
+    log("Charts drawn in " + (System.nanoTime() - start) / 1000000 + " ms, with the " + System.getProperty(BACKEND_PROPERTY, "graphics2d") + " backend.");
+    log(CurveSimplifier.stats());
+    log(TextMetrics.stats());
+    if (starCatalog.tileStats().length() > 0) {
+      log(starCatalog.tileStats());
+    }
+    if (isDirectBackend() && symbols != null) {
+      log("Reused symbols: " + symbols);
+    }
+    if (incremental != null) {
+      log(incremental.toString());
+    }
+  }
+  
+  /** All of the charts in the book, in order. Nothing is drawn yet. */
+  private List<ChartPage> chartPages() {
+    List<ChartPage> pages = new ArrayList<>();
+    northPole(1, north, pages);
+    equatorialChartFor(2, 20.0, 2.0, north, pages);
+    equatorialChartFor(3, 1.0, 7.0, north, pages);
+    equatorialChartFor(4, 5.0, 11.0, north, pages);
+    equatorialChartFor(5, 10.0, 16.0, north, pages);
+    equatorialChartFor(6, 15.0, 21.0, north, pages);
     
-    ChartUtil.HEMISPHERE = Hemisphere.SOUTH;
-    southPole(7);
+    southPole(7, south, pages);
     //these are 'upside down' with respect to the northern-hemisphere versions of these charts
-    equatorialChartForSouth(8, 20.0, 2.0);
-    equatorialChartForSouth(9, 1.0, 7.0);
-    equatorialChartForSouth(10, 5.0, 11.0);
-    equatorialChartForSouth(11, 10.0, 16.0);
-    equatorialChartForSouth(12, 15.0, 21.0);
+    equatorialChartFor(8, 20.0, 2.0, south, pages);
+    equatorialChartFor(9, 1.0, 7.0, south, pages);
+    equatorialChartFor(10, 5.0, 11.0, south, pages);
+    equatorialChartFor(11, 10.0, 16.0, south, pages);
+    equatorialChartFor(12, 15.0, 21.0, south, pages);
+    return pages;
+  }
+  
+  private List<String> chartNames(Predicate<ChartPage> filter){
+    List<String> result = new ArrayList<>();
+    for(ChartPage page : chartPages()) {
+      if (filter.test(page)) {
+        result.add(page.name);
+      }
+    }
+    return result;
   }
   
   private void overview() throws DocumentException {
@@ -315,9 +523,75 @@ public class GeneratePdf {
     return text;
   }
   
-  private void drawThePage(Drawer drawer) {
+  /** Draws a single chart into the given graphics context, and returns the chart. */
+  private interface ChartDrawing {
+    DrawChart draw(Graphics2D g);
+  }
+  
+  /** A single page holding a single chart, along with what goes into it. */
+  private static final class ChartPage {
+    ChartPage(String kind, int chartNum, Bounds bounds, List<Star> stars, RenderContext context, ChartDrawing drawing){
+      this.kind = kind;
+      this.chartNum = chartNum;
+      this.bounds = bounds;
+      this.stars = stars;
+      this.context = context;
+      this.drawing = drawing;
+      this.name = "chart " + chartNum + (bounds.isTopChart() ? " top" : " bottom");
+    }
+    final int chartNum;
+    final List<Star> stars;
+    /** For logging. */
+    final String name;
+    /** The hash of everything that goes into the chart. */
+    String hash() {
+      return ChartHash.of(kind, chartNum, bounds, stars, context);
+    }
+    DrawChart draw(Graphics2D g) {
+      return drawing.draw(g);
+    }
+    private String kind;
+    private Bounds bounds;
+    private RenderContext context;
+    private ChartDrawing drawing;
+  }
+  
+  /** Draw the given pages, in order, either one after the other, or in parallel. */
+  private void drawThePages(List<ChartPage> pages) {
+    int numThreads = Integer.valueOf(System.getProperty(PARALLEL_PROPERTY, "1"));
+    if (numThreads > 1) {
+      drawThePagesInParallel(pages, numThreads);
+    }
+    else {
+      for(ChartPage page : pages) {
+        if (!reuseThePage(page)) {
+          drawThePage(page);
+        }
+      }
+    }
+    if (incremental != null) {
+      incremental.doneWithCharts(writer);
+    }
+  }
+  
+  /** Returns true only if the chart hasn't changed, and its page has been copied from the previous PDF. */
+  private boolean reuseThePage(ChartPage page) {
+    if (incremental == null) {
+      return false;
+    }
+    PdfImportedPage oldPage = incremental.reuse(page.hash(), writer);
+    if (oldPage == null) {
+      return false;
+    }
+    log("Reusing " + page.name + " from the previous PDF. It hasn't changed.");
+    writer.getDirectContent().addTemplate(oldPage, 0, 0);
+    document.newPage();
+    return true;
+  }
+  
+  private void drawThePage(ChartPage page) {
     drawInit();
-    drawer.draw();
+    page.draw(g);
     drawEnd();
     document.newPage();
   }
@@ -326,78 +600,158 @@ public class GeneratePdf {
     log("Fresh graphics context.");
     contentByte = writer.getDirectContent();
     template = contentByte.createTemplate(PdfConfig.WIDTH, PdfConfig.HEIGHT);
-    g = new PdfGraphics2D(template, PdfConfig.WIDTH, PdfConfig.HEIGHT, new MyFontMapper());
+    g = graphicsFor(template);
+  }
+  
+  private static boolean isDirectBackend() {
+    return "direct".equalsIgnoreCase(System.getProperty(BACKEND_PROPERTY));
+  }
+  
+  /** With the direct backend, the chart is first recorded, and then written to the template in {@link #flush(Graphics2D, PdfTemplate, SymbolLibrary)}. */
+  private static Graphics2D graphicsFor(PdfTemplate template) {
+    Graphics2D result = null;
+    if (isDirectBackend()) {
+      result = new RecordingGraphics(PdfConfig.WIDTH, PdfConfig.HEIGHT);
+    }
+    else {
+      result = new PdfGraphics2D(template, PdfConfig.WIDTH, PdfConfig.HEIGHT, new MyFontMapper());
+    }
+    return withDefaults(result);
+  }
+  
+  /** The stroke and font used by all charts, unless they say otherwise. */
+  private static Graphics2D withDefaults(Graphics2D result) {
     BasicStroke thinStroke = new BasicStroke(ChartUtil.STROKE_WIDTH_DEFAULT);
     /*
     BasicStroke thinStroke2 = new BasicStroke(1.0f,
         BasicStroke.CAP_BUTT, //no decoration
         BasicStroke.JOIN_ROUND);
     */
-    g.setStroke(thinStroke);
-    g.setFont(ChartUtil.baseFont());
-    log("Graphics font: " + g.getFont().getFontName());
+    result.setStroke(thinStroke);
+    result.setFont(ChartUtil.baseFont());
+    log("Graphics font: " + result.getFont().getFontName());
     //g = template.createGraphics(PdfConfig.WIDTH, PdfConfig.HEIGHT, new DefaultFontMapper()); //watch out! : deprecated!
+    return result;
+  }
+  
+  /** Write what's been drawn to the template. The symbols are used only by the direct backend, and can be null. */
+  private static void flush(Graphics2D g, PdfTemplate template, SymbolLibrary symbols) {
+    if (g instanceof RecordingGraphics) {
+      writeDirectly(((RecordingGraphics)g).displayList(), template, symbols);
+    }
+    g.dispose();
+  }
+  
+  /** Write the PDF operators for a recorded chart to the template. */
+  private static void writeDirectly(DisplayList list, PdfTemplate template, SymbolLibrary symbols) {
+    if (StateBatcher.isOn()) {
+      log(list.stats());
+      list = StateBatcher.batch(list);
+      log("Batched. " + list.stats());
+    }
+    new PdfContentRenderer(template, PdfConfig.HEIGHT, new MyFontMapper(), symbols).render(list);
   }
   
   /** You need to call this to actually draw the items to the page. */
   private void drawEnd() {
     log("Flushing graphics.");
-    g.dispose();
+    flush(g, template, symbols);
+    log("Chart content: " + template.getInternalBuffer().size() + " bytes (uncompressed).");
     contentByte.addTemplate(template, 0, 0); // x,y positioning of graphics in PDF page
   }
   
-  private void northPole(int chartNum) {
-    polarChartFor(chartNum, 50.0, 90.0, 14.0, 2.0);
-    polarChartFor(chartNum, 50.0, 90.0, 2.0, 14.0);
+  /**
+   Record each chart in a display list, on a pool of threads.
+   Then write those lists into the book, in the original order, on this thread. 
+   The charts share nothing mutable, so they can be recorded at the same time.
+   The writer is not safe for use by more than one thread, and it's only used here.
+   Since every page goes through the same writer, the fonts and symbols are shared by all of the charts, 
+   just as when the charts are drawn one after the other.
+  */
+  private void drawThePagesInParallel(List<ChartPage> pages, int numThreads) {
+    log("Drawing " + pages.size() + " charts in parallel, using " + numThreads + " threads.");
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    try {
+      List<Future<DisplayList>> results = new ArrayList<>();
+      for(ChartPage page : pages) {
+        boolean unchanged = incremental != null && incremental.canReuse(page.hash());
+        results.add(unchanged ? null : executor.submit(() -> recordThePage(page)));
+      }
+      for(int idx = 0; idx < pages.size(); ++idx) {
+        if (!reuseThePage(pages.get(idx))) {
+          writeThePage(results.get(idx).get());
+        }
+      }
+    }
+    catch(InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while drawing the charts.", ex);
+    }
+    catch(ExecutionException ex) {
+      throw new RuntimeException("Unable to draw the charts.", ex);
+    }
+    finally {
+      executor.shutdown();
+    }
   }
   
-  private void southPole(int chartNum) {
-    polarChartFor(chartNum, -90.0, -50.0, 0.0, 12.0);
-    polarChartFor(chartNum, -90.0, -50.0, 12.0, 24.0);
+  /** Record a chart in a display list. No PDF is touched. */
+  private static DisplayList recordThePage(ChartPage page) {
+    RecordingGraphics recorder = new RecordingGraphics(PdfConfig.WIDTH, PdfConfig.HEIGHT);
+    withDefaults(recorder);
+    page.draw(recorder);
+    return recorder.displayList();
   }
   
-  private void polarChartFor(int chartNum, double decMin, double decMax, double raMin, double raMax) {
-    drawThePage(new Drawer() {
-      public void draw() {polarChart(chartNum, decMin, decMax, raMin, raMax);}
-    });
+  /** Write a recorded chart to a new page of the book, with the chosen backend. */
+  private void writeThePage(DisplayList chart) {
+    contentByte = writer.getDirectContent();
+    template = contentByte.createTemplate(PdfConfig.WIDTH, PdfConfig.HEIGHT);
+    if (isDirectBackend()) {
+      writeDirectly(chart, template, symbols);
+    }
+    else {
+      Graphics2D pdfGraphics = new PdfGraphics2D(template, PdfConfig.WIDTH, PdfConfig.HEIGHT, new MyFontMapper());
+      chart.replay(pdfGraphics);
+      pdfGraphics.dispose();
+    }
+    log("Chart content: " + template.getInternalBuffer().size() + " bytes (uncompressed).");
+    contentByte.addTemplate(template, 0, 0);
+    document.newPage();
   }
   
-  private void polarChart(int chartNum, double decMin, double decMax, double raMin, double raMax) {
-    Bounds bounds = new Bounds(decMin, decMax, raMin, raMax);
-    List<Star> stars = filterPolarStarsFor(bounds);
-    DrawPolarChart polarChart = new DrawPolarChart(chartNum, bounds, stars, constellationLines, dsos, labels, chartLabelMap.get(chartNum), g);
-    polarChart.draw();
+  private void northPole(int chartNum, RenderContext context, List<ChartPage> pages) {
+    polarChartFor(chartNum, 50.0, 90.0, 14.0, 2.0, context, pages);
+    polarChartFor(chartNum, 50.0, 90.0, 2.0, 14.0, context, pages);
   }
   
-  private static final boolean TOP = true;
-  private static final boolean BOTTOM = false;
-  private static final boolean NORTH = true;
-  private static final boolean SOUTH = false;
-  
-  private void equatorialChartForNorth(Integer chartNum, double raStart, double raEnd) {
-    drawThePage(new Drawer() {
-      public void draw() { equatorialChartNorth(chartNum, TOP, raStart, raEnd); }
-    });
-    drawThePage(new Drawer() {
-      public void draw() { equatorialChartNorth(chartNum, BOTTOM, raStart, raEnd); }
-    });
+  private void southPole(int chartNum, RenderContext context, List<ChartPage> pages) {
+    polarChartFor(chartNum, -90.0, -50.0, 0.0, 12.0, context, pages);
+    polarChartFor(chartNum, -90.0, -50.0, 12.0, 24.0, context, pages);
   }
   
-  private void equatorialChartForSouth(Integer chartNum, double raStart, double raEnd) {
-    drawThePage(new Drawer() {
-      public void draw() { equatorialChartSouth(chartNum, TOP, raStart, raEnd); }
-    });
-    drawThePage(new Drawer() {
-      public void draw() { equatorialChartSouth(chartNum, BOTTOM, raStart, raEnd); }
-    });
+  private void polarChartFor(int chartNum, double decMin, double decMax, double raMin, double raMax, RenderContext context, List<ChartPage> pages) {
+    Bounds bounds = context.bounds(decMin, decMax, raMin, raMax);
+    List<Star> stars = filterPolarStarsFor(bounds);
+    pages.add(new ChartPage("polar", chartNum, bounds, stars, context, g -> polarChart(chartNum, bounds, stars, context, g)));
   }
   
-  private void equatorialChartNorth(Integer chartNum, Boolean isTop, double raStart, double raEnd) {
-    equatorialChart(chartNum, NORTH, isTop, raStart, raEnd);
+  private DrawChart polarChart(int chartNum, Bounds bounds, List<Star> stars, RenderContext context, Graphics2D g) {
+    DrawPolarChart polarChart = new DrawPolarChart(chartNum, bounds, stars, context, g);
+    polarChart.draw();
+    return polarChart;
   }
   
-  private void equatorialChartSouth(Integer chartNum, Boolean isTop, double raStart, double raEnd) {
-    equatorialChart(chartNum, SOUTH, isTop, raStart, raEnd);
+  private static final boolean TOP = true;
+  private static final boolean BOTTOM = false;
+  
+  /** The top and bottom charts, in the hemisphere of the given context. */
+  private void equatorialChartFor(Integer chartNum, double raStart, double raEnd, RenderContext context, List<ChartPage> pages) {
+    for(Boolean isTop : List.of(TOP, BOTTOM)) {
+      Bounds bounds = equatorialBounds(isTop, raStart, raEnd, context);
+      List<Star> stars = filterEquatorialStarsFor(bounds);
+      pages.add(new ChartPage("equatorial", chartNum, bounds, stars, context, g -> equatorialChart(chartNum, bounds, stars, context, g)));
+    }
   }
   
   /** 
@@ -405,20 +759,24 @@ public class GeneratePdf {
    the hemisphere as well, since the stars positions are 'upside down' in the southern hemisphere.
    In the southern hem, the bounds are reversed with respect to the north. 
   */
-  private void equatorialChart(Integer chartNum, Boolean isNorthernHem, Boolean isTop, double raStart, double raEnd) {
+  private DrawChart equatorialChart(Integer chartNum, Bounds bounds, List<Star> stars, RenderContext context, Graphics2D g) {
+    DrawEquatorialChart chart = new DrawEquatorialChart(chartNum, bounds, stars, context, g);
+    chart.draw();
+    return chart;
+  }
+  
+  private Bounds equatorialBounds(Boolean isTop, double raStart, double raEnd, RenderContext context) {
     double maxDec = equatorialMaxDec(); //degs, positive
-    Bounds a = new Bounds(0.0, maxDec, raStart, raEnd);
-    Bounds b = new Bounds(-maxDec, 0.0, raStart, raEnd);
+    Bounds a = context.bounds(0.0, maxDec, raStart, raEnd);
+    Bounds b = context.bounds(-maxDec, 0.0, raStart, raEnd);
     Bounds bounds = null;
-    if (isNorthernHem) {
+    if (Hemisphere.NORTH == context.HEMISPHERE) {
       bounds = isTop ? a : b;
     }
     else {
       bounds = isTop ? b : a;
     }
-    List<Star> stars = filterEquatorialStarsFor(bounds);
-    DrawEquatorialChart chart = new DrawEquatorialChart(chartNum, bounds, stars, constellationLines, dsos, labels, chartLabelMap.get(chartNum), g);
-    chart.draw();
+    return bounds;
   }
   
   private double equatorialMaxDec() {
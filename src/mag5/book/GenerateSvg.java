@@ -0,0 +1,59 @@
+package mag5.book;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import mag5.draw.display.SvgRenderer;
+
+/**
+Generate an SVG file for each chart, for use on the web.
+
+<P>The charts are drawn in exactly the same way as for the PDF, but into a display list, which is then
+written out by {@link SvgRenderer}. Each file is streamed straight to disk, so only one chart is in memory at a time.
+There's one file for each page of charts in the book, named like 'chart-3-top.svg'.
+
+<P>Settings, as System properties:
+<ul>
+ <li><code>-Dmag5svgdir=my-full-dir-name</code>: where to put the files. Default {@value #OUTPUT_DIR}.
+</ul>
+Run with <code>-Djava.awt.headless=true</code> on a machine with no screen.
+*/
+public final class GenerateSvg {
+
+  /** Default output directory - {@value}. */
+  static final String OUTPUT_DIR = "C:\\temp\\mag5-svg\\";
+
+  public static void main(String... args) throws IOException {
+    log("Mag 5 Star Atlas: starting SVG generation.");
+    Path dir = Paths.get(System.getProperty("mag5svgdir", OUTPUT_DIR));
+    Files.createDirectories(dir);
+    long start = System.nanoTime();
+    new GeneratePdf().recordCharts((chartName, chart, hits) -> {
+      String fileName = chartName.replace(' ', '-') + ".svg";
+      long chartStart = System.nanoTime();
+      Path file = dir.resolve(fileName);
+      try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), GeneratePdf.ENCODING), BUFFER_SIZE)){
+        new SvgRenderer(out, PdfConfig.WIDTH, PdfConfig.HEIGHT).render(chart);
+      }
+      log(fileName + ": " + Files.size(file) / 1024 + " KB, written in " + millis(chartStart, System.nanoTime()) + " ms.");
+    });
+    log("All SVG files done in " + millis(start, System.nanoTime()) + " ms. Output directory: " + dir);
+  }
+
+  // PRIVATE
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static long millis(long start, long end) {
+    return (end - start) / 1000000;
+  }
+
+  private static void log(String msg) {
+    System.out.println(msg);
+  }
+}
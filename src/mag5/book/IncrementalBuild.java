@@ -0,0 +1,162 @@
+package mag5.book;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.itextpdf.text.pdf.PdfImportedPage;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfWriter;
+
+/**
+ Reuse the charts of the previous PDF, when nothing that goes into them has changed.
+
+ <P>Editing a single line of a data file (the labels for a chart, or where a Bayer letter is placed)
+ would otherwise mean drawing all of the charts again.
+ Here, each chart has a hash of its inputs (see {@link ChartHash}).
+ When the PDF is written, a small text file is written beside it, listing the hash of the chart on each page.
+ The next time, any chart with the same hash is simply copied from the old PDF, as an imported page.
+ Only the charts that have changed are drawn again. The text pages are always generated from scratch.
+
+ <P>The text file has the same name as the PDF, with '{@value #SUFFIX}' added to the end.
+ It also holds a hash of the whole PDF; if the PDF has been replaced by some other means, then nothing is reused.
+
+ <P>This is off by default. To turn it on, use <code>-Dmag5incremental=on</code>.
+ Not safe for use by more than one thread.
+*/
+final class IncrementalBuild {
+
+  /** The name of the system property used to turn on incremental builds - {@value}. */
+  static final String INCREMENTAL_PROPERTY = "mag5incremental";
+
+  /** Added to the name of the PDF file, to get the name of the file that lists the hashes of its charts - {@value}. */
+  static final String SUFFIX = ".charts";
+
+  /** Returns true only if incremental builds have been turned on. */
+  static boolean isOn() {
+    return "on".equalsIgnoreCase(System.getProperty(INCREMENTAL_PROPERTY, "off"));
+  }
+
+  /**
+   Read in the previous PDF, if there is one.
+   This must be called before the new PDF is opened, since that overwrites the old one.
+  */
+  IncrementalBuild(String pdfFile) throws IOException {
+    this.pdfFile = Paths.get(pdfFile);
+    this.chartsFile = Paths.get(pdfFile + SUFFIX);
+    readPrevious();
+  }
+
+  /** Returns true only if a chart with the given hash is in the previous PDF. */
+  boolean canReuse(String hash) {
+    return previousPages.containsKey(hash);
+  }
+
+  /**
+   Returns the old page for a chart that has the given hash, or null if the chart needs to be drawn.
+   Also remembers the hash for the current page of the given writer.
+  */
+  PdfImportedPage reuse(String hash, PdfWriter writer) {
+    PdfImportedPage result = null;
+    Integer oldPage = previousPages.get(hash);
+    if (oldPage != null) {
+      result = writer.getImportedPage(previousPdf, oldPage);
+      ++numReused;
+    }
+    else {
+      ++numDrawn;
+    }
+    newPages.add(hash + " " + writer.getPageNumber());
+    return result;
+  }
+
+  /** Call this after the last chart has been added. */
+  void doneWithCharts(PdfWriter writer) {
+    if (previousPdf != null) {
+      if (numReused > 0) {
+        try {
+          writer.freeReader(previousPdf);
+        }
+        catch(IOException ex) {
+          throw new RuntimeException("Unable to copy the charts from the previous PDF.", ex);
+        }
+      }
+      previousPdf.close();
+      previousPdf = null;
+    }
+  }
+
+  /** Call this after the new PDF has been closed. Writes the list of hashes for the new PDF. */
+  void save() throws IOException {
+    List<String> lines = new ArrayList<>();
+    lines.add("# The hash of each chart in " + pdfFile.getFileName() + ", and its page number. See -D" + INCREMENTAL_PROPERTY + ".");
+    lines.add(PDF + " " + hashOf(Files.readAllBytes(pdfFile)));
+    lines.addAll(newPages);
+    Files.write(chartsFile, lines, GeneratePdf.ENCODING);
+  }
+
+  /** For logging. */
+  @Override public String toString() {
+    return "Charts reused from the previous PDF: " + numReused + ". Charts drawn: " + numDrawn + ".";
+  }
+
+  // PRIVATE
+
+  private static final String PDF = "pdf";
+
+  private Path pdfFile;
+  private Path chartsFile;
+  private PdfReader previousPdf;
+  /** The key is the hash of a chart, and the value is its page number in the previous PDF. */
+  private Map<String, Integer> previousPages = new HashMap<>();
+  private List<String> newPages = new ArrayList<>();
+  private int numReused;
+  private int numDrawn;
+
+  private void readPrevious() throws IOException {
+    if (!Files.exists(pdfFile) || !Files.exists(chartsFile)) {
+      log("No previous PDF to reuse charts from. All charts will be drawn.");
+      return;
+    }
+    //the old file is about to be overwritten, so it's read into memory
+    byte[] pdf = Files.readAllBytes(pdfFile);
+    String pdfHash = hashOf(pdf);
+    Map<String, Integer> pages = new HashMap<>();
+    boolean matchesPdf = false;
+    for(String line : Files.readAllLines(chartsFile, GeneratePdf.ENCODING)) {
+      if (line.startsWith("#") || line.trim().isEmpty()) {
+        continue;
+      }
+      String[] parts = line.trim().split(" ");
+      if (PDF.equals(parts[0])) {
+        matchesPdf = pdfHash.equals(parts[1]);
+      }
+      else {
+        pages.put(parts[0], Integer.valueOf(parts[1]));
+      }
+    }
+    if (matchesPdf) {
+      previousPdf = new PdfReader(pdf);
+      previousPages = pages;
+      log("Previous PDF has " + pages.size() + " charts that can be reused.");
+    }
+    else {
+      log("The previous PDF doesn't match " + chartsFile.getFileName() + ". All charts will be drawn.");
+    }
+  }
+
+  private static String hashOf(byte[] bytes) {
+    ChartHash.Digest digest = new ChartHash.Digest();
+    digest.addBytes(bytes);
+    return digest.hex();
+  }
+
+  private static void log(String msg) {
+    System.out.println(msg);
+  }
+}
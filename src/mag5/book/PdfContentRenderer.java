@@ -0,0 +1,667 @@
+package mag5.book;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Paint;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.itextpdf.awt.FontMapper;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.BaseFont;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfGState;
+import com.itextpdf.text.pdf.PdfTemplate;
+
+import mag5.draw.display.DisplayList;
+
+/**
+ Render a {@link DisplayList} by writing PDF operators directly, without using iText's Graphics2D.
+
+ <P>iText's Graphics2D turns everything into a generic path, using the path iterators of java.awt.
+ Here, the items are written more directly:
+ <ul>
+  <li>dots and ovals are four Bezier curves
+  <li>lines and polylines are runs of <code>m</code> and <code>l</code>
+  <li>rectangles use <code>re</code>, when they're not rotated
+  <li>the line width, dashes, and colours are written only when they change
+  <li>text is placed using the {@link BaseFont}, with the widths of each piece of text remembered
+  <li>the symbols for stars and deep sky objects are written only once, and then reused (see {@link SymbolLibrary})
+ </ul>
+
+ <P>Text is placed in the same way as iText's Graphics2D: the width given by java.awt is used to
+ stretch the text (with the character spacing), and bold and italic are simulated in the same way, when the font
+ doesn't have them. So the text lands in the same places, and the charts look the same.
+ But the content is not the same byte-for-byte.
+
+ <P>Images and gradients are not supported, since the charts don't use them.
+ Only a BasicStroke is written directly; any other kind of stroke is filled as a shape.
+*/
+final class PdfContentRenderer {
+
+  /**
+   @param content where the operators are written.
+   @param height of the page, in points. java.awt has y going down the page, while PDF has y going up.
+   @param fontMapper maps the fonts of java.awt to PDF fonts.
+   @param symbols holds the symbols that have been written to the PDF; if null, symbols are simply drawn each time.
+  */
+  PdfContentRenderer(PdfContentByte content, float height, FontMapper fontMapper, SymbolLibrary symbols) {
+    this.content = content;
+    this.height = height;
+    this.fontMapper = fontMapper;
+    this.symbols = symbols;
+  }
+
+  /** Write all of the items in the given list. */
+  void render(DisplayList list) {
+    content.saveState();
+    resetGraphicsState();
+    for(int item = 0; item < list.size(); ++item) {
+      if (symbols != null && list.op(item) == DisplayList.SYMBOL && isReusable(item, list)) {
+        placeSymbol(item, list);
+        item = item + list.symbolLength(item);
+      }
+      else {
+        render(item, list);
+      }
+    }
+    content.restoreState();
+  }
+
+  // PRIVATE
+
+  private PdfContentByte content;
+  private float height;
+  private FontMapper fontMapper;
+  private SymbolLibrary symbols;
+
+  /** Bezier control points for a quarter circle. */
+  private static final double KAPPA = 0.5522847498307936;
+
+  /* The state of java.awt, as it would be in the graphics context. Starts the same as iText's Graphics2D. */
+  private Paint paint = Color.black;
+  private Stroke stroke = new BasicStroke(1.0f);
+  private Font font = new Font("sanserif", Font.PLAIN, 12);
+  private AffineTransform transform = new AffineTransform();
+  private RenderingHints hints = new RenderingHints(null);
+
+  /* The state of the PDF, as last written. Null or negative means 'unknown'. */
+  private Color fillColor;
+  private Color strokeColor;
+  private int fillAlpha;
+  private int strokeAlpha;
+  private float lineWidth;
+  private int lineCap;
+  private int lineJoin;
+  private float miterLimit;
+  private float[] dash;
+
+  /** Mapping a font is slow, so each one is remembered. */
+  private Map<Font, BaseFont> baseFonts = new HashMap<>();
+  /** The character spacing for each piece of text, for each font. The same text appears many times. */
+  private Map<Font, Map<String, Float>> spacings = new HashMap<>();
+  private Map<Integer, PdfGState> fillStates = new HashMap<>();
+  private Map<Integer, PdfGState> strokeStates = new HashMap<>();
+
+  /** Used when transforming points. */
+  private double[] points = new double[26];
+  private double lastX;
+  private double lastY;
+
+  private void render(int item, DisplayList list) {
+    switch(list.op(item)) {
+      case DisplayList.DOT: fillOval(list.intArg(item, 0), list.intArg(item, 1), list.intArg(item, 2), list.intArg(item, 3)); break;
+      case DisplayList.OVAL: drawOval(list.intArg(item, 0), list.intArg(item, 1), list.intArg(item, 2), list.intArg(item, 3)); break;
+      case DisplayList.LINE: drawLine(list.intArg(item, 0), list.intArg(item, 1), list.intArg(item, 2), list.intArg(item, 3)); break;
+      case DisplayList.RECT: rect(list.intArg(item, 0), list.intArg(item, 1), list.intArg(item, 2), list.intArg(item, 3), false); break;
+      case DisplayList.FILLED_RECT: rect(list.intArg(item, 0), list.intArg(item, 1), list.intArg(item, 2), list.intArg(item, 3), true); break;
+      case DisplayList.PATH: draw(list.shape(item)); break;
+      case DisplayList.FILLED_PATH: fill(list.shape(item)); break;
+      case DisplayList.TEXT: text(list.text(item), (float)list.doubleArg(item, 0), (float)list.doubleArg(item, 1)); break;
+      case DisplayList.SYMBOL: break; //the items that make up the symbol follow this one
+      case DisplayList.CLIP: setClip(list.shape(item)); break;
+      case DisplayList.NO_CLIP: setClip(null); break;
+      case DisplayList.CLIP_INTERSECT: clip(list.shape(item)); break;
+      case DisplayList.COLOR: paint = (Color)list.objectArg(item, 0); break;
+      case DisplayList.PAINT: paint = (Paint)list.objectArg(item, 0); break;
+      case DisplayList.STROKE: stroke = (Stroke)list.objectArg(item, 0); break;
+      case DisplayList.FONT: font = (Font)list.objectArg(item, 0); break;
+      case DisplayList.HINT: list.applyHint(item, hints); break;
+      case DisplayList.BACKGROUND: break; //only used by clearRect, which the recorder turns into a fill
+      case DisplayList.COMPOSITE: break; //not supported, as in iText's Graphics2D
+      case DisplayList.TRANSFORM: transform.concatenate(list.matrix(item)); break;
+      case DisplayList.SET_TRANSFORM: transform = list.matrix(item); break;
+      case DisplayList.TRANSLATE: transform.translate(list.doubleArg(item, 0), list.doubleArg(item, 1)); break;
+      case DisplayList.ROTATE: transform.rotate(list.doubleArg(item, 0)); break;
+      case DisplayList.ROTATE_ABOUT: transform.rotate(list.doubleArg(item, 0), list.doubleArg(item, 1), list.doubleArg(item, 2)); break;
+      case DisplayList.SCALE: transform.scale(list.doubleArg(item, 0), list.doubleArg(item, 1)); break;
+      case DisplayList.SHEAR: transform.shear(list.doubleArg(item, 0), list.doubleArg(item, 1)); break;
+      default: throw new IllegalArgumentException("Unknown item in display list: " + list.op(item));
+    }
+  }
+
+  /** After a restore, the PDF is back to its defaults. */
+  private void resetGraphicsState() {
+    fillColor = Color.black;
+    strokeColor = Color.black;
+    fillAlpha = 255;
+    strokeAlpha = 255;
+    lineWidth = 1.0f;
+    lineCap = 0;
+    lineJoin = 0;
+    miterLimit = 10.0f;
+    dash = new float[0];
+  }
+
+  /** A template has no state of its own, so everything needs to be written. */
+  private void unknownGraphicsState() {
+    fillColor = null;
+    strokeColor = null;
+    fillAlpha = -1;
+    strokeAlpha = -1;
+    lineWidth = -1;
+    lineCap = -1;
+    lineJoin = -1;
+    miterLimit = -1;
+    dash = null;
+  }
+
+  // SYMBOLS
+
+  /** Only simple shapes in a single colour, with no text, clipping, or transforms. */
+  private boolean isReusable(int symbol, DisplayList list) {
+    boolean result = paint instanceof Color;
+    int end = symbol + list.symbolLength(symbol);
+    for(int item = symbol + 1; result && item <= end; ++item) {
+      int op = list.op(item);
+      result = isShape(op) || op == DisplayList.COLOR || op == DisplayList.STROKE;
+    }
+    return result;
+  }
+
+  private static boolean isShape(int op) {
+    return op == DisplayList.DOT || op == DisplayList.OVAL || op == DisplayList.LINE || op == DisplayList.RECT
+      || op == DisplayList.FILLED_RECT || op == DisplayList.PATH || op == DisplayList.FILLED_PATH;
+  }
+
+  /**
+   Reference the template for the symbol, creating it the first time the symbol is seen.
+   The template is in the coordinates of java.awt, relative to the symbol's position, but with y going up.
+   Painting a template saves and restores the graphics state, so the only change in state is the
+   one made by the symbol to the state of java.awt (the colour and the stroke).
+  */
+  private void placeSymbol(int symbol, DisplayList list) {
+    int x = list.intArg(symbol, 2);
+    int y = list.intArg(symbol, 3);
+    List<Object> key = Arrays.asList(list.objectArg(symbol, 0), paint, stroke);
+    PdfTemplate template = symbols.get(key);
+    if (template == null) {
+      template = createSymbol(symbol, list, x, y);
+      symbols.put(key, template);
+    }
+    AffineTransform at = new AffineTransform(1, 0, 0, -1, 0, height); //flip to PDF space
+    at.concatenate(transform);
+    at.translate(x, y);
+    at.scale(1, -1);
+    double[] m = new double[6];
+    at.getMatrix(m);
+    content.addTemplate(template, (float)m[0], (float)m[1], (float)m[2], (float)m[3], (float)m[4], (float)m[5]);
+    int end = symbol + list.symbolLength(symbol);
+    for(int item = symbol + 1; item <= end; ++item) {
+      if (!isShape(list.op(item))) {
+        render(item, list);
+      }
+    }
+  }
+
+  private PdfTemplate createSymbol(int symbol, DisplayList list, int x, int y) {
+    PdfTemplate result = content.createTemplate(0, 0);
+    PdfContentRenderer renderer = new PdfContentRenderer(result, 0, fontMapper, null);
+    renderer.paint = paint;
+    renderer.stroke = stroke;
+    renderer.transform = AffineTransform.getTranslateInstance(-x, -y);
+    renderer.unknownGraphicsState(); //a template takes on the state of the page where it's used
+    Rectangle2D box = null;
+    int end = symbol + list.symbolLength(symbol);
+    for(int item = symbol + 1; item <= end; ++item) {
+      if (isShape(list.op(item))) {
+        Rectangle2D bounds = renderer.bounds(item, list);
+        box = (box == null) ? bounds : box.createUnion(bounds);
+      }
+      renderer.render(item, list);
+    }
+    if (box == null) {
+      box = new Rectangle2D.Double();
+    }
+    //y is flipped in the template
+    result.setBoundingBox(new Rectangle((float)box.getMinX(), (float)-box.getMaxY(), (float)box.getMaxX(), (float)-box.getMinY()));
+    return result;
+  }
+
+  /** The area covered by the given shape, in the space of the template, with a margin for the width of the line. */
+  private Rectangle2D bounds(int item, DisplayList list) {
+    Rectangle2D result = null;
+    int op = list.op(item);
+    if (op == DisplayList.PATH || op == DisplayList.FILLED_PATH) {
+      result = list.shape(item).getBounds2D();
+    }
+    else if (op == DisplayList.LINE) {
+      result = new Line2D.Double(list.intArg(item, 0), list.intArg(item, 1), list.intArg(item, 2), list.intArg(item, 3)).getBounds2D();
+    }
+    else {
+      result = new Rectangle2D.Double(list.intArg(item, 0), list.intArg(item, 1), list.intArg(item, 2), list.intArg(item, 3));
+    }
+    result = transform.createTransformedShape(result).getBounds2D();
+    double margin = 1 + (stroke instanceof BasicStroke ? ((BasicStroke)stroke).getLineWidth() : 1);
+    return new Rectangle2D.Double(
+      result.getX() - margin, result.getY() - margin, result.getWidth() + 2 * margin, result.getHeight() + 2 * margin
+    );
+  }
+
+  // CLIPPING
+
+  /** As in iText's Graphics2D, the old clip is removed by restoring the graphics state. */
+  private void setClip(Shape clip) {
+    content.restoreState();
+    content.saveState();
+    resetGraphicsState();
+    if (clip != null) {
+      clip(clip);
+    }
+  }
+
+  private void clip(Shape clip) {
+    int winding = path(clip);
+    if (winding == PathIterator.WIND_EVEN_ODD) {
+      content.eoClip();
+    }
+    else {
+      content.clip();
+    }
+    content.newPath();
+  }
+
+  // SHAPES
+
+  private void fillOval(int x, int y, int width, int height) {
+    if (useFill()) {
+      ellipse(x, y, width, height);
+      content.fill();
+    }
+  }
+
+  private void drawOval(int x, int y, int width, int height) {
+    if (isBasicStroke()) {
+      if (useStroke()) {
+        ellipse(x, y, width, height);
+        content.stroke();
+      }
+    }
+    else {
+      fill(stroke.createStrokedShape(new Ellipse2D.Float(x, y, width, height)));
+    }
+  }
+
+  private void drawLine(int x1, int y1, int x2, int y2) {
+    if (isBasicStroke()) {
+      if (useStroke()) {
+        moveTo(x1, y1);
+        lineTo(x2, y2);
+        content.stroke();
+      }
+    }
+    else {
+      fill(stroke.createStrokedShape(new Line2D.Double(x1, y1, x2, y2)));
+    }
+  }
+
+  private void rect(int x, int y, int width, int height, boolean isFilled) {
+    if (!isFilled && !isBasicStroke()) {
+      fill(stroke.createStrokedShape(new Rectangle2D.Double(x, y, width, height)));
+    }
+    else if (isFilled ? useFill() : useStroke()) {
+      if (transform.getShearX() == 0 && transform.getShearY() == 0) {
+        points[0] = x;
+        points[1] = y;
+        points[2] = x + width;
+        points[3] = y + height;
+        transform.transform(points, 0, points, 0, 2);
+        double left = Math.min(points[0], points[2]);
+        double bottom = height(Math.max(points[1], points[3]));
+        content.rectangle((float)left, (float)bottom, (float)Math.abs(points[2] - points[0]), (float)Math.abs(points[3] - points[1]));
+      }
+      else {
+        moveTo(x, y);
+        lineTo(x + width, y);
+        lineTo(x + width, y + height);
+        lineTo(x, y + height);
+        content.closePath();
+      }
+      if (isFilled) {
+        content.fill();
+      }
+      else {
+        content.stroke();
+      }
+    }
+  }
+
+  private void draw(Shape shape) {
+    if (isBasicStroke()) {
+      if (useStroke()) {
+        path(shape);
+        content.stroke();
+      }
+    }
+    else {
+      fill(stroke.createStrokedShape(shape));
+    }
+  }
+
+  private void fill(Shape shape) {
+    if (useFill()) {
+      int winding = path(shape);
+      if (winding == PathIterator.WIND_EVEN_ODD) {
+        content.eoFill();
+      }
+      else {
+        content.fill();
+      }
+    }
+  }
+
+  /** Four Bezier curves, starting at 3 o'clock, and going around in the same direction as java.awt. */
+  private void ellipse(double x, double y, double width, double height) {
+    double rx = width / 2.0;
+    double ry = height / 2.0;
+    double cx = x + rx;
+    double cy = y + ry;
+    double kx = KAPPA * rx;
+    double ky = KAPPA * ry;
+    double[] p = points;
+    p[0] = cx + rx; p[1] = cy;
+    p[2] = cx + rx; p[3] = cy + ky;   p[4] = cx + kx; p[5] = cy + ry;   p[6] = cx; p[7] = cy + ry;
+    p[8] = cx - kx; p[9] = cy + ry;   p[10] = cx - rx; p[11] = cy + ky; p[12] = cx - rx; p[13] = cy;
+    p[14] = cx - rx; p[15] = cy - ky; p[16] = cx - kx; p[17] = cy - ry; p[18] = cx; p[19] = cy - ry;
+    p[20] = cx + kx; p[21] = cy - ry; p[22] = cx + rx; p[23] = cy - ky; p[24] = cx + rx; p[25] = cy;
+    transform.transform(p, 0, p, 0, 13);
+    content.moveTo((float)p[0], (float)height(p[1]));
+    for(int i = 2; i < 26; i += 6) {
+      content.curveTo(
+        (float)p[i], (float)height(p[i + 1]), (float)p[i + 2], (float)height(p[i + 3]), (float)p[i + 4], (float)height(p[i + 5])
+      );
+    }
+    content.closePath();
+  }
+
+  private void moveTo(double x, double y) {
+    points[0] = x;
+    points[1] = y;
+    transform.transform(points, 0, points, 0, 1);
+    content.moveTo((float)points[0], (float)height(points[1]));
+  }
+
+  private void lineTo(double x, double y) {
+    points[0] = x;
+    points[1] = y;
+    transform.transform(points, 0, points, 0, 1);
+    content.lineTo((float)points[0], (float)height(points[1]));
+  }
+
+  /** Write the path, in device space. Quadratic curves become cubic curves. Returns the winding rule. */
+  private int path(Shape shape) {
+    PathIterator iter = shape.getPathIterator(transform);
+    double[] c = new double[6];
+    while (!iter.isDone()) {
+      int type = iter.currentSegment(c);
+      switch(type) {
+        case PathIterator.SEG_MOVETO:
+          content.moveTo((float)c[0], (float)height(c[1]));
+          lastX = c[0];
+          lastY = c[1];
+          break;
+        case PathIterator.SEG_LINETO:
+          content.lineTo((float)c[0], (float)height(c[1]));
+          lastX = c[0];
+          lastY = c[1];
+          break;
+        case PathIterator.SEG_QUADTO:
+          double x1 = lastX + 2.0 / 3.0 * (c[0] - lastX);
+          double y1 = lastY + 2.0 / 3.0 * (c[1] - lastY);
+          double x2 = c[2] + 2.0 / 3.0 * (c[0] - c[2]);
+          double y2 = c[3] + 2.0 / 3.0 * (c[1] - c[3]);
+          content.curveTo((float)x1, (float)height(y1), (float)x2, (float)height(y2), (float)c[2], (float)height(c[3]));
+          lastX = c[2];
+          lastY = c[3];
+          break;
+        case PathIterator.SEG_CUBICTO:
+          content.curveTo((float)c[0], (float)height(c[1]), (float)c[2], (float)height(c[3]), (float)c[4], (float)height(c[5]));
+          lastX = c[4];
+          lastY = c[5];
+          break;
+        case PathIterator.SEG_CLOSE:
+          content.closePath();
+          break;
+      }
+      iter.next();
+    }
+    return iter.getWindingRule();
+  }
+
+  private double height(double y) {
+    return height - y;
+  }
+
+  // GRAPHICS STATE
+
+  private boolean isBasicStroke() {
+    return stroke instanceof BasicStroke;
+  }
+
+  /** Write the fill colour, if it has changed. Returns false if there's nothing to draw. */
+  private boolean useFill() {
+    Color color = color();
+    if (!color.equals(fillColor)) {
+      content.setRGBColorFill(color.getRed(), color.getGreen(), color.getBlue());
+      fillColor = color;
+    }
+    if (color.getAlpha() != fillAlpha) {
+      content.setGState(fillState(color.getAlpha()));
+      fillAlpha = color.getAlpha();
+    }
+    return color.getAlpha() > 0;
+  }
+
+  /** Write the stroke colour and the line style, if they have changed. Returns false if there's nothing to draw. */
+  private boolean useStroke() {
+    Color color = color();
+    setStrokeColor(color);
+    BasicStroke basic = (BasicStroke)stroke;
+    //the line width and dashes are scaled by the transform, as in iText's Graphics2D
+    float scale = (float)Math.sqrt(Math.abs(transform.getDeterminant()));
+    float width = basic.getLineWidth() * scale;
+    if (width != lineWidth) {
+      content.setLineWidth(width);
+      lineWidth = width;
+    }
+    if (basic.getEndCap() != lineCap) {
+      content.setLineCap(basic.getEndCap()); //same numbering as PDF
+      lineCap = basic.getEndCap();
+    }
+    if (basic.getLineJoin() != lineJoin) {
+      content.setLineJoin(basic.getLineJoin()); //same numbering as PDF
+      lineJoin = basic.getLineJoin();
+    }
+    if (basic.getMiterLimit() != miterLimit) {
+      content.setMiterLimit(basic.getMiterLimit());
+      miterLimit = basic.getMiterLimit();
+    }
+    float[] newDash = dash(basic, scale);
+    if (!Arrays.equals(newDash, dash)) {
+      content.setLineDash(newDash, basic.getDashPhase() * scale);
+      dash = newDash;
+    }
+    return color.getAlpha() > 0;
+  }
+
+  private void setStrokeColor(Color color) {
+    if (!color.equals(strokeColor)) {
+      content.setRGBColorStroke(color.getRed(), color.getGreen(), color.getBlue());
+      strokeColor = color;
+    }
+    if (color.getAlpha() != strokeAlpha) {
+      content.setGState(strokeState(color.getAlpha()));
+      strokeAlpha = color.getAlpha();
+    }
+  }
+
+  private float[] dash(BasicStroke basic, float scale) {
+    float[] result = new float[0];
+    if (basic.getDashArray() != null) {
+      result = basic.getDashArray().clone();
+      for(int i = 0; i < result.length; ++i) {
+        result[i] = result[i] * scale;
+      }
+    }
+    return result;
+  }
+
+  /** Gradients and textures aren't supported; they are drawn in black. */
+  private Color color() {
+    return paint instanceof Color ? (Color)paint : Color.black;
+  }
+
+  private PdfGState fillState(int alpha) {
+    PdfGState result = fillStates.get(alpha);
+    if (result == null) {
+      result = new PdfGState();
+      result.setFillOpacity(alpha / 255.0f);
+      fillStates.put(alpha, result);
+    }
+    return result;
+  }
+
+  private PdfGState strokeState(int alpha) {
+    PdfGState result = strokeStates.get(alpha);
+    if (result == null) {
+      result = new PdfGState();
+      result.setStrokeOpacity(alpha / 255.0f);
+      strokeStates.put(alpha, result);
+    }
+    return result;
+  }
+
+  // TEXT
+
+  /** Places the text in the same way as iText's Graphics2D. */
+  private void text(String text, float x, float y) {
+    if (text.length() == 0 || !useFill()) {
+      return;
+    }
+    BaseFont baseFont = baseFont(font);
+    float size = font.getSize2D();
+
+    AffineTransform at = new AffineTransform(transform);
+    at.translate(x, y);
+    at.concatenate(font.getTransform());
+    AffineTransform matrix = new AffineTransform(1, 0, 0, -1, 0, height); //flip to PDF space
+    matrix.concatenate(at);
+    matrix.concatenate(AffineTransform.getScaleInstance(1, -1));
+    if (font.isItalic()) {
+      float angle = baseFont.getFontDescriptor(BaseFont.ITALICANGLE, 1000);
+      float awtAngle = font.getItalicAngle();
+      if (font.getFontName().equals(font.getName()) || (angle == 0 && awtAngle == 0)) {
+        awtAngle = awtAngle == 0 ? 10.0f : -awtAngle;
+        if (angle == 0) {
+          matrix.concatenate(new AffineTransform(1, 0, (float)Math.tan(awtAngle * Math.PI / 180), 1, 0, 0)); //simulated
+        }
+      }
+    }
+    double[] m = new double[6];
+    matrix.getMatrix(m);
+
+    content.beginText();
+    content.setFontAndSize(baseFont, size);
+    content.setTextMatrix((float)m[0], (float)m[1], (float)m[2], (float)m[3], (float)m[4], (float)m[5]);
+    boolean isSimulatedBold = font.isBold() && !baseFont.getPostscriptFontName().toLowerCase().contains("bold");
+    if (isSimulatedBold) {
+      //as in iText: the outline of the glyphs is stroked as well, with the same colour
+      content.setTextRenderingMode(PdfContentByte.TEXT_RENDER_MODE_FILL_STROKE);
+      lineWidth = size / 20.0f;
+      content.setLineWidth(lineWidth);
+      setStrokeColor(color());
+    }
+    boolean isSpaced = text.length() > 1;
+    if (isSpaced) {
+      content.setCharacterSpacing(characterSpacing(text, baseFont, size));
+    }
+    content.showText(text);
+    if (isSpaced) {
+      content.setCharacterSpacing(0);
+    }
+    if (isSimulatedBold) {
+      content.setTextRenderingMode(PdfContentByte.TEXT_RENDER_MODE_FILL);
+    }
+    content.endText();
+  }
+
+  private BaseFont baseFont(Font font) {
+    BaseFont result = baseFonts.get(font);
+    if (result == null) {
+      result = fontMapper.awtToPdf(font);
+      baseFonts.put(font, result);
+    }
+    return result;
+  }
+
+  /**
+   Stretch the text so that it has the same width as in java.awt.
+   That's the width the drawing code used when placing the text.
+  */
+  private float characterSpacing(String text, BaseFont baseFont, float size) {
+    Map<String, Float> forFont = spacings.get(font);
+    if (forFont == null) {
+      forFont = new HashMap<>();
+      spacings.put(font, forFont);
+    }
+    Float result = forFont.get(text);
+    if (result == null) {
+      double awtWidth = awtWidth(text, size);
+      result = (float)((awtWidth - baseFont.getWidthPoint(text, size)) / (text.length() - 1));
+      forFont.put(text, result);
+    }
+    return result;
+  }
+
+  /** The same calculation as in iText's Graphics2D. */
+  private double awtWidth(String text, float size) {
+    boolean antialias = RenderingHints.VALUE_TEXT_ANTIALIAS_ON.equals(hints.get(RenderingHints.KEY_TEXT_ANTIALIASING));
+    Object fractional = hints.get(RenderingHints.KEY_FRACTIONALMETRICS);
+    FontRenderContext frc = new FontRenderContext(new AffineTransform(), antialias, RenderingHints.VALUE_FRACTIONALMETRICS_ON.equals(fractional));
+    double result;
+    if (RenderingHints.VALUE_FRACTIONALMETRICS_OFF.equals(fractional)) {
+      result = font.getStringBounds(text, frc).getWidth();
+    }
+    else {
+      float scale = 1000 / size;
+      Font big = font.deriveFont(AffineTransform.getScaleInstance(scale, scale));
+      result = big.getStringBounds(text, frc).getWidth();
+      if (big.isTransformed()) {
+        result = result / scale;
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,61 @@
+package mag5.book;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.itextpdf.text.pdf.PdfTemplate;
+
+/**
+ The symbols for stars and deep sky objects, each written once to the PDF as a Form XObject, and then reused.
+
+ <P>There are only a few kinds of star-dot (one for each size), and a few kinds of deep sky object.
+ The first time a symbol is seen, its items are written to a template, and after that
+ each star or deep sky object is just a reference to the template, placed with a transform.
+ This makes the content of each chart much smaller.
+ See {@link mag5.draw.display.RecordingGraphics#beginSymbol(java.awt.Graphics2D, String, int, int)}.
+
+ <P>A template belongs to a single PDF, so there's one library for each PDF being written.
+ Used only with the direct backend, {@link PdfContentRenderer}.
+ To turn this off, use <code>-Dmag5symbols=off</code>.
+ Not safe for use by more than one thread.
+*/
+final class SymbolLibrary {
+
+  /** The name of the system property used to turn off the reuse of symbols - {@value}. */
+  static final String SYMBOLS_PROPERTY = "mag5symbols";
+
+  /** Returns a new library, or null if symbols are turned off. */
+  static SymbolLibrary forNewPdf() {
+    boolean isOn = !"off".equalsIgnoreCase(System.getProperty(SYMBOLS_PROPERTY, "on"));
+    return isOn ? new SymbolLibrary() : null;
+  }
+
+  /**
+   Returns null if the symbol hasn't been seen yet.
+   The key is the name of the symbol, along with the state of the graphics context when the symbol is started.
+  */
+  PdfTemplate get(List<Object> key) {
+    PdfTemplate result = templates.get(key);
+    if (result != null) {
+      ++numPlaced;
+    }
+    return result;
+  }
+
+  /** Add a new symbol. */
+  void put(List<Object> key, PdfTemplate template) {
+    templates.put(key, template);
+    ++numPlaced;
+  }
+
+  /** For logging. */
+  @Override public String toString() {
+    return templates.size() + " symbols, placed " + numPlaced + " times";
+  }
+
+  // PRIVATE
+
+  private Map<List<Object>, PdfTemplate> templates = new HashMap<>();
+  private int numPlaced;
+}
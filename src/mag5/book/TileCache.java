@@ -0,0 +1,116 @@
+package mag5.book;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ The most recently used tiles, as PNG bytes, up to a fixed number of bytes in total.
+
+ <P>When the cache is full, the tiles used least recently are dropped first.
+ The limit is on the bytes of the images, not on the number of tiles, since a tile that's mostly blank
+ is much smaller than one full of stars.
+
+ <P>A viewer often asks for the same tile more than once at the same time (two people looking at the same chart,
+ or a browser retrying). A tile that is being rendered is remembered as a future; anyone else asking for it
+ waits on the same future, so it's rendered only once.
+
+ <P>Safe for use by more than one thread.
+*/
+final class TileCache {
+
+  /** @param maxBytes the total size of the images that can be kept */
+  TileCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   Return the tile with the given key, rendering it with the given supplier if it's not in the cache.
+   Blocks until the tile is ready. If rendering fails, then nothing is cached, and the next request tries again.
+  */
+  byte[] get(String key, Supplier<byte[]> renderer) {
+    byte[] result = cached(key);
+    if (result != null) {
+      hits.incrementAndGet();
+      return result;
+    }
+    CompletableFuture<byte[]> mine = new CompletableFuture<>();
+    CompletableFuture<byte[]> inProgress = rendering.putIfAbsent(key, mine);
+    if (inProgress != null) {
+      coalesced.incrementAndGet();
+      return inProgress.join();
+    }
+    try {
+      //another thread may have finished this tile between the two lookups
+      result = cached(key);
+      if (result == null) {
+        misses.incrementAndGet();
+        result = renderer.get();
+        put(key, result);
+      }
+      else {
+        hits.incrementAndGet();
+      }
+      mine.complete(result);
+    }
+    catch(RuntimeException | Error ex) {
+      mine.completeExceptionally(ex);
+      throw ex;
+    }
+    finally {
+      rendering.remove(key);
+    }
+    return result;
+  }
+
+  /** For the /stats page. Name-value pairs, in order. */
+  synchronized Map<String, Object> stats() {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("entries", tiles.size());
+    result.put("bytes", bytes);
+    result.put("maxBytes", maxBytes);
+    result.put("hits", hits.get());
+    result.put("misses", misses.get());
+    result.put("coalesced", coalesced.get());
+    result.put("evictions", evictions);
+    long lookups = hits.get() + misses.get() + coalesced.get();
+    result.put("hitRatio", lookups == 0 ? 0.0 : (hits.get() + coalesced.get()) / (double)lookups);
+    result.put("renderingNow", rendering.size());
+    return result;
+  }
+
+  // PRIVATE
+
+  private long maxBytes;
+  private long bytes;
+  private long evictions;
+  /** In order of access, with the least recently used first. */
+  private LinkedHashMap<String, byte[]> tiles = new LinkedHashMap<>(256, 0.75f, true);
+  private ConcurrentHashMap<String, CompletableFuture<byte[]>> rendering = new ConcurrentHashMap<>();
+  private AtomicLong hits = new AtomicLong();
+  private AtomicLong misses = new AtomicLong();
+  private AtomicLong coalesced = new AtomicLong();
+
+  private synchronized byte[] cached(String key) {
+    return tiles.get(key);
+  }
+
+  /** A single tile bigger than the whole cache is simply not kept. */
+  private synchronized void put(String key, byte[] tile) {
+    if (tile.length > maxBytes) {
+      return;
+    }
+    byte[] old = tiles.put(key, tile);
+    bytes = bytes + tile.length - (old == null ? 0 : old.length);
+    Iterator<byte[]> oldest = tiles.values().iterator();
+    while (bytes > maxBytes && oldest.hasNext()) {
+      bytes = bytes - oldest.next().length;
+      oldest.remove();
+      ++evictions;
+    }
+  }
+}
@@ -0,0 +1,469 @@
+package mag5.book;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import mag5.chartlabels.ChartLabel;
+import mag5.deepskyobject.DeepSkyObject;
+import mag5.draw.Bounds;
+import mag5.draw.ChartHits;
+import mag5.draw.ChartUtil;
+import mag5.draw.display.ItemBounds;
+import mag5.star.Star;
+import mag5.star.StarCatalog;
+import mag5.star.StarView;
+
+/**
+ A small web server that serves the charts as square tiles, for a viewer that pans and zooms.
+
+ <P>The tiles are at <code>/{chart}/{z}/{x}/{y}.png</code>, in the usual way for web maps.
+ Each chart has its own projection, so the first part of the path is the name of the chart, as in 'chart-3-top'.
+ At zoom level z, the page is cut into 2<sup>z</sup> by 2<sup>z</sup> tiles, with x increasing to the right, and y increasing downwards.
+ The tiles are square, and cover the long side of the page, so the ones on the right are partly blank.
+ The root path lists the charts; <code>/stats</code> has statistics on the cache and how long requests take, as JSON.
+
+ <P>What's under the cursor is at <code>/{chart}/{z}/hit?x=..&amp;y=..&amp;r=..</code>, where x and y are pixels at zoom level z,
+ counted from the top left corner of tile 0/0, and r is a radius in pixels (default {@value #HIT_RADIUS}).
+ The answer is the nearest star, deep sky object, or chart label, as JSON, or <code>{"hit": null}</code>.
+ It's found with a {@link ChartHits}, which uses the positions found when the chart was drawn.
+
+ <P>The stars seen in a viewport are at <code>/{chart}/{z}/stars?x=..&amp;y=..&amp;w=..&amp;h=..</code>, where the rectangle is in
+ pixels at zoom level z, as for a hit. The answer is JSON, with the part of the sky seen in the viewport, and each star's name,
+ magnitude, and position in pixels. The part of the sky is found with the inverse of the chart's projection, and only the stars
+ in it are fetched from the catalog (see {@link StarCatalog#filterView}), instead of all of the stars of the chart.
+
+ <P>At startup, each chart is drawn into a display list, with the same projections and drawers as for the PDF,
+ and the box around each item is found (see {@link ItemBounds}).
+ A tile is rendered only when asked for, and only the stars, lines, deep sky objects, and text that touch the tile
+ are drawn into it. Rendered tiles are kept in a {@link TileCache}.
+
+ <P>Settings, as System properties:
+ <ul>
+  <li><code>-Dmag5tileport=8080</code>: the port. Default {@value #PORT}.
+  <li><code>-Dmag5tilehost=0.0.0.0</code>: the address to listen on. Default {@value #HOST}, so only this machine can connect.
+  Use 0.0.0.0 to serve the rest of the network.
+  <li><code>-Dmag5tilesize=256</code>: the size of each tile, in pixels. Default {@value #TILE_SIZE}.
+  <li><code>-Dmag5maxzoom=6</code>: the highest zoom level. Default {@value #MAX_ZOOM}.
+  <li><code>-Dmag5tilecachemb=64</code>: the size of the cache, in megabytes. Default {@value #CACHE_MB}.
+ </ul>
+ Requests are handled by virtual threads, when the JVM has them; otherwise by a pool of threads.
+ Run with <code>-Djava.awt.headless=true</code> on a machine with no screen. Stop it with Ctrl+C.
+*/
+public final class TileServer {
+
+  /** Default port - {@value}. */
+  static final int PORT = 8080;
+
+  /** Default address to listen on - {@value}. */
+  static final String HOST = "127.0.0.1";
+
+  /** Default size of a tile, in pixels - {@value}. */
+  static final int TILE_SIZE = 256;
+
+  /** Default highest zoom level - {@value}. */
+  static final int MAX_ZOOM = 6;
+
+  /** Default size of the cache, in megabytes - {@value}. */
+  static final int CACHE_MB = 64;
+
+  /** Default radius for finding what's under the cursor, in pixels - {@value}. */
+  static final int HIT_RADIUS = 8;
+
+  public static void main(String... args) throws IOException {
+    log("Mag 5 Star Atlas: starting the tile server.");
+    TileServer tileServer = new TileServer();
+    tileServer.recordCharts();
+    tileServer.start();
+  }
+
+  // PRIVATE
+
+  /** The extra pixels drawn around each tile, and then cut off. */
+  private static final int TILE_MARGIN = 16;
+  private static final Pattern TILE = Pattern.compile("/([\\w-]+)/(\\d{1,2})/(\\d{1,9})/(\\d{1,9})\\.png");
+  private static final Pattern HIT = Pattern.compile("/([\\w-]+)/(\\d{1,2})/hit");
+  private static final Pattern STARS = Pattern.compile("/([\\w-]+)/(\\d{1,2})/stars");
+
+  private int tileSize = Integer.valueOf(System.getProperty("mag5tilesize", String.valueOf(TILE_SIZE)));
+  private int maxZoom = Integer.valueOf(System.getProperty("mag5maxzoom", String.valueOf(MAX_ZOOM)));
+  private TileCache cache = new TileCache(Long.valueOf(System.getProperty("mag5tilecachemb", String.valueOf(CACHE_MB))) * 1024 * 1024);
+  /** Keyed by the name of the chart, as it appears in the path. */
+  private Map<String, ItemBounds> charts = new LinkedHashMap<>();
+  /** Keyed by the name of the chart, as it appears in the path. */
+  private Map<String, ChartHits> hits = new LinkedHashMap<>();
+  private StarCatalog starCatalog;
+  private Latencies allRequests = new Latencies();
+  private Latencies renderedTiles = new Latencies();
+  private Latencies hitQueries = new Latencies();
+  private Latencies starQueries = new Latencies();
+  private AtomicLong itemsDrawn = new AtomicLong();
+
+  private void recordCharts() throws IOException {
+    long start = System.nanoTime();
+    GeneratePdf generator = new GeneratePdf();
+    generator.recordCharts((chartName, chart, chartHits) -> {
+      charts.put(chartName.replace(' ', '-'), new ItemBounds(chart));
+      hits.put(chartName.replace(' ', '-'), chartHits);
+    });
+    starCatalog = generator.starCatalog();
+    log("Charts recorded in " + (System.nanoTime() - start) / 1000000 + " ms.");
+  }
+
+  private void start() throws IOException {
+    String host = System.getProperty("mag5tilehost", HOST);
+    int port = Integer.valueOf(System.getProperty("mag5tileport", String.valueOf(PORT)));
+    HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+    server.createContext("/", this::handle);
+    server.setExecutor(executor());
+    server.start();
+    log("Serving tiles at http://" + host + ":" + port + "/{chart}/{z}/{x}/{y}.png, for z up to " + maxZoom + ". Statistics at /stats.");
+  }
+
+  /** Virtual threads are looked up by name, so that this still compiles and runs on older JVMs. */
+  private static ExecutorService executor() {
+    ExecutorService result = null;
+    try {
+      Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      result = (ExecutorService)virtual.invoke(null);
+      log("Using virtual threads.");
+    }
+    catch(ReflectiveOperationException ex) {
+      int numThreads = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+      result = Executors.newFixedThreadPool(numThreads);
+      log("No virtual threads in this JVM. Using a pool of " + numThreads + " threads.");
+    }
+    return result;
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    long start = System.nanoTime();
+    try {
+      String path = exchange.getRequestURI().getPath();
+      Matcher tile = TILE.matcher(path);
+      Matcher hit = HIT.matcher(path);
+      Matcher stars = STARS.matcher(path);
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        respond(exchange, 405, TEXT, "Only GET is supported.");
+      }
+      else if (tile.matches()) {
+        tile(exchange, tile.group(1), Integer.valueOf(tile.group(2)), Integer.valueOf(tile.group(3)), Integer.valueOf(tile.group(4)));
+      }
+      else if (hit.matches()) {
+        hit(exchange, hit.group(1), Integer.valueOf(hit.group(2)), queryParams(exchange.getRequestURI().getRawQuery()));
+      }
+      else if (stars.matches()) {
+        stars(exchange, stars.group(1), Integer.valueOf(stars.group(2)), queryParams(exchange.getRequestURI().getRawQuery()));
+      }
+      else if ("/stats".equals(path)) {
+        respond(exchange, 200, JSON, stats());
+      }
+      else if ("/".equals(path)) {
+        respond(exchange, 200, TEXT, "Charts: " + charts.keySet() + "\nTiles: /{chart}/{z}/{x}/{y}.png, with z from 0 to " + maxZoom + 
+          "\nStars in a viewport: /{chart}/{z}/stars?x=..&y=..&w=..&h=..\n");
+      }
+      else {
+        respond(exchange, 404, TEXT, "Not found: " + path);
+      }
+    }
+    catch(RuntimeException ex) {
+      log("Unable to serve " + exchange.getRequestURI() + ": " + ex);
+      respond(exchange, 500, TEXT, "Unable to answer the request.");
+    }
+    finally {
+      exchange.close();
+      allRequests.add(System.nanoTime() - start);
+    }
+  }
+
+  private void tile(HttpExchange exchange, String chartName, int z, int x, int y) throws IOException {
+    ItemBounds chart = charts.get(chartName);
+    int numTiles = z <= maxZoom ? 1 << z : 0;
+    if (chart == null || x >= numTiles || y >= numTiles) {
+      respond(exchange, 404, TEXT, "No such tile: " + exchange.getRequestURI().getPath());
+    }
+    else {
+      byte[] png = cache.get(chartName + "/" + z + "/" + x + "/" + y, () -> render(chart, z, x, y));
+      exchange.getResponseHeaders().set("Cache-Control", "max-age=3600");
+      respond(exchange, 200, PNG, png);
+    }
+  }
+
+  /** Pixels at the given zoom level, for each point on the page. The tiles cover a square the size of the long side of the page. */
+  private double pixelsPerPoint(int z) {
+    return tileSize * (double)(1 << z) / Math.max(PdfConfig.WIDTH, PdfConfig.HEIGHT);
+  }
+
+  private void hit(HttpExchange exchange, String chartName, int z, Map<String, String> params) throws IOException {
+    ChartHits chartHits = hits.get(chartName);
+    if (chartHits == null || z > maxZoom || !params.containsKey("x") || !params.containsKey("y")) {
+      respond(exchange, 404, TEXT, "Needs a chart, a zoom level, and x and y: " + exchange.getRequestURI());
+    }
+    else {
+      long start = System.nanoTime();
+      double scale = pixelsPerPoint(z);
+      double radius = Double.valueOf(params.getOrDefault("r", String.valueOf(HIT_RADIUS)));
+      ChartHits.Hit found = chartHits.nearest(Double.valueOf(params.get("x")) / scale, Double.valueOf(params.get("y")) / scale, radius / scale);
+      hitQueries.add(System.nanoTime() - start);
+      Map<String, Object> result = new LinkedHashMap<>();
+      if (found == null) {
+        result.put("hit", null);
+      }
+      else {
+        result.put("kind", found.KIND.toString());
+        result.put("name", nameOf(found));
+        result.put("x", Math.round(found.X * scale * 10) / 10.0);
+        result.put("y", Math.round(found.Y * scale * 10) / 10.0);
+        result.put("distance", Math.round(found.DISTANCE * scale * 10) / 10.0);
+      }
+      respond(exchange, 200, JSON, json(result));
+    }
+  }
+
+  /** 
+   The stars seen in a viewport. Only the part of the sky seen in the viewport is fetched from the catalog.
+   That part is generous, so each star is then checked against the viewport itself.
+  */
+  private void stars(HttpExchange exchange, String chartName, int z, Map<String, String> params) throws IOException {
+    ChartHits chartHits = hits.get(chartName);
+    if (chartHits == null || z > maxZoom || !params.keySet().containsAll(Arrays.asList("x", "y", "w", "h"))) {
+      respond(exchange, 404, TEXT, "Needs a chart, a zoom level, and x, y, w, and h: " + exchange.getRequestURI());
+    }
+    else {
+      long start = System.nanoTime();
+      double scale = pixelsPerPoint(z);
+      Rectangle2D viewport = new Rectangle2D.Double(
+        Double.valueOf(params.get("x")) / scale, Double.valueOf(params.get("y")) / scale, 
+        Double.valueOf(params.get("w")) / scale, Double.valueOf(params.get("h")) / scale
+      );
+      Bounds sky = chartHits.skyBoundsOf(viewport);
+      StarView fetched = starCatalog.filterView(ChartUtil.LIMITING_MAG, sky);
+      List<Object> found = new ArrayList<>();
+      for(int i = 0; i < fetched.size(); ++i) {
+        Star star = fetched.star(i);
+        Point2D.Double where = chartHits.pagePointOf(star);
+        if (where != null && viewport.contains(where)) {
+          Map<String, Object> item = new LinkedHashMap<>();
+          item.put("name", nameOf(star));
+          item.put("mag", star.MAG);
+          item.put("x", Math.round(where.x * scale * 10) / 10.0);
+          item.put("y", Math.round(where.y * scale * 10) / 10.0);
+          found.add(item);
+        }
+      }
+      starQueries.add(System.nanoTime() - start);
+      Map<String, Object> result = new LinkedHashMap<>();
+      Map<String, Object> region = new LinkedHashMap<>();
+      region.put("minDec", round(sky.minDecDeg));
+      region.put("maxDec", round(sky.maxDecDeg));
+      region.put("minRaHours", round(sky.minRaHours));
+      region.put("maxRaHours", round(sky.maxRaHours));
+      result.put("sky", region);
+      result.put("fetched", fetched.size());
+      result.put("stars", found);
+      respond(exchange, 200, JSON, json(result));
+    }
+  }
+
+  private static double round(double value) {
+    return Math.round(value * 100) / 100.0;
+  }
+
+  private static String nameOf(Star star) {
+    return !star.PROPER_NAME.isEmpty() ? star.PROPER_NAME : !star.NAME.trim().isEmpty() ? star.NAME.trim() : "Star " + star.INDEX;
+  }
+
+  private static String nameOf(ChartHits.Hit hit) {
+    String result = "";
+    if (hit.ITEM instanceof Star) {
+      result = nameOf((Star)hit.ITEM);
+    }
+    else if (hit.ITEM instanceof DeepSkyObject) {
+      DeepSkyObject dso = (DeepSkyObject)hit.ITEM;
+      result = dso.getNickName() == null || dso.getNickName().isEmpty() ? dso.getDesig() : dso.getDesig() + " " + dso.getNickName();
+    }
+    else if (hit.ITEM instanceof ChartLabel) {
+      result = ((ChartLabel)hit.ITEM).TEXT;
+    }
+    return result;
+  }
+
+  /** The query string of a URL, as name-value pairs. */
+  private static Map<String, String> queryParams(String rawQuery) {
+    Map<String, String> result = new LinkedHashMap<>();
+    if (rawQuery != null) {
+      for(String pair : rawQuery.split("&")) {
+        int equals = pair.indexOf('=');
+        if (equals > 0) {
+          result.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8), URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+        }
+      }
+    }
+    return result;
+  }
+
+  /** 
+   The tiles cover a square the size of the long side of the page.
+   As in {@link mag5.draw.display.RasterRenderer}, the tile is drawn with a margin all around, which is then cut off, so that 
+   the edges of the clip are away from the pixels that are kept. Tiles that meet then match more closely along the seam.
+  */
+  private byte[] render(ItemBounds chart, int z, int x, int y) {
+    long start = System.nanoTime();
+    double side = tileSize / pixelsPerPoint(z);
+    Rectangle2D area = new Rectangle2D.Double(x * side, y * side, side, side);
+    int withMargins = tileSize + 2 * TILE_MARGIN;
+    BufferedImage image = new BufferedImage(withMargins, withMargins, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = image.createGraphics();
+    try {
+      g.setColor(Color.white);
+      g.fillRect(0, 0, withMargins, withMargins);
+      g.translate(TILE_MARGIN, TILE_MARGIN);
+      g.scale(tileSize / side, tileSize / side);
+      g.translate(-area.getX(), -area.getY());
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      itemsDrawn.addAndGet(chart.replay(area, g));
+    }
+    finally {
+      g.dispose();
+    }
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    try {
+      ImageIO.write(image.getSubimage(TILE_MARGIN, TILE_MARGIN, tileSize, tileSize), "png", result);
+    }
+    catch(IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+    renderedTiles.add(System.nanoTime() - start);
+    return result.toByteArray();
+  }
+
+  private String stats() {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("cache", cache.stats());
+    result.put("requests", allRequests.stats());
+    result.put("rendered", renderedTiles.stats());
+    result.put("hitQueries", hitQueries.stats());
+    result.put("starQueries", starQueries.stats());
+    long numRendered = renderedTiles.count.get();
+    result.put("itemsPerRenderedTile", numRendered == 0 ? 0 : itemsDrawn.get() / numRendered);
+    return json(result);
+  }
+
+  /** Only what's needed here: nested maps, numbers, strings, and null. */
+  private static String json(Object value) {
+    if (value instanceof Map) {
+      StringBuilder result = new StringBuilder("{");
+      for(Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+        result.append(result.length() > 1 ? ", " : "").append('"').append(entry.getKey()).append("\": ").append(json(entry.getValue()));
+      }
+      return result.append('}').toString();
+    }
+    if (value instanceof List) {
+      StringBuilder result = new StringBuilder("[");
+      for(Object item : (List<?>)value) {
+        result.append(result.length() > 1 ? ", " : "").append(json(item));
+      }
+      return result.append(']').toString();
+    }
+    if (value instanceof Number || value == null) {
+      return String.valueOf(value);
+    }
+    StringBuilder result = new StringBuilder("\"");
+    for(char c : value.toString().toCharArray()) {
+      if (c == '"' || c == '\\') {
+        result.append('\\').append(c);
+      }
+      else if (c < ' ') {
+        result.append(String.format("\\u%04x", (int)c));
+      }
+      else {
+        result.append(c);
+      }
+    }
+    return result.append('"').toString();
+  }
+
+  private static final String TEXT = "text/plain; charset=utf-8";
+  private static final String JSON = "application/json";
+  private static final String PNG = "image/png";
+
+  private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+    respond(exchange, status, contentType, body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void respond(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", contentType);
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()){
+      out.write(body);
+    }
+  }
+
+  /** The count, and the spread of the most recent durations. */
+  private static final class Latencies {
+    void add(long nanos) {
+      count.incrementAndGet();
+      synchronized(this) {
+        recent[next] = nanos;
+        next = (next + 1) % recent.length;
+        filled = Math.max(filled, next == 0 ? recent.length : next);
+      }
+    }
+    Map<String, Object> stats() {
+      long[] sorted = null;
+      synchronized(this) {
+        sorted = Arrays.copyOf(recent, filled);
+      }
+      Arrays.sort(sorted);
+      Map<String, Object> result = new LinkedHashMap<>();
+      result.put("count", count.get());
+      result.put("recent", sorted.length);
+      result.put("meanMs", sorted.length == 0 ? 0.0 : millis(Arrays.stream(sorted).sum() / sorted.length));
+      result.put("p50Ms", percentile(sorted, 50));
+      result.put("p95Ms", percentile(sorted, 95));
+      result.put("p99Ms", percentile(sorted, 99));
+      result.put("maxMs", sorted.length == 0 ? 0.0 : millis(sorted[sorted.length - 1]));
+      return result;
+    }
+    private final AtomicLong count = new AtomicLong();
+    private final long[] recent = new long[1024];
+    private int next;
+    private int filled;
+    private static double percentile(long[] sorted, int percent) {
+      return sorted.length == 0 ? 0.0 : millis(sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)]);
+    }
+    private static double millis(long nanos) {
+      return Math.round(nanos / 1000.0) / 1000.0;
+    }
+  }
+
+  private static void log(String msg) {
+    System.out.println(msg);
+  }
+}
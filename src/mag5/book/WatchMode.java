@@ -0,0 +1,272 @@
+package mag5.book;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import com.itextpdf.text.DocumentException;
+
+import mag5.chartlabels.ChartLabel;
+import mag5.chartlabels.ChartLabels;
+import mag5.constellation.ConstellationLines;
+import mag5.draw.CompassPoint;
+import mag5.star.BayerLetterPlacement;
+import mag5.star.Star;
+import mag5.translate.Label;
+import mag5.util.DataFileReader;
+
+/**
+ Keep running, and rebuild the PDF each time one of the hand-edited data files is saved.
+
+ <P>When placing labels, the usual cycle is: edit a data file, build the PDF, look at the result, and repeat.
+ Most of the time of a build is spent starting the JVM, reading the star catalog, and drawing charts that haven't changed.
+ Here, the data is read in only once, and kept in memory.
+ The directories holding the data files are watched for changes. When a file is saved, only its data is read in again,
+ and the PDF is rebuilt. The charts that haven't changed are copied from the previous PDF (see {@link IncrementalBuild}).
+
+ <P>The files that are watched, and the charts expected to change along with them:
+ <ul>
+  <li><code>chart_N_labels.utf8</code>: the charts whose labels have changed (N, and its twin in the other hemisphere)
+  <li><code>star_name_placements.utf8</code>: the charts showing the stars whose placement has changed
+  <li><code>constellation-lines.utf8</code>: the charts showing the stars of the lines that have changed
+  <li><code>labels_xx.utf8</code>: all charts (and all of the text)
+ </ul>
+ That list is only logged, as a guide. The PDF is always rebuilt after one of these files is saved.
+ Whether or not a chart is actually drawn again is decided by the hash of its inputs (see {@link ChartHash}), which catches
+ the same charts, along with anything the list above doesn't know about.
+ Changes to other files (the star catalog, deep sky objects) need a restart.
+ If a file can't be parsed, or the PDF can't be written, then the error is logged, the data already in memory is kept, 
+ and the watching goes on. Fix the file, and save it again.
+
+ <P>The files that are edited are the ones in the source tree, not the copies on the class path.
+ So the root of the source tree must be given with <code>-Dmag5datadir</code>
+ (see {@link DataFileReader#DATA_DIR_PROPERTY}). The data files are then read from there, and that's where they're watched.
+
+ <P>To turn this on, use <code>-Dmag5watch=on -Dmag5datadir=src</code>. Stop it with Ctrl+C.
+*/
+final class WatchMode {
+
+  /** The name of the system property used to turn on watch mode - {@value}. */
+  static final String WATCH_PROPERTY = "mag5watch";
+
+  /** Returns true only if watch mode has been turned on. */
+  static boolean isOn() {
+    return "on".equalsIgnoreCase(System.getProperty(WATCH_PROPERTY, "off"));
+  }
+
+  WatchMode(GeneratePdf generator) {
+    this.generator = generator;
+    generator.keepWarm();
+  }
+
+  /** Build the PDF, then wait for changes, and rebuild. Never returns, unless the watching fails. */
+  void run() throws DocumentException, IOException {
+    Set<Path> dirs = directoriesToWatch();
+    generator.outputPdf();
+    try (WatchService watcher = FileSystems.getDefault().newWatchService()){
+      for(Path dir : dirs) {
+        dir.register(watcher, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+        log("Watching " + dir);
+      }
+      while (true) {
+        Set<String> changedFiles = nextChanges(watcher);
+        if (changedFiles.stream().anyMatch(f -> isDataFile(f))) {
+          rebuildAfter(changedFiles);
+        }
+      }
+    }
+    catch(InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      log("Interrupted. No longer watching.");
+    }
+    catch(ClosedWatchServiceException ex) {
+      log("No longer watching.");
+    }
+  }
+
+  // PRIVATE
+
+  private GeneratePdf generator;
+
+  private static final String PLACEMENTS = "star_name_placements.utf8";
+  private static final String LINES = "constellation-lines.utf8";
+  private static final Pattern CHART_LABELS = Pattern.compile("chart_\\d+_labels\\.utf8");
+  private static final Pattern TRANSLATIONS = Pattern.compile("labels_\\w+\\.utf8");
+
+  /** Editors often save a file in more than one step, so events are collected until things go quiet. */
+  private static final long QUIET_MILLIS = 300;
+
+  /**
+   Read in the changed data, and rebuild the PDF.
+   A file can be saved half-edited, and the PDF can be locked by a viewer. So a failure is logged, and the watching goes on,
+   with the data kept in memory. Each file is parsed in full before it replaces the old data, so a bad file changes nothing.
+  */
+  private void rebuildAfter(Set<String> changedFiles) {
+    List<String> expectedCharts = null;
+    try {
+      expectedCharts = reload(changedFiles);
+    }
+    catch(IOException | RuntimeException ex) {
+      log("Unable to read " + changedFiles + ": " + ex + ". Keeping the previous data. Waiting for changes...");
+    }
+    if (expectedCharts != null) {
+      log("Changed: " + changedFiles + ". Charts expected to change: " + expectedCharts);
+      long start = System.nanoTime();
+      try {
+        generator.outputPdf();
+        log("Rebuilt in " + (System.nanoTime() - start) / 1000000 + " ms. Waiting for changes...");
+      }
+      catch(DocumentException | IOException | RuntimeException ex) {
+        log("Unable to rebuild the PDF: " + ex + ". Waiting for changes...");
+      }
+    }
+  }
+
+  /** Other files in the same directories, such as an editor's backup files, are ignored. */
+  private boolean isDataFile(String fileName) {
+    return PLACEMENTS.equals(fileName) || LINES.equals(fileName) 
+      || CHART_LABELS.matcher(fileName).matches() || TRANSLATIONS.matcher(fileName).matches();
+  }
+
+  /** The directories in the source tree holding the watched files. */
+  private Set<Path> directoriesToWatch() throws IOException {
+    Set<Path> result = new LinkedHashSet<>();
+    result.add(directoryOf(ChartLabels.class, "chart_1_labels.utf8"));
+    result.add(directoryOf(BayerLetterPlacement.class, PLACEMENTS));
+    result.add(directoryOf(ConstellationLines.class, LINES));
+    result.add(directoryOf(Label.class, "labels_en.utf8"));
+    return result;
+  }
+
+  private Path directoryOf(Class<?> aClass, String fileName) throws IOException {
+    Path file = DataFileReader.inDataDir(aClass, fileName);
+    if (file == null) {
+      throw new IOException(
+        "Watch mode needs the root of the source tree, to find the data files. Use -D" + DataFileReader.DATA_DIR_PROPERTY + "=src, for example."
+      );
+    }
+    if (!Files.isRegularFile(file)) {
+      throw new IOException("Can't watch " + fileName + ", since it's not in the source tree: " + file.toAbsolutePath());
+    }
+    return file.toAbsolutePath().getParent();
+  }
+
+  /** Block until something changes. Returns the names of the changed files. */
+  private Set<String> nextChanges(WatchService watcher) throws InterruptedException {
+    Set<String> result = new TreeSet<>();
+    WatchKey key = watcher.take();
+    while (key != null) {
+      for(WatchEvent<?> event : key.pollEvents()) {
+        if (event.context() instanceof Path) {
+          result.add(((Path)event.context()).getFileName().toString());
+        }
+      }
+      key.reset();
+      key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    return result;
+  }
+
+  /** Read in the data that has changed. Returns the names of the charts expected to change. For logging only. */
+  private List<String> reload(Set<String> changedFiles) throws IOException {
+    Set<String> result = new LinkedHashSet<>();
+    boolean translations = changedFiles.stream().anyMatch(f -> TRANSLATIONS.matcher(f).matches());
+    if (translations) {
+      generator.reloadLabels();
+      result.addAll(generator.allCharts());
+    }
+    else if (changedFiles.stream().anyMatch(f -> CHART_LABELS.matcher(f).matches())) {
+      Map<Integer, List<String>> before = describe(generator.chartLabels());
+      generator.reloadChartLabels();
+      Map<Integer, List<String>> after = describe(generator.chartLabels());
+      Set<Integer> changedCharts = new HashSet<>();
+      for(Integer chartNum : after.keySet()) {
+        if (!after.get(chartNum).equals(before.get(chartNum))) {
+          changedCharts.add(chartNum);
+        }
+      }
+      result.addAll(generator.chartsNumbered(changedCharts));
+    }
+    if (changedFiles.contains(PLACEMENTS)) {
+      Map<Integer, CompassPoint> before = placements();
+      generator.reloadBayerLetterPlacement();
+      Map<Integer, CompassPoint> after = placements();
+      Set<Integer> changedStars = new HashSet<>();
+      for(Integer starId : after.keySet()) {
+        if (after.get(starId) != before.get(starId)) {
+          changedStars.add(starId);
+        }
+      }
+      result.addAll(generator.chartsShowingAnyOf(changedStars));
+    }
+    if (changedFiles.contains(LINES)) {
+      Set<List<Integer>> before = polylines(generator.constellationLines());
+      generator.reloadConstellationLines();
+      Set<List<Integer>> after = polylines(generator.constellationLines());
+      Set<Integer> changedStars = new HashSet<>();
+      starsInOnlyOne(before, after, changedStars);
+      starsInOnlyOne(after, before, changedStars);
+      result.addAll(generator.chartsShowingAnyOf(changedStars));
+    }
+    return new ArrayList<>(result);
+  }
+
+  /** ChartLabel doesn't define equals, so its data is turned into text, for comparison. */
+  private Map<Integer, List<String>> describe(Map<Integer, List<ChartLabel>> chartLabels){
+    Map<Integer, List<String>> result = new HashMap<>();
+    for(Integer chartNum : chartLabels.keySet()) {
+      List<String> labels = new ArrayList<>();
+      for(ChartLabel label : chartLabels.get(chartNum)) {
+        labels.add(label.TEXT + "|" + label.RA + "|" + label.DEC + "|" + label.TYPE);
+      }
+      result.put(chartNum, labels);
+    }
+    return result;
+  }
+
+  private Map<Integer, CompassPoint> placements(){
+    Map<Integer, CompassPoint> result = new HashMap<>();
+    for(Star star : generator.stars()) {
+      result.put(star.INDEX, star.BAYER_COMPASS_POINT);
+    }
+    return result;
+  }
+
+  /** Each polyline is identified by the ids of its stars, in order. */
+  private Set<List<Integer>> polylines(ConstellationLines lines){
+    Set<List<Integer>> result = new HashSet<>();
+    for(List<List<Integer>> polylines : lines.all().values()) {
+      result.addAll(polylines);
+    }
+    return result;
+  }
+
+  /** Add the stars of the polylines that are in the first set, but not the second. */
+  private void starsInOnlyOne(Set<List<Integer>> these, Set<List<Integer>> those, Set<Integer> stars) {
+    for(List<Integer> polyline : these) {
+      if (!those.contains(polyline)) {
+        stars.addAll(polyline);
+      }
+    }
+  }
+
+  private static void log(String msg) {
+    System.out.println(msg);
+  }
+}
@@ -43,6 +43,10 @@
   <li>the fonts are embedded in the pdf
   <li>WARNING: different printers may render thin lines differently
   <li>the author has run this code only on Windows OS, not on Linux
+  <li>the optional SIMD code for projections (mag5.draw.VectorProjectionKernels) uses the incubating Vector API. 
+  It's in a separate source directory, src-vector, which is left out of the usual build. 
+  To include it, compile src-vector along with src, using --add-modules jdk.incubator.vector (JDK 16+). 
+  At runtime, it's used only when asked for; see mag5.draw.ProjectionKernels.
  </ul>
 
   <P>A <a href='http://www.javapractices.com/topic/TopicAction.do?Id=205'>package-by-feature</a> design is used here. 
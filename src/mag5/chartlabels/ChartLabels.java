@@ -18,8 +18,15 @@ import mag5.util.Maths;
 */
 public class ChartLabels {
 
+  /** The chart numbers are those of the northern hemisphere. */
   public ChartLabels(Label labels) {
+    this(labels, Hemisphere.NORTH);
+  }
+  
+  /** The chart numbers depend on the given hemisphere of the observer. */
+  public ChartLabels(Label labels, Hemisphere hemisphere) {
     this.labels = labels;
+    this.hemisphere = hemisphere;
   }
   
   /** 
@@ -53,6 +60,7 @@ public class ChartLabels {
   // PRIVATE 
   
   private Label labels;
+  private Hemisphere hemisphere;
   private Map<String, String> abbrToTranslatedName = new LinkedHashMap<>();
   private static final Integer NUM_CONSTELLATIONS = 88;
   private static final String BASE_KEY = "constellation-list-";
@@ -156,7 +164,7 @@ public class ChartLabels {
   /** In the southern hemisphere, the polar charts switch position! */
   private int accountForHemisphere(int idx) {
     int result = idx;
-    if (Hemisphere.SOUTH == ChartUtil.HEMISPHERE) {
+    if (Hemisphere.SOUTH == hemisphere) {
       if (idx == NORTH_POLE_CHART) {
         result = SOUTH_POLE_CHART;
       }
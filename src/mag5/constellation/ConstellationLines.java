@@ -2,6 +2,7 @@ package mag5.constellation;
 
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -30,6 +31,17 @@ public class ConstellationLines {
     return lines;
   }
 
+  /** The ids of all stars that are part of any polyline. */
+  public Set<Integer> allStarIds(){
+    Set<Integer> result = new LinkedHashSet<>();
+    for(List<List<Integer>> polylines : lines.values()) {
+      for(List<Integer> polyline : polylines) {
+        result.addAll(polyline);
+      }
+    }
+    return result;
+  }
+
   /**
    For debugging only.
    The problem is that the polyline only gets drawn if ALL stars identified in the polyline are 
@@ -3,20 +3,26 @@ package mag5.draw;
 /** 
  The bounds of the area shown by a chart, and related data derived from the bounds.
  WARNING: the units are in degrees and hours only! 
+ 
+ <P>The bounds also carry the hemisphere of the observer, since that changes how the chart is oriented.
 */
 public class Bounds {
 
-  public Bounds(Double minDecDeg, Double maxDecDeg, Double minRaHours, Double maxRaHours) {
+  public Bounds(Double minDecDeg, Double maxDecDeg, Double minRaHours, Double maxRaHours, Hemisphere hemisphere) {
     this.minDecDeg = minDecDeg;
     this.maxDecDeg = maxDecDeg;
     this.minRaHours = minRaHours;
     this.maxRaHours = maxRaHours;
+    this.hemisphere = hemisphere;
   }
   
   public Double minDecDeg;
   public Double maxDecDeg;
   public Double minRaHours;
   public Double maxRaHours;
+  
+  /** The hemisphere of the observer using the chart. */
+  public final Hemisphere hemisphere;
 
   /** Right ascension of the center of the equatorial chart.*/
   public Double raCenterHours() {
@@ -60,7 +66,7 @@ public class Bounds {
   public boolean isTopChart() {
     boolean result = false;
     if (isEquatorial()) {
-      if (Hemisphere.NORTH == ChartUtil.HEMISPHERE) {
+      if (Hemisphere.NORTH == hemisphere) {
         result = maxDecDeg > 0;
       }
       else {
@@ -0,0 +1,233 @@
+package mag5.draw;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+import mag5.chartlabels.ChartLabel;
+import mag5.deepskyobject.DeepSkyObject;
+import mag5.star.Star;
+
+/**
+ Find the star, deep sky object, or chart label nearest to a given point on a chart, for an interactive viewer.
+
+ <P>The positions are those found when the chart was drawn (see {@link ProjectedScene}), so nothing is projected again.
+ Only the items inside the chart's boundary are included, since the others are clipped away.
+ The chart is divided into square cells, and each item is placed in the cell holding its position.
+ A query looks only at the cells within the given radius of the point.
+ The items are stored in arrays of primitives, cell by cell, so a query touches very little memory.
+
+ <P>The chart's projection is kept as well, so that a viewer can find the part of the sky seen in a given area of the page,
+ and fetch just the stars it needs from the catalog.
+
+ <P>Queries use the coordinates of the page, as in the PDF, with y increasing downwards, in points.
+ The chart itself is drawn on its side (see {@link DrawChart}), so each point is first turned into the coordinates of the chart.
+ Immutable, and safe for use by more than one thread.
+*/
+public final class ChartHits {
+
+  /** The kinds of item that can be found. */
+  public enum Kind {STAR, DEEP_SKY_OBJECT, CHART_LABEL}
+
+  /** The item nearest to the point of a query. Simple struct. */
+  public static final class Hit {
+    Hit(Kind kind, Object item, double x, double y, double distance){
+      this.KIND = kind;
+      this.ITEM = item;
+      this.X = x;
+      this.Y = y;
+      this.DISTANCE = distance;
+    }
+    /** The kind of the item. */
+    public final Kind KIND;
+    /** A {@link Star}, a {@link DeepSkyObject}, or a {@link ChartLabel}, according to the kind. */
+    public final Object ITEM;
+    /** Where the item is drawn, in the coordinates of the page. */
+    public final double X;
+    /** Where the item is drawn, in the coordinates of the page. */
+    public final double Y;
+    /** From the point of the query to the item, in points. */
+    public final double DISTANCE;
+  }
+
+  /**
+   Find the cell of each item.
+   @param pageTransform turns the coordinates of the chart into the coordinates of the page
+  */
+  ChartHits(ProjectedScene scene, List<Star> stars, List<DeepSkyObject> dsos, List<ChartLabel> chartLabels,
+    double width, double height, AffineTransform pageTransform
+  ) {
+    this.stars = stars.toArray(new Star[0]);
+    this.dsos = dsos.toArray(new DeepSkyObject[0]);
+    this.chartLabels = chartLabels.toArray(new ChartLabel[0]);
+    this.pageTransform = new AffineTransform(pageTransform);
+    try {
+      this.chartTransform = pageTransform.createInverse();
+    }
+    catch(NoninvertibleTransformException ex) {
+      throw new IllegalArgumentException("The page transform can't be inverted: " + pageTransform, ex);
+    }
+    this.numCols = (int)Math.ceil(width / CELL_SIZE);
+    this.numRows = (int)Math.ceil(height / CELL_SIZE);
+    this.projection = scene.projection();
+    this.boundary = projection.innerBoundary();
+
+    //first pass: keep the items inside the chart, and count the items in each cell
+    int n = this.stars.length + this.dsos.length + this.chartLabels.length;
+    int[] kinds = new int[n];
+    int[] indexes = new int[n];
+    double[] xs = new double[n];
+    double[] ys = new double[n];
+    int count = 0;
+    for(int i = 0; i < this.stars.length; ++i) {
+      count = keep(scene.starPoint(this.stars[i].INDEX), boundary, Kind.STAR, i, kinds, indexes, xs, ys, count);
+    }
+    for(int i = 0; i < this.dsos.length; ++i) {
+      count = keep(scene.dsoPoint(i), boundary, Kind.DEEP_SKY_OBJECT, i, kinds, indexes, xs, ys, count);
+    }
+    for(int i = 0; i < this.chartLabels.length; ++i) {
+      count = keep(scene.chartLabelPoint(i), boundary, Kind.CHART_LABEL, i, kinds, indexes, xs, ys, count);
+    }
+    cellStart = new int[numCols * numRows + 1];
+    for(int i = 0; i < count; ++i) {
+      ++cellStart[cellFor(xs[i], ys[i]) + 1];
+    }
+    for(int cell = 0; cell < numCols * numRows; ++cell) {
+      cellStart[cell + 1] = cellStart[cell + 1] + cellStart[cell];
+    }
+
+    //second pass: place each item in its cell
+    cellKind = new byte[count];
+    cellIndex = new int[count];
+    cellX = new float[count];
+    cellY = new float[count];
+    int[] next = cellStart.clone();
+    for(int i = 0; i < count; ++i) {
+      int slot = next[cellFor(xs[i], ys[i])]++;
+      cellKind[slot] = (byte)kinds[i];
+      cellIndex[slot] = indexes[i];
+      cellX[slot] = (float)xs[i];
+      cellY[slot] = (float)ys[i];
+    }
+  }
+
+  /**
+   The item nearest to the given point of the page, or null if there's nothing within the given radius.
+   @param radius in points
+  */
+  public Hit nearest(double pageX, double pageY, double radius) {
+    Point2D.Double where = new Point2D.Double(pageX, pageY);
+    chartTransform.transform(where, where);
+    int fromCol = Math.max(0, (int)Math.floor((where.x - radius) / CELL_SIZE));
+    int toCol = Math.min(numCols - 1, (int)Math.floor((where.x + radius) / CELL_SIZE));
+    int fromRow = Math.max(0, (int)Math.floor((where.y - radius) / CELL_SIZE));
+    int toRow = Math.min(numRows - 1, (int)Math.floor((where.y + radius) / CELL_SIZE));
+    int best = -1;
+    double bestDistanceSq = radius * radius;
+    for(int row = fromRow; row <= toRow; ++row) {
+      for(int col = fromCol; col <= toCol; ++col) {
+        int cell = row * numCols + col;
+        for(int slot = cellStart[cell]; slot < cellStart[cell + 1]; ++slot) {
+          double dx = cellX[slot] - where.x;
+          double dy = cellY[slot] - where.y;
+          double distanceSq = dx * dx + dy * dy;
+          if (distanceSq <= bestDistanceSq) {
+            best = slot;
+            bestDistanceSq = distanceSq;
+          }
+        }
+      }
+    }
+    return best < 0 ? null : hit(best, Math.sqrt(bestDistanceSq));
+  }
+
+  /**
+   The part of the sky seen in the given area of the page, as a range of declination and right ascension.
+   Used to fetch only the stars for that area from the catalog (see {@link mag5.star.StarCatalog#filterView}).
+   The range is generous (see {@link Projection#skyBoundsOf(Rectangle2D)}), so the stars still need to be checked with 
+   {@link #pagePointOf(Star)}.
+  */
+  public Bounds skyBoundsOf(Rectangle2D pageArea) {
+    return projection.skyBoundsOf(chartTransform.createTransformedShape(pageArea).getBounds2D());
+  }
+
+  /** Where the given star is drawn, in the coordinates of the page. Null if it's outside the chart's boundary, and so clipped away. */
+  public Point2D.Double pagePointOf(Star star) {
+    Point2D.Double result = projection.project(star.DEC, star.RA);
+    if (result != null && boundary.contains(result)) {
+      pageTransform.transform(result, result);
+    }
+    else {
+      result = null;
+    }
+    return result;
+  }
+
+  /** The number of items that can be found. */
+  public int size() {
+    return cellKind.length;
+  }
+
+  // PRIVATE
+
+  /** In points. About the size of the biggest star dot. */
+  private static final double CELL_SIZE = 8.0;
+  private static final Kind[] KINDS = Kind.values();
+
+  private Star[] stars;
+  private DeepSkyObject[] dsos;
+  private ChartLabel[] chartLabels;
+  private AffineTransform pageTransform;
+  private AffineTransform chartTransform;
+  private Projection projection;
+  private Shape boundary;
+  private int numCols;
+  private int numRows;
+
+  /** The items in cell c are at cellStart[c] up to (but not including) cellStart[c+1]. */
+  private int[] cellStart;
+  private byte[] cellKind;
+  /** The position of the item in its list. */
+  private int[] cellIndex;
+  private float[] cellX;
+  private float[] cellY;
+
+  private int keep(Point2D.Double where, Shape boundary, Kind kind, int index, int[] kinds, int[] indexes, double[] xs, double[] ys, int count) {
+    int result = count;
+    if (where != null && boundary.contains(where)) {
+      kinds[count] = kind.ordinal();
+      indexes[count] = index;
+      xs[count] = where.x;
+      ys[count] = where.y;
+      ++result;
+    }
+    return result;
+  }
+
+  /** Items on the edge of the chart go into the nearest cell. */
+  private int cellFor(double x, double y) {
+    int col = Math.max(0, Math.min(numCols - 1, (int)Math.floor(x / CELL_SIZE)));
+    int row = Math.max(0, Math.min(numRows - 1, (int)Math.floor(y / CELL_SIZE)));
+    return row * numCols + col;
+  }
+
+  private Hit hit(int slot, double distance) {
+    Kind kind = KINDS[cellKind[slot]];
+    Object item = null;
+    if (Kind.STAR == kind) {
+      item = stars[cellIndex[slot]];
+    }
+    else if (Kind.DEEP_SKY_OBJECT == kind) {
+      item = dsos[cellIndex[slot]];
+    }
+    else {
+      item = chartLabels[cellIndex[slot]];
+    }
+    Point2D.Double onPage = new Point2D.Double(cellX[slot], cellY[slot]);
+    pageTransform.transform(onPage, onPage);
+    return new Hit(kind, item, onPage.x, onPage.y, distance);
+  }
+}
@@ -5,9 +5,6 @@ import java.awt.Font;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.Shape;
-import java.awt.font.FontRenderContext;
-import java.awt.font.GlyphVector;
-import java.awt.font.LineMetrics;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.util.function.Consumer;
@@ -17,16 +14,6 @@ import mag5.util.Maths;
 
 /** Settings and utility methods for chart building. */
 public class ChartUtil {
-
-  /**
-   The current chart being generated is for this Hemisphere.
-   
-   <P>WARNING: THIS CHANGES AT RUNTIME. Mutable global data!
-   This has no effect upon the polar charts; only on the equatorial charts.
-   Permutes the 'top' and 'bottom' charts, and so on.
-  */
-  public static Hemisphere HEMISPHERE = Hemisphere.NORTH;
-  
   /** Percent of total width. */
   public static final Double BORDER_WIDTH = 4.0;
   /** Percent of total width. */
@@ -284,41 +271,38 @@ public class ChartUtil {
 
   /** Return the height of the given text, when rendered in the given context. */
   public int textHeight(String str, Graphics2D g) {
-    LineMetrics lm = g.getFont().getLineMetrics(str, g.getFontRenderContext());
-    float ascent = lm.getAscent();
-    float descent = lm.getDescent();
-    float height = ascent + descent; //don't include the leading!
+    float height = TextMetrics.height(str, g); //ascent + descent; don't include the leading!
     float FUDGE_FACTOR_FOR_AESTHETIC_PURPOSES = 0.60F; //withouth this the centering is off - too low
     return Maths.round(height*FUDGE_FACTOR_FOR_AESTHETIC_PURPOSES); 
   }
 
   /** Return the width of the given text, when rendered in the given context. */
   public int textWidth(String str, Graphics2D g) {
-    return g.getFontMetrics().stringWidth(str);
+    return TextMetrics.width(str, g);
   }
 
-  /** Return the current font, but resized by the given factor. */
+  /** Return the current font, but resized by the given factor. The fonts are shared, see {@link TextMetrics}. */
   public Font resizedFont(float factor, Graphics2D g) {
     Font currentFont = g.getFont();
-    Font result = currentFont.deriveFont(currentFont.getSize() * factor);
+    Font result = TextMetrics.resized(currentFont, factor);
     return result;
   }
 
   public static Font baseFont() {
-    return new Font(BASE_FONT_NAME, Font.PLAIN, BASE_FONT_SIZE);
+    return TextMetrics.font(BASE_FONT_NAME, Font.PLAIN, BASE_FONT_SIZE);
     //return FontFactory.getFont(BASE_FONT_NAME, BaseFont.IDENTITY_H, BASE_FONT_SIZE, com.itextpdf.text.Font.NORMAL);
   }
       
   public static Font modifiedBaseFont(int size) {
-    return new Font(BASE_FONT_NAME, Font.PLAIN, size); 
+    return TextMetrics.font(BASE_FONT_NAME, Font.PLAIN, size); 
   }
   
   public static Font italicBaseFont() {
-    return new Font(BASE_FONT_NAME, Font.ITALIC, BASE_FONT_SIZE); 
+    return TextMetrics.font(BASE_FONT_NAME, Font.ITALIC, BASE_FONT_SIZE); 
   }
   
   public static Font boldBaseFont() {
-    return new Font(BASE_FONT_NAME, Font.BOLD, BASE_FONT_SIZE); 
+    return TextMetrics.font(BASE_FONT_NAME, Font.BOLD, BASE_FONT_SIZE); 
   }
   
   /**
@@ -428,8 +412,6 @@ public class ChartUtil {
    overwrite with a white rectangle.
   */
   private Rectangle getTextBounds(String str, double x, double y, Graphics2D g) {
-    FontRenderContext frc = g.getFontRenderContext();
-    GlyphVector gv = g.getFont().createGlyphVector(frc, str);
-    return gv.getPixelBounds(null, (float)x, (float)y);
+    return TextMetrics.pixelBounds(str, x, y, g);
   }
 }
\ No newline at end of file
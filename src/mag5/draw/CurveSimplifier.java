@@ -0,0 +1,112 @@
+package mag5.draw;
+
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Line2D;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ Drop the points of a long polyline that don't change its shape by any visible amount.
+
+ <P>Curves are built by stepping along them in small fixed steps (see {@link ChartUtil#DELTA_THETA_DEGS}).
+ That makes hundreds or thousands of tiny line segments for each curve, almost all of them in nearly a straight line.
+ Here, the projected points are thinned out by adaptive subdivision: if all of the points between two kept points are
+ within a small distance (the tolerance) of the straight line joining them, they're dropped; otherwise,
+ the point furthest from the line is kept, and the two halves are treated in the same way.
+ The first and last points are always kept.
+
+ <P>The tolerance is in points (1/72 of an inch). The default of {@value #DEFAULT_TOLERANCE} points is much smaller than
+ a dot at the resolution of a printer, and much smaller than the width of the lines.
+ To set the tolerance, use <code>-Dmag5curvetolerance=0.1</code>, for example.
+ To turn this off, and keep all of the points, use <code>-Dmag5curvetolerance=0</code>.
+
+ <P>The number of segments before and after are counted, for all charts, and can be logged with {@link #stats()}.
+*/
+public final class CurveSimplifier {
+
+  /** The name of the system property used to set the tolerance - {@value}. */
+  public static final String TOLERANCE_PROPERTY = "mag5curvetolerance";
+
+  /** In points. */
+  public static final double DEFAULT_TOLERANCE = 0.05;
+
+  /**
+   Add the given points to the end of the given path, keeping only those needed to preserve the shape.
+   @param moveToFirst if true, then the first point is a move-to; otherwise, it's a line-to.
+  */
+  public static void appendTo(GeneralPath path, double[] x, double[] y, int n, boolean moveToFirst) {
+    if (n == 0) {
+      return;
+    }
+    boolean[] keep = pointsToKeep(x, y, n);
+    int numKept = 0;
+    for(int i = 0; i < n; ++i) {
+      if (keep[i]) {
+        if (i == 0 && moveToFirst) {
+          path.moveTo(x[i], y[i]);
+        }
+        else {
+          path.lineTo(x[i], y[i]);
+        }
+        ++numKept;
+      }
+    }
+    SEGMENTS_BEFORE.addAndGet(n - 1);
+    SEGMENTS_AFTER.addAndGet(numKept - 1);
+  }
+
+  /** The number of segments in all curves, before and after simplifying. Safe for use by more than one thread. */
+  public static String stats() {
+    return "Curve segments: " + SEGMENTS_BEFORE.get() + " before simplifying, " + SEGMENTS_AFTER.get() + " after.";
+  }
+
+  // PRIVATE
+
+  private static final AtomicLong SEGMENTS_BEFORE = new AtomicLong();
+  private static final AtomicLong SEGMENTS_AFTER = new AtomicLong();
+
+  private static double tolerance() {
+    return Double.valueOf(System.getProperty(TOLERANCE_PROPERTY, String.valueOf(DEFAULT_TOLERANCE)));
+  }
+
+  /** Uses a stack of pending ranges instead of recursion, since a curve can have thousands of points. */
+  private static boolean[] pointsToKeep(double[] x, double[] y, int n) {
+    boolean[] result = new boolean[n];
+    double tolerance = tolerance();
+    if (tolerance <= 0) {
+      Arrays.fill(result, true);
+      return result;
+    }
+    double toleranceSq = tolerance * tolerance;
+    result[0] = true;
+    result[n - 1] = true;
+    int[] stack = new int[64];
+    int top = 0;
+    stack[top++] = 0;
+    stack[top++] = n - 1;
+    while (top > 0) {
+      int end = stack[--top];
+      int start = stack[--top];
+      int furthest = -1;
+      double furthestSq = toleranceSq;
+      for(int i = start + 1; i < end; ++i) {
+        double distSq = Line2D.ptSegDistSq(x[start], y[start], x[end], y[end], x[i], y[i]);
+        if (distSq > furthestSq) {
+          furthestSq = distSq;
+          furthest = i;
+        }
+      }
+      if (furthest >= 0) {
+        result[furthest] = true;
+        if (top + 4 > stack.length) {
+          stack = Arrays.copyOf(stack, 2 * stack.length);
+        }
+        stack[top++] = start;
+        stack[top++] = furthest;
+        stack[top++] = furthest;
+        stack[top++] = end;
+      }
+    }
+    return result;
+  }
+}
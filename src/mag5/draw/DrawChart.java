@@ -6,16 +6,15 @@ import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.Shape;
 import java.awt.geom.AffineTransform;
-import java.awt.geom.Point2D;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
 
-import mag5.book.PdfConfig;
 import mag5.chartlabels.ChartLabel;
-import mag5.constellation.ConstellationLines;
 import mag5.deepskyobject.DeepSkyObject;
+import mag5.draw.display.DisplayList;
+import mag5.draw.display.RecordingGraphics;
+import mag5.draw.display.StateBatcher;
 import mag5.draw.equatorial.DrawDsoNameEquatorial;
 import mag5.draw.equatorial.DrawStarNamesEquatorial;
 import mag5.draw.polar.DrawDsoNamePolar;
@@ -31,20 +30,22 @@ import mag5.util.Maths;
 */
 public abstract class DrawChart {
   
-  /** The constructor, as usual, takes the various data needed to construct the star chart. */
-  public DrawChart(
-    Integer mapNum, Bounds bounds, List<Star> stars, ConstellationLines constellationLines, 
-    List<DeepSkyObject> dsos, Label labels, List<ChartLabel> chartLabels, Projection projection, Graphics2D g) {
+  /** 
+   The constructor, as usual, takes the various data needed to construct the star chart.
+   The data shared by all charts comes from the context. 
+  */
+  public DrawChart(Integer mapNum, Bounds bounds, List<Star> stars, RenderContext context, Projection projection, Graphics2D g) {
     //IMPORTANT: WE SWAP width and height here: the charts are rotated on the page
-    this.width = PdfConfig.HEIGHT;
-    this.height = PdfConfig.WIDTH;
+    this.width = context.HEIGHT;
+    this.height = context.WIDTH;
     this.mapNum = mapNum;
     this.bounds = bounds;
     this.stars = stars;
-    this.lines = constellationLines.all();
-    this.deepSkyObjects = dsos;
-    this.labels = labels;
-    this.chartLabels = chartLabels;
+    this.context = context;
+    this.lines = context.CONSTELLATION_LINES.all();
+    this.deepSkyObjects = context.DEEP_SKY_OBJECTS;
+    this.labels = context.LABELS;
+    this.chartLabels = context.chartLabels(mapNum);
     
     this.widthInt = Maths.round(this.width);
     this.heightInt = Maths.round(this.height);
@@ -55,12 +56,62 @@ public abstract class DrawChart {
   
   /** 
    Draw the chart.
-   Template method. Calls the various abstract methods defined by this class.  
+   If {@link DisplayList#isOn()}, then the chart is first recorded in a display list, and the display list is 
+   then replayed into the graphics context. The result is the same.
+   If {@link StateBatcher#isOn()} as well, then the items are put in batches before being replayed. 
   */
   public void draw() {
+    if (DisplayList.isOn()) {
+      DisplayList displayList = record();
+      if (StateBatcher.isOn()) {
+        displayList = StateBatcher.batch(displayList);
+        log("Batched. " + displayList.stats());
+      }
+      displayList.replay(g);
+    }
+    else {
+      drawAll();
+    }
+  }
+  
+  /** 
+   Record the chart in a display list, without drawing anything.
+   The graphics context passed to the constructor is used only to find the initial state (font, stroke, and so on).
+  */
+  public DisplayList record() {
+    Graphics2D target = g;
+    RecordingGraphics recorder = new RecordingGraphics(target);
+    g = recorder;
+    try {
+      drawAll();
+    }
+    finally {
+      g = target;
+      recorder.dispose();
+    }
+    log(recorder.displayList().stats());
+    return recorder.displayList();
+  }
+  
+  /**
+   Find what's drawn where on this chart, for an interactive viewer (see {@link ChartHits}).
+   The positions found while drawing are reused, so this can only be called after {@link #draw()} or {@link #record()}.
+  */
+  public ChartHits hits() {
+    if (scene == null) {
+      throw new IllegalStateException("The chart needs to be drawn before it can be queried.");
+    }
+    return new ChartHits(scene, stars, deepSkyObjects, chartLabels, width, height, pageTransform());
+  }
+  
+  /** 
+   Template method. Calls the various abstract methods defined by this class.  
+  */
+  private void drawAll() {
     log("Creating chart " + chartName() + " h:"+ height + " w:"+width);
     log("Num stars in the chart (filtered): " + stars.size());
     log("Num lines in the chart (unfiltered): " + lines.size());
+    scene = new ProjectedScene(projection, stars, deepSkyObjects, chartLabels, lines);
     initGraphicsContext();
 
     drawOutline();
@@ -74,9 +125,6 @@ public abstract class DrawChart {
     drawDateScale();
     drawExtras();
     
-    findStarPositions(stars, projection);
-    findDsoPositions(deepSkyObjects, projection);
-    
     chartUtil.clippingOn(projection, g);
     drawConstellationLines();
     drawDeepSkyObjects();
@@ -87,6 +135,7 @@ public abstract class DrawChart {
     drawChartLabels();
     
     chartUtil.clippingOff(g);
+    log("Num curves in the graticule: " + scene.numCurves() + ", with " + scene.numCurveVertices() + " vertices.");
   }
   
   protected abstract void drawRightAscensionGridLines();
@@ -108,12 +157,18 @@ public abstract class DrawChart {
   /** Translatable text. */
   protected Label labels;
   
+  /** The hemisphere, language, and data shared by all charts. */
+  protected RenderContext context;
+  
   /** The chart number. */
   protected Integer mapNum;
   
   /** What projection is used to draw the chart. */
   protected Projection projection;
   
+  /** Where everything on the chart is drawn. Created at the start of {@link #draw()}. */
+  protected ProjectedScene scene;
+  
   /** 
    The graphics context.
    IMPORTANT: pdf files and libraries have a built-in graphics context. 
@@ -129,7 +184,7 @@ public abstract class DrawChart {
       Font biggerFont = chartUtil.resizedFont(1.6f, g);
       g.setFont(biggerFont);
       String text = projection.getBounds().isNorth() ? "Due south at 8pm" : "Due north at 8pm"; 
-      g.drawString(labels.text(text, ChartUtil.lang()), Maths.round(chartUtil.percentWidth(percentWidth)), Maths.round(chartUtil.percentHeight(percentHeight)));
+      g.drawString(labels.text(text, context.LANG), Maths.round(chartUtil.percentWidth(percentWidth)), Maths.round(chartUtil.percentHeight(percentHeight)));
       g.setFont(originalFont);
     }
   }
@@ -148,20 +203,6 @@ public abstract class DrawChart {
   /** The DSOs that appear on the chart. */
   private List<DeepSkyObject> deepSkyObjects;
   
-  /** 
-   Remember where each star is drawn.
-   This exists in order to remember how to draw the lines joining the stars.
-   The key is the (slightly modified) YBS index.  
-  */
-  private Map<Integer, Point2D.Double> starPoints = new LinkedHashMap<>();
-  
-  /** 
-   Remember where each deep sky object is drawn.
-   This exists in order to remember where to draw the designations.
-   The key is the deep sky objects (DSO) designation.  
-  */
-  private Map<String, Point2D.Double> dsoPoints = new LinkedHashMap<>();
-  
   /** Names of constellations, asterisms, and the brightest stars. */
   private List<ChartLabel> chartLabels;
   
@@ -197,10 +238,15 @@ public abstract class DrawChart {
    Right-to-left is transformed to bottom-to-top. 
   */  
   private void rotateTheDrawingContext() {
+    g.transform(pageTransform());
+  }
+  
+  /** Turns the coordinates of the chart into the coordinates of the page. */
+  private AffineTransform pageTransform() {
     AffineTransform displaceAndRotate = new AffineTransform();
     displaceAndRotate.translate(0, height*aspectRatio()); //WARNING: with a png, I don't need to multiply by the aspect ratio
     displaceAndRotate.rotate(-Math.PI/2);
-    g.transform(displaceAndRotate);
+    return displaceAndRotate;
   }
   
   private double aspectRatio() {
@@ -219,22 +265,22 @@ public abstract class DrawChart {
   }
   
   private void drawConstellationLines() {
-    DrawConstellations constellations = new DrawConstellations(lines, starPoints, g);
+    DrawConstellations constellations = new DrawConstellations(scene, g);
     constellations.draw();
   }
   
   private void drawDeepSkyObjects() {
-    DrawDeepSkyObject dsos = new DrawDeepSkyObject(deepSkyObjects, projection, g);
+    DrawDeepSkyObject dsos = new DrawDeepSkyObject(deepSkyObjects, scene, g);
     dsos.draw();
   }
   
   private void drawStarDots() {
-    DrawStars starDots = new DrawStars(stars, starPoints, g);
+    DrawStars starDots = new DrawStars(stars, scene, g);
     starDots.draw();
   }
   
   private void drawMagnitudeScale() {
-    DrawMagnitudeScale magScale = new DrawMagnitudeScale(labels, width, height, projection, g);
+    DrawMagnitudeScale magScale = new DrawMagnitudeScale(labels, context.LANG, width, height, projection, g);
     magScale.draw();
   }
   
@@ -244,37 +290,23 @@ public abstract class DrawChart {
   }
   
   private void drawSymbolKey() {
-    DrawSymbolKey  drawSymbolKey = new DrawSymbolKey(labels, chartUtil, projection, g);
+    DrawSymbolKey  drawSymbolKey = new DrawSymbolKey(labels, context.LANG, chartUtil, projection, g);
     drawSymbolKey.draw();
   }
   
   private void drawGreekAlphabet() {
-    DrawGreekAlphabet greek = new DrawGreekAlphabet(chartUtil, projection, g);
+    DrawGreekAlphabet greek = new DrawGreekAlphabet(context.LANG, chartUtil, projection, g);
     greek.draw();
   }
   
-  private void findStarPositions(List<Star> stars, Projection projection) {
-    for (Star star : stars) {
-      Point2D.Double where = projection.project(star.DEC, star.RA);
-      starPoints.put(star.INDEX, where); 
-    }
-  }
-  
-  private void findDsoPositions(List<DeepSkyObject> dsos, Projection projection) {
-    for (DeepSkyObject dso : dsos) {
-      Point2D.Double where = projection.project(dso.getDec(), dso.getRa());
-      dsoPoints.put(dso.getDesig(), where); 
-    }
-  }
-  
   /** Should this be in an abstract method? */
   private void drawStarNames() {
     if (projection.getBounds().isEquatorial()) {
-      DrawStarNamesEquatorial starNames = new DrawStarNamesEquatorial(stars, starPoints, chartUtil, projection, g);
+      DrawStarNamesEquatorial starNames = new DrawStarNamesEquatorial(scene.starsForNames(stars), scene, chartUtil, g);
       starNames.draw();
     }
     else {
-      DrawStarNamesPolar starNames = new DrawStarNamesPolar(stars, starPoints, chartUtil, projection, g);
+      DrawStarNamesPolar starNames = new DrawStarNamesPolar(scene.starsForNames(stars), scene, chartUtil, g);
       starNames.draw();
     }
   }
@@ -282,17 +314,17 @@ public abstract class DrawChart {
   /** Should this be in an abstract method? */
   private void drawDsoName() {
     if (projection.getBounds().isEquatorial()) {
-      DrawDsoNameEquatorial dsoName = new DrawDsoNameEquatorial(deepSkyObjects, dsoPoints, chartUtil, projection, g);
+      DrawDsoNameEquatorial dsoName = new DrawDsoNameEquatorial(scene.dsosForNames(deepSkyObjects), scene, chartUtil, g);
       dsoName.draw();
     }
     else {
-      DrawDsoNamePolar dsoName = new  DrawDsoNamePolar(deepSkyObjects, dsoPoints, chartUtil, projection, g);
+      DrawDsoNamePolar dsoName = new DrawDsoNamePolar(scene.dsosForNames(deepSkyObjects), scene, chartUtil, g);
       dsoName.draw();
     }
   }
   
   private void drawChartLabels() {
-    DrawChartLabels chLabels = new DrawChartLabels(chartLabels, chartUtil, projection, g);
+    DrawChartLabels chLabels = new DrawChartLabels(chartLabels, chartUtil, scene, g);
     chLabels.draw();
   }
 }
\ No newline at end of file
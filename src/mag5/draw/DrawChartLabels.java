@@ -12,21 +12,25 @@ import mag5.util.Maths;
 /** Render the names of constellations, asterisms, and the brightest stars. */
 class DrawChartLabels {
   
-  DrawChartLabels(List<ChartLabel> chartLabels, ChartUtil chartUtil, Projection projection, Graphics2D g){
+  DrawChartLabels(List<ChartLabel> chartLabels, ChartUtil chartUtil, ProjectedScene scene, Graphics2D g){
     this.chartLabels = chartLabels;
     this.chartUtil = chartUtil;
-    this.projection = projection;
+    this.scene = scene;
+    this.projection = scene.projection();
     this.g = g;
   }
   
   /** Draw the labels attached to this chart. */
   void draw() {
-    for(ChartLabel chartLabel : chartLabels) {
+    for(int i = 0; i < chartLabels.size(); ++i) {
+      if (!scene.isChartLabelNearTheChart(i)) {
+        continue;
+      }
       if (projection.getBounds().isPolar()) {
-        drawPolar(chartLabel);
+        drawPolar(chartLabels.get(i), scene.chartLabelPoint(i));
       }
       else {
-        drawEquatorial(chartLabel);
+        drawEquatorial(chartLabels.get(i), scene.chartLabelPoint(i));
       }
     }
   }
@@ -34,13 +38,13 @@ class DrawChartLabels {
   // PRIVATE
   private List<ChartLabel> chartLabels;
   private ChartUtil chartUtil;
+  private ProjectedScene scene;
   private Projection projection;
   private Graphics2D g;
   
   /** Center on the given coords. */
-  private void drawEquatorial(ChartLabel chartLabel) {
+  private void drawEquatorial(ChartLabel chartLabel, Point2D.Double where) {
     String text = textFor(chartLabel);
-    Point2D.Double where = projection.project(chartLabel.DEC, chartLabel.RA);
     Point2D.Double whereCtr = chartUtil.centerTextOn(where.x, where.y, text, g);
     drawAccordingToType(text, chartLabel, whereCtr);
   }
@@ -67,9 +71,8 @@ class DrawChartLabels {
   }
 
   /** Rotate to be symmetric with respect to the celestial pole. Center on the given coords. */
-  private void drawPolar(ChartLabel chartLabel) {
+  private void drawPolar(ChartLabel chartLabel, Point2D.Double target) {
     String text = textFor(chartLabel);
-    Point2D.Double target = projection.project(chartLabel.DEC, chartLabel.RA);
     double rotationAngle = chartUtil.rotationAngle(projection, target);
     Consumer<Graphics2D> drawer = x -> {
       Point2D.Double centered = chartUtil.centerTextOn(0, 0, text, g);
@@ -8,14 +8,16 @@ import java.util.List;
 
 import mag5.deepskyobject.DeepSkyObject;
 import mag5.deepskyobject.DsoType;
+import mag5.draw.display.RecordingGraphics;
 import mag5.util.Maths;
 
 /** Draw the deep sky objects attached to a chart. Includes the Magellanic Clouds. */
 public class DrawDeepSkyObject {
   
-  DrawDeepSkyObject(List<DeepSkyObject> deepSkyObjects, Projection projection, Graphics2D g) {
+  DrawDeepSkyObject(List<DeepSkyObject> deepSkyObjects, ProjectedScene scene, Graphics2D g) {
     this.deepSkyObjects = deepSkyObjects;
-    this.projection = projection;
+    this.scene = scene;
+    this.projection = scene.projection();
     this.g = g;
   }
 
@@ -25,8 +27,13 @@ public class DrawDeepSkyObject {
   */
   void draw() {
     int size = sizeOfDso(projection);
-    for(DeepSkyObject dso : deepSkyObjects) {
-      Point2D.Double target = projection.project(dso.getDec(), dso.getRa());
+    for(int i = 0; i < deepSkyObjects.size(); ++i) {
+      DeepSkyObject dso = deepSkyObjects.get(i);
+      Point2D.Double target = scene.dsoPoint(i);
+      if (!scene.isNearTheChart(target, size + 1 + GeometryClip.LINE_MARGIN)) {
+        continue; //can't be seen; the extra 1 is for rounding
+      }
+      RecordingGraphics.beginSymbol(g, dso.getDsoType() + "-" + size, Maths.round(target.x), Maths.round(target.y));
       if (DsoType.GLOBULAR_CLUSTER == dso.getDsoType()) {
         drawGlobularCluster(target, size, g);
       }
@@ -39,6 +46,7 @@ public class DrawDeepSkyObject {
       else {
         drawNebula(target, size, g);
       }
+      RecordingGraphics.endSymbol(g);
       //g.drawRect(target.x, target.y, 1, 1); //debugging only
     }
     drawCloudsOfMagellan();
@@ -67,12 +75,8 @@ public class DrawDeepSkyObject {
   
   /** Dashed circle. Centered on the target. */
   public static void drawOpenCluster(Point2D.Double target, int radius, Graphics2D g) {
-    //dashed line https://docs.oracle.com/javase/tutorial/2d/geometry/strokeandfill.html
-    float dashes[] = {1.0f};
-    float dashPhaseOffset = 1.0f;
-    BasicStroke dashed = new BasicStroke(1.0f/*width*/, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 1.0f /*miter*/, dashes, dashPhaseOffset);
     Stroke regularStroke = g.getStroke();
-    g.setStroke(dashed);
+    g.setStroke(DASHED);
     
     int w = radius*2;
     int h = w;
@@ -101,7 +105,17 @@ public class DrawDeepSkyObject {
   }
   
   // PRIVATE 
+  
+  /** 
+   Dashed line https://docs.oracle.com/javase/tutorial/2d/geometry/strokeandfill.html
+   Strokes are immutable, so a single one is shared by all of the open clusters. 
+  */
+  private static final BasicStroke DASHED = new BasicStroke(
+    1.0f/*width*/, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 1.0f /*miter*/, new float[] {1.0f} /*dashes*/, 1.0f /*dash phase offset*/
+  );
+  
   private List<DeepSkyObject> deepSkyObjects;
+  private ProjectedScene scene;
   private Projection projection;
   private Graphics2D g;
   
@@ -117,16 +131,13 @@ public class DrawDeepSkyObject {
   private void drawMagellanicCloud(double raHrs, double decDeg, double radiusDeg, double eccentricity, double rotation) {
     double ra = Maths.hoursToRads(raHrs);
     double dec = Maths.degToRads(decDeg);
-    Point2D.Double cloudCenter = projection.project(dec, ra);
+    Point2D.Double cloudCenter = scene.project(dec, ra);
     
     double radius = projection.distancePerRad() * Maths.degToRads(radiusDeg);
     int w = Maths.round(radius*2);
     int h = Maths.round(eccentricity * w); //ellipse
-    float dashes[] = {1.0f};
-    float dashPhaseOffset = 1.0f;
-    BasicStroke dashed = new BasicStroke(1.0f/*width*/, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 1.0f /*miter*/, dashes, dashPhaseOffset);
     Stroke regularStroke = g.getStroke();
-    g.setStroke(dashed);
+    g.setStroke(DASHED);
 
     ChartUtil chartUtil = new ChartUtil();
     chartUtil.drawRotated(
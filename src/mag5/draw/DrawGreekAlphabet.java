@@ -6,6 +6,7 @@ import java.awt.geom.Point2D;
 import java.util.List;
 
 import mag5.translate.GreekAlphabet;
+import mag5.translate.Lang;
 import mag5.util.Maths;
 
 /** 
@@ -15,7 +16,8 @@ import mag5.util.Maths;
 */
 class DrawGreekAlphabet {
 
-  DrawGreekAlphabet( ChartUtil chartUtil, Projection projection, Graphics2D g) {
+  DrawGreekAlphabet(Lang lang, ChartUtil chartUtil, Projection projection, Graphics2D g) {
+    this.lang = lang;
     this.projection = projection;
     this.g = g;
     this.chartUtil = chartUtil;
@@ -47,7 +49,7 @@ class DrawGreekAlphabet {
       
       //the names of the letters (varies with language)
       GreekAlphabet greek = new GreekAlphabet();
-      List<String> names = greek.namesOfLetters(ChartUtil.lang());
+      List<String> names = greek.namesOfLetters(lang);
       //reset back to the left
       x = START; 
       y = y + Maths.round(chartUtil.percentHeight(2.5));
@@ -60,6 +62,7 @@ class DrawGreekAlphabet {
   }
   
   // PRIVATE
+  private Lang lang;
   private ChartUtil chartUtil;
   private Projection projection;
   private Graphics2D g;
@@ -6,6 +6,7 @@ import java.awt.geom.Point2D;
 
 import mag5.star.Star;
 import mag5.translate.Label;
+import mag5.translate.Lang;
 import mag5.util.Maths;
 
 /**
@@ -13,10 +14,11 @@ import mag5.util.Maths;
 */
 class DrawMagnitudeScale {
 
-  DrawMagnitudeScale(Label labels, double width, double height, Projection projection, Graphics2D g) {
+  DrawMagnitudeScale(Label labels, Lang lang, double width, double height, Projection projection, Graphics2D g) {
     this.projection = projection;
     this.g = g;
     this.labels = labels;
+    this.lang = lang;
     this.chartUtil = new ChartUtil(width, height);
   }
 
@@ -31,7 +33,7 @@ class DrawMagnitudeScale {
       //the text alignment depends on the font size, so that needs to be set early
       Font biggerFont = chartUtil.resizedFont(2.0f, g);
       g.setFont(biggerFont);
-      g.drawString(labels.text("Magnitude", ChartUtil.lang()), Maths.round(chartUtil.percentWidth(LEFT_INDENT-1)), Maths.round(chartUtil.percentHeight(DOWN_INDENT)));
+      g.drawString(labels.text("Magnitude", lang), Maths.round(chartUtil.percentWidth(LEFT_INDENT-1)), Maths.round(chartUtil.percentHeight(DOWN_INDENT)));
       g.setFont(originalFont);
       
       for (int mag = 0; mag < ChartUtil.LIMITING_MAG; ++mag) {
@@ -46,6 +48,7 @@ class DrawMagnitudeScale {
   private Projection projection;
   private Graphics2D g;
   private Label labels;
+  private Lang lang;
   private ChartUtil chartUtil;
 
   private void drawMagnitudeScaleFor(Double mag, int LEFT_INDENT, int DOWN_INDENT) {
@@ -54,7 +54,7 @@ public enum DrawPosition {
   public static DrawPosition findPosFrom(CompassPoint compassPoint, Projection projection) {
     Map<CompassPoint, DrawPosition> map = projection.getBounds().isEquatorial() ? EQUATORIAL_NORTHERN_HEM : POLAR_NORTHERN_HEM;
     DrawPosition result = map.get(compassPoint);
-    if (Hemisphere.SOUTH == ChartUtil.HEMISPHERE) {
+    if (Hemisphere.SOUTH == projection.getBounds().hemisphere) {
       result = DrawPosition.reverseOf(result);
     }
     return result;
@@ -8,8 +8,8 @@ import java.awt.Graphics2D;
 import java.awt.geom.Point2D;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
+import mag5.draw.display.RecordingGraphics;
 import mag5.star.Star;
 import mag5.util.Maths;
 
@@ -19,9 +19,9 @@ import mag5.util.Maths;
 */
 public class DrawStars {
   
-  DrawStars(List<Star> stars, Map<Integer, Point2D.Double> starPoints, Graphics2D g) {
+  DrawStars(List<Star> stars, ProjectedScene scene, Graphics2D g) {
     this.stars = stars;
-    this.starPoints = starPoints;
+    this.scene = scene;
     this.g = g;
   }
   
@@ -79,17 +79,21 @@ public class DrawStars {
   //PRIVATE 
   
   private List<Star> stars;
-  private Map<Integer, Point2D.Double> starPoints;
+  private ProjectedScene scene;
   private Graphics2D g;
 
   private void drawStarDot(Star star) {
-    Point2D.Double where = starPoints.get(star.INDEX); 
+    Point2D.Double where = scene.starPoint(star.INDEX); 
     int radius = starSize(star)+1;
+    if (!scene.isNearTheChart(where, radius + 1)) {
+      return; //can't be seen; the extra 1 is for rounding
+    }
     //careful: uses a bounding rectangle! the xy denotes the top left.
     //white filled circle, as a border to the black filled circle; slightly bigger
     int w = radius*2;
     int h = w; //circular
     Color originalColor = g.getColor();
+    RecordingGraphics.beginSymbol(g, "star-" + radius, Maths.round(where.x), Maths.round(where.y));
     g.setColor(Color.WHITE);
     g.fillOval(Maths.round(where.x - radius), Maths.round(where.y - radius), w, h);
 
@@ -98,13 +102,14 @@ public class DrawStars {
     w = radius*2;
     h = w;
     g.fillOval(Maths.round(where.x - radius), Maths.round(where.y - radius), w, h);
+    RecordingGraphics.endSymbol(g);
     g.setColor(originalColor);
   }
   
   /** Used for development only, to easily see the index of stars. */
   @SuppressWarnings("unused")
   private void drawStarNamesIndexOnly(Star star) {
-    Point2D.Double where = starPoints.get(star.INDEX);
+    Point2D.Double where = scene.starPoint(star.INDEX);
     int tweak = starSize(star) + 3;
     String starId = star.INDEX.toString();
     Point2D.Double pName = new Point2D.Double(where.x, where.y + 2*tweak);
@@ -5,13 +5,15 @@ import java.awt.Graphics2D;
 import java.awt.geom.Point2D;
 
 import mag5.translate.Label;
+import mag5.translate.Lang;
 import mag5.util.Maths;
 
 /** Render a small table of symbols used to designate deep sky objects. */
 class DrawSymbolKey {
   
-  public DrawSymbolKey(Label labels, ChartUtil chartUtil, Projection projection, Graphics2D g) {
+  public DrawSymbolKey(Label labels, Lang lang, ChartUtil chartUtil, Projection projection, Graphics2D g) {
     this.labels = labels;
+    this.lang = lang;
     this.projection = projection;
     this.g = g;
     this.chartUtil = chartUtil;
@@ -26,7 +28,7 @@ class DrawSymbolKey {
       //the text alignment depends on the font size, so that needs to be set early
       Font biggerFont = chartUtil.resizedFont(1.75f, g);
       g.setFont(biggerFont);
-      g.drawString(labels.text("Symbols", ChartUtil.lang()), Maths.round(chartUtil.percentWidth(LEFT_INDENT-1)), Maths.round(chartUtil.percentHeight(DOWN_INDENT)));
+      g.drawString(labels.text("Symbols", lang), Maths.round(chartUtil.percentWidth(LEFT_INDENT-1)), Maths.round(chartUtil.percentHeight(DOWN_INDENT)));
       
       int size = DrawDeepSkyObject.sizeOfDso(projection);
 
@@ -42,6 +44,7 @@ class DrawSymbolKey {
   // PRIVATE 
   
   private Label labels;
+  private Lang lang;
   private ChartUtil chartUtil;
   private Projection projection;
   private Graphics2D g;
@@ -60,7 +63,7 @@ class DrawSymbolKey {
     Point2D.Double target = new Point2D.Double(chartUtil.percentWidth(LEFT_INDENT), chartUtil.percentHeight(DOWN_INDENT + index*GAP));
     drawer.drawSomething(target, size, g);
     Point2D.Double targetText = new  Point2D.Double(chartUtil.percentWidth(LEFT_INDENT+GAP_HORIZ), chartUtil.percentHeight(DOWN_INDENT+index*GAP));
-    String text = labels.text(labelKey, ChartUtil.lang());
+    String text = labels.text(labelKey, lang);
     Point2D.Double pText = chartUtil.centerTextVerticallyOn(targetText.x, targetText.y, text, g);
     g.drawString(text, Maths.round(pText.x), Maths.round(pText.y));
   }
@@ -0,0 +1,192 @@
+package mag5.draw;
+
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+
+/**
+ Drop items that can't possibly be seen on the chart, before they're drawn.
+
+ <P>Each chart includes stars and lines well outside of its edges (see {@link ChartUtil#EDGE_OVERLAP_DEGS}).
+ The Graphics2D clip hides them, but they still end up in the PDF, making it bigger and slower to render.
+ Here, an item is dropped if it's further than a given margin from the chart's {@link Projection#innerBoundary()}.
+ The margin is the size of the item: the radius of a star-dot, for example, or the length of a piece of text.
+
+ <P>The boundary can have many points (some 1,800 for an equatorial chart), so testing against it is slow.
+ Most items are decided by two rectangles instead: the box around the boundary, and a rectangle inside the boundary, found once.
+ An item entirely outside the box is far from the chart, and an item touching the inner rectangle is on the chart.
+ Only the items near the edge of the chart are tested against the boundary itself.
+
+ <P>This is not a replacement for the Graphics2D clip, which still does the exact clipping.
+ The tests here are conservative: when in doubt, the item is kept.
+ So the result looks exactly the same as before.
+
+ <P>To turn this off, use <code>-Dmag5preclip=off</code>.
+*/
+final class GeometryClip {
+
+  /** The name of the system property used to turn off pre-clipping - {@value}. */
+  static final String PRECLIP_PROPERTY = "mag5preclip";
+
+  /** Generous margin for text placed near a point: the length of a long label, in points. */
+  static final double TEXT_MARGIN = 150.0;
+
+  /** Margin for lines. Larger than the width of any stroke. */
+  static final double LINE_MARGIN = 2.0;
+
+  GeometryClip(Shape boundary) {
+    this.boundary = boundary;
+    this.box = boundary.getBounds2D();
+    this.isOn = !"off".equalsIgnoreCase(System.getProperty(PRECLIP_PROPERTY, "on"));
+    this.inner = isOn ? innerRectangle() : new Rectangle2D.Double();
+  }
+
+  /** Returns true only if the given point is within the given distance of the chart (in the x and y directions). */
+  boolean isNear(double x, double y, double margin) {
+    return isNear(x, y, x, y, margin);
+  }
+
+  /**
+   Returns true only if the given segment might come within the given distance of the chart.
+   This uses the rectangle that surrounds the segment, so a segment that only passes close to a corner is kept.
+  */
+  boolean isNear(double x1, double y1, double x2, double y2, double margin) {
+    boolean result = true;
+    if (isOn) {
+      double minX = Math.min(x1, x2) - margin;
+      double minY = Math.min(y1, y2) - margin;
+      double maxX = Math.max(x1, x2) + margin;
+      double maxY = Math.max(y1, y2) + margin;
+      if (maxX < box.getMinX() || minX > box.getMaxX() || maxY < box.getMinY() || minY > box.getMaxY()) {
+        result = false; //the quick test
+      }
+      else if (!inner.isEmpty() && maxX >= inner.getMinX() && minX <= inner.getMaxX() && maxY >= inner.getMinY() && minY <= inner.getMaxY()) {
+        result = true; //the other quick test
+      }
+      else {
+        result = boundary.intersects(minX, minY, maxX - minX, maxY - minY);
+      }
+    }
+    return result;
+  }
+
+  /**
+   Returns true only if the given rectangle is well inside the chart, such that clipping it would have no effect.
+   Returns false if pre-clipping is off.
+  */
+  boolean isInside(Rectangle2D rect) {
+    boolean result = false;
+    if (isOn) {
+      Rectangle2D.Double grown = new Rectangle2D.Double(
+        rect.getMinX() - LINE_MARGIN, rect.getMinY() - LINE_MARGIN, rect.getWidth() + 2*LINE_MARGIN, rect.getHeight() + 2*LINE_MARGIN
+      );
+      if (inner.contains(grown)) {
+        result = true;
+      }
+      else if (box.contains(grown)) {
+        result = boundary.contains(grown);
+      }
+    }
+    return result;
+  }
+
+  // PRIVATE
+  private Shape boundary;
+  private Rectangle2D box;
+  /** Entirely inside the boundary. Possibly empty. */
+  private Rectangle2D inner;
+  private boolean isOn;
+
+  /** Fractions of the box, for the centers of the trial rectangles. */
+  private static final double[] CENTERS = {0.25, 0.5, 0.75};
+  /** The shapes of the trial rectangles, as width-to-height, relative to the box. */
+  private static final double[] ASPECTS = {0.5, 0.7, 1.0, 1.4, 2.0};
+  private static final int NUM_HALVINGS = 12;
+
+  /**
+   A large rectangle entirely inside the boundary. It doesn't need to be the largest one.
+   A few trial rectangles are grown around a few centers, keeping the largest one that fits.
+   Then each of its sides is pushed out, one at a time, as far as it will go.
+   Each trial is tested against the boundary itself, so the result is exact, not a guess.
+  */
+  private Rectangle2D innerRectangle() {
+    Rectangle2D result = new Rectangle2D.Double();
+    for (double fx : CENTERS) {
+      for (double fy : CENTERS) {
+        double cx = box.getMinX() + fx * box.getWidth();
+        double cy = box.getMinY() + fy * box.getHeight();
+        for (double aspect : ASPECTS) {
+          Rectangle2D trial = largestAround(cx, cy, aspect);
+          if (trial.getWidth() * trial.getHeight() > result.getWidth() * result.getHeight()) {
+            result = trial;
+          }
+        }
+      }
+    }
+    if (!result.isEmpty()) {
+      for(int side = 0; side < 4; ++side) {
+        result = pushedOut(result, side);
+      }
+    }
+    return result;
+  }
+
+  /** Move one side of the rectangle outwards, as far as the box, keeping the rectangle inside the boundary. */
+  private Rectangle2D pushedOut(Rectangle2D rect, int side) {
+    double fits = 0.0;
+    double tooBig = 1.0;
+    for(int i = 0; i < NUM_HALVINGS; ++i) {
+      double trial = (fits + tooBig) / 2.0;
+      if (boundary.contains(pushedOut(rect, side, trial))) {
+        fits = trial;
+      }
+      else {
+        tooBig = trial;
+      }
+    }
+    return pushedOut(rect, side, fits);
+  }
+
+  /** At full size, the side is on the box. Sides: 0 left, 1 right, 2 top, 3 bottom. */
+  private Rectangle2D pushedOut(Rectangle2D rect, int side, double size) {
+    double minX = rect.getMinX();
+    double maxX = rect.getMaxX();
+    double minY = rect.getMinY();
+    double maxY = rect.getMaxY();
+    if (side == 0) {
+      minX = minX - size * (minX - box.getMinX());
+    }
+    else if (side == 1) {
+      maxX = maxX + size * (box.getMaxX() - maxX);
+    }
+    else if (side == 2) {
+      minY = minY - size * (minY - box.getMinY());
+    }
+    else {
+      maxY = maxY + size * (box.getMaxY() - maxY);
+    }
+    return new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
+  }
+
+  /** Halve the interval between a size that fits and a size that doesn't. */
+  private Rectangle2D largestAround(double cx, double cy, double aspect) {
+    double fits = 0.0;
+    double tooBig = 1.0;
+    for(int i = 0; i < NUM_HALVINGS; ++i) {
+      double trial = (fits + tooBig) / 2.0;
+      if (boundary.contains(centeredOn(cx, cy, aspect, trial))) {
+        fits = trial;
+      }
+      else {
+        tooBig = trial;
+      }
+    }
+    return centeredOn(cx, cy, aspect, fits);
+  }
+
+  /** At full size, the rectangle's width or height is that of the box, depending on the aspect. */
+  private Rectangle2D centeredOn(double cx, double cy, double aspect, double size) {
+    double w = size * box.getWidth() * Math.min(1.0, aspect);
+    double h = size * box.getHeight() * Math.min(1.0, 1.0 / aspect);
+    return new Rectangle2D.Double(cx - w/2, cy - h/2, w, h);
+  }
+}
@@ -0,0 +1,52 @@
+package mag5.draw;
+
+import java.awt.geom.GeneralPath;
+import java.util.Arrays;
+
+/**
+ A list of points on the celestial sphere, used to build a polyline.
+ 
+ <P>The points are gathered first, and then projected all at once by the {@link ProjectedScene} of the chart, 
+ using {@link Projection#projectAll(double[], double[], double[], double[], int)}.
+ Declination and right ascension in rads.
+*/
+public final class PointList {
+
+  /** Add a point to the end of the list. */
+  public void add(double dec, double ra) {
+    if (size == this.dec.length) {
+      this.dec = Arrays.copyOf(this.dec, 2 * size);
+      this.ra = Arrays.copyOf(this.ra, 2 * size);
+    }
+    this.dec[size] = dec;
+    this.ra[size] = ra;
+    ++size;
+  }
+  
+  public int size() {
+    return size;
+  }
+  
+  /** 
+   Project all the points, and join them into a polyline.
+   The scene keeps the projected points; see {@link ProjectedScene#curve(PointList)}. 
+  */
+  public GeneralPath projectedPath(ProjectedScene scene) {
+    return scene.curve(this);
+  }
+  
+  /** Not a copy. Only the first {@link #size()} items are used. */
+  double[] dec() {
+    return dec;
+  }
+  
+  /** Not a copy. Only the first {@link #size()} items are used. */
+  double[] ra() {
+    return ra;
+  }
+  
+  // PRIVATE
+  private double[] dec = new double[64];
+  private double[] ra = new double[64];
+  private int size;
+}
@@ -0,0 +1,318 @@
+package mag5.draw;
+
+import java.awt.Shape;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mag5.chartlabels.ChartLabel;
+import mag5.deepskyobject.DeepSkyObject;
+import mag5.star.Star;
+
+/**
+ The positions of everything on a single chart, found once, and then shared by all of the drawing passes.
+
+ <P>The stars, deep sky objects, and chart labels are projected up front, all at once,
+ using {@link Projection#projectAll(double[], double[], double[], double[], int)}.
+ The vertices of the constellation lines are the positions of their stars.
+ Only complete polylines are kept: if any of its stars is not on the chart, then the polyline is dropped.
+ 
+ <P>Many items are well outside of the chart. See {@link GeometryClip}. 
+ The pieces of the constellation lines that are far from the chart are dropped here, 
+ so a polyline can be broken into more than one piece.
+ The drawing passes ask the scene if other items are near the chart, before drawing them. 
+
+ <P>The curved grid lines and the ecliptic are gathered by the drawing passes as a {@link PointList}, and 
+ projected here, all at once, into a pair of scratch arrays that's reused for every curve (see {@link #curve(PointList)}).
+ Only the number of curves and vertices is kept, for logging.
+ The grid lines, date scale, and so on, also use single points. Those are simply projected when asked for:
+ there are only a few hundred of them, and remembering them would cost more than projecting them again.
+
+ <P>Positions are stored in arrays of primitives.
+ The {@link Point2D.Double} objects handed out are always new objects, so callers are free to change them.
+
+ <P>The result is exactly the same as calling {@link Projection#project(Double, Double)} for each item,
+ since the same projection is used, in the same way.
+ One scene is created for each chart, for its {@link Bounds}.
+ It's not safe for use by more than one thread.
+*/
+public final class ProjectedScene {
+
+  public ProjectedScene(
+    Projection projection, List<Star> stars, List<DeepSkyObject> dsos, List<ChartLabel> chartLabels,
+    Map<String, List<List<Integer>>> lines
+  ) {
+    this.projection = projection;
+    this.clip = new GeometryClip(projection.innerBoundary());
+    projectStars(stars);
+    projectDsos(dsos);
+    projectChartLabels(chartLabels);
+    joinConstellationLines(lines);
+  }
+
+  /** The projection used by this scene. */
+  public Projection projection() {
+    return projection;
+  }
+
+  /** The bounds of the chart. */
+  public Bounds bounds() {
+    return projection.getBounds();
+  }
+
+  /** The position of a single point. Angles in rads. */
+  public Point2D.Double project(double dec, double ra) {
+    return projection.project(dec, ra);
+  }
+
+  /**
+   Project the given points as a curve of the graticule (a grid line, or the ecliptic), and return the curve as a path. 
+   Points that make no visible difference to the shape are dropped; see {@link CurveSimplifier}.
+  */
+  public GeneralPath curve(PointList points) {
+    int n = points.size();
+    if (n > curveX.length) {
+      curveX = new double[Math.max(2 * curveX.length, n)];
+      curveY = new double[curveX.length];
+    }
+    projection.projectAll(points.dec(), points.ra(), curveX, curveY, n);
+    ++numCurves;
+    numCurveVertices = numCurveVertices + n;
+    GeneralPath result = new GeneralPath();
+    CurveSimplifier.appendTo(result, curveX, curveY, n, true);
+    return result;
+  }
+
+  /** The number of curves of the graticule projected so far, with {@link #curve(PointList)}. */
+  public int numCurves() {
+    return numCurves;
+  }
+
+  /** The number of vertices in all of the curves of the graticule projected so far. */
+  public int numCurveVertices() {
+    return numCurveVertices;
+  }
+
+  /** Returns true only if the given point is within the given distance of the chart. See {@link GeometryClip}. */
+  public boolean isNearTheChart(Point2D.Double where, double margin) {
+    return clip.isNear(where.x, where.y, margin);
+  }
+  
+  /** Returns true only if the given shape (usually a line) might be seen on the chart. */
+  public boolean isNearTheChart(Shape shape) {
+    Rectangle2D box = shape.getBounds2D();
+    return clip.isNear(box.getMinX(), box.getMinY(), box.getMaxX(), box.getMaxY(), GeometryClip.LINE_MARGIN);
+  }
+  
+  /** 
+   Returns true only if the given shape (usually a line) is well inside the chart.
+   In that case, there's no need to clip it, and no need to write the clipping path to the PDF.
+  */
+  public boolean isInsideTheChart(Shape shape) {
+    return clip.isInside(shape.getBounds2D());
+  }
+  
+  /** The given stars, but only those near enough to the chart for their names to be seen. Keeps the order. */
+  public List<Star> starsForNames(List<Star> stars) {
+    List<Star> result = new ArrayList<>();
+    for (Star star : stars) {
+      if (isNearTheChart(starPoint(star.INDEX), GeometryClip.TEXT_MARGIN)) {
+        result.add(star);
+      }
+    }
+    return result;
+  }
+  
+  /** The given deep sky objects, but only those near enough to the chart for their names to be seen. Keeps the order. */
+  public List<DeepSkyObject> dsosForNames(List<DeepSkyObject> dsos) {
+    List<DeepSkyObject> result = new ArrayList<>();
+    for (DeepSkyObject dso : dsos) {
+      if (isNearTheChart(dsoPoint(dso.getDesig()), GeometryClip.TEXT_MARGIN)) {
+        result.add(dso);
+      }
+    }
+    return result;
+  }
+  
+  /** Returns true only if the chart label at the given position might be seen on the chart. */
+  public boolean isChartLabelNearTheChart(int i) {
+    return clip.isNear(labelX[i], labelY[i], GeometryClip.TEXT_MARGIN);
+  }
+
+  /** Returns true only if the star with the given {@link Star#INDEX} is on this chart. */
+  public boolean hasStar(int index) {
+    return starSlot(index) >= 0;
+  }
+
+  /** Where the star with the given {@link Star#INDEX} is drawn. Returns null if the star isn't on this chart. */
+  public Point2D.Double starPoint(int index) {
+    int slot = starSlot(index);
+    return slot < 0 ? null : new Point2D.Double(starX[slot], starY[slot]);
+  }
+
+  /** Where the deep sky object at the given position in the list passed to the constructor is drawn. */
+  public Point2D.Double dsoPoint(int i) {
+    return new Point2D.Double(dsoX[i], dsoY[i]);
+  }
+
+  /** Where the deep sky object with the given designation is drawn. Returns null if it isn't on this chart. */
+  public Point2D.Double dsoPoint(String desig) {
+    Integer i = dsoByDesig.get(desig);
+    return i == null ? null : dsoPoint(i);
+  }
+
+  /** Where the chart label at the given position in the list passed to the constructor is placed. */
+  public Point2D.Double chartLabelPoint(int i) {
+    return new Point2D.Double(labelX[i], labelY[i]);
+  }
+
+  /** The number of pieces of constellation polylines near the chart. */
+  public int numPolylines() {
+    return polylineStart.length - 1;
+  }
+
+  /** The given piece of a constellation polyline, as a path. */
+  public GeneralPath polyline(int i) {
+    GeneralPath result = new GeneralPath();
+    result.moveTo(vertexX[polylineStart[i]], vertexY[polylineStart[i]]);
+    for(int v = polylineStart[i] + 1; v < polylineStart[i + 1]; ++v) {
+      result.lineTo(vertexX[v], vertexY[v]);
+    }
+    return result;
+  }
+
+  // PRIVATE
+
+  private Projection projection;
+  private GeometryClip clip;
+
+  private int numCurves;
+  private int numCurveVertices;
+  /** Scratch space for the curve being projected. Only the start of each array is used. */
+  private double[] curveX = new double[1024];
+  private double[] curveY = new double[1024];
+
+  private double[] starX;
+  private double[] starY;
+  /** Sorted. The star index in the high bits, and the slot in the star arrays in the low bits. */
+  private long[] starKeys;
+
+  private double[] dsoX;
+  private double[] dsoY;
+  private Map<String, Integer> dsoByDesig = new HashMap<>();
+
+  private double[] labelX;
+  private double[] labelY;
+
+  /** The vertices of piece i are at polylineStart[i] up to (but not including) polylineStart[i+1]. */
+  private int[] polylineStart;
+  private double[] vertexX;
+  private double[] vertexY;
+
+  private void projectStars(List<Star> stars) {
+    int n = stars.size();
+    starX = new double[n];
+    starY = new double[n];
+    starKeys = new long[n];
+    for (int i = 0; i < n; ++i) {
+      Star star = stars.get(i);
+      starX[i] = star.RA;
+      starY[i] = star.DEC;
+      starKeys[i] = ((long)star.INDEX << 32) | i;
+    }
+    projection.projectAll(starY, starX, starX, starY, n);
+    Arrays.sort(starKeys);
+  }
+
+  /** Returns -1 if not found. If the same star is present more than once, the last one wins. */
+  private int starSlot(int index) {
+    long key = ((long)index << 32) | 0xFFFFFFFFL;
+    int pos = Arrays.binarySearch(starKeys, key);
+    pos = pos >= 0 ? pos : -pos - 2; //the last key at or below the given key
+    return (pos >= 0 && (int)(starKeys[pos] >> 32) == index) ? (int)starKeys[pos] : -1;
+  }
+
+  private void projectDsos(List<DeepSkyObject> dsos) {
+    int n = dsos.size();
+    dsoX = new double[n];
+    dsoY = new double[n];
+    for (int i = 0; i < n; ++i) {
+      dsoX[i] = dsos.get(i).getRa();
+      dsoY[i] = dsos.get(i).getDec();
+      dsoByDesig.put(dsos.get(i).getDesig(), i);
+    }
+    projection.projectAll(dsoY, dsoX, dsoX, dsoY, n);
+  }
+
+  private void projectChartLabels(List<ChartLabel> chartLabels) {
+    int n = chartLabels.size();
+    labelX = new double[n];
+    labelY = new double[n];
+    for (int i = 0; i < n; ++i) {
+      labelX[i] = chartLabels.get(i).RA;
+      labelY[i] = chartLabels.get(i).DEC;
+    }
+    projection.projectAll(labelY, labelX, labelX, labelY, n);
+  }
+
+  /** The vertices are simply copied from the star positions, so this must be called after the stars are projected. */
+  private void joinConstellationLines(Map<String, List<List<Integer>>> lines) {
+    int[] starts = new int[64];
+    double[] xs = new double[256];
+    double[] ys = new double[256];
+    int numPolylines = 0;
+    int numVertices = 0;
+    for (List<List<Integer>> polylines : lines.values()) {
+      for (List<Integer> polyline : polylines) {
+        if (allStarsAreOnTheChart(polyline)) {
+          //each run of segments near the chart becomes a separate piece
+          boolean inPiece = false;
+          for (int v = 1; v < polyline.size(); ++v) {
+            int from = starSlot(polyline.get(v - 1));
+            int to = starSlot(polyline.get(v));
+            if (clip.isNear(starX[from], starY[from], starX[to], starY[to], GeometryClip.LINE_MARGIN)) {
+              if (numVertices + 2 > xs.length) {
+                xs = Arrays.copyOf(xs, 2 * xs.length);
+                ys = Arrays.copyOf(ys, 2 * ys.length);
+              }
+              if (!inPiece) {
+                if (numPolylines + 1 == starts.length) {
+                  starts = Arrays.copyOf(starts, 2 * starts.length);
+                }
+                starts[numPolylines++] = numVertices;
+                xs[numVertices] = starX[from];
+                ys[numVertices] = starY[from];
+                ++numVertices;
+                inPiece = true;
+              }
+              xs[numVertices] = starX[to];
+              ys[numVertices] = starY[to];
+              ++numVertices;
+            }
+            else {
+              inPiece = false;
+            }
+          }
+        }
+      }
+    }
+    starts[numPolylines] = numVertices;
+    polylineStart = Arrays.copyOf(starts, numPolylines + 1);
+    vertexX = Arrays.copyOf(xs, numVertices);
+    vertexY = Arrays.copyOf(ys, numVertices);
+  }
+
+  private boolean allStarsAreOnTheChart(List<Integer> polyline) {
+    for (Integer index : polyline) {
+      if (!hasStar(index)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
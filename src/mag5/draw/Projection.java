@@ -2,6 +2,10 @@ package mag5.draw;
 
 import java.awt.Shape;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+import mag5.util.Maths;
 
 /** 
  The projection used to render the celestial sphere on a two-dimensional chart.
@@ -17,12 +21,24 @@ public interface Projection {
    Translate declination, right ascension into xy coordinates on the chart. 
   */
   Point2D.Double project(Double dec, Double ra);
+  
+  /**
+   Execute the projection on many points at once. 
+   Inputs are in rads. The result is placed in the given output arrays. 
+   Only the first n items in each array are used.
+   The output arrays can be the same as the input arrays.
+   
+   <P>The result is exactly the same as calling {@link #project(Double, Double)} on each point,
+   but without the boxing, and without creating an object for each point. 
+  */
+  void projectAll(double[] dec, double[] ra, double[] outX, double[] outY, int n);
 
   /**
    The area that defines the interior of the chart, where stars are rendered.
    Use as a clip region. 
    The clip region removes stars and lines from outside the desired chart area.
    <P>Clipping can be removed using g.setClip(null);
+   <P>The shape is built only once, and the same object is returned every time. It can't be changed (see {@link ReadOnlyShape}).
   */
   Shape innerBoundary();
   
@@ -32,5 +48,77 @@ public interface Projection {
   /** The point on the chart corresponding to the center of projection. */
   Point2D.Double centerOfProj();
   
+  /**
+   The reverse of {@link #project(Double, Double)}: the position in the sky that's drawn at the given point on the chart.
+   The result has the right ascension as x, in the range 0..2pi, and the declination as y. Angles in rads.
+   Returns null if no position in the sky is drawn at the given point.
+  */
+  Point2D.Double unproject(double x, double y);
+  
+  /**
+   The part of the sky drawn in the given rectangle of the chart, as a range of declination and right ascension.
+   The range is generous, so that a search of the star catalog using it finds everything drawn in the rectangle.
+   If the range straddles 0h, then its min right ascension is greater than its max, as usual.
+   
+   <P>The edges of the rectangle are unprojected at many points. 
+   If the rectangle holds a pole, then the range extends to the pole, with all right ascensions. 
+   If part of the rectangle is outside the sky, then the whole sky is returned.
+  */
+  default Bounds skyBoundsOf(Rectangle2D viewport) {
+    int n = SKY_BOUNDS_SAMPLES;
+    double[] ras = new double[4 * n];
+    double minDec = Double.MAX_VALUE;
+    double maxDec = -Double.MAX_VALUE;
+    for(int i = 0; i < 4 * n; ++i) {
+      double along = (double)(i % n) / n;
+      int side = i / n;
+      double x = viewport.getMinX() + viewport.getWidth() * (side == 0 ? along : side == 1 ? 1 : side == 2 ? 1 - along : 0);
+      double y = viewport.getMinY() + viewport.getHeight() * (side == 0 ? 0 : side == 1 ? along : side == 2 ? 1 : 1 - along);
+      Point2D.Double sky = unproject(x, y);
+      if (sky == null) {
+        return new Bounds(-90.0, 90.0, 0.0, 24.0, getBounds().hemisphere);
+      }
+      ras[i] = sky.x;
+      minDec = Math.min(minDec, sky.y);
+      maxDec = Math.max(maxDec, sky.y);
+    }
+    //the true edge can bulge a little past the points
+    double step = Math.max(viewport.getWidth(), viewport.getHeight()) / n / distancePerRad();
+    minDec = Math.max(-Math.PI / 2, minDec - step);
+    maxDec = Math.min(Math.PI / 2, maxDec + step);
+    boolean holdsNorthPole = viewport.contains(project(Math.PI / 2, 0.0));
+    boolean holdsSouthPole = viewport.contains(project(-Math.PI / 2, 0.0));
+    maxDec = holdsNorthPole ? Math.PI / 2 : maxDec;
+    minDec = holdsSouthPole ? -Math.PI / 2 : minDec;
+    //the range of right ascension is everything except the biggest gap between the points
+    Arrays.sort(ras);
+    double biggestGap = ras[0] + 2 * Math.PI - ras[ras.length - 1];
+    double minRa = ras[0];
+    double maxRa = ras[ras.length - 1];
+    for(int i = 1; i < ras.length; ++i) {
+      if (ras[i] - ras[i - 1] > biggestGap) {
+        biggestGap = ras[i] - ras[i - 1];
+        minRa = ras[i];
+        maxRa = ras[i - 1];
+      }
+    }
+    double raStep = step / Math.max(Math.cos(Math.max(Math.abs(minDec), Math.abs(maxDec))), 1.0E-6);
+    if (holdsNorthPole || holdsSouthPole || biggestGap <= 2 * raStep) {
+      minRa = 0.0;
+      maxRa = 2 * Math.PI;
+    }
+    else {
+      minRa = Maths.in2pi(minRa - raStep);
+      maxRa = Maths.in2pi(maxRa + raStep);
+    }
+    return new Bounds(
+      Maths.radsToDegs(minDec), Maths.radsToDegs(maxDec), Maths.radsToHours(minRa), 
+      maxRa == 2 * Math.PI ? 24.0 : Maths.radsToHours(maxRa), getBounds().hemisphere
+    );
+  }
+  
+  /** The number of points unprojected along each side of the rectangle, in {@link #skyBoundsOf(Rectangle2D)}. */
+  static final int SKY_BOUNDS_SAMPLES = 32;
+  
 
 }
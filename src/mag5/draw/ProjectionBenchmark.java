@@ -0,0 +1,77 @@
+package mag5.draw;
+
+import java.util.Random;
+
+/**
+ Dev tool. Compare the speed of the scalar and Vector API projection loops, on a large number of random stars.
+ 
+ <P>Run with:
+ <pre>java --add-modules jdk.incubator.vector mag5.draw.ProjectionBenchmark [num-stars]</pre>
+ The default is 1,000,000 stars. 
+ The largest difference between the two results is also reported, in points on the chart.
+*/
+public final class ProjectionBenchmark {
+
+  public static void main(String... args) {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    ProjectionKernels scalar = ProjectionKernels.scalar();
+    ProjectionKernels vector = ProjectionKernels.vector();
+    if (vector == null) {
+      log("The Vector API code is not present. Compile src-vector too, and run with --add-modules jdk.incubator.vector.");
+      return;
+    }
+    Random random = new Random(42);
+    double[] dec = new double[n];
+    double[] ra = new double[n];
+    for(int i = 0; i < n; ++i) {
+      dec[i] = Math.asin(2 * random.nextDouble() - 1);
+      ra[i] = 2 * Math.PI * random.nextDouble();
+    }
+    double[] x1 = new double[n];
+    double[] y1 = new double[n];
+    double[] x2 = new double[n];
+    double[] y2 = new double[n];
+    log("Projecting " + n + " stars.");
+    for(int round = 1; round <= NUM_ROUNDS; ++round) {
+      boolean last = round == NUM_ROUNDS;
+      long a = time(() -> scalar.sinusoidal(dec, ra, x1, y1, n, X0, Y0, -1, DIST_PER_RAD, RA_CENTER, true));
+      long b = time(() -> vector.sinusoidal(dec, ra, x2, y2, n, X0, Y0, -1, DIST_PER_RAD, RA_CENTER, true));
+      if (last) report("Sinusoidal", n, a, b, x1, y1, x2, y2);
+      a = time(() -> scalar.azimuthalEquidistant(dec, ra, x1, y1, n, X0, Y0, +1, DIST_PER_RAD, Math.PI/6.0));
+      b = time(() -> vector.azimuthalEquidistant(dec, ra, x2, y2, n, X0, Y0, +1, DIST_PER_RAD, Math.PI/6.0));
+      if (last) report("Azimuthal equidistant", n, a, b, x1, y1, x2, y2);
+    }
+  }
+  
+  // PRIVATE
+
+  /** The early rounds are only for warming up the JIT compiler. */
+  private static final int NUM_ROUNDS = 20;
+  private static final double X0 = 360.0;
+  private static final double Y0 = 500.0;
+  private static final double DIST_PER_RAD = 450.0;
+  private static final double RA_CENTER = 0.3;
+  
+  private static long time(Runnable task) {
+    long start = System.nanoTime();
+    task.run();
+    return System.nanoTime() - start;
+  }
+  
+  private static void report(String name, int n, long scalarNanos, long vectorNanos, double[] x1, double[] y1, double[] x2, double[] y2) {
+    double maxDiff = 0.0;
+    for(int i = 0; i < n; ++i) {
+      maxDiff = Math.max(maxDiff, Math.max(Math.abs(x1[i] - x2[i]), Math.abs(y1[i] - y2[i])));
+    }
+    log(name + ": scalar " + nanosPerStar(scalarNanos, n) + " ns/star, vector " + nanosPerStar(vectorNanos, n) + 
+      " ns/star, speedup " + String.format("%.2f", scalarNanos / (double)vectorNanos) + "x, max difference " + maxDiff + " points");
+  }
+  
+  private static String nanosPerStar(long nanos, int n) {
+    return String.format("%.2f", nanos / (double)n);
+  }
+  
+  private static void log(Object thing) {
+    System.out.println(thing);
+  }
+}
@@ -0,0 +1,94 @@
+package mag5.draw;
+
+/**
+ The inner loops of the projections, over arrays of points.
+ 
+ <P>There are two implementations: a plain scalar one (the default), and one using the 
+ (incubating) JDK Vector API, which uses SIMD instructions.
+ The Vector API implementation is used only if the System property {@value #VECTOR_PROPERTY} is 'true', 
+ AND the jdk.incubator.vector module is present at runtime (--add-modules jdk.incubator.vector).
+ Otherwise, the scalar implementation is used.
+ 
+ <P>The Vector API implementation is loaded by name, so that nothing breaks when the module is absent.
+ Its source is kept apart, in the <code>src-vector</code> directory, since it compiles only with the module.
+ The usual build compiles just <code>src</code>, and never sees it. To include it, compile both directories together:
+ <pre>javac --add-modules jdk.incubator.vector ... src/.../*.java src-vector/mag5/draw/VectorProjectionKernels.java</pre>
+ 
+ <P>WARNING: the Vector API's sine and cosine can differ from Math.sin and Math.cos in the last bit or so. 
+ So the output is not always bit-for-bit identical to the scalar version (but it's well under a micro-point on the chart). 
+ See {@link ProjectionBenchmark}.
+*/
+public interface ProjectionKernels {
+  
+  /** Name of the System property that turns on the Vector API implementation. */
+  public static final String VECTOR_PROPERTY = "mag5vector";
+
+  /**
+   Sinusoidal projection, used by the equatorial charts. All angles in rads.
+   <pre>
+   y = y0 + sign * dec * distancePerRad
+   x = x0 + sign * (ra - raCenter [+ 2pi if straddling 0h and ra &lt; pi]) * distancePerRad * cos(dec)
+   </pre>
+  */
+  void sinusoidal(double[] dec, double[] ra, double[] outX, double[] outY, int n,
+    double x0, double y0, double sign, double distancePerRad, double raCenter, boolean straddlesVernalEquinox
+  );
+  
+  /**
+   Azimuthal equidistant projection, used by the polar charts. All angles in rads.
+   <pre>
+   rho = (pi/2 - sign * dec) * distancePerRad
+   theta = ra - thetaShift
+   x = x0 + rho * cos(theta)
+   y = y0 + sign * rho * sin(theta)
+   </pre>
+  */
+  void azimuthalEquidistant(double[] dec, double[] ra, double[] outX, double[] outY, int n,
+    double x0, double y0, double sign, double distancePerRad, double thetaShift
+  );
+  
+  /** The implementation to use, as set by the System property {@value #VECTOR_PROPERTY}. */
+  static ProjectionKernels instance() {
+    return Holder.INSTANCE;
+  }
+  
+  /** The plain, scalar implementation. */
+  static ProjectionKernels scalar() {
+    return Holder.SCALAR;
+  }
+  
+  /** 
+   The Vector API implementation. 
+   Returns null if the jdk.incubator.vector module is not present, or if the class wasn't compiled into the build. 
+  */
+  static ProjectionKernels vector() {
+    ProjectionKernels result = null;
+    try {
+      result = (ProjectionKernels)Class.forName("mag5.draw.VectorProjectionKernels").getDeclaredConstructor().newInstance();
+    }
+    catch(ReflectiveOperationException | LinkageError ex) {
+      //the module or the class isn't present; fall back to scalar code
+    }
+    return result;
+  }
+  
+  /** Lazy initialization. */
+  static final class Holder {
+    static final ProjectionKernels SCALAR = new ScalarProjectionKernels();
+    static final ProjectionKernels INSTANCE = choose();
+    private static ProjectionKernels choose() {
+      ProjectionKernels result = SCALAR;
+      if (Boolean.getBoolean(VECTOR_PROPERTY)) {
+        ProjectionKernels vector = vector();
+        if (vector != null) {
+          result = vector;
+          System.out.println("Projections use the Vector API.");
+        }
+        else {
+          System.out.println("Vector API not available (needs src-vector in the build, and --add-modules jdk.incubator.vector). Projections use scalar code.");
+        }
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package mag5.draw;
+
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+
+/**
+ A shape that can't be changed.
+
+ <P>Some shapes are built once and then shared, such as the boundary of a chart (see {@link Projection#innerBoundary()}).
+ The usual classes for shapes ({@link java.awt.geom.Area}, {@link java.awt.geom.Arc2D}, and so on) can all be changed by anyone
+ holding a reference to them. Here, the shape is hidden behind the {@link Shape} interface, which has no methods that change anything.
+ The shape passed to the constructor must not be changed afterwards, and no other reference to it should be kept.
+*/
+public final class ReadOnlyShape implements Shape {
+
+  public ReadOnlyShape(Shape shape) {
+    this.shape = shape;
+  }
+
+  @Override public Rectangle getBounds() {
+    return shape.getBounds();
+  }
+
+  @Override public Rectangle2D getBounds2D() {
+    return shape.getBounds2D();
+  }
+
+  @Override public boolean contains(double x, double y) {
+    return shape.contains(x, y);
+  }
+
+  @Override public boolean contains(Point2D p) {
+    return shape.contains(p);
+  }
+
+  @Override public boolean intersects(double x, double y, double w, double h) {
+    return shape.intersects(x, y, w, h);
+  }
+
+  @Override public boolean intersects(Rectangle2D r) {
+    return shape.intersects(r);
+  }
+
+  @Override public boolean contains(double x, double y, double w, double h) {
+    return shape.contains(x, y, w, h);
+  }
+
+  @Override public boolean contains(Rectangle2D r) {
+    return shape.contains(r);
+  }
+
+  @Override public PathIterator getPathIterator(AffineTransform at) {
+    return shape.getPathIterator(at);
+  }
+
+  @Override public PathIterator getPathIterator(AffineTransform at, double flatness) {
+    return shape.getPathIterator(at, flatness);
+  }
+
+  // PRIVATE
+
+  private Shape shape;
+}
@@ -0,0 +1,82 @@
+package mag5.draw;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import mag5.chartlabels.ChartLabel;
+import mag5.constellation.ConstellationLines;
+import mag5.deepskyobject.DeepSkyObject;
+import mag5.translate.Label;
+import mag5.translate.Lang;
+
+/**
+ Everything a chart needs to know about the book it's part of.
+ Immutable.
+
+ <P>In the past, the hemisphere was a global setting, changed half-way through the generation of the book.
+ That made it impossible to render more than one chart at a time.
+ Now, each chart is passed one of these objects, and the data in it never changes.
+ The same object can be shared by many charts, rendered at the same time by different threads.
+
+ <P>The data sets are shared, not copied. They must not be changed after this object is created.
+*/
+public final class RenderContext {
+
+  /**
+   @param width of the page, in points (portrait).
+   @param height of the page, in points (portrait).
+  */
+  public RenderContext(
+    Hemisphere hemisphere, Lang lang, double width, double height,
+    ConstellationLines constellationLines, List<DeepSkyObject> deepSkyObjects, Label labels, Map<Integer, List<ChartLabel>> chartLabels
+  ) {
+    this.HEMISPHERE = hemisphere;
+    this.LANG = lang;
+    this.WIDTH = width;
+    this.HEIGHT = height;
+    this.CONSTELLATION_LINES = constellationLines;
+    this.DEEP_SKY_OBJECTS = Collections.unmodifiableList(deepSkyObjects);
+    this.LABELS = labels;
+    this.CHART_LABELS = Collections.unmodifiableMap(chartLabels);
+  }
+
+  /** The hemisphere of the observer using the charts. */
+  public final Hemisphere HEMISPHERE;
+
+  /** The language of the text on the charts. */
+  public final Lang LANG;
+
+  /** Width of the page in points. The charts are rotated on the page, so this is the height of the chart. */
+  public final double WIDTH;
+
+  /** Height of the page in points. The charts are rotated on the page, so this is the width of the chart. */
+  public final double HEIGHT;
+
+  /** All constellation lines, for the whole sky. */
+  public final ConstellationLines CONSTELLATION_LINES;
+
+  /** All deep sky objects, for the whole sky. */
+  public final List<DeepSkyObject> DEEP_SKY_OBJECTS;
+
+  /** Translatable text. */
+  public final Label LABELS;
+
+  /** Names of constellations, asterisms, and bright stars, for each chart. The key is the chart number. */
+  public final Map<Integer, List<ChartLabel>> CHART_LABELS;
+
+  /** The same context, but for the given hemisphere. */
+  public RenderContext withHemisphere(Hemisphere hemisphere) {
+    return new RenderContext(hemisphere, LANG, WIDTH, HEIGHT, CONSTELLATION_LINES, DEEP_SKY_OBJECTS, LABELS, CHART_LABELS);
+  }
+
+  /** Bounds for a chart, in this context's hemisphere. Degrees and hours. */
+  public Bounds bounds(double minDecDeg, double maxDecDeg, double minRaHours, double maxRaHours) {
+    return new Bounds(minDecDeg, maxDecDeg, minRaHours, maxRaHours, HEMISPHERE);
+  }
+
+  /** The labels for the given chart. */
+  public List<ChartLabel> chartLabels(int chartNum) {
+    return CHART_LABELS.get(chartNum);
+  }
+}
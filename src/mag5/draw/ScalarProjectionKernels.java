@@ -0,0 +1,35 @@
+package mag5.draw;
+
+/**
+ Plain implementation of the projection loops.
+ The arithmetic is done in exactly the same order as in the single-point projections, so the results are identical.
+*/
+final class ScalarProjectionKernels implements ProjectionKernels {
+
+  @Override public void sinusoidal(double[] dec, double[] ra, double[] outX, double[] outY, int n, 
+    double x0, double y0, double sign, double distancePerRad, double raCenter, boolean straddlesVernalEquinox
+  ) {
+    for(int i = 0; i < n; ++i) {
+      double δ = dec[i];
+      double α = ra[i];
+      double deltaRa = α - raCenter;
+      if (straddlesVernalEquinox && (α < Math.PI)) {
+        deltaRa = deltaRa + 2*Math.PI;
+      }
+      outY[i] = y0 + sign * δ * distancePerRad;
+      outX[i] = x0 + sign * deltaRa * distancePerRad * Math.cos(δ);
+    }
+  }
+
+  @Override public void azimuthalEquidistant(double[] dec, double[] ra, double[] outX, double[] outY, int n, 
+    double x0, double y0, double sign, double distancePerRad, double thetaShift
+  ) {
+    double HALF_PI = Math.PI/2.0;
+    for(int i = 0; i < n; ++i) {
+      double rho = (HALF_PI - sign * dec[i]) * distancePerRad;
+      double theta = ra[i] - thetaShift;
+      outX[i] = x0 + rho * Math.cos(theta);
+      outY[i] = y0 + sign * rho * Math.sin(theta);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package mag5.draw;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.font.FontRenderContext;
+import java.awt.font.LineMetrics;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ Measure text once, and remember the result for all charts.
+
+ <P>The labels on the charts are placed using the width and height of their text.
+ The same few hundred short strings (Bayer letters, the names of stars and deep sky objects, the numbers
+ on the grid lines) are measured over and over, on every page. Measuring text means laying out its glyphs, which is slow,
+ and the answer never changes for the same font and the same string.
+
+ <P>The key includes the font (which carries its name, style, size, and transform), the string, and the
+ {@link FontRenderContext} of the graphics context. The render context matters, since anti-aliasing, fractional metrics,
+ and a scaled device all change the measurements a little.
+ The set of strings on the charts is small and fixed, so nothing is ever removed.
+
+ <P>Fonts are kept in a pool, and shared by all charts. A {@link Font} is immutable, and it caches the details
+ of the underlying font file the first time it's used; a new <code>Font</code> object for each label would look all that up again.
+ The shared objects also make the keys of the cache faster to compare.
+
+ <P>The number of hits and misses is counted, for all charts, and can be logged with {@link #stats()}.
+ Safe for use by more than one thread.
+*/
+public final class TextMetrics {
+
+  /** The hits and misses of the cache, and the number of fonts in the pool. Safe for use by more than one thread. */
+  public static String stats() {
+    long lookups = HITS.get() + MISSES.get();
+    return "Text metrics: " + HITS.get() + " hits, " + MISSES.get() + " misses (" + percent(HITS.get(), lookups) + "% hits). "
+      + "Fonts in the pool: " + FONTS.size() + ".";
+  }
+
+  /** The shared font with the given name, style, and size. */
+  static Font font(String name, int style, int size) {
+    return FONTS.computeIfAbsent(Arrays.asList(name, style, size), k -> new Font(name, style, size));
+  }
+
+  /** The shared font that's the given font, resized by the given factor. */
+  static Font resized(Font font, float factor) {
+    return FONTS.computeIfAbsent(Arrays.asList(font, factor), k -> font.deriveFont(font.getSize() * factor));
+  }
+
+  /** The same as <code>g.getFontMetrics().stringWidth(text)</code>. */
+  static int width(String text, Graphics2D g) {
+    return lookup(WIDTHS, new Key(g, text), k -> g.getFontMetrics().stringWidth(text));
+  }
+
+  /** The ascent plus descent of the text, without the leading. */
+  static float height(String text, Graphics2D g) {
+    return lookup(HEIGHTS, new Key(g, text), k -> {
+      LineMetrics lm = k.font.getLineMetrics(text, k.frc);
+      return lm.getAscent() + lm.getDescent();
+    });
+  }
+
+  /**
+   The pixels covered by the text when drawn at the given position. Returns a new object, which the caller can change.
+
+   <P>The bounds are found at the origin, and moved to the given position.
+   That gives exactly the same pixels only when the move is by whole pixels, so any other position is measured each time.
+  */
+  static Rectangle pixelBounds(String text, double x, double y, Graphics2D g) {
+    Key key = new Key(g, text);
+    Rectangle result = null;
+    if (x == Math.rint(x) && y == Math.rint(y) && !key.frc.isTransformed()) {
+      result = new Rectangle(lookup(PIXEL_BOUNDS, key, k -> k.font.createGlyphVector(k.frc, text).getPixelBounds(null, 0, 0)));
+      result.translate((int)x, (int)y);
+    }
+    else {
+      result = key.font.createGlyphVector(key.frc, text).getPixelBounds(null, (float)x, (float)y);
+    }
+    return result;
+  }
+
+  // PRIVATE
+
+  private static final ConcurrentHashMap<Key, Integer> WIDTHS = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<Key, Float> HEIGHTS = new ConcurrentHashMap<>();
+  /** At the origin. */
+  private static final ConcurrentHashMap<Key, Rectangle> PIXEL_BOUNDS = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<List<Object>, Font> FONTS = new ConcurrentHashMap<>();
+  private static final AtomicLong HITS = new AtomicLong();
+  private static final AtomicLong MISSES = new AtomicLong();
+
+  private static <T> T lookup(Map<Key, T> cache, Key key, Function<Key, T> measure) {
+    T result = cache.get(key);
+    if (result == null) {
+      MISSES.incrementAndGet();
+      result = cache.computeIfAbsent(key, measure);
+    }
+    else {
+      HITS.incrementAndGet();
+    }
+    return result;
+  }
+
+  private static long percent(long part, long whole) {
+    return whole == 0 ? 0 : Math.round(100.0 * part / whole);
+  }
+
+  /** The font and render context of a graphics context, and a string. */
+  private static final class Key {
+    Key(Graphics2D g, String text){
+      this.font = g.getFont();
+      this.frc = g.getFontRenderContext();
+      this.text = text;
+      this.hash = (font.hashCode() * 31 + frc.hashCode()) * 31 + text.hashCode();
+    }
+    final Font font;
+    final FontRenderContext frc;
+    final String text;
+    final int hash;
+    @Override public boolean equals(Object that) {
+      boolean result = false;
+      if (that instanceof Key) {
+        Key other = (Key)that;
+        result = hash == other.hash && text.equals(other.text) && font.equals(other.font) && frc.equals(other.frc);
+      }
+      return result;
+    }
+    @Override public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -0,0 +1,477 @@
+package mag5.draw.display;
+
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.FlatteningPathIterator;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ A recording of everything drawn on a chart, as a list of simple, typed items.
+
+ <P>Each item has an operation code (see the constants defined here), and some arguments.
+ The arguments are stored in arrays of primitives: one array for ints, and one for doubles.
+ Objects (text, fonts, colors, strokes) are stored in a table, and referred to by their position in the table.
+ The same object is stored only once. (Objects that are merely equal are stored separately, since the graphics
+ context sometimes compares objects by identity.)
+ The segments of a path are stored as bytes, with their coordinates in the array of doubles.
+
+ <P>There are two kinds of items:
+ <ul>
+  <li>items that draw something: dots, lines, rectangles, paths (polylines, and other outlines), text, and clip regions
+  <li>items that change the state of the graphics context: color, stroke, font, transform, and so on
+ </ul>
+
+ <P>A display list is created by a {@link RecordingGraphics}.
+ It can then be sent to any number of backends.
+ {@link #replay(Graphics2D)} is the simplest backend: it makes exactly the same calls, in the same order,
+ as were made by the code that drew the chart.
+ When replayed into the PDF, the result is identical, byte for byte, to drawing the chart directly.
+
+ <P>A symbol is a group of items that draws something that appears many times on a chart,
+ such as the dot for a star of a given magnitude.
+ The {@link #SYMBOL} item marks the start of the group, and records the name of the symbol,
+ where it's placed, and how many items follow it.
+ The items in the group are drawn in the usual way.
+ A backend can either ignore the marker, or it can draw the symbol once, and refer to it afterwards.
+ The items in a symbol are placed using integer offsets from the symbol's position, so all copies of a
+ symbol look exactly the same.
+
+ <P>To draw the charts via a display list, use <code>-Dmag5displaylist=on</code>.
+ The default is <code>off</code>.
+*/
+public final class DisplayList {
+
+  /** The name of the System property used to draw charts via a display list - {@value}. */
+  public static final String PROPERTY = "mag5displaylist";
+
+  /** Returns true only if the charts are to be drawn via a display list. See {@link #PROPERTY}.*/
+  public static boolean isOn() {
+    return "on".equalsIgnoreCase(System.getProperty(PROPERTY, "off"));
+  }
+
+  /** Filled oval, usually a star. Ints: x, y, width, height. See {@link Graphics2D#fillOval(int, int, int, int)}. */
+  public static final int DOT = 1;
+  /** Outline of an oval. Ints: x, y, width, height. */
+  public static final int OVAL = 2;
+  /** Ints: x1, y1, x2, y2. */
+  public static final int LINE = 3;
+  /** Outline of a rectangle. Ints: x, y, width, height. */
+  public static final int RECT = 4;
+  /** Ints: x, y, width, height. */
+  public static final int FILLED_RECT = 5;
+  /** Outline of a shape: a polyline, or any other path. See {@link #shape(int)}. */
+  public static final int PATH = 6;
+  /** Filled shape. See {@link #shape(int)}. */
+  public static final int FILLED_PATH = 7;
+  /** Ints: the text (an object). Doubles: x, y (these are floats, see {@link Graphics2D#drawString(String, float, float)}).*/
+  public static final int TEXT = 8;
+  /** Marks the start of a symbol. Ints: name (an object), the number of items that follow, x, y. */
+  public static final int SYMBOL = 9;
+  /** Replace the clip region with the given shape. See {@link #shape(int)}. */
+  public static final int CLIP = 10;
+  /** Remove the clip region. No args.*/
+  public static final int NO_CLIP = 11;
+  /** Intersect the clip region with the given shape. See {@link #shape(int)}. */
+  public static final int CLIP_INTERSECT = 12;
+  /** Ints: the color (an object). */
+  public static final int COLOR = 13;
+  /** Ints: the paint (an object). */
+  public static final int PAINT = 14;
+  /** Ints: the stroke (an object). */
+  public static final int STROKE = 15;
+  /** Ints: the font (an object). */
+  public static final int FONT = 16;
+  /** Ints: the key and value of the rendering hint (objects). A null value removes the hint (see {@link #applyHint(int, RenderingHints)}). */
+  public static final int HINT = 17;
+  /** Ints: the background color (an object). */
+  public static final int BACKGROUND = 18;
+  /** Ints: the composite (an object). */
+  public static final int COMPOSITE = 19;
+  /** Concatenate the transform. Doubles: the 6 entries of the matrix. */
+  public static final int TRANSFORM = 20;
+  /** Replace the transform. Doubles: the 6 entries of the matrix. */
+  public static final int SET_TRANSFORM = 21;
+  /** Doubles: tx, ty. */
+  public static final int TRANSLATE = 22;
+  /** Doubles: theta. */
+  public static final int ROTATE = 23;
+  /** Doubles: theta, x, y. */
+  public static final int ROTATE_ABOUT = 24;
+  /** Doubles: sx, sy. */
+  public static final int SCALE = 25;
+  /** Doubles: shx, shy. */
+  public static final int SHEAR = 26;
+
+  /** The number of items in the list. */
+  public int size() {
+    return size;
+  }
+
+  /** The operation code for the given item. */
+  public int op(int item) {
+    return ops[item];
+  }
+
+  /** An int argument for the given item. */
+  public int intArg(int item, int arg) {
+    return ints[intStart[item] + arg];
+  }
+
+  /** A double argument for the given item. */
+  public double doubleArg(int item, int arg) {
+    return doubles[doubleStart[item] + arg];
+  }
+
+  /** An object argument for the given item. The int argument is the position of the object in the table. */
+  public Object objectArg(int item, int arg) {
+    return objects.get(intArg(item, arg));
+  }
+
+  /** The text of a {@link #TEXT} item, or the name of a {@link #SYMBOL}. */
+  public String text(int item) {
+    return (String)objectArg(item, 0);
+  }
+
+  /**
+   The shape for a {@link #PATH}, {@link #FILLED_PATH}, {@link #CLIP}, or {@link #CLIP_INTERSECT} item.
+   The shape returns exactly the same segments as the shape that was recorded.
+  */
+  public Shape shape(int item) {
+    return new Outline(intArg(item, 0), intArg(item, 1), intArg(item, 2), doubleStart[item]);
+  }
+
+  /** The number of items in the symbol that starts at the given item. */
+  public int symbolLength(int item) {
+    return intArg(item, 1);
+  }
+
+  /** Draw all of the items into the given graphics context. */
+  public void replay(Graphics2D g) {
+    for(int item = 0; item < size; ++item) {
+      replay(item, g);
+    }
+  }
+
+  /** Draw a single item into the given graphics context. A {@link #SYMBOL} item draws nothing. */
+  public void replay(int item, Graphics2D g) {
+    switch(ops[item]) {
+      case DOT: g.fillOval(intArg(item, 0), intArg(item, 1), intArg(item, 2), intArg(item, 3)); break;
+      case OVAL: g.drawOval(intArg(item, 0), intArg(item, 1), intArg(item, 2), intArg(item, 3)); break;
+      case LINE: g.drawLine(intArg(item, 0), intArg(item, 1), intArg(item, 2), intArg(item, 3)); break;
+      case RECT: g.drawRect(intArg(item, 0), intArg(item, 1), intArg(item, 2), intArg(item, 3)); break;
+      case FILLED_RECT: g.fillRect(intArg(item, 0), intArg(item, 1), intArg(item, 2), intArg(item, 3)); break;
+      case PATH: g.draw(shape(item)); break;
+      case FILLED_PATH: g.fill(shape(item)); break;
+      case TEXT: g.drawString(text(item), (float)doubleArg(item, 0), (float)doubleArg(item, 1)); break;
+      case SYMBOL: break; //the items that make up the symbol follow this one
+      case CLIP: g.setClip(shape(item)); break;
+      case NO_CLIP: g.setClip(null); break;
+      case CLIP_INTERSECT: g.clip(shape(item)); break;
+      case COLOR: g.setColor((Color)objectArg(item, 0)); break;
+      case PAINT: g.setPaint((Paint)objectArg(item, 0)); break;
+      case STROKE: g.setStroke((Stroke)objectArg(item, 0)); break;
+      case FONT: g.setFont((Font)objectArg(item, 0)); break;
+      case HINT: replayHint(item, g); break;
+      case BACKGROUND: g.setBackground((Color)objectArg(item, 0)); break;
+      case COMPOSITE: g.setComposite((Composite)objectArg(item, 0)); break;
+      case TRANSFORM: g.transform(matrix(item)); break;
+      case SET_TRANSFORM: g.setTransform(matrix(item)); break;
+      case TRANSLATE: g.translate(doubleArg(item, 0), doubleArg(item, 1)); break;
+      case ROTATE: g.rotate(doubleArg(item, 0)); break;
+      case ROTATE_ABOUT: g.rotate(doubleArg(item, 0), doubleArg(item, 1), doubleArg(item, 2)); break;
+      case SCALE: g.scale(doubleArg(item, 0), doubleArg(item, 1)); break;
+      case SHEAR: g.shear(doubleArg(item, 0), doubleArg(item, 1)); break;
+      default: throw new IllegalStateException("Unknown item in display list: " + ops[item]);
+    }
+  }
+
+  /** 
+   Change the given hints as a {@link #HINT} item says: set the hint, or remove it if the value is null.
+   A {@link StateBatcher} removes a hint in that way, when it's not in the next state.
+  */
+  public void applyHint(int item, RenderingHints hints) {
+    Object value = objectArg(item, 1);
+    if (value == null) {
+      hints.remove(objectArg(item, 0));
+    }
+    else {
+      hints.put(objectArg(item, 0), value);
+    }
+  }
+
+  /** The matrix of a {@link #TRANSFORM} or {@link #SET_TRANSFORM} item. */
+  public AffineTransform matrix(int item) {
+    return new AffineTransform(Arrays.copyOfRange(doubles, doubleStart[item], doubleStart[item] + 6));
+  }
+
+  /** Counts of the items that draw something, for logging. */
+  public String stats() {
+    int[] counts = new int[SHEAR + 1];
+    for(int item = 0; item < size; ++item) {
+      ++counts[ops[item]];
+    }
+    int numStateChanges = 0;
+    for(int op = CLIP; op <= SHEAR; ++op) {
+      numStateChanges = numStateChanges + counts[op];
+    }
+    return "Display list: " + size + " items, " + counts[DOT] + " dots, " +
+      (counts[PATH] + counts[FILLED_PATH] + counts[LINE] + counts[OVAL] + counts[RECT] + counts[FILLED_RECT]) + " lines and outlines, " +
+      counts[TEXT] + " text runs, " + counts[SYMBOL] + " symbols, " + (counts[CLIP] + counts[CLIP_INTERSECT] + counts[NO_CLIP]) + " clips, " +
+      numStateChanges + " state changes, " + objects.size() + " objects, " + numDoubles + " doubles."
+    ;
+  }
+
+  // PACKAGE-PRIVATE: used by RecordingGraphics and StateBatcher
+
+  /** Add an item. Its arguments are added next. Returns the position of the item. */
+  int add(int op) {
+    if (size == ops.length) {
+      int capacity = Math.max(256, 2 * size);
+      ops = Arrays.copyOf(ops, capacity);
+      intStart = Arrays.copyOf(intStart, capacity);
+      doubleStart = Arrays.copyOf(doubleStart, capacity);
+    }
+    ops[size] = (byte)op;
+    intStart[size] = numInts;
+    doubleStart[size] = numDoubles;
+    return size++;
+  }
+
+  void addInt(int value) {
+    if (numInts == ints.length) {
+      ints = Arrays.copyOf(ints, Math.max(1024, 2 * numInts));
+    }
+    ints[numInts++] = value;
+  }
+
+  void addDouble(double value) {
+    if (numDoubles == doubles.length) {
+      doubles = Arrays.copyOf(doubles, Math.max(1024, 2 * numDoubles));
+    }
+    doubles[numDoubles++] = value;
+  }
+
+  /** Add a reference to an object. The same object is stored only once. */
+  void addObject(Object object) {
+    Integer idx = objectIndex.get(object);
+    if (idx == null) {
+      idx = objects.size();
+      objects.add(object);
+      objectIndex.put(object, idx);
+    }
+    addInt(idx);
+  }
+
+  /** Add the segments of a shape, exactly as they are returned by its path iterator. Ints: winding rule, first segment, number of segments. */
+  void addShape(Shape shape) {
+    PathIterator iter = shape.getPathIterator(null);
+    addInt(iter.getWindingRule());
+    addInt(numSegments);
+    int count = 0;
+    double[] coords = new double[6];
+    while(!iter.isDone()) {
+      int type = iter.currentSegment(coords);
+      if (numSegments == segments.length) {
+        segments = Arrays.copyOf(segments, Math.max(1024, 2 * numSegments));
+      }
+      segments[numSegments++] = (byte)type;
+      for(int i = 0; i < 2 * numPoints(type); ++i) {
+        addDouble(coords[i]);
+      }
+      ++count;
+      iter.next();
+    }
+    addInt(count);
+  }
+
+  /** The number of points (not coordinates) in a segment of the given type, as returned by a {@link PathIterator}. */
+  static int numPoints(int segmentType) {
+    int result = 0;
+    if (segmentType == PathIterator.SEG_MOVETO || segmentType == PathIterator.SEG_LINETO) {
+      result = 1;
+    }
+    else if (segmentType == PathIterator.SEG_QUADTO) {
+      result = 2;
+    }
+    else if (segmentType == PathIterator.SEG_CUBICTO) {
+      result = 3;
+    }
+    return result;
+  }
+
+  /** Change an int argument that has already been added. */
+  void setIntArg(int item, int arg, int value) {
+    ints[intStart[item] + arg] = value;
+  }
+
+  /** The state of the graphics context before the first item. */
+  GraphicsState initialState() {
+    return initialState;
+  }
+
+  void setInitialState(GraphicsState initialState) {
+    this.initialState = initialState;
+  }
+
+  /** Add a copy of an item from another list. Returns the position of the new item. */
+  int copy(DisplayList source, int item) {
+    int op = source.op(item);
+    int result = add(op);
+    if (op == PATH || op == FILLED_PATH || op == CLIP || op == CLIP_INTERSECT) {
+      addShape(source.shape(item));
+    }
+    else if (op == SYMBOL) {
+      addObject(source.objectArg(item, 0));
+      for(int arg = 1; arg < source.numInts(item); ++arg) {
+        addInt(source.intArg(item, arg));
+      }
+    }
+    else if (op == TEXT || (op >= COLOR && op <= COMPOSITE)) {
+      //the only int arguments are references to objects
+      for(int arg = 0; arg < source.numInts(item); ++arg) {
+        addObject(source.objectArg(item, arg));
+      }
+    }
+    else {
+      for(int arg = 0; arg < source.numInts(item); ++arg) {
+        addInt(source.intArg(item, arg));
+      }
+    }
+    if (op != PATH && op != FILLED_PATH && op != CLIP && op != CLIP_INTERSECT) {
+      for(int arg = 0; arg < source.numDoubles(item); ++arg) {
+        addDouble(source.doubleArg(item, arg));
+      }
+    }
+    return result;
+  }
+
+  // PRIVATE
+
+  private int size;
+  private byte[] ops = new byte[0];
+  private int[] intStart = new int[0];
+  private int[] doubleStart = new int[0];
+
+  private int numInts;
+  private int[] ints = new int[0];
+
+  private int numDoubles;
+  private double[] doubles = new double[0];
+
+  private int numSegments;
+  private byte[] segments = new byte[0];
+
+  private List<Object> objects = new ArrayList<>();
+  private Map<Object, Integer> objectIndex = new IdentityHashMap<>();
+
+  private GraphicsState initialState;
+
+  /** Graphics2D has no method for removing a single hint, so to remove one, all of the others are set again. */
+  private void replayHint(int item, Graphics2D g) {
+    if (objectArg(item, 1) == null) {
+      RenderingHints hints = new RenderingHints(null);
+      hints.putAll(g.getRenderingHints());
+      applyHint(item, hints);
+      g.setRenderingHints(hints);
+    }
+    else {
+      g.setRenderingHint((RenderingHints.Key)objectArg(item, 0), objectArg(item, 1));
+    }
+  }
+
+  private int numInts(int item) {
+    return (item + 1 < size ? intStart[item + 1] : numInts) - intStart[item];
+  }
+
+  private int numDoubles(int item) {
+    return (item + 1 < size ? doubleStart[item + 1] : numDoubles) - doubleStart[item];
+  }
+
+  /**
+   A recorded shape. The path iterator returns the recorded segments, transformed in the same way as
+   the iterators of the standard shapes: the coordinates are found first, and then the transform is applied to them.
+   The other methods use a Path2D made from the segments.
+  */
+  private final class Outline implements Shape {
+    Outline(int windingRule, int firstSegment, int numSegments, int firstDouble){
+      this.windingRule = windingRule;
+      this.firstSegment = firstSegment;
+      this.numSegments = numSegments;
+      this.firstDouble = firstDouble;
+    }
+    @Override public PathIterator getPathIterator(AffineTransform at) {
+      return new PathIterator() {
+        @Override public int getWindingRule() { return windingRule; }
+        @Override public boolean isDone() { return segment >= numSegments; }
+        @Override public void next() {
+          coord = coord + 2 * numPoints(segments[firstSegment + segment]);
+          ++segment;
+        }
+        @Override public int currentSegment(float[] coords) {
+          int type = segments[firstSegment + segment];
+          int n = numPoints(type);
+          if (at == null) {
+            for(int i = 0; i < 2 * n; ++i) {
+              coords[i] = (float)doubles[coord + i];
+            }
+          }
+          else {
+            at.transform(doubles, coord, coords, 0, n);
+          }
+          return type;
+        }
+        @Override public int currentSegment(double[] coords) {
+          int type = segments[firstSegment + segment];
+          int n = numPoints(type);
+          if (at == null) {
+            System.arraycopy(doubles, coord, coords, 0, 2 * n);
+          }
+          else {
+            at.transform(doubles, coord, coords, 0, n);
+          }
+          return type;
+        }
+        private int segment = 0;
+        private int coord = firstDouble;
+      };
+    }
+    @Override public PathIterator getPathIterator(AffineTransform at, double flatness) {
+      return new FlatteningPathIterator(getPathIterator(at), flatness);
+    }
+    @Override public Rectangle getBounds() { return path().getBounds(); }
+    @Override public Rectangle2D getBounds2D() { return path().getBounds2D(); }
+    @Override public boolean contains(double x, double y) { return path().contains(x, y); }
+    @Override public boolean contains(Point2D p) { return path().contains(p); }
+    @Override public boolean intersects(double x, double y, double w, double h) { return path().intersects(x, y, w, h); }
+    @Override public boolean intersects(Rectangle2D r) { return path().intersects(r); }
+    @Override public boolean contains(double x, double y, double w, double h) { return path().contains(x, y, w, h); }
+    @Override public boolean contains(Rectangle2D r) { return path().contains(r); }
+    private Path2D path() {
+      if (path == null) {
+        path = new Path2D.Double(this);
+      }
+      return path;
+    }
+    private int windingRule;
+    private int firstSegment;
+    private int numSegments;
+    private int firstDouble;
+    private Path2D path;
+  }
+}
@@ -0,0 +1,149 @@
+package mag5.draw.display;
+
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ A snapshot of the state of a graphics context: everything that affects how an item is drawn. Immutable.
+
+ <P>Two items with equal states can be drawn one after the other, with no change to the graphics context in between.
+ Objects are compared with <code>equals</code>.
+ The clip is stored as the shapes that were used to set it, each with the transform in effect at the time.
+*/
+final class GraphicsState {
+
+  GraphicsState(
+    Paint paint, Color background, Composite composite, Stroke stroke, Font font,
+    AffineTransform transform, List<ClipPart> clip, RenderingHints hints
+  ) {
+    this.paint = paint;
+    this.background = background;
+    this.composite = composite;
+    this.stroke = stroke;
+    this.font = font;
+    this.transform = new AffineTransform(transform);
+    this.clip = Collections.unmodifiableList(new ArrayList<>(clip));
+    this.hints = (RenderingHints)hints.clone();
+    this.hashCode = Objects.hash(paint, background, composite, stroke, font, transform, clip, hints);
+  }
+
+  final Paint paint;
+  final Color background;
+  final Composite composite;
+  final Stroke stroke;
+  final Font font;
+  final AffineTransform transform;
+  /** Empty if there's no clip. */
+  final List<ClipPart> clip;
+  final RenderingHints hints;
+
+  @Override public boolean equals(Object aThat) {
+    if (this == aThat) return true;
+    if (!(aThat instanceof GraphicsState)) return false;
+    GraphicsState that = (GraphicsState)aThat;
+    return hashCode == that.hashCode && Objects.equals(paint, that.paint) && Objects.equals(background, that.background) &&
+      Objects.equals(composite, that.composite) && Objects.equals(stroke, that.stroke) && Objects.equals(font, that.font) &&
+      transform.equals(that.transform) && clip.equals(that.clip) && hints.equals(that.hints)
+    ;
+  }
+
+  @Override public int hashCode() {
+    return hashCode;
+  }
+
+  /**
+   Put the given graphics context into this state, on top of its current transform (the transform of the page).
+   The clip shapes are applied with their own transforms, also on top of the transform of the page.
+  */
+  void applyTo(Graphics2D g) {
+    g.addRenderingHints(hints);
+    g.setPaint(paint);
+    g.setBackground(background);
+    if (composite != null) {
+      g.setComposite(composite);
+    }
+    g.setStroke(stroke);
+    g.setFont(font);
+    AffineTransform page = g.getTransform();
+    for(ClipPart part : clip) {
+      g.transform(part.transform);
+      g.clip(part.shape);
+      g.setTransform(page);
+    }
+    g.transform(transform);
+  }
+
+  /**
+   One of the shapes used to set the clip, along with the transform in effect when it was used. Immutable.
+   The segments of the shape are compared directly from its path iterator. For a shape recorded in a {@link DisplayList},
+   that's the display list's own copy of the segments, so there's no need for a second one here.
+  */
+  static final class ClipPart {
+    ClipPart(Shape shape, AffineTransform transform) {
+      this.shape = shape;
+      this.transform = new AffineTransform(transform);
+      PathIterator iter = shape.getPathIterator(null);
+      int hash = iter.getWindingRule();
+      double[] segment = new double[6];
+      while (!iter.isDone()) {
+        int type = iter.currentSegment(segment);
+        hash = 31 * hash + type;
+        for(int i = 0; i < 2 * DisplayList.numPoints(type); ++i) {
+          hash = 31 * hash + Double.hashCode(segment[i]);
+        }
+        iter.next();
+      }
+      this.hashCode = Objects.hash(hash, transform);
+    }
+
+    /** The shape as it was passed in. */
+    final Shape shape;
+    final AffineTransform transform;
+
+    @Override public boolean equals(Object aThat) {
+      if (this == aThat) return true;
+      if (!(aThat instanceof ClipPart)) return false;
+      ClipPart that = (ClipPart)aThat;
+      return hashCode == that.hashCode && transform.equals(that.transform) && sameSegments(shape, that.shape);
+    }
+
+    @Override public int hashCode() {
+      return hashCode;
+    }
+
+    private int hashCode;
+
+    private static boolean sameSegments(Shape a, Shape b) {
+      PathIterator iterA = a.getPathIterator(null);
+      PathIterator iterB = b.getPathIterator(null);
+      boolean result = iterA.getWindingRule() == iterB.getWindingRule();
+      double[] segmentA = new double[6];
+      double[] segmentB = new double[6];
+      while (result && !iterA.isDone() && !iterB.isDone()) {
+        int type = iterA.currentSegment(segmentA);
+        result = type == iterB.currentSegment(segmentB);
+        for(int i = 0; result && i < 2 * DisplayList.numPoints(type); ++i) {
+          result = Double.compare(segmentA[i], segmentB[i]) == 0;
+        }
+        iterA.next();
+        iterB.next();
+      }
+      return result && iterA.isDone() && iterB.isDone();
+    }
+  }
+
+  // PRIVATE
+  private int hashCode;
+}
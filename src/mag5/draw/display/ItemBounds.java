@@ -0,0 +1,186 @@
+package mag5.draw.display;
+
+import java.awt.BasicStroke;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+
+/**
+ The area of the page covered by each item of a display list, found once, so that a small part of the page
+ can be drawn without drawing everything else.
+
+ <P>When a chart is shown in pieces (as tiles in a viewer), each piece holds only a few of the stars, lines, and deep sky objects.
+ Here, the box around each item is found with the transform, stroke, and font in effect when it was recorded.
+ When drawing a piece of the page, the items that change the state of the graphics context are always replayed,
+ but the items that draw something are replayed only if their box touches the piece.
+
+ <P>The boxes are generous: they include the full width of the stroke, and a little extra for anti-aliasing.
+ The clip is ignored, so an item can be replayed even if it's clipped away; that's harmless, just a bit slower.
+ Immutable, and safe for use by more than one thread, as long as the display list isn't changed.
+*/
+public final class ItemBounds {
+
+  /** Find the box around each item in the given list. */
+  public ItemBounds(DisplayList list) {
+    this.list = list;
+    int n = list.size();
+    this.minX = new float[n];
+    this.minY = new float[n];
+    this.maxX = new float[n];
+    this.maxY = new float[n];
+    findBounds();
+  }
+
+  /** The display list. */
+  public DisplayList displayList() {
+    return list;
+  }
+
+  /**
+   Draw only the part of the list that touches the given area of the page, into the given graphics context.
+   The current transform of the graphics context is taken as the transform of the page.
+   Returns the number of items that drew something.
+  */
+  public int replay(Rectangle2D area, Graphics2D g) {
+    int result = 0;
+    AffineTransform page = g.getTransform();
+    list.initialState().applyTo(g);
+    for(int item = 0; item < list.size(); ++item) {
+      int op = list.op(item);
+      if (draws(op)) {
+        if (touches(item, area)) {
+          list.replay(item, g);
+          ++result;
+        }
+      }
+      else if (op == DisplayList.SET_TRANSFORM) {
+        AffineTransform transform = new AffineTransform(page);
+        transform.concatenate(list.matrix(item));
+        g.setTransform(transform);
+      }
+      else {
+        list.replay(item, g);
+      }
+    }
+    return result;
+  }
+
+  /** The number of items that draw something in the given area of the page. */
+  public int count(Rectangle2D area) {
+    int result = 0;
+    for(int item = 0; item < list.size(); ++item) {
+      if (draws(list.op(item)) && touches(item, area)) {
+        ++result;
+      }
+    }
+    return result;
+  }
+
+  // PRIVATE
+
+  private DisplayList list;
+  private float[] minX;
+  private float[] minY;
+  private float[] maxX;
+  private float[] maxY;
+
+  /** In points. Anti-aliasing can colour the pixel next to an edge. */
+  private static final double MARGIN = 1.0;
+
+  private static boolean draws(int op) {
+    return op >= DisplayList.DOT && op <= DisplayList.TEXT;
+  }
+
+  private boolean touches(int item, Rectangle2D area) {
+    return maxX[item] >= area.getMinX() && minX[item] <= area.getMaxX() && maxY[item] >= area.getMinY() && minY[item] <= area.getMaxY();
+  }
+
+  /** Track the state in the same way as the graphics context that recorded the list. */
+  private void findBounds() {
+    GraphicsState initial = list.initialState();
+    AffineTransform transform = new AffineTransform(initial.transform);
+    Stroke stroke = initial.stroke;
+    Font font = initial.font;
+    RenderingHints hints = (RenderingHints)initial.hints.clone();
+    for(int item = 0; item < list.size(); ++item) {
+      Rectangle2D box = null;
+      switch(list.op(item)) {
+        case DisplayList.DOT:
+        case DisplayList.FILLED_RECT: box = intBox(item); break;
+        case DisplayList.OVAL:
+        case DisplayList.RECT:
+        case DisplayList.LINE: box = widen(intBox(item), stroke); break;
+        case DisplayList.PATH: box = widen(list.shape(item).getBounds2D(), stroke); break;
+        case DisplayList.FILLED_PATH: box = list.shape(item).getBounds2D(); break;
+        case DisplayList.TEXT: box = textBox(item, font, hints); break;
+        case DisplayList.STROKE: stroke = (Stroke)list.objectArg(item, 0); break;
+        case DisplayList.FONT: font = (Font)list.objectArg(item, 0); break;
+        case DisplayList.HINT: list.applyHint(item, hints); break;
+        case DisplayList.TRANSFORM: transform.concatenate(list.matrix(item)); break;
+        case DisplayList.SET_TRANSFORM: transform.setTransform(list.matrix(item)); break;
+        case DisplayList.TRANSLATE: transform.translate(list.doubleArg(item, 0), list.doubleArg(item, 1)); break;
+        case DisplayList.ROTATE: transform.rotate(list.doubleArg(item, 0)); break;
+        case DisplayList.ROTATE_ABOUT: transform.rotate(list.doubleArg(item, 0), list.doubleArg(item, 1), list.doubleArg(item, 2)); break;
+        case DisplayList.SCALE: transform.scale(list.doubleArg(item, 0), list.doubleArg(item, 1)); break;
+        case DisplayList.SHEAR: transform.shear(list.doubleArg(item, 0), list.doubleArg(item, 1)); break;
+        default: break; //no effect on the area covered by an item
+      }
+      if (box != null) {
+        Rectangle2D onPage = transform.createTransformedShape(box).getBounds2D();
+        minX[item] = (float)Math.floor(onPage.getMinX() - MARGIN);
+        minY[item] = (float)Math.floor(onPage.getMinY() - MARGIN);
+        maxX[item] = (float)Math.ceil(onPage.getMaxX() + MARGIN);
+        maxY[item] = (float)Math.ceil(onPage.getMaxY() + MARGIN);
+      }
+    }
+  }
+
+  /** The items that take x, y, width, height. For a line, the two ends. */
+  private Rectangle2D intBox(int item) {
+    int a = list.intArg(item, 0);
+    int b = list.intArg(item, 1);
+    int c = list.intArg(item, 2);
+    int d = list.intArg(item, 3);
+    Rectangle2D.Double result = new Rectangle2D.Double(a, b, c, d);
+    if (list.op(item) == DisplayList.LINE) {
+      result.setFrameFromDiagonal(a, b, c, d);
+    }
+    return result;
+  }
+
+  /** Half of the line width on each side, or more for a sharp miter. */
+  private Rectangle2D widen(Rectangle2D box, Stroke stroke) {
+    Rectangle2D result = null;
+    if (stroke instanceof BasicStroke) {
+      BasicStroke basic = (BasicStroke)stroke;
+      double miter = basic.getLineJoin() == BasicStroke.JOIN_MITER ? Math.max(1.0, basic.getMiterLimit()) : 1.0;
+      double halfWidth = basic.getLineWidth() * miter / 2.0;
+      result = new Rectangle2D.Double(box.getX() - halfWidth, box.getY() - halfWidth, box.getWidth() + 2 * halfWidth, box.getHeight() + 2 * halfWidth);
+    }
+    else {
+      result = stroke.createStrokedShape(box).getBounds2D();
+    }
+    return result;
+  }
+
+  /** Measured in the same way as {@link RecordingGraphics#getFontRenderContext()}. */
+  private Rectangle2D textBox(int item, Font font, RenderingHints hints) {
+    boolean antialias = RenderingHints.VALUE_TEXT_ANTIALIAS_ON.equals(hints.get(RenderingHints.KEY_TEXT_ANTIALIASING));
+    boolean fractionalMetrics = RenderingHints.VALUE_FRACTIONALMETRICS_ON.equals(hints.get(RenderingHints.KEY_FRACTIONALMETRICS));
+    FontRenderContext frc = new FontRenderContext(new AffineTransform(), antialias, fractionalMetrics);
+    Font upright = font.isTransformed() ? font.deriveFont(new AffineTransform()) : font;
+    Rectangle2D box = upright.getStringBounds(list.text(item), frc);
+    //the string bounds don't always cover accents, italic overhangs, and glyphs taken from a fallback font
+    double pad = upright.getSize2D() / 2;
+    Rectangle2D result = new Rectangle2D.Double(box.getX() - pad, box.getY() - pad, box.getWidth() + 2 * pad, box.getHeight() + 2 * pad);
+    if (font.isTransformed()) {
+      result = font.getTransform().createTransformedShape(result).getBounds2D();
+    }
+    result.setRect(result.getX() + list.doubleArg(item, 0), result.getY() + list.doubleArg(item, 1), result.getWidth(), result.getHeight());
+    return result;
+  }
+}
@@ -0,0 +1,219 @@
+package mag5.draw.display;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ Render a display list to an image, at a given resolution, using more than one thread.
+
+ <P>The page is split into horizontal bands. Each band is drawn by a separate task, on a pool of threads.
+ Every band replays the whole display list; Java2D quickly skips anything that falls outside the band.
+ There are more bands than threads, since some parts of a chart are much busier than others.
+
+ <P>Java2D clips long paths to the area being drawn, and the clipped path can differ slightly from the whole one.
+ So a band is drawn with a few extra rows above and below it, into an image of its own,
+ and only its own rows are copied into the page. The seams between the bands are then away from the edges of the clip.
+ An item can still come out a little differently (a dashed line, say) depending on where the band starts, since Java2D works in
+ single precision, relative to the top of the band. So the page is always cut into the same bands, whatever the number of threads.
+ The image is then the same for any number of threads.
+
+ <P>The rendering hints set by the chart are honoured, since they're part of the display list.
+ Anti-aliasing is turned on before that, to match the smooth lines seen in a PDF viewer.
+ No screen is needed, so this works with <code>java.awt.headless=true</code>.
+
+ <P>The number of threads is set with <code>-Dmag5rasterthreads=N</code>. The default is the number of processors.
+ Call {@link #close()} when done, to stop the threads.
+*/
+public final class RasterRenderer implements AutoCloseable {
+
+  /** The name of the system property for the number of threads - {@value}. */
+  public static final String THREADS_PROPERTY = "mag5rasterthreads";
+
+  /**
+   @param width of the page, in points
+   @param height of the page, in points
+   @param dpi resolution of the image, in dots per inch
+  */
+  public RasterRenderer(double width, double height, int dpi) {
+    this.scale = dpi / POINTS_PER_INCH;
+    this.dpi = dpi;
+    this.widthPixels = (int)Math.ceil(width * dpi / POINTS_PER_INCH);
+    this.heightPixels = (int)Math.ceil(height * dpi / POINTS_PER_INCH);
+    this.numThreads = Integer.valueOf(System.getProperty(THREADS_PROPERTY, String.valueOf(Runtime.getRuntime().availableProcessors())));
+    this.executor = Executors.newFixedThreadPool(numThreads);
+  }
+
+  /** Draw the display list on a white page. */
+  public BufferedImage render(DisplayList list) {
+    BufferedImage result = new BufferedImage(widthPixels, heightPixels, BufferedImage.TYPE_INT_RGB);
+    int numBands = Math.max(1, Math.min(NUM_BANDS, heightPixels / MIN_BAND_HEIGHT));
+    int bandHeight = (heightPixels + numBands - 1) / numBands;
+    List<Future<?>> bands = new ArrayList<>();
+    for(int top = 0; top < heightPixels; top = top + bandHeight) {
+      int bandTop = top;
+      int height = Math.min(bandHeight, heightPixels - top);
+      bands.add(executor.submit(() -> renderBand(list, result, bandTop, height)));
+    }
+    waitFor(bands);
+    return result;
+  }
+
+  /**
+   Write the image as a PNG, with its resolution. The stream is not closed.
+   The resolution tells other tools (and printers) how big the image is meant to be.
+  */
+  public void writePng(BufferedImage image, OutputStream out) throws IOException {
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+    try (ImageOutputStream output = ImageIO.createImageOutputStream(out)){
+      ImageWriteParam param = writer.getDefaultWriteParam();
+      IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image), param);
+      IIOMetadataNode resolution = new IIOMetadataNode("pHYs");
+      String dotsPerMeter = String.valueOf(Math.round(dpi / METERS_PER_INCH));
+      resolution.setAttribute("pixelsPerUnitXAxis", dotsPerMeter);
+      resolution.setAttribute("pixelsPerUnitYAxis", dotsPerMeter);
+      resolution.setAttribute("unitSpecifier", "meter");
+      IIOMetadataNode root = new IIOMetadataNode(PNG_METADATA);
+      root.appendChild(resolution);
+      metadata.mergeTree(PNG_METADATA, root);
+      writer.setOutput(output);
+      writer.write(null, new IIOImage(image, null, metadata), param);
+    }
+    finally {
+      writer.dispose();
+    }
+  }
+
+  /** Write the image as a PNG file. */
+  public void writePng(BufferedImage image, Path file) throws IOException {
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))){
+      writePng(image, out);
+    }
+  }
+
+  /**
+   Cut the image into square tiles, and write each one as a PNG file, in the given directory.
+   The files are named 'row-column.png', starting at 0-0 in the top left corner.
+   The tiles on the right and bottom edges can be smaller than the others.
+   The tiles are written in parallel.
+  */
+  public void writeTiles(BufferedImage image, int tileSize, Path dir) throws IOException {
+    Files.createDirectories(dir);
+    List<Future<?>> tiles = new ArrayList<>();
+    for(int row = 0; row * tileSize < image.getHeight(); ++row) {
+      for(int col = 0; col * tileSize < image.getWidth(); ++col) {
+        int x = col * tileSize;
+        int y = row * tileSize;
+        BufferedImage tile = image.getSubimage(x, y, Math.min(tileSize, image.getWidth() - x), Math.min(tileSize, image.getHeight() - y));
+        Path file = dir.resolve(row + "-" + col + ".png");
+        tiles.add(executor.submit(() -> {
+          writePng(tile, file);
+          return null;
+        }));
+      }
+    }
+    waitFor(tiles);
+  }
+
+  /** Stop the threads. */
+  @Override public void close() {
+    executor.shutdown();
+  }
+
+  // PRIVATE
+
+  private static final double POINTS_PER_INCH = 72.0;
+  private static final double METERS_PER_INCH = 0.0254;
+  /** The same for any number of threads, since the edges of the bands affect the pixels. */
+  private static final int NUM_BANDS = 32;
+  private static final int MIN_BAND_HEIGHT = 32;
+  /** The extra rows drawn above and below each band. */
+  private static final int BAND_MARGIN = 16;
+  private static final String PNG_METADATA = "javax_imageio_png_1.0";
+
+  private double scale;
+  private int dpi;
+  private int widthPixels;
+  private int heightPixels;
+  private int numThreads;
+  private ExecutorService executor;
+
+  /**
+   Draw the rows of the page from the given top row, along with the margin above and below, and copy the rows into the page.
+   Each band copies only its own rows, so the bands don't overlap in the page.
+  */
+  private void renderBand(DisplayList list, BufferedImage page, int top, int height) {
+    int marginTop = Math.min(BAND_MARGIN, top);
+    int marginBottom = Math.min(BAND_MARGIN, heightPixels - top - height);
+    BufferedImage band = new BufferedImage(widthPixels, marginTop + height + marginBottom, BufferedImage.TYPE_INT_RGB);
+    drawBand(list, band, top - marginTop);
+    page.getRaster().setDataElements(0, top, band.getRaster().createChild(0, marginTop, widthPixels, height, 0, 0, null));
+  }
+
+  /**
+   The band holds the rows of the page from the given top row.
+   The items that set the transform are relative to the page, so they're combined with the transform of the band.
+  */
+  private void drawBand(DisplayList list, BufferedImage band, int top) {
+    Graphics2D g = band.createGraphics();
+    try {
+      g.setColor(Color.white);
+      g.fillRect(0, 0, band.getWidth(), band.getHeight());
+      g.translate(0, -top);
+      g.scale(scale, scale);
+      AffineTransform page = g.getTransform();
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      list.initialState().applyTo(g);
+      for(int item = 0; item < list.size(); ++item) {
+        if (list.op(item) == DisplayList.SET_TRANSFORM) {
+          AffineTransform transform = new AffineTransform(page);
+          transform.concatenate(list.matrix(item));
+          g.setTransform(transform);
+        }
+        else {
+          list.replay(item, g);
+        }
+      }
+    }
+    finally {
+      g.dispose();
+    }
+  }
+
+  private void waitFor(List<Future<?>> tasks) {
+    try {
+      for(Future<?> task : tasks) {
+        task.get();
+      }
+    }
+    catch(InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while rendering.", ex);
+    }
+    catch(ExecutionException ex) {
+      throw new RuntimeException("Unable to render.", ex.getCause());
+    }
+  }
+}
@@ -0,0 +1,545 @@
+package mag5.draw.display;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Paint;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Area;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.text.AttributedCharacterIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ A graphics context that draws nothing: it only records what it's asked to draw, in a {@link DisplayList}.
+
+ <P>The drawing code asks the graphics context for things as it goes: the current font, the width of a piece of text,
+ the current transform, and so on. The answers given here need to be exactly the same as those of the graphics context
+ that will eventually do the drawing, or else the chart will come out differently.
+ So this class starts with the state of the target graphics context, and keeps track of changes made to it.
+ It measures text the same way as the iText graphics context: with the graphics context of a tiny image,
+ which uses the same rendering hints.
+
+ <P>Images aren't supported, since the charts don't use them.
+*/
+public final class RecordingGraphics extends Graphics2D {
+
+  /** Start with the same state as the given graphics context. Nothing is drawn into the given graphics context. */
+  public RecordingGraphics(Graphics2D target) {
+    this.hints = new RenderingHints(null);
+    this.hints.putAll(target.getRenderingHints());
+    this.paint = target.getPaint();
+    this.background = target.getBackground();
+    this.composite = target.getComposite();
+    this.stroke = target.getStroke();
+    this.font = target.getFont();
+    this.transform = target.getTransform();
+    Shape targetClip = target.getClip();
+    this.deviceClip = targetClip == null ? null : new Area(transform.createTransformedShape(targetClip));
+    recordInitialState(targetClip);
+  }
+
+  /**
+   Start with the same defaults as a fresh iText graphics context of the given size, in points.
+   Used when nothing but a display list is wanted: the list is rendered later, by some other means.
+  */
+  public RecordingGraphics(double width, double height) {
+    this.hints = new RenderingHints(null);
+    this.paint = Color.black;
+    this.background = Color.white;
+    this.composite = null;
+    this.stroke = new BasicStroke(1.0f);
+    this.font = new Font("sanserif", Font.PLAIN, 12);
+    this.transform = new AffineTransform();
+    this.deviceClip = new Area(new Rectangle2D.Double(0, 0, width, height));
+    recordInitialState(new Rectangle2D.Double(0, 0, width, height));
+  }
+
+  /** The items recorded so far. */
+  public DisplayList displayList() {
+    return list;
+  }
+
+  /**
+   Start a symbol.
+   All of the items drawn until {@link #endSymbol(Graphics2D)} form a single symbol, with the given name.
+   The items need to be placed at integer offsets from the given position.
+   Does nothing if the given graphics context is not recording.
+  */
+  public static void beginSymbol(Graphics2D g, String name, int x, int y) {
+    if (g instanceof RecordingGraphics) {
+      RecordingGraphics recorder = (RecordingGraphics)g;
+      recorder.symbolStart = recorder.list.add(DisplayList.SYMBOL);
+      recorder.list.addObject(name);
+      recorder.list.addInt(0); //filled in at the end
+      recorder.list.addInt(x);
+      recorder.list.addInt(y);
+    }
+  }
+
+  /** End the current symbol. See {@link #beginSymbol(Graphics2D, String, int, int)}. */
+  public static void endSymbol(Graphics2D g) {
+    if (g instanceof RecordingGraphics) {
+      RecordingGraphics recorder = (RecordingGraphics)g;
+      recorder.list.setIntArg(recorder.symbolStart, 1, recorder.list.size() - recorder.symbolStart - 1);
+    }
+  }
+
+  // DRAWING
+
+  @Override public void draw(Shape s) {
+    list.add(DisplayList.PATH);
+    list.addShape(s);
+  }
+
+  @Override public void fill(Shape s) {
+    list.add(DisplayList.FILLED_PATH);
+    list.addShape(s);
+  }
+
+  @Override public void fillOval(int x, int y, int width, int height) {
+    fourInts(DisplayList.DOT, x, y, width, height);
+  }
+
+  @Override public void drawOval(int x, int y, int width, int height) {
+    fourInts(DisplayList.OVAL, x, y, width, height);
+  }
+
+  @Override public void drawLine(int x1, int y1, int x2, int y2) {
+    fourInts(DisplayList.LINE, x1, y1, x2, y2);
+  }
+
+  @Override public void drawRect(int x, int y, int width, int height) {
+    fourInts(DisplayList.RECT, x, y, width, height);
+  }
+
+  @Override public void fillRect(int x, int y, int width, int height) {
+    fourInts(DisplayList.FILLED_RECT, x, y, width, height);
+  }
+
+  @Override public void clearRect(int x, int y, int width, int height) {
+    Paint original = paint;
+    setPaint(background);
+    fillRect(x, y, width, height);
+    setPaint(original);
+  }
+
+  @Override public void drawRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+    draw(new RoundRectangle2D.Double(x, y, width, height, arcWidth, arcHeight));
+  }
+
+  @Override public void fillRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+    fill(new RoundRectangle2D.Double(x, y, width, height, arcWidth, arcHeight));
+  }
+
+  @Override public void drawArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+    draw(new Arc2D.Double(x, y, width, height, startAngle, arcAngle, Arc2D.OPEN));
+  }
+
+  @Override public void fillArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+    fill(new Arc2D.Double(x, y, width, height, startAngle, arcAngle, Arc2D.PIE));
+  }
+
+  @Override public void drawPolyline(int[] xPoints, int[] yPoints, int nPoints) {
+    for(int i = 1; i < nPoints; ++i) {
+      drawLine(xPoints[i - 1], yPoints[i - 1], xPoints[i], yPoints[i]);
+    }
+  }
+
+  @Override public void drawPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+    draw(new Polygon(xPoints, yPoints, nPoints));
+  }
+
+  @Override public void fillPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+    fill(new Polygon(xPoints, yPoints, nPoints));
+  }
+
+  @Override public void drawString(String str, int x, int y) {
+    drawString(str, (float)x, (float)y);
+  }
+
+  @Override public void drawString(String str, float x, float y) {
+    list.add(DisplayList.TEXT);
+    list.addObject(str);
+    list.addDouble(x);
+    list.addDouble(y);
+  }
+
+  @Override public void drawString(AttributedCharacterIterator iterator, int x, int y) {
+    throw unsupported();
+  }
+
+  @Override public void drawString(AttributedCharacterIterator iterator, float x, float y) {
+    throw unsupported();
+  }
+
+  @Override public void drawGlyphVector(GlyphVector g, float x, float y) {
+    throw unsupported();
+  }
+
+  @Override public boolean drawImage(Image img, AffineTransform xform, ImageObserver obs) {
+    throw unsupported();
+  }
+
+  @Override public void drawImage(BufferedImage img, BufferedImageOp op, int x, int y) {
+    throw unsupported();
+  }
+
+  @Override public void drawRenderedImage(RenderedImage img, AffineTransform xform) {
+    throw unsupported();
+  }
+
+  @Override public void drawRenderableImage(RenderableImage img, AffineTransform xform) {
+    throw unsupported();
+  }
+
+  @Override public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
+    throw unsupported();
+  }
+
+  @Override public boolean drawImage(Image img, int x, int y, int width, int height, ImageObserver observer) {
+    throw unsupported();
+  }
+
+  @Override public boolean drawImage(Image img, int x, int y, Color bgcolor, ImageObserver observer) {
+    throw unsupported();
+  }
+
+  @Override public boolean drawImage(Image img, int x, int y, int width, int height, Color bgcolor, ImageObserver observer) {
+    throw unsupported();
+  }
+
+  @Override public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2, ImageObserver observer) {
+    throw unsupported();
+  }
+
+  @Override public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2, Color bgcolor, ImageObserver observer) {
+    throw unsupported();
+  }
+
+  @Override public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+    throw unsupported();
+  }
+
+  // CLIPPING
+
+  @Override public void setClip(Shape clip) {
+    if (clip == null) {
+      list.add(DisplayList.NO_CLIP);
+      deviceClip = null;
+    }
+    else {
+      list.add(DisplayList.CLIP);
+      list.addShape(clip);
+      deviceClip = new Area(transform.createTransformedShape(clip));
+    }
+  }
+
+  @Override public void setClip(int x, int y, int width, int height) {
+    setClip(new Rectangle2D.Double(x, y, width, height));
+  }
+
+  @Override public void clip(Shape s) {
+    list.add(DisplayList.CLIP_INTERSECT);
+    list.addShape(s);
+    Area area = new Area(transform.createTransformedShape(s));
+    if (deviceClip != null) {
+      area.intersect(deviceClip);
+    }
+    deviceClip = area;
+  }
+
+  @Override public void clipRect(int x, int y, int width, int height) {
+    clip(new Rectangle2D.Double(x, y, width, height));
+  }
+
+  @Override public Shape getClip() {
+    Shape result = null;
+    if (deviceClip != null) {
+      try {
+        result = transform.createInverse().createTransformedShape(deviceClip);
+      }
+      catch (NoninvertibleTransformException ex) {
+        result = null;
+      }
+    }
+    return result;
+  }
+
+  @Override public Rectangle getClipBounds() {
+    Shape clip = getClip();
+    return clip == null ? null : clip.getBounds();
+  }
+
+  @Override public boolean hit(Rectangle rect, Shape s, boolean onStroke) {
+    Shape shape = onStroke ? stroke.createStrokedShape(s) : s;
+    return new Area(transform.createTransformedShape(shape)).intersects(rect);
+  }
+
+  // STATE
+
+  @Override public Color getColor() {
+    return paint instanceof Color ? (Color)paint : Color.black;
+  }
+
+  @Override public void setColor(Color c) {
+    if (c != null) {
+      oneObject(DisplayList.COLOR, c);
+      paint = c;
+    }
+  }
+
+  @Override public Paint getPaint() {
+    return paint;
+  }
+
+  @Override public void setPaint(Paint paint) {
+    if (paint != null) {
+      oneObject(DisplayList.PAINT, paint);
+      this.paint = paint;
+    }
+  }
+
+  @Override public void setPaintMode() {
+    //nothing to do: this is the only mode supported
+  }
+
+  @Override public void setXORMode(Color c1) {
+    //ignored, as in the iText graphics context
+  }
+
+  @Override public Color getBackground() {
+    return background;
+  }
+
+  @Override public void setBackground(Color color) {
+    oneObject(DisplayList.BACKGROUND, color);
+    background = color;
+  }
+
+  @Override public Composite getComposite() {
+    return composite;
+  }
+
+  @Override public void setComposite(Composite comp) {
+    oneObject(DisplayList.COMPOSITE, comp);
+    composite = comp;
+  }
+
+  @Override public Stroke getStroke() {
+    return stroke;
+  }
+
+  @Override public void setStroke(Stroke s) {
+    oneObject(DisplayList.STROKE, s);
+    stroke = s;
+  }
+
+  @Override public Font getFont() {
+    return font;
+  }
+
+  @Override public void setFont(Font font) {
+    if (font != null) {
+      oneObject(DisplayList.FONT, font);
+      this.font = font;
+    }
+  }
+
+  @Override public FontMetrics getFontMetrics(Font f) {
+    return metrics().getFontMetrics(f);
+  }
+
+  @Override public FontRenderContext getFontRenderContext() {
+    boolean antialias = RenderingHints.VALUE_TEXT_ANTIALIAS_ON.equals(getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING));
+    boolean fractionalMetrics = RenderingHints.VALUE_FRACTIONALMETRICS_ON.equals(getRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS));
+    return new FontRenderContext(new AffineTransform(), antialias, fractionalMetrics);
+  }
+
+  @Override public void setRenderingHint(RenderingHints.Key hintKey, Object hintValue) {
+    list.add(DisplayList.HINT);
+    list.addObject(hintKey);
+    list.addObject(hintValue);
+    if (hintValue != null) {
+      hints.put(hintKey, hintValue);
+    }
+    else {
+      hints.remove(hintKey);
+    }
+    if (metrics != null) {
+      metrics.setRenderingHint(hintKey, hintValue);
+    }
+  }
+
+  @Override public Object getRenderingHint(RenderingHints.Key hintKey) {
+    return hints.get(hintKey);
+  }
+
+  @Override public void setRenderingHints(Map<?, ?> hints) {
+    throw unsupported();
+  }
+
+  @Override public void addRenderingHints(Map<?, ?> hints) {
+    throw unsupported();
+  }
+
+  @Override public RenderingHints getRenderingHints() {
+    return (RenderingHints)hints.clone();
+  }
+
+  @Override public GraphicsConfiguration getDeviceConfiguration() {
+    return metrics().getDeviceConfiguration();
+  }
+
+  // TRANSFORMS
+
+  @Override public void translate(int x, int y) {
+    translate((double)x, (double)y);
+  }
+
+  @Override public void translate(double tx, double ty) {
+    list.add(DisplayList.TRANSLATE);
+    list.addDouble(tx);
+    list.addDouble(ty);
+    transform.translate(tx, ty);
+  }
+
+  @Override public void rotate(double theta) {
+    list.add(DisplayList.ROTATE);
+    list.addDouble(theta);
+    transform.rotate(theta);
+  }
+
+  @Override public void rotate(double theta, double x, double y) {
+    list.add(DisplayList.ROTATE_ABOUT);
+    list.addDouble(theta);
+    list.addDouble(x);
+    list.addDouble(y);
+    transform.rotate(theta, x, y);
+  }
+
+  @Override public void scale(double sx, double sy) {
+    list.add(DisplayList.SCALE);
+    list.addDouble(sx);
+    list.addDouble(sy);
+    transform.scale(sx, sy);
+  }
+
+  @Override public void shear(double shx, double shy) {
+    list.add(DisplayList.SHEAR);
+    list.addDouble(shx);
+    list.addDouble(shy);
+    transform.shear(shx, shy);
+  }
+
+  @Override public void transform(AffineTransform tx) {
+    matrix(DisplayList.TRANSFORM, tx);
+    transform.concatenate(tx);
+  }
+
+  @Override public void setTransform(AffineTransform tx) {
+    matrix(DisplayList.SET_TRANSFORM, tx);
+    transform = new AffineTransform(tx);
+  }
+
+  @Override public AffineTransform getTransform() {
+    return new AffineTransform(transform);
+  }
+
+  // OTHER
+
+  @Override public Graphics create() {
+    throw unsupported();
+  }
+
+  @Override public void dispose() {
+    if (metrics != null) {
+      metrics.dispose();
+      metrics = null;
+    }
+  }
+
+  // PRIVATE
+
+  private DisplayList list = new DisplayList();
+  private int symbolStart;
+
+  private RenderingHints hints;
+  private Paint paint;
+  private Color background;
+  private Composite composite;
+  private Stroke stroke;
+  private Font font;
+  private AffineTransform transform;
+  /** The clip, in device space. */
+  private Area deviceClip;
+
+  /** Measures text. Created lazily, in the same way as the iText graphics context. */
+  private Graphics2D metrics;
+
+  private Graphics2D metrics() {
+    if (metrics == null) {
+      metrics = new BufferedImage(2, 2, BufferedImage.TYPE_INT_RGB).createGraphics();
+      metrics.setRenderingHints(hints);
+    }
+    return metrics;
+  }
+
+  /** The clip is in user space. */
+  private void recordInitialState(Shape clip) {
+    List<GraphicsState.ClipPart> clipParts = new ArrayList<>();
+    if (clip != null) {
+      clipParts.add(new GraphicsState.ClipPart(clip, transform));
+    }
+    list.setInitialState(new GraphicsState(paint, background, composite, stroke, font, transform, clipParts, hints));
+  }
+
+  private void fourInts(int op, int a, int b, int c, int d) {
+    list.add(op);
+    list.addInt(a);
+    list.addInt(b);
+    list.addInt(c);
+    list.addInt(d);
+  }
+
+  private void oneObject(int op, Object object) {
+    list.add(op);
+    list.addObject(object);
+  }
+
+  private void matrix(int op, AffineTransform tx) {
+    double[] m = new double[6];
+    tx.getMatrix(m);
+    list.add(op);
+    for(double value : m) {
+      list.addDouble(value);
+    }
+  }
+
+  private static UnsupportedOperationException unsupported() {
+    return new UnsupportedOperationException("Not supported when recording a display list.");
+  }
+}
@@ -0,0 +1,381 @@
+package mag5.draw.display;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.Paint;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ Reorder a display list, to put together the items drawn with the same colour, stroke, font, transform, and clip.
+
+ <P>The drawing code changes the state of the graphics context all the time.
+ For example, each star sets the colour to white, then black, then back to the original colour;
+ the text for the names of stars swaps fonts for each name; each constellation line sets its own stroke.
+ Each change turns into PDF operators, and some bookkeeping in iText.
+
+ <P>Here, each item that draws something is tagged with the state in effect when it was drawn.
+ The items are then gathered into batches, where all of the items in a batch have the same state.
+ An item is added to the most recent batch with the same state, but only if that doesn't change what's on top of what:
+ it can't be moved in front of anything it overlaps.
+ The test for overlap uses the bounding boxes of the items, in device space, made a bit larger for the width of lines.
+ When in doubt, a new batch is started.
+ The state is then set only once per batch, and only for the parts of the state that differ from the previous batch.
+
+ <P>A symbol (see {@link DisplayList#SYMBOL}) is moved as a unit, along with its own changes of state.
+ So the white border of a star is always drawn just before its black dot.
+
+ <P>The result looks the same, but it is not the same byte-for-byte, since the order of the items changes.
+ Used only for display lists (see {@link DisplayList#isOn()}), and for the direct PDF backend.
+ To turn this on, use <code>-Dmag5batch=on</code>. The default is <code>off</code>.
+*/
+public final class StateBatcher {
+
+  /** The name of the System property used to turn on batching - {@value}. */
+  public static final String PROPERTY = "mag5batch";
+
+  /** Returns true only if the System property {@value #PROPERTY} has the value <code>on</code>. */
+  public static boolean isOn() {
+    return "on".equalsIgnoreCase(System.getProperty(PROPERTY, "off"));
+  }
+
+  /** Returns a new list, with the same items, in batches. */
+  public static DisplayList batch(DisplayList list) {
+    StateBatcher batcher = new StateBatcher(list);
+    batcher.findCommands();
+    batcher.gatherIntoBatches();
+    return batcher.output();
+  }
+
+  // PRIVATE
+
+  /** How far back to look for a batch with the same state. Limits the time taken. */
+  private static final int MAX_BATCHES_TO_JUMP = 64;
+
+  /** Added to all sides of the bounding boxes, in points. */
+  private static final double MARGIN = 1.0;
+
+  private DisplayList input;
+  private List<Command> commands = new ArrayList<>();
+  private List<Batch> batches = new ArrayList<>();
+
+  /* The state as it changes, while walking through the input. */
+  private GraphicsState initial;
+  private GraphicsState snapshot;
+  private Paint paint;
+  private Color background;
+  private Composite composite;
+  private Stroke stroke;
+  private Font font;
+  private AffineTransform transform;
+  private List<GraphicsState.ClipPart> clip;
+  private RenderingHints hints;
+
+  /** A single item that draws something, or a whole symbol. */
+  private static final class Command {
+    int first;
+    int last;
+    GraphicsState state;
+    /** After the command. Differs from the state only for symbols. */
+    GraphicsState stateAfter;
+    /** In device space. */
+    Rectangle2D bounds;
+  }
+
+  private static final class Batch {
+    Batch(int position, GraphicsState state) {
+      this.position = position;
+      this.state = state;
+    }
+    int position;
+    GraphicsState state;
+    List<Command> commands = new ArrayList<>();
+    Rectangle2D bounds;
+    void add(Command command) {
+      commands.add(command);
+      bounds = bounds == null ? command.bounds : bounds.createUnion(command.bounds);
+    }
+  }
+
+  private StateBatcher(DisplayList input) {
+    this.input = input;
+    this.initial = input.initialState();
+    this.snapshot = initial;
+    this.paint = initial.paint;
+    this.background = initial.background;
+    this.composite = initial.composite;
+    this.stroke = initial.stroke;
+    this.font = initial.font;
+    this.transform = new AffineTransform(initial.transform);
+    this.clip = new ArrayList<>(initial.clip);
+    this.hints = (RenderingHints)initial.hints.clone();
+  }
+
+  /** Walk through the input, tracking the state, and tag each command with its state and bounds. */
+  private void findCommands() {
+    int item = 0;
+    while (item < input.size()) {
+      int op = input.op(item);
+      if (isDrawing(op)) {
+        Command command = new Command();
+        command.first = item;
+        command.last = op == DisplayList.SYMBOL ? item + input.symbolLength(item) : item;
+        command.state = state();
+        Rectangle2D bounds = null;
+        for(int i = item; i <= command.last; ++i) {
+          if (isDrawing(input.op(i))) {
+            Rectangle2D itemBounds = bounds(i);
+            if (itemBounds != null) {
+              bounds = bounds == null ? itemBounds : bounds.createUnion(itemBounds);
+            }
+          }
+          else {
+            changeState(i);
+          }
+        }
+        command.bounds = bounds == null ? new Rectangle2D.Double() : bounds;
+        command.stateAfter = state();
+        commands.add(command);
+        item = command.last + 1;
+      }
+      else {
+        changeState(item);
+        ++item;
+      }
+    }
+  }
+
+  private static boolean isDrawing(int op) {
+    return op <= DisplayList.SYMBOL;
+  }
+
+  /** Add each command to the last batch with the same state, if that doesn't move it in front of anything it overlaps. */
+  private void gatherIntoBatches() {
+    Map<GraphicsState, Batch> lastBatchFor = new HashMap<>();
+    for(Command command : commands) {
+      Batch batch = lastBatchFor.get(command.state);
+      if (batch == null || !canJumpTo(batch, command)) {
+        batch = new Batch(batches.size(), command.state);
+        batches.add(batch);
+        lastBatchFor.put(command.state, batch);
+      }
+      batch.add(command);
+    }
+  }
+
+  private boolean canJumpTo(Batch batch, Command command) {
+    boolean result = batches.size() - batch.position - 1 <= MAX_BATCHES_TO_JUMP;
+    for(int i = batch.position + 1; result && i < batches.size(); ++i) {
+      Batch later = batches.get(i);
+      if (later.bounds.intersects(command.bounds)) {
+        for(Command other : later.commands) {
+          if (other.bounds.intersects(command.bounds)) {
+            result = false;
+            break;
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /** Write the batches, changing the state only when needed. */
+  private DisplayList output() {
+    DisplayList result = new DisplayList();
+    result.setInitialState(initial);
+    GraphicsState current = initial;
+    for(Batch batch : batches) {
+      for(Command command : batch.commands) {
+        changeState(current, command.state, result);
+        for(int i = command.first; i <= command.last; ++i) {
+          result.copy(input, i);
+        }
+        current = command.stateAfter;
+      }
+    }
+    return result;
+  }
+
+  /** Add the items needed to go from one state to another. */
+  private void changeState(GraphicsState from, GraphicsState to, DisplayList result) {
+    AffineTransform transformNow = from.transform;
+    if (!from.clip.equals(to.clip)) {
+      if (to.clip.isEmpty()) {
+        result.add(DisplayList.NO_CLIP);
+      }
+      for(int i = 0; i < to.clip.size(); ++i) {
+        GraphicsState.ClipPart part = to.clip.get(i);
+        if (!part.transform.equals(transformNow)) {
+          setTransform(part.transform, result);
+          transformNow = part.transform;
+        }
+        result.add(i == 0 ? DisplayList.CLIP : DisplayList.CLIP_INTERSECT);
+        result.addShape(part.shape);
+      }
+    }
+    if (!to.transform.equals(transformNow)) {
+      setTransform(to.transform, result);
+    }
+    if (!Objects.equals(from.paint, to.paint)) {
+      result.add(to.paint instanceof Color ? DisplayList.COLOR : DisplayList.PAINT);
+      result.addObject(to.paint);
+    }
+    if (!Objects.equals(from.stroke, to.stroke)) {
+      result.add(DisplayList.STROKE);
+      result.addObject(to.stroke);
+    }
+    if (!Objects.equals(from.font, to.font)) {
+      result.add(DisplayList.FONT);
+      result.addObject(to.font);
+    }
+    if (!Objects.equals(from.composite, to.composite)) {
+      result.add(DisplayList.COMPOSITE);
+      result.addObject(to.composite);
+    }
+    if (!Objects.equals(from.background, to.background)) {
+      result.add(DisplayList.BACKGROUND);
+      result.addObject(to.background);
+    }
+    if (!from.hints.equals(to.hints)) {
+      for(Object key : from.hints.keySet()) {
+        if (!to.hints.containsKey(key)) {
+          result.add(DisplayList.HINT);
+          result.addObject(key);
+          result.addObject(null);
+        }
+      }
+      for(Map.Entry<Object, Object> hint : to.hints.entrySet()) {
+        if (!Objects.equals(hint.getValue(), from.hints.get(hint.getKey()))) {
+          result.add(DisplayList.HINT);
+          result.addObject(hint.getKey());
+          result.addObject(hint.getValue());
+        }
+      }
+    }
+  }
+
+  private void setTransform(AffineTransform at, DisplayList result) {
+    double[] m = new double[6];
+    at.getMatrix(m);
+    result.add(DisplayList.SET_TRANSFORM);
+    for(double value : m) {
+      result.addDouble(value);
+    }
+  }
+
+  /** The current state. A new snapshot is made only when the state has changed. */
+  private GraphicsState state() {
+    if (snapshot == null) {
+      snapshot = new GraphicsState(paint, background, composite, stroke, font, transform, clip, hints);
+    }
+    return snapshot;
+  }
+
+  /** Apply an item that changes the state, in the same way as a graphics context. */
+  private void changeState(int item) {
+    snapshot = null;
+    switch(input.op(item)) {
+      case DisplayList.CLIP:
+        clip = new ArrayList<>();
+        clip.add(new GraphicsState.ClipPart(input.shape(item), transform));
+        break;
+      case DisplayList.NO_CLIP: clip = new ArrayList<>(); break;
+      case DisplayList.CLIP_INTERSECT:
+        clip = new ArrayList<>(clip);
+        clip.add(new GraphicsState.ClipPart(input.shape(item), transform));
+        break;
+      case DisplayList.COLOR: paint = (Color)input.objectArg(item, 0); break;
+      case DisplayList.PAINT: paint = (Paint)input.objectArg(item, 0); break;
+      case DisplayList.STROKE: stroke = (Stroke)input.objectArg(item, 0); break;
+      case DisplayList.FONT: font = (Font)input.objectArg(item, 0); break;
+      case DisplayList.HINT:
+        hints = (RenderingHints)hints.clone();
+        input.applyHint(item, hints);
+        break;
+      case DisplayList.BACKGROUND: background = (Color)input.objectArg(item, 0); break;
+      case DisplayList.COMPOSITE: composite = (Composite)input.objectArg(item, 0); break;
+      case DisplayList.TRANSFORM: transform = copyOf(transform); transform.concatenate(input.matrix(item)); break;
+      case DisplayList.SET_TRANSFORM: transform = input.matrix(item); break;
+      case DisplayList.TRANSLATE: transform = copyOf(transform); transform.translate(input.doubleArg(item, 0), input.doubleArg(item, 1)); break;
+      case DisplayList.ROTATE: transform = copyOf(transform); transform.rotate(input.doubleArg(item, 0)); break;
+      case DisplayList.ROTATE_ABOUT:
+        transform = copyOf(transform);
+        transform.rotate(input.doubleArg(item, 0), input.doubleArg(item, 1), input.doubleArg(item, 2));
+        break;
+      case DisplayList.SCALE: transform = copyOf(transform); transform.scale(input.doubleArg(item, 0), input.doubleArg(item, 1)); break;
+      case DisplayList.SHEAR: transform = copyOf(transform); transform.shear(input.doubleArg(item, 0), input.doubleArg(item, 1)); break;
+      default: throw new IllegalStateException("Not a change of state: " + input.op(item));
+    }
+  }
+
+  /** The transform is shared by snapshots, so it's copied before being changed. */
+  private static AffineTransform copyOf(AffineTransform at) {
+    return new AffineTransform(at);
+  }
+
+  /** The area covered by an item, in device space. Null for a symbol marker, which draws nothing. */
+  private Rectangle2D bounds(int item) {
+    Rectangle2D result = null;
+    switch(input.op(item)) {
+      case DisplayList.DOT:
+      case DisplayList.FILLED_RECT:
+        result = new Rectangle2D.Double(input.intArg(item, 0), input.intArg(item, 1), input.intArg(item, 2), input.intArg(item, 3));
+        break;
+      case DisplayList.OVAL:
+      case DisplayList.RECT:
+        result = stroked(new Rectangle2D.Double(input.intArg(item, 0), input.intArg(item, 1), input.intArg(item, 2), input.intArg(item, 3)));
+        break;
+      case DisplayList.LINE:
+        result = stroked(new Line2D.Double(input.intArg(item, 0), input.intArg(item, 1), input.intArg(item, 2), input.intArg(item, 3)));
+        break;
+      case DisplayList.PATH: result = stroked(input.shape(item)); break;
+      case DisplayList.FILLED_PATH: result = input.shape(item).getBounds2D(); break;
+      case DisplayList.TEXT: result = textBounds(input.text(item), input.doubleArg(item, 0), input.doubleArg(item, 1)); break;
+    }
+    if (result != null) {
+      Rectangle2D box = transform.createTransformedShape(result).getBounds2D();
+      result = new Rectangle2D.Double(box.getX() - MARGIN, box.getY() - MARGIN, box.getWidth() + 2 * MARGIN, box.getHeight() + 2 * MARGIN);
+    }
+    return result;
+  }
+
+  /** The bounds of a stroked shape, in user space. Allows for mitered corners. */
+  private Rectangle2D stroked(Shape shape) {
+    Rectangle2D result = null;
+    if (stroke instanceof BasicStroke) {
+      BasicStroke basic = (BasicStroke)stroke;
+      double halfWidth = basic.getLineWidth() / 2 * Math.max(1, basic.getMiterLimit());
+      Rectangle2D box = shape.getBounds2D();
+      result = new Rectangle2D.Double(box.getX() - halfWidth, box.getY() - halfWidth, box.getWidth() + 2 * halfWidth, box.getHeight() + 2 * halfWidth);
+    }
+    else {
+      result = new Area(stroke.createStrokedShape(shape)).getBounds2D();
+    }
+    return result;
+  }
+
+  /** Generous: an extra font-size all around, for simulated bold and italic, and for glyphs that stick out. */
+  private Rectangle2D textBounds(String text, double x, double y) {
+    FontRenderContext frc = new FontRenderContext(null, false, false);
+    Rectangle2D box = font.getStringBounds(text, frc);
+    double size = font.getSize2D();
+    Rectangle2D result = new Rectangle2D.Double(box.getX() - size, box.getY() - size, box.getWidth() + 2 * size, box.getHeight() + 2 * size);
+    if (font.isTransformed()) {
+      result = font.getTransform().createTransformedShape(result).getBounds2D();
+    }
+    return new Rectangle2D.Double(x + result.getX(), y + result.getY(), result.getWidth(), result.getHeight());
+  }
+}
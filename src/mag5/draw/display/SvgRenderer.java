@@ -0,0 +1,492 @@
+package mag5.draw.display;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Paint;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.PathIterator;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ Render a {@link DisplayList} as an SVG document, written straight to a stream, with no DOM.
+
+ <P>Items are written as they're read from the list. Only the state of the graphics context is kept in memory.
+ A run of items with the same state (transform, colour, stroke, font, clip) is placed in a single group,
+ which carries the state as attributes. A new group is started only when the state changes.
+ The clip is in the coordinates of the page, so it goes on an outer group that has no transform.
+
+ <P>The symbols for stars and deep sky objects are written only once, as a <code>&lt;symbol&gt;</code>,
+ and then placed with <code>&lt;use&gt;</code>. The same rules are used as for the PDF: only simple shapes in a single
+ colour can be a symbol.
+
+ <P>Text is placed where java.awt would place it. Since the browser's font may not be the same as the one used to
+ measure the text, each piece of text is stretched to the width given by java.awt, using <code>textLength</code>.
+ As in iText's Graphics2D, composites are ignored, and any paint that isn't a colour is drawn in black.
+ Images aren't supported, since the charts don't use them.
+*/
+public final class SvgRenderer {
+
+  /**
+   @param out where the document is written. It's not closed.
+   @param width of the page, in points
+   @param height of the page, in points
+  */
+  public SvgRenderer(Writer out, double width, double height) {
+    this.out = out;
+    this.width = width;
+    this.height = height;
+    this.symbols = new HashMap<>();
+  }
+
+  /** Write a complete SVG document, holding all of the items in the given list. */
+  public void render(DisplayList list) throws IOException {
+    out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" version=\"1.1\"");
+    out.write(" width=\"" + num(width) + "pt\" height=\"" + num(height) + "pt\" viewBox=\"0 0 " + num(width) + " " + num(height) + "\">\n");
+    out.write("<style>.f{fill:currentColor;stroke:none}.s{fill:none;stroke:currentColor}</style>\n");
+    out.write("<rect width=\"100%\" height=\"100%\" fill=\"white\"/>\n");
+    startWith(list.initialState());
+    renderItems(list, 0, list.size() - 1);
+    endGroup();
+    out.write("</svg>\n");
+  }
+
+  // PRIVATE
+
+  private Writer out;
+  private double width;
+  private double height;
+  /** The key is the name of the symbol, with the paint and stroke; the value is its id. */
+  private Map<List<Object>, String> symbols;
+  private int numClips;
+
+  /* The state of java.awt, as it would be in the graphics context. */
+  private Paint paint = Color.black;
+  private Stroke stroke = new BasicStroke(1.0f);
+  private Font font = new Font("sanserif", Font.PLAIN, 12);
+  private AffineTransform transform = new AffineTransform();
+  private RenderingHints hints = new RenderingHints(null);
+  /** In the coordinates of the page. Null means no clip. */
+  private Area clip;
+  private String clipId;
+
+  /** True if a group is open, and it matches the current state. */
+  private boolean inGroup;
+  private boolean groupMatchesState;
+  private boolean groupHasClip;
+
+  private double[] coords = new double[6];
+  private StringBuilder buffer = new StringBuilder();
+  private Map<Font, Map<String, Double>> textWidths = new HashMap<>();
+
+  private void startWith(GraphicsState state) {
+    paint = state.paint;
+    stroke = state.stroke;
+    font = state.font;
+    hints = (RenderingHints)state.hints.clone();
+    for(GraphicsState.ClipPart part : state.clip) {
+      clipWith(part.transform.createTransformedShape(part.shape));
+    }
+    transform = new AffineTransform(state.transform);
+  }
+
+  private void renderItems(DisplayList list, int start, int end) throws IOException {
+    for(int item = start; item <= end; ++item) {
+      if (list.op(item) == DisplayList.SYMBOL && isReusable(item, list)) {
+        placeSymbol(item, list);
+        item = item + list.symbolLength(item);
+      }
+      else {
+        render(item, list);
+      }
+    }
+  }
+
+  private void render(int item, DisplayList list) throws IOException {
+    switch(list.op(item)) {
+      case DisplayList.DOT: oval(list.intArg(item, 0), list.intArg(item, 1), list.intArg(item, 2), list.intArg(item, 3), "f"); break;
+      case DisplayList.OVAL: oval(list.intArg(item, 0), list.intArg(item, 1), list.intArg(item, 2), list.intArg(item, 3), "s"); break;
+      case DisplayList.LINE: line(list.intArg(item, 0), list.intArg(item, 1), list.intArg(item, 2), list.intArg(item, 3)); break;
+      case DisplayList.RECT: rect(list.intArg(item, 0), list.intArg(item, 1), list.intArg(item, 2), list.intArg(item, 3), "s"); break;
+      case DisplayList.FILLED_RECT: rect(list.intArg(item, 0), list.intArg(item, 1), list.intArg(item, 2), list.intArg(item, 3), "f"); break;
+      case DisplayList.PATH: path(list.shape(item), "s"); break;
+      case DisplayList.FILLED_PATH: path(list.shape(item), "f"); break;
+      case DisplayList.TEXT: text(list.text(item), list.doubleArg(item, 0), list.doubleArg(item, 1)); break;
+      case DisplayList.SYMBOL: break; //the items that make up the symbol follow this one
+      case DisplayList.CLIP: setClip(transform.createTransformedShape(list.shape(item))); break;
+      case DisplayList.NO_CLIP: setClip(null); break;
+      case DisplayList.CLIP_INTERSECT: clipWith(transform.createTransformedShape(list.shape(item))); break;
+      case DisplayList.COLOR: setPaint((Color)list.objectArg(item, 0)); break;
+      case DisplayList.PAINT: setPaint((Paint)list.objectArg(item, 0)); break;
+      case DisplayList.STROKE: setStroke((Stroke)list.objectArg(item, 0)); break;
+      case DisplayList.FONT: setFont((Font)list.objectArg(item, 0)); break;
+      case DisplayList.HINT: list.applyHint(item, hints); break;
+      case DisplayList.BACKGROUND: break; //only used when clearing, which the charts don't do
+      case DisplayList.COMPOSITE: break; //not supported, as in iText's Graphics2D
+      case DisplayList.TRANSFORM: changeTransform(t -> t.concatenate(list.matrix(item))); break;
+      case DisplayList.SET_TRANSFORM: changeTransform(t -> t.setTransform(list.matrix(item))); break;
+      case DisplayList.TRANSLATE: changeTransform(t -> t.translate(list.doubleArg(item, 0), list.doubleArg(item, 1))); break;
+      case DisplayList.ROTATE: changeTransform(t -> t.rotate(list.doubleArg(item, 0))); break;
+      case DisplayList.ROTATE_ABOUT: changeTransform(t -> t.rotate(list.doubleArg(item, 0), list.doubleArg(item, 1), list.doubleArg(item, 2))); break;
+      case DisplayList.SCALE: changeTransform(t -> t.scale(list.doubleArg(item, 0), list.doubleArg(item, 1))); break;
+      case DisplayList.SHEAR: changeTransform(t -> t.shear(list.doubleArg(item, 0), list.doubleArg(item, 1))); break;
+      default: throw new IllegalStateException("Unknown item in display list: " + list.op(item));
+    }
+  }
+
+  // STATE
+
+  private interface TransformChange {
+    void apply(AffineTransform transform);
+  }
+
+  private void changeTransform(TransformChange change) {
+    change.apply(transform);
+    groupMatchesState = false;
+  }
+
+  private void setPaint(Paint newPaint) {
+    if (newPaint != null && !newPaint.equals(paint)) {
+      paint = newPaint;
+      groupMatchesState = false;
+    }
+  }
+
+  private void setStroke(Stroke newStroke) {
+    if (!newStroke.equals(stroke)) {
+      stroke = newStroke;
+      groupMatchesState = false;
+    }
+  }
+
+  private void setFont(Font newFont) {
+    if (newFont != null && !newFont.equals(font)) {
+      font = newFont;
+      groupMatchesState = false;
+    }
+  }
+
+  private void setClip(Shape deviceShape) {
+    clip = deviceShape == null ? null : new Area(deviceShape);
+    clipId = null;
+    groupMatchesState = false;
+  }
+
+  private void clipWith(Shape deviceShape) {
+    if (clip == null) {
+      setClip(deviceShape);
+    }
+    else {
+      clip.intersect(new Area(deviceShape));
+      clipId = null;
+      groupMatchesState = false;
+    }
+  }
+
+  private Color color() {
+    return paint instanceof Color ? (Color)paint : Color.black;
+  }
+
+  /** Make sure the open group matches the current state, before drawing something. */
+  private void useState() throws IOException {
+    if (inGroup && groupMatchesState) {
+      return;
+    }
+    endGroup();
+    if (clip != null) {
+      if (clipId == null) {
+        clipId = "c" + (++numClips);
+        out.write("<clipPath id=\"" + clipId + "\"><path d=\"" + pathData(clip) + "\"/></clipPath>\n");
+      }
+      out.write("<g clip-path=\"url(#" + clipId + ")\">\n");
+      groupHasClip = true;
+    }
+    buffer.setLength(0);
+    buffer.append("<g");
+    if (!transform.isIdentity()) {
+      transform.getMatrix(coords);
+      buffer.append(" transform=\"matrix(");
+      for(int i = 0; i < 6; ++i) {
+        buffer.append(i == 0 ? "" : " ").append(num(coords[i]));
+      }
+      buffer.append(")\"");
+    }
+    Color color = color();
+    buffer.append(" color=\"#").append(String.format("%06x", color.getRGB() & 0xFFFFFF)).append('"');
+    if (color.getAlpha() < 255) {
+      String opacity = num(color.getAlpha() / 255.0);
+      buffer.append(" fill-opacity=\"").append(opacity).append("\" stroke-opacity=\"").append(opacity).append('"');
+    }
+    if (stroke instanceof BasicStroke) {
+      strokeAttributes((BasicStroke)stroke);
+    }
+    buffer.append(" font-family=\"").append(fontFamily(font)).append('"');
+    buffer.append(" font-size=\"").append(num(font.getSize2D())).append('"');
+    if (font.isBold()) {
+      buffer.append(" font-weight=\"bold\"");
+    }
+    if (font.isItalic()) {
+      buffer.append(" font-style=\"italic\"");
+    }
+    buffer.append(">\n");
+    out.append(buffer);
+    inGroup = true;
+    groupMatchesState = true;
+  }
+
+  /** SVG's defaults are the same as java.awt's, except for the cap and the miter limit. */
+  private void strokeAttributes(BasicStroke basic) {
+    buffer.append(" stroke-width=\"").append(num(basic.getLineWidth())).append('"');
+    if (basic.getEndCap() == BasicStroke.CAP_ROUND) {
+      buffer.append(" stroke-linecap=\"round\"");
+    }
+    else if (basic.getEndCap() == BasicStroke.CAP_SQUARE) {
+      buffer.append(" stroke-linecap=\"square\"");
+    }
+    if (basic.getLineJoin() == BasicStroke.JOIN_ROUND) {
+      buffer.append(" stroke-linejoin=\"round\"");
+    }
+    else if (basic.getLineJoin() == BasicStroke.JOIN_BEVEL) {
+      buffer.append(" stroke-linejoin=\"bevel\"");
+    }
+    else if (basic.getMiterLimit() != 4.0f) {
+      buffer.append(" stroke-miterlimit=\"").append(num(Math.max(1.0, basic.getMiterLimit()))).append('"');
+    }
+    float[] dash = basic.getDashArray();
+    if (dash != null && dash.length > 0) {
+      buffer.append(" stroke-dasharray=\"");
+      for(int i = 0; i < dash.length; ++i) {
+        buffer.append(i == 0 ? "" : " ").append(num(dash[i]));
+      }
+      buffer.append('"');
+      if (basic.getDashPhase() != 0) {
+        buffer.append(" stroke-dashoffset=\"").append(num(basic.getDashPhase())).append('"');
+      }
+    }
+  }
+
+  private void endGroup() throws IOException {
+    if (inGroup) {
+      out.write("</g>\n");
+      inGroup = false;
+    }
+    if (groupHasClip) {
+      out.write("</g>\n");
+      groupHasClip = false;
+    }
+  }
+
+  /** The logical fonts of java.awt are mapped to the generic families of CSS. */
+  private static String fontFamily(Font font) {
+    String name = font.getName();
+    String result = null;
+    if (name.equalsIgnoreCase(Font.SERIF)) {
+      result = "serif";
+    }
+    else if (name.equalsIgnoreCase(Font.SANS_SERIF) || name.equalsIgnoreCase("sanserif") || name.equalsIgnoreCase(Font.DIALOG) || name.equalsIgnoreCase(Font.DIALOG_INPUT)) {
+      result = "sans-serif";
+    }
+    else if (name.equalsIgnoreCase(Font.MONOSPACED)) {
+      result = "monospace";
+    }
+    else {
+      result = "'" + escape(name) + "', serif";
+    }
+    return result;
+  }
+
+  // ITEMS
+
+  private void oval(int x, int y, int w, int h, String kind) throws IOException {
+    useState();
+    double rx = w / 2.0;
+    double ry = h / 2.0;
+    if (w == h) {
+      out.write("<circle class=\"" + kind + "\" cx=\"" + num(x + rx) + "\" cy=\"" + num(y + ry) + "\" r=\"" + num(rx) + "\"/>\n");
+    }
+    else {
+      out.write("<ellipse class=\"" + kind + "\" cx=\"" + num(x + rx) + "\" cy=\"" + num(y + ry) + "\" rx=\"" + num(rx) + "\" ry=\"" + num(ry) + "\"/>\n");
+    }
+  }
+
+  private void line(int x1, int y1, int x2, int y2) throws IOException {
+    useState();
+    out.write("<line class=\"s\" x1=\"" + x1 + "\" y1=\"" + y1 + "\" x2=\"" + x2 + "\" y2=\"" + y2 + "\"/>\n");
+  }
+
+  private void rect(int x, int y, int w, int h, String kind) throws IOException {
+    useState();
+    out.write("<rect class=\"" + kind + "\" x=\"" + x + "\" y=\"" + y + "\" width=\"" + w + "\" height=\"" + h + "\"/>\n");
+  }
+
+  private void path(Shape shape, String kind) throws IOException {
+    useState();
+    PathIterator iter = shape.getPathIterator(null);
+    boolean evenOdd = iter.getWindingRule() == PathIterator.WIND_EVEN_ODD && kind.equals("f");
+    out.write("<path class=\"" + kind + "\"" + (evenOdd ? " fill-rule=\"evenodd\"" : "") + " d=\"");
+    out.append(pathData(shape));
+    out.write("\"/>\n");
+  }
+
+  private CharSequence pathData(Shape shape) {
+    StringBuilder result = new StringBuilder();
+    PathIterator iter = shape.getPathIterator(null);
+    while (!iter.isDone()) {
+      int type = iter.currentSegment(coords);
+      switch(type) {
+        case PathIterator.SEG_MOVETO: result.append('M'); points(result, 1); break;
+        case PathIterator.SEG_LINETO: result.append('L'); points(result, 1); break;
+        case PathIterator.SEG_QUADTO: result.append('Q'); points(result, 2); break;
+        case PathIterator.SEG_CUBICTO: result.append('C'); points(result, 3); break;
+        case PathIterator.SEG_CLOSE: result.append('Z'); break;
+        default: throw new IllegalStateException("Unknown path segment: " + type);
+      }
+      iter.next();
+    }
+    return result;
+  }
+
+  private void points(StringBuilder result, int numPoints) {
+    for(int i = 0; i < 2 * numPoints; ++i) {
+      result.append(i == 0 ? "" : " ").append(num(coords[i]));
+    }
+  }
+
+  /** A transformed font gets its own transform, relative to the baseline. */
+  private void text(String text, double x, double y) throws IOException {
+    if (text.length() == 0) {
+      return;
+    }
+    useState();
+    String length = num(textWidth(text));
+    if (font.isTransformed()) {
+      font.getTransform().getMatrix(coords);
+      out.write("<text class=\"f\" transform=\"translate(" + num(x) + " " + num(y) + ") matrix(" + num(coords[0]) + " " + num(coords[1]) + " " +
+        num(coords[2]) + " " + num(coords[3]) + " " + num(coords[4]) + " " + num(coords[5]) + ")\"");
+    }
+    else {
+      out.write("<text class=\"f\" x=\"" + num(x) + "\" y=\"" + num(y) + "\"");
+    }
+    out.write(" textLength=\"" + length + "\" lengthAdjust=\"spacingAndGlyphs\">" + escape(text) + "</text>\n");
+  }
+
+  /** Measured in the same way as {@link RecordingGraphics}. The same text appears many times. */
+  private double textWidth(String text) {
+    Map<String, Double> widths = textWidths.computeIfAbsent(font, f -> new HashMap<>());
+    Double result = widths.get(text);
+    if (result == null) {
+      boolean antialias = RenderingHints.VALUE_TEXT_ANTIALIAS_ON.equals(hints.get(RenderingHints.KEY_TEXT_ANTIALIASING));
+      boolean fractionalMetrics = RenderingHints.VALUE_FRACTIONALMETRICS_ON.equals(hints.get(RenderingHints.KEY_FRACTIONALMETRICS));
+      FontRenderContext frc = new FontRenderContext(new AffineTransform(), antialias, fractionalMetrics);
+      result = font.getStringBounds(text, frc).getWidth();
+      widths.put(text, result);
+    }
+    return result;
+  }
+
+  // SYMBOLS
+
+  /** Only simple shapes in a single colour, with no text, clipping, or transforms. */
+  private boolean isReusable(int symbol, DisplayList list) {
+    boolean result = paint instanceof Color;
+    int end = symbol + list.symbolLength(symbol);
+    for(int item = symbol + 1; result && item <= end; ++item) {
+      int op = list.op(item);
+      result = isShape(op) || op == DisplayList.COLOR || op == DisplayList.STROKE;
+    }
+    return result;
+  }
+
+  private static boolean isShape(int op) {
+    return op == DisplayList.DOT || op == DisplayList.OVAL || op == DisplayList.LINE || op == DisplayList.RECT
+      || op == DisplayList.FILLED_RECT || op == DisplayList.PATH || op == DisplayList.FILLED_PATH;
+  }
+
+  /**
+   Refer to the symbol, writing it the first time it's seen.
+   The symbol is in the coordinates of the current group, relative to the symbol's position.
+   Afterwards, the state is changed in the same way as the symbol changes it (the colour and the stroke).
+  */
+  private void placeSymbol(int symbol, DisplayList list) throws IOException {
+    int x = list.intArg(symbol, 2);
+    int y = list.intArg(symbol, 3);
+    int end = symbol + list.symbolLength(symbol);
+    useState();
+    List<Object> key = Arrays.asList(list.objectArg(symbol, 0), paint, stroke);
+    String id = symbols.get(key);
+    if (id == null) {
+      id = "s" + (symbols.size() + 1);
+      symbols.put(key, id);
+      out.write("<symbol id=\"" + id + "\" overflow=\"visible\">\n");
+      SvgRenderer renderer = new SvgRenderer(out, width, height);
+      renderer.paint = paint;
+      renderer.stroke = stroke;
+      renderer.font = font;
+      renderer.transform = AffineTransform.getTranslateInstance(-x, -y);
+      renderer.renderItems(list, symbol + 1, end);
+      renderer.endGroup();
+      out.write("</symbol>\n");
+    }
+    out.write("<use xlink:href=\"#" + id + "\" x=\"" + x + "\" y=\"" + y + "\"/>\n");
+    for(int item = symbol + 1; item <= end; ++item) {
+      if (!isShape(list.op(item))) {
+        render(item, list);
+      }
+    }
+  }
+
+  // TEXT
+
+  /** Up to 3 decimals, with no trailing zeros. Much faster than String.format. */
+  private static String num(double value) {
+    long thousandths = Math.round(value * 1000);
+    if (thousandths % 1000 == 0) {
+      return String.valueOf(thousandths / 1000);
+    }
+    StringBuilder result = new StringBuilder();
+    if (thousandths < 0) {
+      result.append('-');
+      thousandths = -thousandths;
+    }
+    result.append(thousandths / 1000).append('.');
+    long fraction = thousandths % 1000;
+    if (fraction < 100) {
+      result.append('0');
+    }
+    if (fraction < 10) {
+      result.append('0');
+    }
+    while (fraction % 10 == 0) {
+      fraction = fraction / 10;
+    }
+    result.append(fraction);
+    return result.toString();
+  }
+
+  private static String escape(String text) {
+    StringBuilder result = new StringBuilder();
+    for(int i = 0; i < text.length(); ++i) {
+      char c = text.charAt(i);
+      switch(c) {
+        case '<': result.append("&lt;"); break;
+        case '>': result.append("&gt;"); break;
+        case '&': result.append("&amp;"); break;
+        case '"': result.append("&quot;"); break;
+        case '\'': result.append("&apos;"); break;
+        default: result.append(c);
+      }
+    }
+    return result.toString();
+  }
+}
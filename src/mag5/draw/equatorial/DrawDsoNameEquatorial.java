@@ -4,13 +4,13 @@ import java.awt.Graphics2D;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 import mag5.deepskyobject.DeepSkyObject;
 import mag5.deepskyobject.DsoType;
 import mag5.draw.ChartUtil;
 import mag5.draw.DrawDeepSkyObject;
 import mag5.draw.DrawPosition;
+import mag5.draw.ProjectedScene;
 import mag5.draw.Projection;
 import mag5.util.Maths;
 
@@ -25,11 +25,11 @@ import mag5.util.Maths;
 */
 public class DrawDsoNameEquatorial {
   
-  public DrawDsoNameEquatorial(List<DeepSkyObject> dsos, Map<String, Point2D.Double> dsoPoints, ChartUtil chartUtil, Projection projection, Graphics2D g){
+  public DrawDsoNameEquatorial(List<DeepSkyObject> dsos, ProjectedScene scene, ChartUtil chartUtil, Graphics2D g){
     this.dsos = dsos;
-    this.dsoPoints = dsoPoints;
+    this.scene = scene;
     this.chartUtil = chartUtil;
-    this.projection = projection;
+    this.projection = scene.projection();
     this.g = g;
   }
 
@@ -46,7 +46,7 @@ public class DrawDsoNameEquatorial {
   
   //PRIVATE 
   private List<DeepSkyObject> dsos;
-  private Map<String, Point2D.Double> dsoPoints;
+  private ProjectedScene scene;
   private Projection projection;
   private Graphics2D g;
   private ChartUtil chartUtil;
@@ -81,7 +81,7 @@ public class DrawDsoNameEquatorial {
   
   /** Simple delta-y with respect to the dso's exact position. */
   private void drawNameAbove(DeepSkyObject dso, String name) {
-    Point2D.Double where = dsoPoints.get(dso.getDesig());
+    Point2D.Double where = scene.dsoPoint(dso.getDesig());
     double tweak = tweakForNameAbove(dso, name);
     int sign = -1;
     Point2D.Double pName = chartUtil.centerTextOn(where.x, where.y + sign * tweak, name, g);
@@ -98,7 +98,7 @@ public class DrawDsoNameEquatorial {
   }
 
   private void drawNameBelow(DeepSkyObject dso, String name) {
-    Point2D.Double where = dsoPoints.get(dso.getDesig());
+    Point2D.Double where = scene.dsoPoint(dso.getDesig());
     double tweak = tweakForNameBelow(dso, name);
     int sign = +1;
     Point2D.Double pName = chartUtil.centerTextOn(where.x, where.y + sign * tweak, name, g);
@@ -115,14 +115,14 @@ public class DrawDsoNameEquatorial {
   }
   
   private void drawNameOnRight(DeepSkyObject dso, String name) {
-    Point2D.Double where = dsoPoints.get(dso.getDesig());
+    Point2D.Double where = scene.dsoPoint(dso.getDesig());
     double tweak = tweakForNameOnRight(dso);
     Point2D.Double pName = chartUtil.centerTextVerticallyOn(where.x + tweak, where.y, name, g);
     g.drawString(name, Maths.asFloat(pName.x), Maths.asFloat(pName.y)); 
   }
   
   private void drawNameOnLeft(DeepSkyObject dso, String name) {
-    Point2D.Double where = dsoPoints.get(dso.getDesig());
+    Point2D.Double where = scene.dsoPoint(dso.getDesig());
     double tweak = tweakForNameOnLeft(dso, name);
     Point2D.Double pName = chartUtil.centerTextOn(where.x - tweak, where.y, name, g);
     g.drawString(name, Maths.asFloat(pName.x), Maths.asFloat(pName.y)); 
@@ -9,15 +9,18 @@ import java.util.ArrayList;
 import java.util.List;
 
 import mag5.draw.ChartUtil;
+import mag5.draw.PointList;
+import mag5.draw.ProjectedScene;
 import mag5.draw.Projection;
 import mag5.util.Maths;
 
 /** Render the great circle representing the ecliptic. */
 class DrawEcliptic {
 
-  DrawEcliptic(ChartUtil chartUtil, Projection projection, Graphics2D g){
+  DrawEcliptic(ChartUtil chartUtil, ProjectedScene scene, Graphics2D g){
     this.chartUtil = chartUtil;
-    this.projection = projection;
+    this.scene = scene;
+    this.projection = scene.projection();
     this.g = g;
   }
   
@@ -31,6 +34,7 @@ class DrawEcliptic {
   }
 
   // PRIVATE 
+  private ProjectedScene scene;
   private Projection projection;
   private Graphics2D g;
   private ChartUtil chartUtil;
@@ -41,17 +45,16 @@ class DrawEcliptic {
   /** Polyline for a large chunk of the ecliptic, with clipping on. */
   private void polylineForEcliptic() {
     Range rangeLambda = rangeLambda();
-    GeneralPath path = new GeneralPath();
     double lambda = rangeLambda.start;
-    Point2D.Double point = onEcliptic(lambda);
-    path.moveTo(point.getX(), point.getY());
+    PointList points = new PointList();
+    onEcliptic(lambda, points);
     //move in small steps around the whole ecliptic, increasing ecliptic longitude
     double Δ = Maths.degToRads(ChartUtil.DELTA_THETA_DEGS); 
     while (lambda <= rangeLambda.end) {
       lambda = lambda + Δ;
-      point = onEcliptic(lambda);
-      path.lineTo(point.getX(), point.getY());
+      onEcliptic(lambda, points);
     }
+    GeneralPath path = points.projectedPath(scene);
     
     chartUtil.clippingOn(projection, g);
     //dashed line https://docs.oracle.com/javase/tutorial/2d/geometry/strokeandfill.html
@@ -68,12 +71,11 @@ class DrawEcliptic {
    Point on the ecliptic, for the given ecliptic longitude. 
    Convert to right ascension and declination, then project to x-y coords. 
   */ 
-  private Point2D.Double onEcliptic(double lambda) {
+  private void onEcliptic(double lambda, PointList points) {
     double ra = Math.atan2(Math.cos(OBLIQUITY) * Math.sin(lambda) , Math.cos(lambda)); 
     ra = Maths.in2pi(ra);
     double dec = Math.asin(Math.sin(OBLIQUITY) * Math.sin(lambda)); //-90..+90
-    Point2D.Double result = projection.project(dec, ra);
-    return result;
+    points.add(dec, ra);
   }
   
   /**
@@ -89,15 +91,22 @@ class DrawEcliptic {
       Double solarLongRads = Maths.degToRads(solarLong);
       PosEquatorial start = tickPos(solarLongRads, SMALL_BETA);
       PosEquatorial end = tickPos(solarLongRads, -SMALL_BETA);
-      Point2D.Double startPoint = projection.project(start.delta, start.alpha);
-      Point2D.Double endPoint = projection.project(end.delta, end.alpha);
+      Point2D.Double startPoint = scene.project(start.delta, start.alpha);
+      Point2D.Double endPoint = scene.project(end.delta, end.alpha);
       //draw a line between the points; use paths to avoid int's
       GeneralPath path = new GeneralPath();
       path.moveTo(startPoint.getX(), startPoint.getY());
       path.lineTo(endPoint.getX(), endPoint.getY());
-      chartUtil.clippingOn(projection, g);
-      g.draw(path);
-      chartUtil.clippingOff(g);
+      if (scene.isNearTheChart(path)) {
+        boolean isClipped = !scene.isInsideTheChart(path);
+        if (isClipped) {
+          chartUtil.clippingOn(projection, g);
+        }
+        g.draw(path);
+        if (isClipped) {
+          chartUtil.clippingOff(g);
+        }
+      }
     }
   }
   
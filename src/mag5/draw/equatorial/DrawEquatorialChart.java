@@ -4,32 +4,25 @@ import java.awt.Font;
 import java.awt.Graphics2D;
 import java.util.List;
 
-import mag5.book.PdfConfig;
-import mag5.chartlabels.ChartLabel;
-import mag5.constellation.ConstellationLines;
-import mag5.deepskyobject.DeepSkyObject;
 import mag5.draw.Bounds;
-import mag5.draw.ChartUtil;
 import mag5.draw.DrawChart;
 import mag5.draw.Hemisphere;
 import mag5.draw.Projection;
+import mag5.draw.RenderContext;
 import mag5.star.Star;
-import mag5.translate.Label;
 import mag5.util.Maths;
 
 /** Draw an equatorial star chart. */
 public class DrawEquatorialChart extends DrawChart {
   
-  public DrawEquatorialChart(
-      Integer mapNum, Bounds bounds, List<Star> stars, ConstellationLines constellationLines, 
-      List<DeepSkyObject> dsos, Label labels, List<ChartLabel> chartLabels, Graphics2D g) {
-      super(mapNum, bounds, stars, constellationLines, dsos, labels, chartLabels, projection(bounds), g);
+  public DrawEquatorialChart(Integer mapNum, Bounds bounds, List<Star> stars, RenderContext context, Graphics2D g) {
+      super(mapNum, bounds, stars, context, projection(bounds, context), g);
   }
 
   /** See {@link DrawEquatorialRightAscensionLines}. */
   @Override protected void drawRightAscensionGridLines() {
     DrawEquatorialRightAscensionLines raLines = new DrawEquatorialRightAscensionLines(
-      chartUtil.getWidth(), chartUtil.getHeight(), projection, g
+      chartUtil.getWidth(), chartUtil.getHeight(), scene, g
     );
     raLines.draw();
   }
@@ -37,7 +30,7 @@ public class DrawEquatorialChart extends DrawChart {
   /** See {@link DrawEquatorialDeclinationLines}. */
   @Override protected void drawDeclinationGridLines() {
     DrawEquatorialDeclinationLines decLines = new DrawEquatorialDeclinationLines(
-      chartUtil.getWidth(), chartUtil.getHeight(), projection, g
+      chartUtil.getWidth(), chartUtil.getHeight(), scene, g
     );
     decLines.draw();
   }
@@ -45,7 +38,7 @@ public class DrawEquatorialChart extends DrawChart {
   /** See {@link DrawEquatorialDateScale}. */
   @Override protected void drawDateScale() {
     DrawEquatorialDateScale dateScale = new DrawEquatorialDateScale(
-      mapNum, labels, chartUtil, projection, g
+      mapNum, labels, context.LANG, chartUtil, scene, g
     );
     dateScale.draw();
   }
@@ -56,7 +49,7 @@ public class DrawEquatorialChart extends DrawChart {
 
   /** Draw the ecliptic, and East-West labels. */
   @Override protected void drawExtras() {
-    DrawEcliptic ecliptic = new DrawEcliptic(chartUtil, projection, g);
+    DrawEcliptic ecliptic = new DrawEcliptic(chartUtil, scene, g);
     ecliptic.draw();
     drawEastWestLabels();
   }
@@ -69,8 +62,8 @@ public class DrawEquatorialChart extends DrawChart {
   private static boolean RIGHT = false;
   
   /** Swap the width and the height, since landscape.  */
-  private static Projection projection(Bounds bounds) {
-    return new ProjectEquatorial(bounds, PdfConfig.HEIGHT, PdfConfig.WIDTH);
+  private static Projection projection(Bounds bounds, RenderContext context) {
+    return new ProjectEquatorial(bounds, context.HEIGHT, context.WIDTH);
   }
   
   private void drawEastWestLabels() {
@@ -79,7 +72,7 @@ public class DrawEquatorialChart extends DrawChart {
     int heightPct = 0;
     int TOP = 27;
     int BOTTOM = 74;
-    if (Hemisphere.NORTH == ChartUtil.HEMISPHERE) {
+    if (Hemisphere.NORTH == projection.getBounds().hemisphere) {
       heightPct = projection.getBounds().isNorth() ? TOP: BOTTOM;
     }
     else {
@@ -103,12 +96,12 @@ public class DrawEquatorialChart extends DrawChart {
   */
   private String getText(boolean isLeftSide) {
     String key = "";
-    if (Hemisphere.NORTH == ChartUtil.HEMISPHERE) {
+    if (Hemisphere.NORTH == projection.getBounds().hemisphere) {
       key = isLeftSide ? EAST : WEST;
     }
     else {
       key = isLeftSide ? WEST : EAST;
     }
-    return  labels.text(key, ChartUtil.lang());
+    return  labels.text(key, context.LANG);
   }
 }
\ No newline at end of file
@@ -12,23 +12,27 @@ import mag5.book.Clipping;
 import mag5.draw.Bounds;
 import mag5.draw.ChartUtil;
 import mag5.draw.Hemisphere;
+import mag5.draw.ProjectedScene;
 import mag5.draw.Projection;
 import mag5.star.gmst.GmstFiveDay;
 import mag5.star.gmst.GmstMonth;
 import mag5.star.gmst.GreenwichMeanSiderealTime;
 import mag5.translate.Label;
+import mag5.translate.Lang;
 import mag5.util.Maths;
 
 /** The date-scale that appears at the top of the top-chart. */
 class DrawEquatorialDateScale {
 
-  DrawEquatorialDateScale(Integer mapNum, Label labels, ChartUtil chartUtil, Projection projection, Graphics2D g){
+  DrawEquatorialDateScale(Integer mapNum, Label labels, Lang lang, ChartUtil chartUtil, ProjectedScene scene, Graphics2D g){
     this.mapNum = mapNum;
     this.labels = labels;
+    this.lang = lang;
     this.chartUtil = chartUtil;
-    this.projection = projection;
+    this.scene = scene;
+    this.projection = scene.projection();
     this.g = g;
-    this.raLines = new DrawEquatorialRightAscensionLines(chartUtil.getWidth(), chartUtil.getHeight(), projection, g);
+    this.raLines = new DrawEquatorialRightAscensionLines(chartUtil.getWidth(), chartUtil.getHeight(), scene, g);
   }
 
   /**
@@ -45,6 +49,8 @@ class DrawEquatorialDateScale {
   // PRIVATE
   private Integer mapNum;
   private Label labels;
+  private Lang lang;
+  private ProjectedScene scene;
   private Projection projection;
   private Graphics2D g;
   private ChartUtil chartUtil;
@@ -56,7 +62,7 @@ class DrawEquatorialDateScale {
     Double maxRa = Maths.hoursToRads(bounds.maxRaHours);
 
     Double furthestFromEq = bounds.decFurthestFromEq();
-    int sign = Hemisphere.NORTH == ChartUtil.HEMISPHERE ? +1 : -1; 
+    int sign = Hemisphere.NORTH == projection.getBounds().hemisphere ? +1 : -1; 
     Double decDays = Maths.degToRads(furthestFromEq + sign * ChartUtil.DELTA_DEC_SCALE_DAY_TO_RA);
     Double decMonths = Maths.degToRads(furthestFromEq + sign * ChartUtil.DELTA_DEC_SCALE_MONTH_TO_RA);
     Double decMonthsTop = Maths.degToRads(furthestFromEq + sign * ChartUtil.DELTA_DEC_TO_MONTH_SCALE_TOP);
@@ -77,11 +83,11 @@ class DrawEquatorialDateScale {
       if (Maths.inRangeRa(minRa, maxRa, gmstFiveDay.getRa())){
         hourLineArc(gmstFiveDay.getRa(), decDays, decMonths);
         if (gmstFiveDay.getDay() != 31) { //don't show the 31st!
-          Point2D.Double point = projection.project(decDays, gmstFiveDay.getRa());
+          Point2D.Double point = scene.project(decDays, gmstFiveDay.getRa());
           double width = chartUtil.getWidth();
           //there are HACKY tweaks here to get the placement right
           double dx = 0.0;
-          if (Hemisphere.NORTH == ChartUtil.HEMISPHERE) {
+          if (Hemisphere.NORTH == projection.getBounds().hemisphere) {
             //to the right of the mark
             dx = 5.0*((width*1.0 - point.x)/width); //1.0 added to avoid integer division!
           }
@@ -109,7 +115,7 @@ class DrawEquatorialDateScale {
       if (Maths.inRangeRa(minRa, maxRa, monthLimit.getRa())){
         hourLineArc(monthLimit.getRa(), decMonths, decMonthsTop); //end of month
       }
-      String shortMonthName = labels.shortMonthName(ChartUtil.lang(), Month.of(monthLimit.getMonth()));
+      String shortMonthName = labels.shortMonthName(lang, Month.of(monthLimit.getMonth()));
       if (Maths.inRangeRa(minRa, maxRa, monthLimit.getRaMidMonth())) {
         drawShortMonthName(shortMonthName, decMonths, monthLimit.getRaMidMonth());
       }
@@ -139,7 +145,7 @@ class DrawEquatorialDateScale {
     //the text alignment depends on the font size, so that needs to be set early
     Font biggerFont = chartUtil.resizedFont(1.25f, g);
     g.setFont(biggerFont);
-    Point2D.Double point = projection.project(decMonths, ra);
+    Point2D.Double point = scene.project(decMonths, ra);
     Point2D.Double centered = chartUtil.centerTextOn(point.x, point.y, shortMonthName, g);
     g.drawString(shortMonthName, Maths.round(centered.x), Maths.round(centered.y - 7));
     g.setFont(originalFont);
@@ -147,8 +153,8 @@ class DrawEquatorialDateScale {
   
   private void lineAcross(Double dec) {
     //the endpoints go a bit beyond the regular limits in ra
-    Point2D.Double l = projection.project(dec, monthScaleLeftEdgeRa());
-    Point2D.Double r = projection.project(dec, monthScaleRightEdgeRa());
+    Point2D.Double l = scene.project(dec, monthScaleLeftEdgeRa());
+    Point2D.Double r = scene.project(dec, monthScaleRightEdgeRa());
     GeneralPath path = new GeneralPath();
     path.moveTo(l.getX(), l.getY());
     path.lineTo(r.getX(), r.getY());
@@ -186,7 +192,7 @@ class DrawEquatorialDateScale {
   
   /** In the southern hem, we need to swap min and max here.  */
   private void hourLineArc(double ra, double decMin, double decMax) {
-    if (Hemisphere.NORTH == ChartUtil.HEMISPHERE) {
+    if (Hemisphere.NORTH == projection.getBounds().hemisphere) {
       raLines.hourLineArc(ra, decMin, decMax, Clipping.OFF, g);
     }
     else {
@@ -7,14 +7,16 @@ import java.awt.geom.Point2D;
 import mag5.draw.Bounds;
 import mag5.draw.ChartUtil;
 import mag5.draw.Hemisphere;
+import mag5.draw.ProjectedScene;
 import mag5.draw.Projection;
 import mag5.util.Maths;
 
 /** The declination lines for an equatorial chart. */
 class DrawEquatorialDeclinationLines {
 
-  DrawEquatorialDeclinationLines(double width, double height, Projection projection, Graphics2D g) {
-    this.projection = projection;
+  DrawEquatorialDeclinationLines(double width, double height, ProjectedScene scene, Graphics2D g) {
+    this.scene = scene;
+    this.projection = scene.projection();
     this.g = g;
     this.chartUtil = new ChartUtil(width, height);
   }
@@ -25,6 +27,7 @@ class DrawEquatorialDeclinationLines {
   }
   
   // PRIVATE
+  private ProjectedScene scene;
   private Projection projection;
   private Graphics2D g;
   private ChartUtil chartUtil;
@@ -55,7 +58,7 @@ class DrawEquatorialDeclinationLines {
     double dec = Maths.degToRads(bounds.minDecDeg); //start with min
     double decLimit = Math.abs(Math.round(Maths.degToRads(bounds.decFurthestFromEq()))); // 60
     while (dec <= maxDec + ChartUtil.ε)  {
-      Point2D.Double point = projection.project(dec, raMax);
+      Point2D.Double point = scene.project(dec, raMax);
       if (point.x < chartUtil.borderWidth()) {
         //COERCE: it's off the edge, too far to the left; push it over to the left-border
         point.x = chartUtil.borderWidth();
@@ -112,7 +115,7 @@ class DrawEquatorialDeclinationLines {
       double textWidth = chartUtil.textWidth(text + "a", g); //the extra letter 'a' is padding
       double multiplier =  0.0;
       //silly positional tweaks
-      if (Hemisphere.NORTH == ChartUtil.HEMISPHERE) {
+      if (Hemisphere.NORTH == projection.getBounds().hemisphere) {
         multiplier =  x < chartWidth/2.0 ? -2.0 : +0.3;
       }
       else {
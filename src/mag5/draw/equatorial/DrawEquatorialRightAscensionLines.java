@@ -8,14 +8,17 @@ import mag5.book.Clipping;
 import mag5.draw.Bounds;
 import mag5.draw.ChartUtil;
 import mag5.draw.Hemisphere;
+import mag5.draw.PointList;
+import mag5.draw.ProjectedScene;
 import mag5.draw.Projection;
 import mag5.util.Maths;
 
 /** The right ascension grid lines for an equatorial chart. */
 class DrawEquatorialRightAscensionLines {
 
-  DrawEquatorialRightAscensionLines(double width, double height, Projection projection, Graphics2D g) {
-    this.projection = projection;
+  DrawEquatorialRightAscensionLines(double width, double height, ProjectedScene scene, Graphics2D g) {
+    this.scene = scene;
+    this.projection = scene.projection();
     this.g = g;
     this.chartUtil = new ChartUtil(width, height);
   }
@@ -32,27 +35,31 @@ class DrawEquatorialRightAscensionLines {
   void hourLineArc(double ra, double minDec, double maxDec,  Clipping useClipping, Graphics2D g) {
     //build a big polyline, then draw it at the end
     double dec = minDec;
-    GeneralPath path = new GeneralPath();
-    Point2D.Double start = projection.project(dec, ra);
-    path.moveTo(start.getX(), start.getY());
+    PointList points = new PointList();
+    points.add(dec, ra);
     double Δ = Maths.degToRads(ChartUtil.DELTA_THETA_DEGS);
     //while (dec <= maxDec + ε) {
     while (dec < (maxDec - Maths.degToRads(0.10))) { //STUPID HACK: was drawing too high in dec
       dec = dec + Δ;
-      Point2D.Double point = projection.project(dec, ra);
-      path.lineTo(point.getX(), point.getY());
+      points.add(dec, ra);
     }
-    if (useClipping == Clipping.ON) {
+    GeneralPath path = points.projectedPath(scene);
+    if (useClipping == Clipping.ON && !scene.isNearTheChart(path)) {
+      return; //clipped away entirely
+    }
+    boolean isClipped = useClipping == Clipping.ON && !scene.isInsideTheChart(path); 
+    if (isClipped) {
       chartUtil.clippingOn(projection, g);
     }
     g.draw(path);
-    if (useClipping == Clipping.ON) {
+    if (isClipped) {
       chartUtil.clippingOff(g);
     }
   }
   
   // PRIVATE 
   
+  private ProjectedScene scene;
   private Projection projection;
   private Graphics2D g;
   private ChartUtil chartUtil;
@@ -98,7 +105,7 @@ class DrawEquatorialRightAscensionLines {
     Long hours = Math.round(Maths.radsToHours(ra)) % 24;
     String text = hours + "h";
     //get the x-level from the ra and the extreme dec
-    Point2D.Double point = projection.project(decForHour, ra);
+    Point2D.Double point = scene.project(decForHour, ra);
     //fudge the y-level from settings
     double bwds = chartUtil.borderWidthDateScale();
     double bw = chartUtil.borderWidth();
@@ -107,7 +114,7 @@ class DrawEquatorialRightAscensionLines {
     //int top = Maths.round(bw + bwds - 0.25*bw);
     int bottom = Maths.round(chartUtil.getHeight() - (bw + bwa) + 0.25*bw);
     int y = 0;
-    if (Hemisphere.NORTH == ChartUtil.HEMISPHERE) {
+    if (Hemisphere.NORTH == projection.getBounds().hemisphere) {
       y = projection.getBounds().isNorth() ? top : bottom;
     }
     else {
@@ -143,21 +150,24 @@ class DrawEquatorialRightAscensionLines {
     double tickSize = Maths.degToRads(ChartUtil.EQUATORIAL_CHART_TICK_SIZE_DEC);
     double maxDec = declination + tickSize;
     double dec = declination - tickSize;
-    GeneralPath path = new GeneralPath();
-    Point2D.Double start = projection.project(dec, ra);
-    path.moveTo(start.getX(), start.getY());
+    PointList points = new PointList();
+    points.add(dec, ra);
     double Δ = Maths.degToRads(ChartUtil.DELTA_THETA_DEGS);
     //while (dec <= maxDec + ε) {
     while (dec < maxDec) {
       dec = dec + Δ;
-      Point2D.Double point = projection.project(dec, ra);
-      path.lineTo(point.getX(), point.getY());
+      points.add(dec, ra);
+    }
+    GeneralPath path = points.projectedPath(scene);
+    if (Clipping.ON == useClipping && !scene.isNearTheChart(path)) {
+      return; //clipped away entirely
     }
-    if (Clipping.ON == useClipping) {
+    boolean isClipped = Clipping.ON == useClipping && !scene.isInsideTheChart(path); 
+    if (isClipped) {
       chartUtil.clippingOn(projection, g);
     }
     chartUtil.drawGrey(g, a -> a.draw(path));
-    if (Clipping.ON == useClipping) {
+    if (isClipped) {
       chartUtil.clippingOff(g);
     }
   }
@@ -5,12 +5,12 @@ import java.awt.Graphics2D;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 import mag5.draw.ChartUtil;
 import mag5.draw.CompassPoint;
 import mag5.draw.DrawPosition;
 import mag5.draw.DrawStars;
+import mag5.draw.ProjectedScene;
 import mag5.draw.Projection;
 import mag5.star.Star;
 import mag5.util.Maths;
@@ -32,11 +32,11 @@ import mag5.util.Maths;
 */
 public class DrawStarNamesEquatorial {
  
-  public DrawStarNamesEquatorial(List<Star> stars, Map<Integer, Point2D.Double> starPoints, ChartUtil chartUtil, Projection projection, Graphics2D g){
+  public DrawStarNamesEquatorial(List<Star> stars, ProjectedScene scene, ChartUtil chartUtil, Graphics2D g){
     this.stars = stars;
-    this.starPoints = starPoints;
+    this.scene = scene;
     this.chartUtil = chartUtil;
-    this.projection = projection;
+    this.projection = scene.projection();
     this.g = g;
   }
 
@@ -54,7 +54,7 @@ public class DrawStarNamesEquatorial {
   //PRIVATE
   
   private List<Star> stars;
-  private Map<Integer, Point2D.Double> starPoints;
+  private ProjectedScene scene;
   private Projection projection;
   private Graphics2D g;
   private ChartUtil chartUtil;
@@ -124,7 +124,7 @@ public class DrawStarNamesEquatorial {
      some letters are small, and render a bit too far away (would need custom overrides per letter) 
   */
   private void drawName(Star star, String name) {
-    Point2D.Double where = starPoints.get(star.INDEX);
+    Point2D.Double where = scene.starPoint(star.INDEX);
     //int tweak = 2*DrawStars.starSize(star) + 3; //bit too far
     //int tweak = Maths.round(chartUtil.percentHeight(0.25)); //way too close
     //int tweak = Maths.round(nameHeight + Maths.round(chartUtil.percentHeight(0.5))); //ok
@@ -141,7 +141,7 @@ public class DrawStarNamesEquatorial {
   /** Used for development. Shows the stars index, not Bayer designation. */
   private void drawIndexIfBayerPresent(Star star) {
     if (star.getBayer() != null && star.getBayer().length()>0) {
-      Point2D.Double where = starPoints.get(star.INDEX);
+      Point2D.Double where = scene.starPoint(star.INDEX);
       String name = star.INDEX.toString();
       Font originalFont = g.getFont();
       //the text alignment depends on the font size, so that needs to be set early
@@ -156,7 +156,7 @@ public class DrawStarNamesEquatorial {
   
   /** Simple dy with respect to the dso's exact position. */
   private void drawNameAbove(Star star, String name) {
-    Point2D.Double where = starPoints.get(star.INDEX);
+    Point2D.Double where = scene.starPoint(star.INDEX);
     double tweak = tweakForNameAbove(star, name);
     int sign = -1;
     Point2D.Double pName = chartUtil.centerTextOn(where.x, where.y + sign * tweak, name, g);
@@ -169,7 +169,7 @@ public class DrawStarNamesEquatorial {
   }
 
   private void drawNameBelow(Star star, String name) {
-    Point2D.Double where = starPoints.get(star.INDEX);
+    Point2D.Double where = scene.starPoint(star.INDEX);
     double tweak = tweakForNameBelow(star, name);
     int sign = +1;
     Point2D.Double pName = chartUtil.centerTextOn(where.x, where.y + sign * tweak, name, g);
@@ -182,7 +182,7 @@ public class DrawStarNamesEquatorial {
   }
   
   private void drawNameOnRight(Star star, String name) {
-    Point2D.Double where = starPoints.get(star.INDEX);
+    Point2D.Double where = scene.starPoint(star.INDEX);
     double tweak = tweakForNameOnRight(star);
     Point2D.Double pName = chartUtil.centerTextVerticallyOn(where.x + tweak, where.y, name, g);
     g.drawString(name, Maths.asFloat(pName.x), Maths.asFloat(pName.y)); 
@@ -193,7 +193,7 @@ public class DrawStarNamesEquatorial {
   }
   
   private void drawNameOnLeft(Star star, String name) {
-    Point2D.Double where = starPoints.get(star.INDEX);
+    Point2D.Double where = scene.starPoint(star.INDEX);
     double tweak = tweakForNameOnLeft(star, name);
     Point2D.Double pName = chartUtil.centerTextOn(where.x - tweak, where.y, name, g);
     g.drawString(name, Maths.asFloat(pName.x), Maths.asFloat(pName.y)); 
@@ -8,8 +8,11 @@ import java.awt.geom.Rectangle2D;
 
 import mag5.draw.Bounds;
 import mag5.draw.ChartUtil;
+import mag5.draw.CurveSimplifier;
 import mag5.draw.Hemisphere;
 import mag5.draw.Projection;
+import mag5.draw.ProjectionKernels;
+import mag5.draw.ReadOnlyShape;
 import mag5.util.Maths;
 
 /**
@@ -44,7 +47,7 @@ class ProjectEquatorial implements Projection {
   
   @Override public Point2D.Double project(Double dec, Double ra) {
     Point2D.Double result = new Point2D.Double();
-    int sign = Hemisphere.NORTH == ChartUtil.HEMISPHERE ? -1 : +1;
+    int sign = Hemisphere.NORTH == bounds.hemisphere ? -1 : +1;
     result.y = centerOfProj.y + sign * dec * distancePerRad;
     double deltaRa = ra - raCenter;
     if (bounds.straddlesVernalEquinox()  && (ra < Math.PI)) {
@@ -57,6 +60,40 @@ class ProjectEquatorial implements Projection {
     result.x = centerOfProj.x + sign * deltaRa * distancePerRad * Math.cos(dec); 
     return result;
   }
+  
+  /** 
+   The same calculation as {@link #project(Double, Double)}, with the constants taken out of the loop.
+   See {@link ProjectionKernels#sinusoidal}.
+  */
+  @Override public void projectAll(double[] dec, double[] ra, double[] outX, double[] outY, int n) {
+    int sign = Hemisphere.NORTH == bounds.hemisphere ? -1 : +1;
+    ProjectionKernels.instance().sinusoidal(dec, ra, outX, outY, n, 
+      centerOfProj.x, centerOfProj.y, sign, distancePerRad, raCenter, bounds.straddlesVernalEquinox()
+    );
+  }
+
+  /**
+   The inverse of the sinusoidal projection. The declination comes straight from y, and the right ascension from x.
+   As in {@link #project(Double, Double)}, a chart that straddles 0h has the right ascensions less than 12h 
+   to the east of those greater than 12h. 
+   Returns null for points beyond the poles, or beyond the edge of the sinusoid, 12h away from the center on each side.
+  */
+  @Override public Point2D.Double unproject(double x, double y) {
+    int sign = Hemisphere.NORTH == bounds.hemisphere ? -1 : +1;
+    double dec = (y - centerOfProj.y) / (sign * distancePerRad);
+    if (Math.abs(dec) > Math.PI / 2) {
+      return null;
+    }
+    double cosDec = Math.cos(dec);
+    double deltaRa = cosDec < 1.0E-12 ? 0.0 : (x - centerOfProj.x) / (sign * distancePerRad * cosDec);
+    double ra = raCenter + deltaRa;
+    //the right ascensions that project() places on this chart, without any wrapping
+    double lowest = bounds.straddlesVernalEquinox() ? Math.PI : 0.0;
+    if (ra < lowest || ra >= lowest + 2 * Math.PI) {
+      return null;
+    }
+    return new Point2D.Double(Maths.in2pi(ra), dec);
+  }
 
   /**
    This method implements the clipping area as the intersection of 2 shapes. 
@@ -64,12 +101,18 @@ class ProjectEquatorial implements Projection {
    The other is a 3-sided shape: one horizontal line, and two curves representing constant right ascension, 
    going from the celestial equator to the pole.
    Intersections use Area objects: https://docs.oracle.com/javase/tutorial/2d/advanced/complexshapes.html
+   
+   <P>Area operations are slow, and the polar sector has many points, so the result is built only once.
+   It's shared by all callers, so it's wrapped in a shape that can't be changed.
   */
   @Override public Shape innerBoundary() {
-    Area a1 = new Area(innerRectangle(chartWidth, chartHeight));
-    Area a2 = new Area(polarSector(raHalfWidth));
-    a1.intersect(a2);
-    return a1;
+    if (innerBoundary == null) {
+      Area a1 = new Area(innerRectangle(chartWidth, chartHeight));
+      Area a2 = new Area(polarSector(raHalfWidth));
+      a1.intersect(a2);
+      innerBoundary = new ReadOnlyShape(a1);
+    }
+    return innerBoundary;
   }
 
   @Override public Bounds getBounds() {
@@ -95,6 +138,9 @@ class ProjectEquatorial implements Projection {
   private Bounds bounds;
   private ChartUtil chartUtil;
   
+  /** Built on first use. */
+  private Shape innerBoundary;
+  
   private double raCenter; //decCenter is always 0 is this imple!
   
   /** From the center, this amount to the right and left. */
@@ -153,14 +199,16 @@ class ProjectEquatorial implements Projection {
     double poleSign = poleSign();
     double deltaTheta = deltaTheta();
     long lastIndex = Math.round(Math.PI/2.0 / deltaTheta); //the last iteration corresponds to the pole, 90 deg
-    long index = 0;
-    Point2D.Double point = null;
-    
-    while (index <= lastIndex) {
-      ++index; //increase the abs mag of the dec from 0 to 90
-      point = project(poleSign * index * deltaTheta, ra); 
-      result.lineTo(point.x,  point.y);
+    int n = (int)lastIndex + 1;
+    double[] x = new double[n];
+    double[] y = new double[n];
+    for(int i = 0; i < n; ++i) {
+      long index = i + 1; //increase the abs mag of the dec from 0 to 90
+      x[i] = ra;
+      y[i] = poleSign * index * deltaTheta;
     }
+    projectAll(y, x, x, y, n);
+    CurveSimplifier.appendTo(result, x, y, n, false);
   }
   
   private void poleToEquatorConstantRightAscension(double ra, GeneralPath result) {
@@ -168,19 +216,21 @@ class ProjectEquatorial implements Projection {
     double poleSign = poleSign();
     double deltaTheta = deltaTheta();
     long lastIndex = Math.round(Math.PI/2.0 / deltaTheta); //the last iteration corresponds to the pole, 90 deg
-    long index = lastIndex;
-    Point2D.Double point = null;
-    
-    while (index >= 0) {
-      --index; //decrease abs mag of the dec from 90 to 0
-      point = project(poleSign * index * deltaTheta, ra); 
-      result.lineTo(point.x,  point.y);
+    int n = (int)lastIndex + 1;
+    double[] x = new double[n];
+    double[] y = new double[n];
+    for(int i = 0; i < n; ++i) {
+      long index = lastIndex - 1 - i; //decrease abs mag of the dec from 90 to 0
+      x[i] = ra;
+      y[i] = poleSign * index * deltaTheta;
     }
+    projectAll(y, x, x, y, n);
+    CurveSimplifier.appendTo(result, x, y, n, false);
   }
   
   private int poleSign() {
     int result = topChart ? +1 : -1;
-    if (Hemisphere.SOUTH == ChartUtil.HEMISPHERE) {
+    if (Hemisphere.SOUTH == bounds.hemisphere) {
       result = (-1) * result;
     }
     return result;
@@ -3,24 +3,24 @@ package mag5.draw.polar;
 import java.awt.Graphics2D;
 import java.awt.geom.Point2D;
 import java.util.List;
-import java.util.Map;
 import java.util.function.Consumer;
 
 import mag5.deepskyobject.DeepSkyObject;
 import mag5.draw.ChartUtil;
 import mag5.draw.DrawDeepSkyObject;
 import mag5.draw.DrawPosition;
+import mag5.draw.ProjectedScene;
 import mag5.draw.Projection;
 import mag5.util.Maths;
 
 /** Render the star designation for a polar chart. */
 public class DrawDsoNamePolar {
 
-  public DrawDsoNamePolar(List<DeepSkyObject> dsos, Map<String, Point2D.Double> dsoPoints, ChartUtil chartUtil, Projection projection, Graphics2D g){
+  public DrawDsoNamePolar(List<DeepSkyObject> dsos, ProjectedScene scene, ChartUtil chartUtil, Graphics2D g){
     this.dsos = dsos;
-    this.dsoPoints = dsoPoints;
+    this.scene = scene;
     this.chartUtil = chartUtil;
-    this.projection = projection;
+    this.projection = scene.projection();
     this.g = g;
   }
 
@@ -34,7 +34,7 @@ public class DrawDsoNamePolar {
   //PRIVATE 
   
   private List<DeepSkyObject> dsos;
-  private Map<String, Point2D.Double> dsoPoints;
+  private ProjectedScene scene;
   private Projection projection;
   private Graphics2D g;
   private ChartUtil chartUtil;
@@ -72,7 +72,7 @@ public class DrawDsoNamePolar {
   }
   
   private void drawTextWrtPole(DeepSkyObject dso, Consumer<Graphics2D> drawer) {
-    Point2D.Double starPoint = dsoPoints.get(dso.getDesig());
+    Point2D.Double starPoint = scene.dsoPoint(dso.getDesig());
     double rotationAngle = chartUtil.rotationAngle(projection, starPoint);
     chartUtil.drawRotated(g, rotationAngle, starPoint, drawer);
   }
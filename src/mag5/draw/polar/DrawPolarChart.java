@@ -4,32 +4,25 @@ import java.awt.Graphics2D;
 import java.awt.geom.Point2D;
 import java.util.List;
 
-import mag5.book.PdfConfig;
-import mag5.chartlabels.ChartLabel;
-import mag5.constellation.ConstellationLines;
-import mag5.deepskyobject.DeepSkyObject;
 import mag5.draw.Bounds;
-import mag5.draw.ChartUtil;
 import mag5.draw.DrawChart;
 import mag5.draw.Projection;
+import mag5.draw.RenderContext;
 import mag5.star.Star;
-import mag5.translate.Label;
 
 /**
  Draw the polar star chart.
 */
 public class DrawPolarChart extends DrawChart  {
   
-  public DrawPolarChart(
-      Integer mapNum, Bounds bounds, List<Star> stars, ConstellationLines constellationLines, 
-      List<DeepSkyObject> dsos, Label labels, List<ChartLabel> chartLabels, Graphics2D g) {
-      super(mapNum, bounds, stars, constellationLines, dsos, labels, chartLabels, projection(bounds), g);
+  public DrawPolarChart(Integer mapNum, Bounds bounds, List<Star> stars, RenderContext context, Graphics2D g) {
+      super(mapNum, bounds, stars, context, projection(bounds, context), g);
   }
 
   /** See {@link DrawPolarRightAscensionLines}. */
   @Override protected void drawRightAscensionGridLines() {
     DrawPolarRightAscensionLines raLines = new DrawPolarRightAscensionLines(
-      chartUtil.getWidth(), chartUtil.getHeight(), projection, g
+      chartUtil.getWidth(), chartUtil.getHeight(), scene, g
     );
     raLines.draw();
   }
@@ -37,7 +30,7 @@ public class DrawPolarChart extends DrawChart  {
   /** See {@link DrawPolarDeclinationLines}. */
   @Override protected void drawDeclinationGridLines() {
     DrawPolarDeclinationLines decLines = new DrawPolarDeclinationLines(
-      chartUtil.getWidth(), chartUtil.getHeight(), projection, g
+      chartUtil.getWidth(), chartUtil.getHeight(), scene, g
     );
     decLines.draw();
   }
@@ -45,7 +38,7 @@ public class DrawPolarChart extends DrawChart  {
   /** See {@link DrawPolarDateScale}. */
   @Override protected void drawDateScale() {
     DrawPolarDateScale dateScale = new DrawPolarDateScale(
-      mapNum, chartUtil, labels, projection, g
+      mapNum, chartUtil, labels, context.LANG, scene, g
     );
     dateScale.draw();
   }
@@ -63,8 +56,8 @@ public class DrawPolarChart extends DrawChart  {
   // PRIVATE
   
   /** Swap the width and the height, since landscape.  */
-  private static Projection projection(Bounds bounds) {
-    return new ProjectPolar(bounds, PdfConfig.HEIGHT, PdfConfig.WIDTH);
+  private static Projection projection(Bounds bounds, RenderContext context) {
+    return new ProjectPolar(bounds, context.HEIGHT, context.WIDTH);
   }
   
   private void drawTitle() {
@@ -72,7 +65,7 @@ public class DrawPolarChart extends DrawChart  {
       boolean isNorth = projection.getBounds().isNorth();
       String key = isNorth ? "north" : "south";
       key = key + "-celestial-pole";
-      String text = labels.text(key, ChartUtil.lang());
+      String text = labels.text(key, context.LANG);
       double y = chartUtil.percentHeight(5);
       double x = chartUtil.percentWidth(45);
       Point2D.Double ctr = chartUtil.centerTextOn(x, y, text, g);
@@ -85,7 +78,7 @@ public class DrawPolarChart extends DrawChart  {
       boolean isNorth = projection.getBounds().isNorth();
       String key = isNorth ? "northern" : "southern";
       key = key + "-charts";
-      String text = labels.text(key, ChartUtil.lang());
+      String text = labels.text(key, context.LANG);
       double y = chartUtil.percentHeight(10);
       double x = chartUtil.percentWidth(40);
       Point2D.Double ctr = chartUtil.centerTextOn(x, y, text, g);
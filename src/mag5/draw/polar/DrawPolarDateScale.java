@@ -10,21 +10,25 @@ import java.util.function.Consumer;
 
 import mag5.draw.Bounds;
 import mag5.draw.ChartUtil;
+import mag5.draw.ProjectedScene;
 import mag5.draw.Projection;
 import mag5.star.gmst.GmstFiveDay;
 import mag5.star.gmst.GmstMonth;
 import mag5.star.gmst.GreenwichMeanSiderealTime;
 import mag5.translate.Label;
+import mag5.translate.Lang;
 import mag5.util.Maths;
 
 /** Date scale at the edge of the chart. */
 class DrawPolarDateScale {
 
-  DrawPolarDateScale(Integer mapNum, ChartUtil chartUtil, Label labels, Projection projection, Graphics2D g) {
+  DrawPolarDateScale(Integer mapNum, ChartUtil chartUtil, Label labels, Lang lang, ProjectedScene scene, Graphics2D g) {
     this.mapNum = mapNum;
     this.chartUtil = chartUtil;
     this.labels = labels;
-    this.projection = projection;
+    this.lang = lang;
+    this.scene = scene;
+    this.projection = scene.projection();
     this.g = g;
   }
   
@@ -56,6 +60,8 @@ class DrawPolarDateScale {
   private Integer mapNum;
   private ChartUtil chartUtil;
   private Label labels;
+  private Lang lang;
+  private ProjectedScene scene;
   private Projection projection;
   private Graphics2D g;
 
@@ -123,7 +129,7 @@ class DrawPolarDateScale {
     String text = day.toString();
     Double decMidway = (startDec + endDec)/2.0;
     Double raTweak = -1 * Maths.hoursToRads(4.0/60.0);
-    Point2D.Double target = projection.project(decMidway, ra + raTweak);
+    Point2D.Double target = scene.project(decMidway, ra + raTweak);
     if (!isOutOfBounds(target)) {
       double rotationAngle = chartUtil.rotationAngle(projection, target);
       Consumer<Graphics2D> drawer = x -> {
@@ -154,7 +160,7 @@ class DrawPolarDateScale {
       if (Maths.inRangeRa(minRa, maxRa, monthLimit.getRa())){
         radialLineFor(monthLimit.getRa(), dDecDaysEnd, dDecMonthsEnd, DONT_SHOW_DAY_NUM);
       }
-      String shortMonthName = labels.shortMonthName(ChartUtil.lang(), Month.of(monthLimit.getMonth()));
+      String shortMonthName = labels.shortMonthName(lang, Month.of(monthLimit.getMonth()));
       if (Maths.inRangeRa(minRa, maxRa, monthLimit.getRaMidMonth())) {
         drawShortMonthName(shortMonthName, dDecDaysEnd, dDecMonthsEnd, monthLimit.getRaMidMonth());
       }
@@ -169,7 +175,7 @@ class DrawPolarDateScale {
     Double baseDec = Maths.degToRads(projection.getBounds().decFurthestFromPole()); //with sign
     int sign = projection.getBounds().isNorth() ? -1 : +1;
     Double dec = baseDec + sign * (dDecStart + dDecEnd)/2.0; //midway 
-    Point2D.Double baseCircum = projection.project(dec, raMidMonth);
+    Point2D.Double baseCircum = scene.project(dec, raMidMonth);
     //chartUtil.debuggingDot(baseCircum, g);
     
     double textRotationAngle = chartUtil.rotationAngle(projection, baseCircum);
@@ -7,14 +7,16 @@ import java.awt.geom.Point2D;
 
 import mag5.draw.Bounds;
 import mag5.draw.ChartUtil;
+import mag5.draw.ProjectedScene;
 import mag5.draw.Projection;
 import mag5.util.Maths;
 
 /** Draw all declination lines and tick marks for the polar chart. */
 class DrawPolarDeclinationLines {
   
-  DrawPolarDeclinationLines(double width, double height, Projection projection, Graphics2D g) {
-    this.projection = projection;
+  DrawPolarDeclinationLines(double width, double height, ProjectedScene scene, Graphics2D g) {
+    this.scene = scene;
+    this.projection = scene.projection();
     this.g = g;
     this.chartUtil = new ChartUtil(width, height);
   }
@@ -57,7 +59,7 @@ class DrawPolarDeclinationLines {
       double circumferenceDegs = projection.getBounds().isNorth() ? Maths.radsToDegs(minDec) : Maths.radsToDegs(maxDec); 
       boolean isNearCircumference =  chartUtil.isNear(circumferenceDegs, dec); //to avoid overwriting the existing outline
       if (!isNearPole && !isNearCircumference) {
-        nominal = projection.project(dec, raCtr);
+        nominal = scene.project(dec, raCtr);
         if (chartUtil.isNearMultipleOf(TEN_DEGREES, dec)) {
           multipleOfTen(bounds, ctr, nominal, dec, isTopChart);
         }
@@ -74,6 +76,7 @@ class DrawPolarDeclinationLines {
   }
 
   // PRIVATE
+  private ProjectedScene scene;
   private Projection projection;
   private Graphics2D g;
   private ChartUtil chartUtil;
@@ -99,7 +102,7 @@ class DrawPolarDeclinationLines {
     while (ra <= maxRa + ChartUtil.ε) {
       //don't draw twice on the vertical hour line
       if (!chartUtil.isNearHour(bounds.raCenterHours(), ra)) {
-        RotationAngle rotAngle = new RotationAngle(projection, dec, ra);
+        RotationAngle rotAngle = new RotationAngle(scene, dec, ra);
         chartUtil.drawRotatedAndGrey(
           g, 
           rotAngle.rotationAngle(), 
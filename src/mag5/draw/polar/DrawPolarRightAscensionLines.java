@@ -8,14 +8,16 @@ import java.util.function.Consumer;
 import mag5.book.Clipping;
 import mag5.draw.Bounds;
 import mag5.draw.ChartUtil;
+import mag5.draw.ProjectedScene;
 import mag5.draw.Projection;
 import mag5.util.Maths;
 
 /** Draw all right ascension lines and tick marks for the polar chart. */
 class DrawPolarRightAscensionLines {
   
-  DrawPolarRightAscensionLines(double width, double height, Projection projection, Graphics2D g) {
-    this.projection = projection;
+  DrawPolarRightAscensionLines(double width, double height, ProjectedScene scene, Graphics2D g) {
+    this.scene = scene;
+    this.projection = scene.projection();
     this.g = g;
     this.chartUtil = new ChartUtil(width, height);
   }
@@ -49,6 +51,7 @@ class DrawPolarRightAscensionLines {
   }
 
   // PRIVATE
+  private ProjectedScene scene;
   private Projection projection;
   private Graphics2D g;
   private ChartUtil chartUtil;
@@ -79,8 +82,8 @@ class DrawPolarRightAscensionLines {
     boolean isVerticalRa = isCentralRa(ra, projection);
     double decPole = isVerticalRa ? Math.PI/2 : NEAR_POLE;
     double decCircum = projection.getBounds().isNorth() ? minDec : maxDec;
-    Point2D.Double from = projection.project(sign*decPole, ra);
-    Point2D.Double to = projection.project(decCircum, ra);
+    Point2D.Double from = scene.project(sign*decPole, ra);
+    Point2D.Double to = scene.project(decCircum, ra);
     chartUtil.drawGrey(g, g ->  
       g.drawLine(Maths.round(from.x), Maths.round(from.y), Maths.round(to.x), Maths.round(to.y))
     );
@@ -95,7 +98,7 @@ class DrawPolarRightAscensionLines {
     Long hours = Math.round(Maths.radsToHours(ra)) % 24;
     String text = hours + "h";
     
-    Point2D.Double baseCircum = projection.project(decForHour, ra); //point on the circumference
+    Point2D.Double baseCircum = scene.project(decForHour, ra); //point on the circumference
     
     double textRotationAngle = chartUtil.rotationAngle(projection, baseCircum);
     double theta = textRotationAngle - Math.PI/2.0;
@@ -154,7 +157,7 @@ class DrawPolarRightAscensionLines {
       clippingOn();
     }
     Integer tick = Maths.round(chartUtil.percentWidth(ChartUtil.EQUATORIAL_CHART_TICK_SIZE));
-    RotationAngle rotAngle = new RotationAngle(projection, declination, ra);
+    RotationAngle rotAngle = new RotationAngle(scene, declination, ra);
     chartUtil.drawRotatedAndGrey(
       g, 
       rotAngle.rotationAngle() + Math.PI/2.0, 
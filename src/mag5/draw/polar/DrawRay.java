@@ -1,9 +1,10 @@
 package mag5.draw.polar;
 
+import java.awt.BasicStroke;
 import java.awt.Graphics2D;
-import java.awt.Shape;
-import java.awt.geom.Area;
-import java.awt.geom.Ellipse2D;
+import java.awt.Stroke;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
 
 import mag5.draw.Projection;
 import mag5.util.Maths;
@@ -31,15 +32,16 @@ class DrawRay {
   /**
    Draw a ray from the center to the circumference, corresponding to a given right ascension.
    The ray is drawn only between the two given radii. 
-   This implementation uses shapes and clipping regions.
+   
+   <P>This used to be done by drawing a very long line, and clipping it with an annulus (a big circle minus a small circle).
+   That was slow, since it built two Area objects for every single ray, and it left a clipping path in the output for each ray.
+   Now, the points where the very same line crosses the very same circles are found directly, and only that segment is drawn.
+   The ends of the segment are cut square (butt), just as the clipping region did.
    
    <P>IMPORTANT: the radii passed in here need to be calculated in the EXACT same way as 
    when the corresponding circles were drawn.
   */
   void ray(double ra, double smallerRadius, double largerRadius) {
-    Shape origClip = g.getClip();
-    g.setClip(clippingRegion(smallerRadius, largerRadius));
-    
     double raMid = Maths.hoursToRads(projection.getBounds().raCenterHours());
     //find a point on a big big circle corresponding to the given ra
     double R = veryLargeRadius(largerRadius);
@@ -55,15 +57,27 @@ class DrawRay {
     else {
       deltaY = R * Math.cos(ra - raMid) * sign;
     }
-    //draw a line between the ctr and the point on the big big circle (but most of it will be clipped!)
-    g.drawLine(
+    //the line between the ctr and the point on the big big circle; only a part of it is drawn
+    Point2D.Double from = new Point2D.Double(
       Maths.round(projection.centerOfProj().getX()), 
-      Maths.round(projection.centerOfProj().getY()), 
+      Maths.round(projection.centerOfProj().getY())
+    );
+    Point2D.Double to = new Point2D.Double(
       Maths.round((projection.centerOfProj().getX() + deltaX)), 
       Maths.round((projection.centerOfProj().getY() + deltaY))
     );
-        
-    g.setClip(origClip);
+    double start = exitFromCircle(from, to, smallerRadius);
+    double end = exitFromCircle(from, to, largerRadius);
+    if (!Double.isNaN(start) && !Double.isNaN(end) && start < end) {
+      Line2D.Double segment = new Line2D.Double(pointAt(from, to, start), pointAt(from, to, end));
+      Stroke origStroke = g.getStroke();
+      if (origStroke instanceof BasicStroke) {
+        BasicStroke s = (BasicStroke)origStroke;
+        g.setStroke(new BasicStroke(s.getLineWidth(), BasicStroke.CAP_BUTT, s.getLineJoin(), s.getMiterLimit(), s.getDashArray(), s.getDashPhase()));
+      }
+      g.draw(segment);
+      g.setStroke(origStroke);
+    }
   }
   
   // PRIVATE
@@ -71,37 +85,44 @@ class DrawRay {
   private Graphics2D g;
   
   /** 
-   Defines where all drawing is done.
-   Outside of this shape, no drawing is done
-   Two circles centered on the pole (center of proj).
-   You can SUBTRACT the smaller circle from the other, to get the desired area. 
-   (This will need to change if the center of projection is lifted from the edge of the page.) 
+   Where the line leaves the circle, as a fraction of the distance from the start of the line to its end.
+   Returns NaN if the line doesn't cross the circle.
+   The circle is centered on the ctr of projection.
+   It's calculated in the EXACT same way as when the circles were drawn (which uses rounding).
+   (This will need to change if the center of projection is lifted from the edge of the page.)
   */
-  private Area clippingRegion(double smallerRadius, double largerRadius) {
-    Area result = new Area();
-    result.add(circle(largerRadius));
-    result.subtract(circle(smallerRadius));
-    //if a half-moon shape is needed, add that mod here (subtract a huge rectangle, representing half the world?)
-    //or, you might alter to use: arc + line + arc + line, instead of 2 circles
-    return result;
-  }
-
-  /** Centered on the ctr of projection. */
-  private Area circle(double radius) {
-    //the shapes are calculated in the EXACT same way as the when the circles were drawn.
+  private double exitFromCircle(Point2D.Double from, Point2D.Double to, double radius) {
     double w = Maths.round(radius * 2);
-    double h = w;
     double x = Maths.round(projection.centerOfProj().getX() - radius);
     double y = Maths.round(projection.centerOfProj().getY() - radius);
-    Ellipse2D.Double result = new Ellipse2D.Double(x, y, w, h);
-    return new Area(result);
+    double r = w / 2.0;
+    double cx = x + r;
+    double cy = y + r;
+    //solve |from + t*(to - from) - ctr| = r for t; the larger root is where the line leaves the circle
+    double dx = to.x - from.x;
+    double dy = to.y - from.y;
+    double fx = from.x - cx;
+    double fy = from.y - cy;
+    double a = dx*dx + dy*dy;
+    double b = 2 * (fx*dx + fy*dy);
+    double c = fx*fx + fy*fy - r*r;
+    double discriminant = b*b - 4*a*c;
+    double result = Double.NaN;
+    if (a > 0 && discriminant >= 0) {
+      result = Math.max(0.0, Math.min(1.0, (-b + Math.sqrt(discriminant)) / (2*a)));
+    }
+    return result;
+  }
+  
+  private Point2D.Double pointAt(Point2D.Double from, Point2D.Double to, double t) {
+    return new Point2D.Double(from.x + t * (to.x - from.x), from.y + t * (to.y - from.y));
   }
   
   /**
    The intent here is to studiously avoid the kinds of small deviations I've seen with other algorithms. 
-   The idea is to draw the ray with a really large R, scaled way up, but clip off most of it.  
+   The idea is to use a really large R, scaled way up, to find the direction of the line.  
   */
   private double veryLargeRadius(double radius){
     return radius * 10;
   }
-}
\ No newline at end of file
+}
@@ -5,13 +5,13 @@ import java.awt.Graphics2D;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.function.Consumer;
 
 import mag5.draw.ChartUtil;
 import mag5.draw.CompassPoint;
 import mag5.draw.DrawPosition;
 import mag5.draw.DrawStars;
+import mag5.draw.ProjectedScene;
 import mag5.draw.Projection;
 import mag5.star.Star;
 import mag5.util.Maths;
@@ -24,11 +24,11 @@ there's no overlap of items, is not easy to do.
 */
 public class DrawStarNamesPolar {
   
-   public DrawStarNamesPolar(List<Star> stars, Map<Integer, Point2D.Double> starPoints, ChartUtil chartUtil, Projection projection, Graphics2D g){
+   public DrawStarNamesPolar(List<Star> stars, ProjectedScene scene, ChartUtil chartUtil, Graphics2D g){
      this.stars = stars;
-     this.starPoints = starPoints;
+     this.scene = scene;
      this.chartUtil = chartUtil;
-     this.projection = projection;
+     this.projection = scene.projection();
      this.g = g;
    }
 
@@ -48,7 +48,7 @@ public class DrawStarNamesPolar {
    
    //PRIVATE 
    private List<Star> stars;
-   private Map<Integer, Point2D.Double> starPoints;
+   private ProjectedScene scene;
    private Projection projection;
    private Graphics2D g;
    private ChartUtil chartUtil;
@@ -97,7 +97,7 @@ public class DrawStarNamesPolar {
       some letters are small, and render a bit too far away (would need custom overrides per letter) 
    */
    private void drawName(Star star, String name) {
-     Point2D.Double where = starPoints.get(star.INDEX);
+     Point2D.Double where = scene.starPoint(star.INDEX);
      //int tweak = 2*DrawStars.starSize(star) + 3; //bit too far
      //int tweak = Maths.round(chartUtil.percentHeight(0.25)); //way too close
      //int tweak = Maths.round(nameHeight + Maths.round(chartUtil.percentHeight(0.5))); //ok
@@ -115,7 +115,7 @@ public class DrawStarNamesPolar {
    @SuppressWarnings("unused")
   private void drawIndexIfBayerPresent(Star star) {
      if (star.getBayer() != null && star.getBayer().length()>0) {
-       Point2D.Double where = starPoints.get(star.INDEX);
+       Point2D.Double where = scene.starPoint(star.INDEX);
        //int tweak = 2*DrawStars.starSize(star) + 3; //bit too far
        //int tweak = Maths.round(chartUtil.percentHeight(0.25)); //way too close
        //int tweak = Maths.round(nameHeight + Maths.round(chartUtil.percentHeight(0.5))); //ok
@@ -149,7 +149,7 @@ public class DrawStarNamesPolar {
    }
    
    private void drawTextWrtPole(Star star, Consumer<Graphics2D> drawer) {
-     Point2D.Double starPoint = starPoints.get(star.INDEX);
+     Point2D.Double starPoint = scene.starPoint(star.INDEX);
      double rotationAngle = chartUtil.rotationAngle(projection, starPoint);
      chartUtil.drawRotated(g, rotationAngle, starPoint, drawer);
    }
@@ -7,6 +7,8 @@ import java.awt.geom.Point2D;
 import mag5.draw.Bounds;
 import mag5.draw.ChartUtil;
 import mag5.draw.Projection;
+import mag5.draw.ProjectionKernels;
+import mag5.draw.ReadOnlyShape;
 import mag5.util.Maths;
 
 /** 
@@ -51,10 +53,46 @@ class ProjectPolar implements Projection {
      
      return result;
    }
+   
+   /** 
+    The same calculation as {@link #project(Double, Double)}, with the constants taken out of the loop.
+    See {@link ProjectionKernels#azimuthalEquidistant}.
+   */
+   @Override public void projectAll(double[] dec, double[] ra, double[] outX, double[] outY, int n) {
+     boolean isNorth = bounds.isNorth();
+     int sign = isNorth ? +1 : -1;
+     double TWO_HOURS = Math.PI/6.0;
+     ProjectionKernels.instance().azimuthalEquidistant(dec, ra, outX, outY, n, 
+       centerOfProj.x, centerOfProj.y, sign, distancePerRad, isNorth ? TWO_HOURS : 0.0
+     );
+   }
 
-   /** Half-moon shape. */
+   /** 
+    The inverse of the equidistant projection, in closed form. The distance from the pole gives the declination, and 
+    the angle gives the right ascension. At the pole itself, the right ascension is taken as 0.
+    Returns null for points further from the pole than the opposite pole.
+   */
+   @Override public Point2D.Double unproject(double x, double y) {
+     int sign = bounds.isNorth() ? +1 : -1;
+     double TWO_HOURS = Math.PI/6.0;
+     double dx = x - centerOfProj.x;
+     double dy = y - centerOfProj.y;
+     double rho = Math.hypot(dx, dy);
+     if (rho > Math.PI * distancePerRad) {
+       return null;
+     }
+     double dec = sign * (Math.PI/2.0 - rho / distancePerRad);
+     double theta = rho == 0 ? 0.0 : Math.atan2(sign * dy, dx);
+     double ra = bounds.isNorth() ? theta + TWO_HOURS : theta;
+     return new Point2D.Double(rho == 0 ? 0.0 : Maths.in2pi(ra), dec);
+   }
+   
+   /** Half-moon shape. Built only once, and it can't be changed. */
    @Override public Shape innerBoundary() {
-     return halfMoon(chartWidth/2.0 - totalBorderWidth(), Arc2D.Double.PIE);
+     if (innerBoundary == null) {
+       innerBoundary = new ReadOnlyShape(buildHalfMoon(chartWidth/2.0 - totalBorderWidth(), Arc2D.Double.PIE));
+     }
+     return innerBoundary;
    }
    
    @Override public Bounds getBounds() {
@@ -73,16 +111,11 @@ class ProjectPolar implements Projection {
    A circle cut in two (arc plus line).
    Top chart: straight line across the bottom.
    Bottom chart: straight line across the top.
+   A new object each time. It's only a few numbers, so there's no need to keep it.
    */
   Shape halfMoon(double radius, int type) {
-     double x = centerOfProj.getX() - radius;
-     double y = bounds.isTopChart() ? chartHeight - chartUtil.getSpineMargin() - radius : -radius + chartUtil.getSpineMargin();
-     double w = 2*radius;
-     double h = w; //always a circular arc
-     double start = bounds.isTopChart() ? 0 : 180;
-     Arc2D.Double result = new Arc2D.Double(x, y, w, h, start, 180, /*Arc2D.Double.PIE*/type);
-     return result;
-   }
+     return buildHalfMoon(radius, type);
+  }
   
    // PRIVATE
    
@@ -94,6 +127,19 @@ class ProjectPolar implements Projection {
    private Bounds bounds;
    private ChartUtil chartUtil;
    
+   /** Used very often, as a clip, and to drop items far from the chart. */
+   private Shape innerBoundary;
+   
+   private Shape buildHalfMoon(double radius, int type) {
+     double x = centerOfProj.getX() - radius;
+     double y = bounds.isTopChart() ? chartHeight - chartUtil.getSpineMargin() - radius : -radius + chartUtil.getSpineMargin();
+     double w = 2*radius;
+     double h = w; //always a circular arc
+     double start = bounds.isTopChart() ? 0 : 180;
+     Arc2D.Double result = new Arc2D.Double(x, y, w, h, start, 180, /*Arc2D.Double.PIE*/type);
+     return result;
+   }
+   
    private double totalBorderWidth() {
      return chartUtil.borderWidthPlusDateScaleWidth();
    }
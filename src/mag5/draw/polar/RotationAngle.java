@@ -2,7 +2,7 @@ package mag5.draw.polar;
 
 import java.awt.geom.Point2D;
 
-import mag5.draw.Projection;
+import mag5.draw.ProjectedScene;
 
 /** 
  The rotation angle used needed to produce central symmetry with respect to the celestial pole.
@@ -10,9 +10,9 @@ import mag5.draw.Projection;
 */
 class RotationAngle {
   
-  RotationAngle(Projection projection, double dec, double ra) {
-    this.target = projection.project(dec, ra);
-    Point2D.Double ctr = projection.centerOfProj();
+  RotationAngle(ProjectedScene scene, double dec, double ra) {
+    this.target = scene.project(dec, ra);
+    Point2D.Double ctr = scene.projection().centerOfProj();
     double dxTheta = target.x - ctr.x;
     double dyTheta = target.y - ctr.y;
     this.rotationAngle = Math.atan2(dyTheta, dxTheta); 
@@ -24,6 +24,14 @@ public class BayerLetterPlacement {
     }
   }
   
+  /** 
+   Read in the data file now, instead of when it's first needed. 
+   Throws an exception if a line can't be parsed, before any star has been changed.
+  */
+  public void readData() {
+    getStarNamePlacements();
+  }
+  
   //PRIVATE
   
   /** Key: the index into the list of YBS stars. */
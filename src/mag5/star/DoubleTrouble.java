@@ -14,8 +14,9 @@ import mag5.util.Maths;
  single entity. There's a <a href='https://en.wikipedia.org/wiki/Apparent_magnitude#Magnitude_addition'>formula</a> 
  for calculating the total magnitude out of the components.
  
- <P>This class is not used at runtime. Rather, it's used during development, to 
- find cases in which the underlying star data will be manually massaged.
+ <P>This class is used during development, to find cases in which the underlying star data will be manually massaged.
+ The formula for the fused magnitude is also used at runtime, when fusing close doubles automatically 
+ (see {@link StarCatalog}).
 */
 public class DoubleTrouble {
   
@@ -51,10 +52,7 @@ public class DoubleTrouble {
     return fusedMag() <= limitingMag && sep() <= limitingSepRads; 
   }
 
-  /**
-   The separation of the two stars in radians. 
-   WARNING: this is only accurate for small angles (its intended purpose here)! 
-  */
+  /** The true angular separation of the two stars in radians. */
   public Double sep() {
     return separation;
   }
@@ -101,22 +99,27 @@ public class DoubleTrouble {
    https://en.wikipedia.org/wiki/Apparent_magnitude#Magnitude_addition
   */
   private static Double fusedMagnitudeForCloseDoubleStar(Double m1, Double m2) {
-   double a = Math.pow(10, -0.4*m1) + Math.pow(10, -0.4*m2);
+   return fusedMagnitude(m1, m2);
+  } 
+  
+  /** As above, but for any number of stars. Rounded to 2 decimals. */
+  static double fusedMagnitude(double... mags) {
+   double a = 0.0;
+   for (double mag : mags) {
+     a = a + Math.pow(10, -0.4*mag);
+   }
    double b = Math.log10(a);
    double result = -2.5 * b;
    return Math.round(result*100)/100.0;
-  } 
+  }
  
  /** 
-  Separation in radians. Uses an approximation suitable only for small angles.
+  True angular separation in radians.
   Find out if two stars form a double or not.
   They say that the human eye can resolve 8 arcseconds. That might depend on the brightness (I don't know). 
   */
   private double separation(Star a, Star b) {
-   double dDec = a.DEC - b.DEC;
-   double dRa = a.RA - b.RA;
-   double result = Math.sqrt(  Math.pow(dRa * Math.cos(a.DEC),2) + Math.pow(dDec, 2) ); //APPROXIMATELY, FOR SMALL ANGLES
-   return result;
+   return StarPairs.separation(a.RA, a.DEC, b.RA, b.DEC);
   }
   
   private double sepAsArcSec() {
@@ -0,0 +1,104 @@
+package mag5.star;
+
+import java.util.Arrays;
+
+import mag5.util.Maths;
+
+/**
+ Divides the sky into zones of declination, and divides each zone into cells of right ascension.
+
+ <P>All cells have the same size in degrees (so the cells near the poles are small in area, but that doesn't matter much).
+ The cells are numbered zone by zone, starting at the south pole, and at 0h within each zone.
+
+ <P>Selection of cells is deliberately generous, by one cell on each side.
+ Callers always test each candidate star with the exact predicates in any case.
+*/
+final class SkyGrid {
+
+  /**
+   @param zoneHeightDegs height of each zone of declination. Must divide 180 evenly.
+   @param cellWidthDegs width of each cell of right ascension. Must divide 360 evenly.
+  */
+  SkyGrid(int zoneHeightDegs, int cellWidthDegs) {
+    this.zoneHeightDegs = zoneHeightDegs;
+    this.cellWidthDegs = cellWidthDegs;
+    this.numZones = 180 / zoneHeightDegs;
+    this.numRaCells = 360 / cellWidthDegs;
+    this.zoneHeight = Maths.degToRads(zoneHeightDegs);
+    this.cellWidth = Maths.degToRads(cellWidthDegs);
+  }
+
+  int zoneHeightDegs() { return zoneHeightDegs; }
+  int cellWidthDegs() { return cellWidthDegs; }
+  int numCells() { return numZones * numRaCells; }
+
+  /** The cell holding the given position. Always a valid cell. Angles in rads. */
+  int cellFor(double dec, double ra) {
+    return clamp(zoneFor(dec), numZones) * numRaCells + clamp(raCellFor(Maths.in2pi(ra)), numRaCells);
+  }
+
+  /**
+   The cells that can possibly hold a match for the given range.
+   The range of right ascension is as in {@link Maths#inRangeRa(double, double, double)}: if min is greater than max,
+   then the range straddles 0h. The min and max are NOT necessarily in the range 0..2pi.
+   Returned in increasing order.
+  */
+  int[] cellsFor(double minDec, double maxDec, double minRa, double maxRa) {
+    boolean[] raCells = raCellsFor(minRa, maxRa);
+    int fromZone = Math.max(0, zoneFor(minDec) - 1);
+    int toZone = Math.min(numZones - 1, zoneFor(maxDec) + 1);
+    int[] result = new int[Math.max(0, toZone - fromZone + 1) * numRaCells];
+    int count = 0;
+    for(int zone = fromZone; zone <= toZone; ++zone) {
+      for(int raCell = 0; raCell < numRaCells; ++raCell) {
+        if (raCells[raCell]) {
+          result[count++] = zone * numRaCells + raCell;
+        }
+      }
+    }
+    return Arrays.copyOf(result, count);
+  }
+
+  // PRIVATE
+
+  private int zoneHeightDegs;
+  private int cellWidthDegs;
+  private int numZones;
+  private int numRaCells;
+  private double zoneHeight;
+  private double cellWidth;
+
+  /** Not clamped. Can be out of range. */
+  private int zoneFor(double dec) {
+    return (int)Math.floor((dec + Math.PI/2) / zoneHeight);
+  }
+
+  /** Not clamped. Can be out of range. */
+  private int raCellFor(double ra) {
+    return (int)Math.floor(ra / cellWidth);
+  }
+
+  private static int clamp(int val, int size) {
+    return Math.max(0, Math.min(size - 1, val));
+  }
+
+  private boolean[] raCellsFor(double minRa, double maxRa) {
+    boolean[] result = new boolean[numRaCells];
+    if (minRa < maxRa) {
+      // min <= ra <= max
+      mark(result, raCellFor(minRa) - 1, raCellFor(maxRa) + 1);
+    }
+    else {
+      // ra >= min || ra <= max
+      mark(result, raCellFor(minRa) - 1, numRaCells - 1);
+      mark(result, 0, raCellFor(maxRa) + 1);
+    }
+    return result;
+  }
+
+  private void mark(boolean[] raCells, int from, int to) {
+    for(int raCell = Math.max(0, from); raCell <= Math.min(numRaCells - 1, to); ++raCell) {
+      raCells[raCell] = true;
+    }
+  }
+}
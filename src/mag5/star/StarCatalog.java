@@ -8,6 +8,10 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -16,8 +20,11 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.regex.Pattern;
 
+import mag5.draw.Bounds;
 import mag5.util.DataFileReader;
 import mag5.util.Maths;
 
@@ -58,16 +65,98 @@ public final class StarCatalog {
     
    <P>As a side effects, this method saves the resulting star catalog as a file. 
    This is meant for developer convenience, so that they data can be easily examined.   
+   
+   <P>The result is also saved as a binary snapshot (see {@link StarCatalogFile}).
+   On later runs, the snapshot is read back in directly, and all of the above is skipped.
+   The location of the snapshot is controlled by a System property named {@value #SNAPSHOT_PROPERTY}
+   (default {@value #SNAPSHOT_DEFAULT}). 
   */
   public void generateIntermediateStarCatalog() throws IOException {
-    readInRawStandardCatalogWhileDiscardingUnwantedItems();
-    tweakCatalogData();
-    addProperNamesToStars();
-    //sortByRightAscension(); 
-    //sortByMagnitude(); 
-    saveToIntermediateFile();
+    generateIntermediateStarCatalog(Collections.emptySet());
   }
   
+  /**
+   As above, but with a set of stars that must never be suppressed when fusing close doubles automatically.
+   These are usually the stars that are part of a constellation polyline.
+   
+   <P>By default, close doubles are fused using the hand-coded list in this class.
+   If the System property {@value #FUSION_PROPERTY} is set to 'auto', then close doubles are found and fused 
+   automatically instead, using a limiting separation (in arcseconds) and a limiting magnitude.
+   These default to {@value #FUSION_SEP_ARCSECS} and {@value #FUSION_LIMITING_MAG}, and can be 
+   overridden with the System properties {@value #FUSION_SEP_PROPERTY} and {@value #FUSION_MAG_PROPERTY}. 
+   
+   <P>Stars from large, local catalogs (Hipparcos or Tycho-2) can be added to the YBS stars, by setting the 
+   System property {@value #IMPORT_PROPERTY} to a list of files (separated as in a class path).
+   Only stars down to the magnitude in the System property {@value #IMPORT_MAG_PROPERTY} are added 
+   (default {@value #IMPORT_MAG_CEILING}). See {@link StarCatalogImport}.
+   
+   <P>If the System property {@value #TILES_PROPERTY} is set to the name of a tile file, then the filter methods 
+   read the stars from that file, instead of from memory (see {@link StarTileStore}). 
+   In that case, the imported stars are never read into memory. Only the YBS stars are kept in memory, since 
+   they're needed for the constellation lines and the Bayer letters; that's a small table.
+   The tile file must be built ahead of time, with {@link StarTileStore#main(String...)}.
+   The memory budget (in megabytes) for the tiles is set with the System property {@value #TILE_BUDGET_PROPERTY}
+   (default {@value #TILE_BUDGET_MB}).
+  */
+  public void generateIntermediateStarCatalog(Set<Integer> protectedStars) throws IOException {
+    this.protectedStars = protectedStars;
+    String tileFile = System.getProperty(TILES_PROPERTY);
+    if (tileFile == null) {
+      buildTable(true);
+    }
+    else {
+      buildTable(false);
+      openTiles(Paths.get(tileFile));
+    }
+  }
+  
+  /** 
+   Generate the whole catalog in memory, including any imported stars, and ignoring {@value #TILES_PROPERTY}.
+   Used only when building a tile file. 
+  */
+  void generateWholeStarCatalog() throws IOException {
+    buildTable(true);
+  }
+  
+  /** Name of the System property for the location of the binary snapshot of the catalog. */
+  public static final String SNAPSHOT_PROPERTY = "mag5stars";
+  
+  /** Default location of the binary snapshot of the catalog, relative to the working directory. */
+  public static final String SNAPSHOT_DEFAULT = "stars.bin";
+  
+  /** Name of the System property for turning on the automatic fusion of close doubles: 'auto' or 'manual' (the default). */
+  public static final String FUSION_PROPERTY = "mag5fusion";
+  
+  /** Name of the System property for the limiting separation used by the automatic fusion of close doubles. */
+  public static final String FUSION_SEP_PROPERTY = "mag5fusionsep";
+  
+  /** Name of the System property for the limiting magnitude used by the automatic fusion of close doubles. */
+  public static final String FUSION_MAG_PROPERTY = "mag5fusionmag";
+  
+  /** Default limiting separation in arcseconds, for the automatic fusion of close doubles. */
+  public static final double FUSION_SEP_ARCSECS = 210.0;
+  
+  /** Default limiting magnitude, for the automatic fusion of close doubles. Matches the limiting magnitude of the charts. */
+  public static final double FUSION_LIMITING_MAG = 5.01;
+  
+  /** Name of the System property for the list of files from which to import more stars. */
+  public static final String IMPORT_PROPERTY = "mag5import";
+
+  /** Name of the System property for the magnitude ceiling of the imported stars. */
+  public static final String IMPORT_MAG_PROPERTY = "mag5importmag";
+  
+  /** Default magnitude ceiling for imported stars. */
+  public static final double IMPORT_MAG_CEILING = 8.0;
+  
+  /** Name of the System property for the location of the tile file. By default, no tile file is used. */
+  public static final String TILES_PROPERTY = "mag5tiles";
+  
+  /** Name of the System property for the memory budget of the tile cache, in megabytes. */
+  public static final String TILE_BUDGET_PROPERTY = "mag5tilebudget";
+  
+  /** Default memory budget of the tile cache, in megabytes. */
+  public static final long TILE_BUDGET_MB = 64;
+  
   /**
    Filter the catalog into a subset, in a way suited for the equatorial charts.
    Angular params are in degrees, except for the hours.
@@ -76,20 +165,19 @@ public final class StarCatalog {
    likely prudent to filter the set of stars, to ignore those that are definitely way outside the chart. 
   */
   public List<Star> filterEquatorial(Double limitingMag, Double minDec, Double maxDec, Double minHour, Double maxHour, Integer overlap){
-    List<Star> result = new ArrayList<>();
-    Double minDecl = Maths.degToRads(minDec - overlap);
-    Double maxDecl = Maths.degToRads(maxDec + overlap);
-    Double minRa = Maths.hoursToRads(minHour) - Maths.degToRads(overlap);
-    Double maxRa = Maths.hoursToRads(maxHour) + Maths.degToRads(overlap);
-    for (Star star : stars) {
-      if (Maths.inRange(minDecl, maxDecl, star.DEC) &&
-          Maths.inRangeRa(minRa, maxRa, star.RA) &&
-          Maths.inRange(-5.0, limitingMag, star.MAG)) {
-        result.add(star);
-        //there's no real need to make a copy of the star object, since the data is treated as read-only
-      }
+    return filterEquatorialView(limitingMag, minDec, maxDec, minHour, maxHour, overlap).toList();
+  }
+  
+  /** As in {@link #filterEquatorial(Double, Double, Double, Double, Double, Integer)}, but returning a view of the table. Uses a spatial index (see {@link StarIndex}). */
+  public StarView filterEquatorialView(double limitingMag, double minDec, double maxDec, double minHour, double maxHour, int overlap){
+    double minDecl = Maths.degToRads(minDec - overlap);
+    double maxDecl = Maths.degToRads(maxDec + overlap);
+    double minRa = Maths.hoursToRads(minHour) - Maths.degToRads(overlap);
+    double maxRa = Maths.hoursToRads(maxHour) + Maths.degToRads(overlap);
+    if (tiles != null) {
+      return fromTiles(minDecl, maxDecl, minRa, maxRa, (float)limitingMag);
     }
-    return result;
+    return index().query(minDecl, maxDecl, minRa, maxRa, MIN_MAG, (float)limitingMag);
   }
 
   /**
@@ -98,22 +186,55 @@ public final class StarCatalog {
    Overlap (in degrees) is about the issue of constellation lines near the EDGES of the chart.
   */
   public List<Star> filterPolar(Double limitingMag, Double minDec, Double maxDec, Integer overlap){
-    List<Star> result = new ArrayList<>();
-    Double minDecl = Maths.degToRads(minDec - overlap);
-    Double maxDecl = Maths.degToRads(maxDec + overlap);
-    for (Star star : stars) {
-      if (Maths.inRange(minDecl, maxDecl, star.DEC) &&
-          Maths.inRange(-5.0, limitingMag, star.MAG)) {
-        result.add(star);
-        //there's no real need to make a copy of the star object, since the data is treated as read-only
-      }
+    return filterPolarView(limitingMag, minDec, maxDec, overlap).toList();
+  }
+
+  /** As in {@link #filterPolar(Double, Double, Double, Integer)}, but returning a view of the table. Uses a spatial index (see {@link StarIndex}). */
+  public StarView filterPolarView(double limitingMag, double minDec, double maxDec, int overlap){
+    double minDecl = Maths.degToRads(minDec - overlap);
+    double maxDecl = Maths.degToRads(maxDec + overlap);
+    if (tiles != null) {
+      return fromTiles(minDecl, maxDecl, 0.0, 2*Math.PI, (float)limitingMag);
     }
-    return result;
+    return index().query(minDecl, maxDecl, MIN_MAG, (float)limitingMag);
+  }
+
+  /**
+   The stars in a region of the sky, usually the part of a chart seen in a viewport (see {@link mag5.draw.Projection#skyBoundsOf}).
+   Uses a spatial index (see {@link StarIndex}).
+   No overlap is added: the region already covers everything drawn in the viewport, 
+   so a small viewport fetches only a few stars, instead of everything within {@link mag5.draw.ChartUtil#EDGE_OVERLAP_DEGS} of a whole chart.
+  */
+  public StarView filterView(double limitingMag, Bounds sky) {
+    double minDecl = Maths.degToRads(sky.minDecDeg);
+    double maxDecl = Maths.degToRads(sky.maxDecDeg);
+    double minRa = Maths.hoursToRads(sky.minRaHours);
+    double maxRa = Maths.hoursToRads(sky.maxRaHours);
+    if (tiles != null) {
+      return fromTiles(minDecl, maxDecl, minRa, maxRa, (float)limitingMag);
+    }
+    return index().query(minDecl, maxDecl, minRa, maxRa, MIN_MAG, (float)limitingMag);
+  }
+
+  /** 
+   Summary of the activity of the cache of tiles, for logging once the charts are done. 
+   Returns an empty string if no tile file is used. 
+  */
+  public String tileStats() {
+    return tiles == null ? "" : tiles.stats();
   }
 
-  /** Return all of the stars in the catalog, with no filter. */
+  /** Return all of the stars in the catalog, with no filter. With a tile file, only the stars kept in memory. */
   public List<Star> all(){
-    return Collections.unmodifiableList(stars);
+    return table.asList();
+  }
+  
+  /** 
+   Return the underlying table of star data.
+   The star objects returned by {@link #all()} and the filter methods are flyweights over the rows of this table. 
+  */
+  public StarTable table() {
+    return table;
   }
   
   /**
@@ -125,25 +246,18 @@ public final class StarCatalog {
   public Set<DoubleTrouble> findCloseDoublesInConstellations(List<Star> targets, double arcSeconds, double limitingTotalMag, String... constellationAbbrs) {
     double arcSecRads = Maths.degToRads(arcSeconds/3600.00);
     Set<DoubleTrouble> result = new LinkedHashSet<>();
+    StarPairs pairs = pairsWithin(targets, arcSecRads);
+    String[] abbrs = new String[targets.size()];
+    for(int i = 0; i < abbrs.length; ++i) {
+      abbrs[i] = targets.get(i).getConstellationAbbr();
+    }
     for (String constellationAbbr : constellationAbbrs) {
       log("Scanning for doubles in " + constellationAbbr + " with mag limit " + limitingTotalMag + " and sep limit " + arcSeconds);
-      for (Star a : targets) {
-        for(Star b : targets) {
-          if (!a.INDEX.equals(b.INDEX ) &&
-              a.getConstellationAbbr().equals(constellationAbbr) && 
-              b.getConstellationAbbr().equals(constellationAbbr)) {
-            DoubleTrouble dt = new DoubleTrouble(a, b);
-            if (dt.isTrouble(limitingTotalMag, arcSecRads)) {
-              boolean alreadyFound = false;
-              for(DoubleTrouble found : result) {
-                if (found.pairHash().equals(dt.pairHash())) {
-                  alreadyFound = true;
-                }
-              }
-              if (!alreadyFound) {
-                result.add(dt);
-              }
-            }
+      for(int i = 0; i < pairs.size(); ++i) {
+        if (abbrs[pairs.a(i)].equals(constellationAbbr) && abbrs[pairs.b(i)].equals(constellationAbbr)) {
+          DoubleTrouble dt = new DoubleTrouble(targets.get(pairs.a(i)), targets.get(pairs.b(i)));
+          if (dt.isTrouble(limitingTotalMag, arcSecRads)) {
+            result.add(dt);
           }
         }
       }
@@ -153,8 +267,69 @@ public final class StarCatalog {
   
   // PRIVATE 
 
+  /** Used only while building the catalog from the raw YBS data. */
   private List<Star> stars = new ArrayList<>();
+  private StarTable table;
+  private StarIndex index;
+  private StarTileStore tiles;
+  private Set<Integer> protectedStars = Collections.emptySet();
+  /** The stars whose data has already been altered. */
+  private Set<Integer> tweaked = new LinkedHashSet<>();
   private static final Double DIM = 7.0;
+  private static final float MIN_MAG = -5.0f;
+  
+  /** Built when first needed. */
+  private synchronized StarIndex index() {
+    if (index == null) {
+      index = new StarIndex(table);
+    }
+    return index;
+  }
+  
+  /** 
+   Build the table from the raw YBS data, or read it from the binary snapshot.
+   @param withImports if false, then the stars in the files of {@value #IMPORT_PROPERTY} are not added.  
+  */
+  private void buildTable(boolean withImports) throws IOException {
+    boolean importing = withImports && !importedFiles().isEmpty();
+    StarCatalogFile snapshot = new StarCatalogFile(Paths.get(System.getProperty(SNAPSHOT_PROPERTY, SNAPSHOT_DEFAULT)), settingsStamp(importing));
+    if (snapshot.isUsable()) {
+      log("Reading the star catalog from its binary snapshot.");
+      table = snapshot.read();
+      log("Num stars in the catalog: " + table.size());
+    }
+    else {
+      readInRawStandardCatalogWhileDiscardingUnwantedItems();
+      tweakCatalogData();
+      addProperNamesToStars();
+      //sortByRightAscension(); 
+      //sortByMagnitude(); 
+      saveToIntermediateFile();
+      table = importing ? importDeepCatalogs() : StarTable.from(stars);
+      stars = null;
+      log("Saving the binary snapshot of the star catalog.");
+      snapshot.write(table);
+    }
+  }
+  
+  private void openTiles(Path tileFile) throws IOException {
+    if (!Files.exists(tileFile)) {
+      throw new IOException("No star tile file at " + tileFile.toAbsolutePath() + ". Build it first, with: java mag5.star.StarTileStore " + tileFile);
+    }
+    long budget = Long.parseLong(System.getProperty(TILE_BUDGET_PROPERTY, String.valueOf(TILE_BUDGET_MB))) * 1024 * 1024;
+    log("Using the star tile file " + tileFile + ", with a cache budget of " + budget + " bytes.");
+    tiles = new StarTileStore(tileFile, budget);
+  }
+  
+  /** The stars that are also in memory are shared with the in-memory table. */
+  private StarView fromTiles(double minDecl, double maxDecl, double minRa, double maxRa, float limitingMag) {
+    try {
+      return tiles.query(minDecl, maxDecl, minRa, maxRa, MIN_MAG, limitingMag, table);
+    }
+    catch(IOException ex) {
+      throw new UncheckedIOException("Can't read the star tile file.", ex);
+    }
+  }
   
   private void readInRawStandardCatalogWhileDiscardingUnwantedItems() {
     log("Read in raw catalog. Discard unwanted items.");
@@ -184,7 +359,12 @@ public final class StarCatalog {
     log("Tweaking data!!");
     log("Suppress T CrB. Don't want to see it. Make it dim.");
     changeMag(5948, DIM);
-    fuseCloseDoubles();
+    if (isAutomaticFusion()) {
+      fuseCloseDoublesAutomatically(fusionSepArcsecs(), fusionLimitingMag());
+    }
+    else {
+      fuseCloseDoubles();
+    }
     //Beta Equ is mag 5.1; would be nice to have, for the shape of the lines
   }
 
@@ -284,6 +464,160 @@ public final class StarCatalog {
     doubleTrouble("δ Aps", 6010, 4.18, 6011); //polyline
   }
   
+  /**
+   Find and fuse close doubles automatically, instead of using the hand-coded list above.
+   
+   <P>All pairs within the limiting separation are found. Pairs that share a star are joined into a 
+   group (a triple, for instance). If the fused magnitude of the group is within the limiting magnitude, then 
+   the brightest star in the group takes on the fused magnitude, and the others are made very dim.
+   
+   <P>A protected star (one that's part of a constellation polyline) is never made dim. 
+   If a group has a protected star, then it's the one that takes on the fused magnitude. 
+   If a group has more than one protected star, then it's left alone. 
+   Stars that have already been tweaked (T CrB, for instance) are ignored.
+  */
+  private void fuseCloseDoublesAutomatically(double sepArcsecs, double limitingMag) {
+    log("Fusing close doubles automatically, whose combined mag is greater than " + limitingMag + ", and separation less than " + sepArcsecs + " arcsecs.");
+    StarPairs pairs = pairsWithin(stars, Maths.degToRads(sepArcsecs/3600.00));
+    int[] parent = new int[stars.size()];
+    for(int i = 0; i < parent.length; ++i) {
+      parent[i] = i;
+    }
+    for(int i = 0; i < pairs.size(); ++i) {
+      if (!tweaked.contains(pairs.a(i)) && !tweaked.contains(pairs.b(i))) {
+        parent[root(parent, pairs.a(i))] = root(parent, pairs.b(i));
+      }
+    }
+    Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+    for(int i = 0; i < parent.length; ++i) {
+      groups.computeIfAbsent(root(parent, i), k -> new ArrayList<>()).add(i);
+    }
+    int count = 0;
+    for(List<Integer> group : groups.values()) {
+      if (group.size() > 1 && fuseGroup(group, limitingMag)) {
+        ++count;
+      }
+    }
+    log("Fused this many close doubles automatically: " + count);
+  }
+  
+  /** Returns true only if the group was fused. The group is in order of increasing index. */
+  private boolean fuseGroup(List<Integer> group, double limitingMag) {
+    double[] mags = new double[group.size()];
+    Integer primary = null;
+    int numProtected = 0;
+    for(int i = 0; i < mags.length; ++i) {
+      Star star = stars.get(group.get(i));
+      mags[i] = star.MAG;
+      if (protectedStars.contains(star.INDEX)) {
+        ++numProtected;
+        primary = star.INDEX;
+      }
+    }
+    double fusedMag = DoubleTrouble.fusedMagnitude(mags);
+    if (fusedMag > limitingMag) {
+      return false;
+    }
+    if (numProtected > 1) {
+      log("Not fusing a close double, since it has more than 1 protected star: " + group);
+      return false;
+    }
+    if (primary == null) {
+      primary = group.get(0);
+      for (Integer index : group) {
+        if (stars.get(index).MAG < stars.get(primary).MAG) {
+          primary = index;
+        }
+      }
+    }
+    String name = stars.get(primary).NAME;
+    List<Integer> suppressed = new ArrayList<>();
+    for (Integer index : group) {
+      if (name.isEmpty()) {
+        name = stars.get(index).NAME;
+      }
+      if (!index.equals(primary)) {
+        suppressed.add(index);
+      }
+    }
+    doubleTrouble(name, primary, fusedMag, suppressed.toArray(new Integer[0]));
+    return true;
+  }
+  
+  /** Union-find, with path-halving. */
+  private static int root(int[] parent, int i) {
+    int result = i;
+    while (parent[result] != result) {
+      parent[result] = parent[parent[result]];
+      result = parent[result];
+    }
+    return result;
+  }
+  
+  /** The pairs refer to positions in the given list. */
+  private static StarPairs pairsWithin(List<Star> targets, double sepRads) {
+    double[] ra = new double[targets.size()];
+    double[] dec = new double[targets.size()];
+    for(int i = 0; i < ra.length; ++i) {
+      ra[i] = targets.get(i).RA;
+      dec[i] = targets.get(i).DEC;
+    }
+    return new StarPairs(ra, dec, ra.length, sepRads);
+  }
+  
+  private static boolean isAutomaticFusion() {
+    return "auto".equalsIgnoreCase(System.getProperty(FUSION_PROPERTY, "manual"));
+  }
+  
+  private static double fusionSepArcsecs() {
+    return Double.parseDouble(System.getProperty(FUSION_SEP_PROPERTY, String.valueOf(FUSION_SEP_ARCSECS)));
+  }
+
+  private static double fusionLimitingMag() {
+    return Double.parseDouble(System.getProperty(FUSION_MAG_PROPERTY, String.valueOf(FUSION_LIMITING_MAG)));
+  }
+  
+  /** The snapshot needs to be rebuilt when the settings for fusing close doubles, or for importing stars, change. */
+  private long settingsStamp(boolean importing) {
+    long result = 0;
+    if (isAutomaticFusion()) {
+      result = Objects.hash(fusionSepArcsecs(), fusionLimitingMag(), protectedStars);
+    }
+    if (importing) {
+      for(File file : importedFiles()) {
+        result = 31 * result + Objects.hash(file.getAbsolutePath(), file.length(), file.lastModified(), importMagCeiling());
+      }
+    }
+    return result;
+  }
+  
+  private static List<File> importedFiles() {
+    List<File> result = new ArrayList<>();
+    String files = System.getProperty(IMPORT_PROPERTY, "");
+    for(String file : files.split(Pattern.quote(File.pathSeparator))) {
+      if (file.trim().length() > 0) {
+        result.add(new File(file.trim()));
+      }
+    }
+    return result;
+  }
+  
+  private static double importMagCeiling() {
+    return Double.parseDouble(System.getProperty(IMPORT_MAG_PROPERTY, String.valueOf(IMPORT_MAG_CEILING)));
+  }
+  
+  /** The YBS stars come first, followed by the imported stars. */
+  private StarTable importDeepCatalogs() throws IOException {
+    StarTable.Builder builder = new StarTable.Builder();
+    builder.addAll(stars);
+    StarCatalogImport importer = new StarCatalogImport(importMagCeiling());
+    for (File file : importedFiles()) {
+      importer.importFile(file, builder);
+    }
+    log("Num stars in the catalog, including imported stars: " + builder.size());
+    return builder.build();
+  }
+  
   private void addProperNamesToStars() {
     log("Add proper names to stars.");
     StarName starName = new StarName();
@@ -476,6 +810,7 @@ public final class StarCatalog {
     Star star = stars.get(index);
     log("Change mag to " + mag + " . Star: " + star);
     star.MAG = mag;
+    tweaked.add(index);
   }
   
   /** Change the name and magnitude of the given star. */
@@ -484,6 +819,7 @@ public final class StarCatalog {
     log("Double trouble. Change mag to " + mag + ", name to " + newName + ". Star: " + star);
     star.MAG = mag;
     star.NAME = newName;
+    tweaked.add(index);
   }
   
   /** 
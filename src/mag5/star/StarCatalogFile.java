@@ -0,0 +1,223 @@
+package mag5.star;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import mag5.util.DataFileReader;
+
+/**
+ A compiled, binary snapshot of the star catalog.
+
+ <P>Building the catalog from the raw YBS text file means parsing 9,110 fixed-width lines, and then
+ applying all of the tweaks made by {@link StarCatalog}.
+ That result never changes from one run to the next, so it's saved here in a compact binary form,
+ and simply read back in on later runs.
+
+ <P>The file is columnar. All of the values for one field are stored together:
+ <pre>
+   header: magic, version, number of stars, size of the name-pool, source-stamp
+   double[N] right ascension (rads)
+   double[N] declination (rads)
+   float[N] magnitude
+   int[N] index
+   int[N+1] offsets into the name-pool, for the name ('β And')
+   int[N+1] offsets into the name-pool, for the proper name ('Mirach')
+   byte[] name-pool, UTF-8
+ </pre>
+
+ <P>The file is read using a memory-mapped buffer, with bulk reads of each column directly into a {@link StarTable}.
+ There's no parsing of text, except for decoding the names.
+
+ <P>The snapshot is ignored (and later overwritten) if its version or source-stamp doesn't match.
+ The source-stamp includes any settings that change the content of the catalog.
+ WARNING: {@link #VERSION} needs to be incremented whenever the tweaks made to the catalog data are changed in the code.
+*/
+final class StarCatalogFile {
+
+  /** Increment this when the code that tweaks the catalog changes. */
+  static final int VERSION = 2;
+
+  /**
+   @param file location of the snapshot.
+   @param settings stamp for any settings that affect the content of the catalog. Use 0 for the default settings.
+  */
+  StarCatalogFile(Path file, long settings) {
+    this.file = file;
+    this.settings = settings;
+  }
+
+  /** Return true only if the file exists, and it was built with the current version and source data. */
+  boolean isUsable() throws IOException {
+    boolean result = false;
+    if (Files.isRegularFile(file) && Files.size(file) >= HEADER_BYTES) {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ORDER);
+        channel.read(header, 0);
+        header.flip();
+        result = header.getInt() == MAGIC && header.getInt() == VERSION;
+        header.getInt(); //num stars
+        header.getInt(); //pool size
+        result = result && header.getLong() == sourceStamp();
+      }
+    }
+    return result;
+  }
+
+  /** Save the given table to the file, overwriting any existing file. Then read it back in, to check it. */
+  void write(StarTable table) throws IOException {
+    int count = table.size();
+    byte[][] names = new byte[count][];
+    byte[][] properNames = new byte[count][];
+    int poolBytes = 0;
+    for(int row = 0; row < count; ++row) {
+      names[row] = table.name(row).getBytes(StandardCharsets.UTF_8);
+      properNames[row] = table.properName(row).getBytes(StandardCharsets.UTF_8);
+      poolBytes = poolBytes + names[row].length + properNames[row].length;
+    }
+    int size = HEADER_BYTES + count * (2 * Double.BYTES + Float.BYTES + Integer.BYTES) + 2 * (count + 1) * Integer.BYTES + poolBytes;
+    ByteBuffer buffer = ByteBuffer.allocate(size).order(ORDER);
+    buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(poolBytes).putLong(sourceStamp());
+    buffer.asDoubleBuffer().put(table.raColumn());
+    buffer.position(buffer.position() + count * Double.BYTES);
+    buffer.asDoubleBuffer().put(table.decColumn());
+    buffer.position(buffer.position() + count * Double.BYTES);
+    buffer.asFloatBuffer().put(table.magColumn());
+    buffer.position(buffer.position() + count * Float.BYTES);
+    buffer.asIntBuffer().put(table.indexColumn());
+    buffer.position(buffer.position() + count * Integer.BYTES);
+    putOffsets(names, buffer);
+    putOffsets(properNames, buffer);
+    for(int row = 0; row < count; ++row) {
+      buffer.put(names[row]);
+    }
+    for(int row = 0; row < count; ++row) {
+      buffer.put(properNames[row]);
+    }
+    buffer.flip();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+    checkRoundTrip(table);
+  }
+
+  /** Read the stars from the file, in a single pass. Call {@link #isUsable()} first. */
+  StarTable read() throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      buffer.order(ORDER);
+      buffer.position(2 * Integer.BYTES);
+      int count = buffer.getInt();
+      int poolBytes = buffer.getInt();
+      buffer.position(HEADER_BYTES);
+
+      double[] ra = new double[count];
+      double[] dec = new double[count];
+      float[] mag = new float[count];
+      int[] index = new int[count];
+      int[] nameOffsets = new int[count + 1];
+      int[] properNameOffsets = new int[count + 1];
+      byte[] pool = new byte[poolBytes];
+      getDoubles(buffer, ra);
+      getDoubles(buffer, dec);
+      buffer.asFloatBuffer().get(mag);
+      buffer.position(buffer.position() + count * Float.BYTES);
+      getInts(buffer, index);
+      getInts(buffer, nameOffsets);
+      getInts(buffer, properNameOffsets);
+      buffer.get(pool);
+
+      //the proper names come after all of the names, in the same pool
+      int properNamesStart = nameOffsets[count];
+      StarTable result = new StarTable(count);
+      for(int row = 0; row < count; ++row) {
+        result.set(row, index[row], ra[row], dec[row], mag[row], text(pool, 0, nameOffsets, row), text(pool, properNamesStart, properNameOffsets, row));
+      }
+      return result;
+    }
+  }
+
+  // PRIVATE
+
+  private Path file;
+  private long settings;
+
+  /** 'M5SC' */
+  private static final int MAGIC = 0x4D355343;
+  private static final int HEADER_BYTES = 4 * Integer.BYTES + Long.BYTES;
+  private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+  /** The files from which the snapshot is built. If any of them change, then the snapshot is stale. */
+  private static final String[] SOURCES = {"yale_bright_star_catalog_5_raw.txt", "proper-names.utf8"};
+
+  /**
+   Cheap fingerprint of the source data files, using only their size and time-stamp.
+   There's no need to read the files themselves.
+  */
+  private long sourceStamp() throws IOException {
+    long result = 17 + settings;
+    for (String source : SOURCES) {
+      URL url = DataFileReader.locate(StarCatalogFile.class, source);
+      if (url != null) {
+        URLConnection connection = url.openConnection();
+        result = 31 * result + connection.getContentLengthLong();
+        result = 31 * result + connection.getLastModified();
+        connection.getInputStream().close(); //avoid leaking the file handle
+      }
+    }
+    return result;
+  }
+
+  /** The last offset is the total size of the names. */
+  private void putOffsets(byte[][] texts, ByteBuffer buffer) {
+    int offset = 0;
+    for (byte[] text : texts) {
+      buffer.putInt(offset);
+      offset = offset + text.length;
+    }
+    buffer.putInt(offset);
+  }
+
+  private void getDoubles(ByteBuffer buffer, double[] target) {
+    buffer.asDoubleBuffer().get(target);
+    buffer.position(buffer.position() + target.length * Double.BYTES);
+  }
+
+  private void getInts(ByteBuffer buffer, int[] target) {
+    buffer.asIntBuffer().get(target);
+    buffer.position(buffer.position() + target.length * Integer.BYTES);
+  }
+
+  /** The offsets are relative to the given start of a section of the pool. */
+  private String text(byte[] pool, int start, int[] offsets, int row) {
+    return new String(pool, start + offsets[row], offsets[row + 1] - offsets[row], StandardCharsets.UTF_8);
+  }
+
+  /** 
+   The table read back from the file must be exactly the same as the table written to it.
+   A snapshot that reads back differently would silently corrupt every chart, so it's checked right away. 
+  */
+  private void checkRoundTrip(StarTable table) throws IOException {
+    StarTable readBack = read();
+    if (readBack.size() != table.size()) {
+      throw new IllegalStateException("Star catalog snapshot has " + readBack.size() + " stars, but " + table.size() + " were written.");
+    }
+    for(int row = 0; row < table.size(); ++row) {
+      boolean same = table.index(row) == readBack.index(row) && table.ra(row) == readBack.ra(row) && table.dec(row) == readBack.dec(row) 
+        && table.mag(row) == readBack.mag(row) && table.name(row).equals(readBack.name(row)) && table.properName(row).equals(readBack.properName(row));
+      if (!same) {
+        throw new IllegalStateException("Star catalog snapshot doesn't read back correctly, at row " + row + ": " + table.star(row) + " versus " + readBack.star(row));
+      }
+    }
+  }
+}
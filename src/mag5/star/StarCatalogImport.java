@@ -0,0 +1,215 @@
+package mag5.star;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.zip.GZIPInputStream;
+
+import mag5.util.DataFileReader;
+import mag5.util.Maths;
+
+/**
+ Import stars from a large, local copy of the Hipparcos or Tycho-2 catalogs, in addition to the YBS.
+
+ <P>These catalogs are too big to be bundled with this project, and too big to be read in all at once.
+ Here, the file is read one line at a time, and each line is turned into a row of a {@link StarTable} right away.
+ The lines themselves are never retained.
+ Files ending in '.gz' are decompressed on the fly, so the files can be used just as they're downloaded from CDS.
+ (Tycho-2 comes as 20 files, tyc2.dat.00.gz to tyc2.dat.19.gz. They can all be imported together.)
+
+ <P>The format is detected for each line, using the number of fields.
+ Both catalogs use a '|' between fields.
+ <ul>
+  <li>Hipparcos (I/239, hip_main.dat): V magnitude, and position in degrees (epoch J1991.25, moved to J2000 using the proper motion).
+  <li>Tycho-2 (I/259, tyc2.dat): the mean position in degrees (J2000), or the observed position when there's no mean position.
+  The V magnitude is estimated from VT and BT, using V = VT - 0.090 (BT - VT).
+ </ul>
+
+ <P>Only stars in a range of magnitude are kept.
+ Stars brighter than {@link #YBS_COMPLETENESS_MAG} are skipped, since they're already in the YBS,
+ and would otherwise appear twice on the chart.
+ Stars dimmer than the given ceiling are skipped, since they won't be on the chart.
+
+ <P>The imported stars have no name. Their index continues on from the last index of the YBS,
+ so that there's no collision with the YBS (and the index stays the same as the row in the table).
+
+ <P>The throughput is logged, in records per second.
+*/
+public final class StarCatalogImport {
+
+  /** The YBS is complete down to about this magnitude. */
+  public static final double YBS_COMPLETENESS_MAG = 6.5;
+
+  /**
+   Dev tool. Import the given files, and report the number of stars and the throughput.
+   <P>Example: java mag5.star.StarCatalogImport 9.0 hip_main.dat.gz
+   @param args magnitude ceiling, then one or more files
+  */
+  public static void main(String... args) throws IOException {
+    StarCatalogImport importer = new StarCatalogImport(Double.parseDouble(args[0]));
+    StarTable.Builder builder = new StarTable.Builder();
+    for(int i = 1; i < args.length; ++i) {
+      importer.importFile(new File(args[i]), builder);
+    }
+    log("Total stars imported: " + builder.size());
+  }
+
+  /** @param magCeiling stars dimmer than this magnitude are skipped. */
+  public StarCatalogImport(double magCeiling) {
+    this.magCeiling = magCeiling;
+  }
+
+  /**
+   Stream the given file into the builder.
+   Each new star is given the next index, which is the same as its row in the table.
+   Returns the number of stars added.
+  */
+  int importFile(File file, StarTable.Builder builder) throws IOException {
+    log("Importing stars from " + file.getCanonicalPath() + ", for magnitudes " + YBS_COMPLETENESS_MAG + " to " + magCeiling);
+    long start = System.nanoTime();
+    int numRecords = 0;
+    int numAdded = 0;
+    int numBadRecords = 0;
+    try (
+      InputStream input = open(file);
+      BufferedReader reader = new BufferedReader(new InputStreamReader(input, DataFileReader.ENCODING), 1 << 16);
+    ){
+      String line = null;
+      while ((line = reader.readLine()) != null) {
+        ++numRecords;
+        try {
+          if (parse(line)) {
+            builder.add(builder.size(), ra, dec, (float)mag, "", "");
+            ++numAdded;
+          }
+        }
+        catch(NumberFormatException ex) {
+          ++numBadRecords;
+        }
+      }
+    }
+    double secs = (System.nanoTime() - start) / 1.0E9;
+    log("Records read: " + numRecords + ". Stars added: " + numAdded + ". Records not parsed: " + numBadRecords);
+    log("Throughput: " + Math.round(numRecords / Math.max(secs, 1.0E-9)) + " records/sec (" + String.format("%.2f", secs) + " secs)");
+    return numAdded;
+  }
+
+  // PRIVATE
+
+  private double magCeiling;
+
+  /** The output of the last call to parse. */
+  private double ra;
+  private double dec;
+  private double mag;
+
+  private static final int HIPPARCOS_NUM_FIELDS = 78;
+  private static final int TYCHO2_NUM_FIELDS = 32;
+  private static final char SEP = '|';
+  private static final double YEARS_FROM_HIPPARCOS_EPOCH_TO_J2000 = 2000.0 - 1991.25;
+  private static final double MAS_TO_RADS = Maths.degToRads(1.0 / 3_600_000.0);
+
+  private static InputStream open(File file) throws IOException {
+    InputStream result = new FileInputStream(file);
+    if (file.getName().endsWith(".gz")) {
+      result = new GZIPInputStream(result, 1 << 16);
+    }
+    return result;
+  }
+
+  /**
+   Returns true only if the line is a star in the desired range of magnitude.
+   Sets the ra, dec and mag fields.
+  */
+  private boolean parse(String line) {
+    boolean result = false;
+    int[] seps = separators(line);
+    int numFields = seps.length + 1;
+    if (numFields == HIPPARCOS_NUM_FIELDS) {
+      result = parseHipparcos(line, seps);
+    }
+    else if (numFields == TYCHO2_NUM_FIELDS) {
+      result = parseTycho2(line, seps);
+    }
+    return result;
+  }
+
+  private boolean parseHipparcos(String line, int[] seps) {
+    if (isBlank(line, seps, 5) || isBlank(line, seps, 8)) {
+      return false; //no magnitude, or no position
+    }
+    mag = number(line, seps, 5);
+    if (!isWanted(mag)) {
+      return false;
+    }
+    double decDegs = number(line, seps, 9);
+    dec = Maths.degToRads(decDegs);
+    ra = Maths.degToRads(number(line, seps, 8));
+    if (!isBlank(line, seps, 12)) {
+      //the proper motion in RA includes the factor cos(dec)
+      ra = ra + number(line, seps, 12) * MAS_TO_RADS * YEARS_FROM_HIPPARCOS_EPOCH_TO_J2000 / Math.cos(dec);
+      dec = dec + number(line, seps, 13) * MAS_TO_RADS * YEARS_FROM_HIPPARCOS_EPOCH_TO_J2000;
+      ra = Maths.in2pi(ra);
+    }
+    return true;
+  }
+
+  private boolean parseTycho2(String line, int[] seps) {
+    if (isBlank(line, seps, 19)) {
+      return false; //no VT
+    }
+    double vt = number(line, seps, 19);
+    mag = isBlank(line, seps, 17) ? vt : vt - 0.090 * (number(line, seps, 17) - vt);
+    if (!isWanted(mag)) {
+      return false;
+    }
+    boolean hasMeanPosition = !isBlank(line, seps, 2);
+    ra = Maths.degToRads(number(line, seps, hasMeanPosition ? 2 : 24));
+    dec = Maths.degToRads(number(line, seps, hasMeanPosition ? 3 : 25));
+    return true;
+  }
+
+  private boolean isWanted(double mag) {
+    return YBS_COMPLETENESS_MAG <= mag && mag <= magCeiling;
+  }
+
+  /** Positions of all the separators in the line. Avoids String.split, which creates many objects. */
+  private static int[] separators(String line) {
+    int count = 0;
+    for(int i = 0; i < line.length(); ++i) {
+      if (line.charAt(i) == SEP) ++count;
+    }
+    int[] result = new int[count];
+    int j = 0;
+    for(int i = 0; i < line.length(); ++i) {
+      if (line.charAt(i) == SEP) result[j++] = i;
+    }
+    return result;
+  }
+
+  private static int fieldStart(int[] seps, int field) {
+    return field == 0 ? 0 : seps[field - 1] + 1;
+  }
+
+  private static int fieldEnd(String line, int[] seps, int field) {
+    return field < seps.length ? seps[field] : line.length();
+  }
+
+  private static boolean isBlank(String line, int[] seps, int field) {
+    for(int i = fieldStart(seps, field); i < fieldEnd(line, seps, field); ++i) {
+      if (line.charAt(i) != ' ') return false;
+    }
+    return true;
+  }
+
+  private static double number(String line, int[] seps, int field) {
+    return Double.parseDouble(line.substring(fieldStart(seps, field), fieldEnd(line, seps, field)).trim());
+  }
+
+  private static void log(Object text){
+    System.out.println(text.toString());
+  }
+}
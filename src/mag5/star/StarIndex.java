@@ -0,0 +1,111 @@
+package mag5.star;
+
+import java.util.Arrays;
+
+import mag5.util.Maths;
+
+/**
+ Spatial index over a {@link StarTable}, used for finding the stars for a given chart.
+
+ <P>The sky is divided into zones of declination, and each zone is divided into cells of right ascension (see {@link SkyGrid}).
+ A query visits only the cells that intersect the requested region, instead of scanning the whole catalog.
+
+ <P>Within each cell, the stars are sorted by magnitude, brightest first.
+ When scanning a cell, the scan stops at the first star that's too dim.
+
+ <P>Cell selection is deliberately generous, by one cell on each side.
+ Each candidate star is then tested with exactly the same predicates as a full scan would use.
+ The result is returned in increasing order of row, just as with a full scan.
+ So the result is always identical to that of a full scan.
+
+ <P>I considered HEALPix, but this simpler scheme fits the shape of the queries made by the charts,
+ which are always ranges of declination and right ascension.
+*/
+final class StarIndex {
+
+  /** Height of each zone of declination. Must divide 180 evenly. */
+  static final int ZONE_HEIGHT_DEGS = 5;
+
+  /** Width of each cell of right ascension. Must divide 360 evenly. */
+  static final int CELL_WIDTH_DEGS = 5;
+
+  /** The table is not copied. Building the index takes a single sort of the rows by magnitude. */
+  StarIndex(StarTable table) {
+    this.table = table;
+    int numStars = table.size();
+    float[] mag = table.magColumn();
+
+    //sort all rows by magnitude (and by row, for equal magnitudes); the cells inherit this order
+    long[] keys = new long[numStars];
+    for(int row = 0; row < numStars; ++row) {
+      keys[row] = ((long)sortable(mag[row]) << 32) | row;
+    }
+    Arrays.sort(keys);
+
+    int[] cellOfRow = new int[numStars];
+    cellStart = new int[NUM_CELLS + 1];
+    for(int row = 0; row < numStars; ++row) {
+      cellOfRow[row] = GRID.cellFor(table.dec(row), table.ra(row));
+      ++cellStart[cellOfRow[row] + 1];
+    }
+    for(int cell = 0; cell < NUM_CELLS; ++cell) {
+      cellStart[cell + 1] = cellStart[cell + 1] + cellStart[cell];
+    }
+    int[] next = Arrays.copyOf(cellStart, NUM_CELLS);
+    cellRows = new int[numStars];
+    cellMags = new float[numStars];
+    for(long key : keys) {
+      int row = (int)key;
+      int slot = next[cellOfRow[row]]++;
+      cellRows[slot] = row;
+      cellMags[slot] = mag[row];
+    }
+  }
+
+  /**
+   Find the stars in the given region, using the same predicates as {@link StarCatalog#filterEquatorialView}.
+   The range of right ascension is as in {@link Maths#inRangeRa(double, double, double)}: if min is greater than max,
+   then the range straddles 0h. Angles in rads.
+  */
+  StarView query(double minDec, double maxDec, double minRa, double maxRa, float minMag, float maxMag) {
+    int[] rows = new int[64];
+    int count = 0;
+    for(int cell : GRID.cellsFor(minDec, maxDec, minRa, maxRa)) {
+      for(int slot = cellStart[cell]; slot < cellStart[cell + 1]; ++slot) {
+        float mag = cellMags[slot];
+        if (mag > maxMag) break; //the rest are dimmer
+        int row = cellRows[slot];
+        if (minMag <= mag && Maths.inRange(minDec, maxDec, table.dec(row)) && Maths.inRangeRa(minRa, maxRa, table.ra(row))) {
+          if (count == rows.length) {
+            rows = Arrays.copyOf(rows, 2 * count);
+          }
+          rows[count++] = row;
+        }
+      }
+    }
+    Arrays.sort(rows, 0, count);
+    return new StarView(table, rows, count);
+  }
+
+  /** Find the stars in the given range of declination, for all right ascensions. */
+  StarView query(double minDec, double maxDec, float minMag, float maxMag) {
+    return query(minDec, maxDec, 0.0, TWO_PI, minMag, maxMag);
+  }
+
+  // PRIVATE
+
+  private StarTable table;
+  private int[] cellStart;
+  private int[] cellRows;
+  private float[] cellMags;
+
+  private static final double TWO_PI = 2 * Math.PI;
+  private static final SkyGrid GRID = new SkyGrid(ZONE_HEIGHT_DEGS, CELL_WIDTH_DEGS);
+  private static final int NUM_CELLS = GRID.numCells();
+
+  /** Bits of a float, altered so that their order as a signed int is the same as the order of the floats. */
+  static int sortable(float val) {
+    int bits = Float.floatToIntBits(val);
+    return bits ^ ((bits >> 31) & 0x7fffffff);
+  }
+}
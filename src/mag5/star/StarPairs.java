@@ -0,0 +1,184 @@
+package mag5.star;
+
+import java.util.Arrays;
+
+/**
+ Find all pairs of stars that are within a given angular separation of each other, across the whole sky.
+
+ <P>Each star is turned into a unit vector in 3D. The vectors are placed in a grid of cubes, with the
+ size of each cube equal to the chord-length of the separation limit.
+ Any pair within the limit must then be in the same cube, or in adjacent cubes.
+ So each star needs to be compared only with the stars in 27 cubes, instead of with the whole catalog.
+ This is close to linear in the number of stars.
+
+ <P>Working with unit vectors avoids all the usual trouble with right ascension near 0h, and near the poles.
+ The separation is the true angular separation (the great-circle distance), not an approximation.
+
+ <P>The pairs are returned in order of the first row, then the second row. The first row is always less than the second.
+*/
+final class StarPairs {
+
+  /**
+   Find the pairs.
+   @param ra right ascension in rads, one item per star.
+   @param dec declination in rads, one item per star.
+   @param numStars only the first numStars items in the arrays are examined.
+   @param maxSepRads find pairs with an angular separation less than or equal to this limit.
+  */
+  StarPairs(double[] ra, double[] dec, int numStars, double maxSepRads) {
+    double maxChord = chord(maxSepRads);
+    double maxChordSquared = maxChord * maxChord;
+    double cellSize = Math.max(maxChord, MIN_CELL_SIZE);
+    double[] x = new double[numStars];
+    double[] y = new double[numStars];
+    double[] z = new double[numStars];
+    long[] keys = new long[numStars];
+    for(int i = 0; i < numStars; ++i) {
+      double cosDec = Math.cos(dec[i]);
+      x[i] = cosDec * Math.cos(ra[i]);
+      y[i] = cosDec * Math.sin(ra[i]);
+      z[i] = Math.sin(dec[i]);
+      keys[i] = key(cell(x[i], cellSize), cell(y[i], cellSize), cell(z[i], cellSize));
+    }
+
+    //group the stars by cube, such that each cube is a contiguous run
+    long[] cubes = distinct(keys);
+    int[] cubeStart = new int[cubes.length + 1];
+    int[] cubeOfStar = new int[numStars];
+    for(int i = 0; i < numStars; ++i) {
+      cubeOfStar[i] = Arrays.binarySearch(cubes, keys[i]);
+      ++cubeStart[cubeOfStar[i] + 1];
+    }
+    for(int cube = 0; cube < cubes.length; ++cube) {
+      cubeStart[cube + 1] = cubeStart[cube + 1] + cubeStart[cube];
+    }
+    int[] next = Arrays.copyOf(cubeStart, cubes.length);
+    int[] starsByCube = new int[numStars];
+    for(int i = 0; i < numStars; ++i) {
+      starsByCube[next[cubeOfStar[i]]++] = i;
+    }
+
+    for(int a = 0; a < numStars; ++a) {
+      int firstPairForA = size;
+      int cx = cell(x[a], cellSize);
+      int cy = cell(y[a], cellSize);
+      int cz = cell(z[a], cellSize);
+      for(int dx = -1; dx <= 1; ++dx) {
+        for(int dy = -1; dy <= 1; ++dy) {
+          for(int dz = -1; dz <= 1; ++dz) {
+            int cube = Arrays.binarySearch(cubes, key(cx + dx, cy + dy, cz + dz));
+            if (cube < 0) continue;
+            for(int slot = cubeStart[cube]; slot < cubeStart[cube + 1]; ++slot) {
+              int b = starsByCube[slot];
+              if (b > a) {
+                double ex = x[a] - x[b];
+                double ey = y[a] - y[b];
+                double ez = z[a] - z[b];
+                double chordSquared = ex*ex + ey*ey + ez*ez;
+                if (chordSquared <= maxChordSquared) {
+                  add(a, b, 2 * Math.asin(Math.sqrt(chordSquared) / 2));
+                }
+              }
+            }
+          }
+        }
+      }
+      sortByB(firstPairForA);
+    }
+  }
+
+  /** The number of pairs found. */
+  int size() {
+    return size;
+  }
+
+  /** The first star in the i-th pair. */
+  int a(int i) {
+    return as[i];
+  }
+
+  /** The second star in the i-th pair. Always greater than {@link #a(int)}. */
+  int b(int i) {
+    return bs[i];
+  }
+
+  /** The true angular separation of the i-th pair, in rads. */
+  double sep(int i) {
+    return seps[i];
+  }
+
+  /** The true angular separation of two points on the sphere, in rads. Uses the haversine formula, which is well-behaved for small angles. */
+  static double separation(double ra1, double dec1, double ra2, double dec2) {
+    double sinHalfDec = Math.sin((dec2 - dec1) / 2);
+    double sinHalfRa = Math.sin((ra2 - ra1) / 2);
+    double h = sinHalfDec * sinHalfDec + Math.cos(dec1) * Math.cos(dec2) * sinHalfRa * sinHalfRa;
+    return 2 * Math.asin(Math.min(1.0, Math.sqrt(h)));
+  }
+
+  // PRIVATE
+
+  private int[] as = new int[16];
+  private int[] bs = new int[16];
+  private double[] seps = new double[16];
+  private int size;
+  
+  /** Keeps the number of cells along each axis within the range of {@link #key(int, int, int)}. */
+  private static final double MIN_CELL_SIZE = 4.0 / (1 << 20);
+
+  /** Length of the straight line between two points on the unit sphere, separated by the given angle. */
+  private static double chord(double angle) {
+    return 2 * Math.sin(Math.min(angle, Math.PI) / 2);
+  }
+
+  private static int cell(double coord, double cellSize) {
+    return (int)Math.floor(coord / cellSize);
+  }
+
+  /** Cell coords are at most 2^18 in size (see MIN_CELL_SIZE), so each fits in 21 bits after the offset. */
+  private static long key(int cx, int cy, int cz) {
+    final long OFFSET = 1 << 20;
+    final long MASK = (1 << 21) - 1;
+    return (((cx + OFFSET) & MASK) << 42) | (((cy + OFFSET) & MASK) << 21) | ((cz + OFFSET) & MASK);
+  }
+
+  /** Sorted, with no duplicates. */
+  private static long[] distinct(long[] keys) {
+    long[] sorted = keys.clone();
+    Arrays.sort(sorted);
+    int count = 0;
+    for(int i = 0; i < sorted.length; ++i) {
+      if (i == 0 || sorted[i] != sorted[i - 1]) {
+        sorted[count++] = sorted[i];
+      }
+    }
+    return Arrays.copyOf(sorted, count);
+  }
+
+  private void add(int a, int b, double sep) {
+    if (size == as.length) {
+      as = Arrays.copyOf(as, 2 * size);
+      bs = Arrays.copyOf(bs, 2 * size);
+      seps = Arrays.copyOf(seps, 2 * size);
+    }
+    as[size] = a;
+    bs[size] = b;
+    seps[size] = sep;
+    ++size;
+  }
+
+  /** The pairs for the current star are all at the end. Sort them by the second star. There are only a few. */
+  private void sortByB(int from) {
+    for(int i = from + 1; i < size; ++i) {
+      int b = bs[i];
+      double sep = seps[i];
+      int j = i - 1;
+      while (j >= from && bs[j] > b) {
+        bs[j + 1] = bs[j];
+        seps[j + 1] = seps[j];
+        --j;
+      }
+      bs[j + 1] = b;
+      seps[j + 1] = sep;
+    }
+  }
+}
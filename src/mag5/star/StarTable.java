@@ -0,0 +1,233 @@
+package mag5.star;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ The star catalog, stored as a table of columns of primitives, instead of as a list of objects.
+
+ <P>Each star is a row in the table.
+ The row is also the star's {@link Star#INDEX}, in the case of the standard catalog.
+
+ <P>The columns are plain arrays. There's no boxing, and no chasing of pointers when scanning through the data.
+ This matters when the catalog is much larger than the YBS.
+ The sine and cosine of the declination are calculated once, up front, since almost all
+ projections need them.
+
+ <P>The drawing code still sees {@link Star} objects.
+ They're created lazily, one per row, only when first asked for, and the same object is always returned for the same row.
+
+ <P>The magnitude is stored as a float, and is quantised to 0.01 mag: when converting back to a double, the value is rounded to 2 decimals.
+ The magnitudes of the Yale Bright Star catalog have 2 decimals, so they come back exactly the same as the original.
+ Others don't. For example, the V magnitude of a Tycho-2 star is calculated from its BT and VT magnitudes,
+ so here it loses any digits past the second decimal.
+
+ <P>The columns are returned directly, without making a copy. Callers must treat them as read-only.
+*/
+public final class StarTable {
+
+  /**
+   Build a table from existing star objects.
+   The given objects are retained, and are returned by {@link #star(int)}.
+  */
+  static StarTable from(List<Star> stars) {
+    StarTable result = new StarTable(stars.size());
+    int row = 0;
+    for(Star star : stars) {
+      result.set(row, star.INDEX, star.RA, star.DEC, star.MAG.floatValue(), star.NAME, star.PROPER_NAME);
+      result.flyweights[row] = star;
+      ++row;
+    }
+    return result;
+  }
+
+  /** Number of rows in the table. */
+  public int size() {
+    return ra.length;
+  }
+
+  /** Right ascension in radians. */
+  public double ra(int row) { return ra[row]; }
+
+  /** Declination in radians. */
+  public double dec(int row) { return dec[row]; }
+
+  /** Sine of the declination. */
+  public double sinDec(int row) { return sinDec[row]; }
+
+  /** Cosine of the declination. */
+  public double cosDec(int row) { return cosDec[row]; }
+
+  /** Visual magnitude, as stored. */
+  public float mag(int row) { return mag[row]; }
+
+  /** Visual magnitude, rounded to 2 decimals. */
+  public double magnitude(int row) {
+    return asMagnitude(mag[row]);
+  }
+
+  /** Index from the underlying star catalog. */
+  public int index(int row) { return index[row]; }
+
+  /** See {@link Star#NAME}. */
+  public String name(int row) { return name[row]; }
+
+  /** See {@link Star#PROPER_NAME}. */
+  public String properName(int row) { return properName[row]; }
+
+  /** The whole right ascension column. Read-only! */
+  public double[] raColumn() { return ra; }
+
+  /** The whole declination column. Read-only! */
+  public double[] decColumn() { return dec; }
+
+  /** The whole sine-of-declination column. Read-only! */
+  public double[] sinDecColumn() { return sinDec; }
+
+  /** The whole cosine-of-declination column. Read-only! */
+  public double[] cosDecColumn() { return cosDec; }
+
+  /** The whole magnitude column. Read-only! */
+  public float[] magColumn() { return mag; }
+
+  /** The whole index column. Read-only! */
+  public int[] indexColumn() { return index; }
+
+  /**
+   The star object for the given row.
+   It's created when first asked for. After that, the same object is always returned.
+  */
+  public synchronized Star star(int row) {
+    Star result = flyweights[row];
+    if (result == null) {
+      result = new Star();
+      result.INDEX = index[row];
+      result.RA = ra[row];
+      result.DEC = dec[row];
+      result.MAG = magnitude(row);
+      result.NAME = name[row];
+      result.PROPER_NAME = properName[row];
+      flyweights[row] = result;
+    }
+    return result;
+  }
+
+  /** All of the rows, as a read-only list of stars. The stars are created only when they're accessed. */
+  public List<Star> asList(){
+    return new AbstractList<Star>() {
+      @Override public Star get(int row) {
+        return star(row);
+      }
+      @Override public int size() {
+        return StarTable.this.size();
+      }
+    };
+  }
+
+  /**
+   Build a table one row at a time, when the number of rows isn't known in advance.
+   The columns grow as needed, and are trimmed to size at the end.
+  */
+  static final class Builder {
+    
+    /** Add the given star objects. They're retained, and are returned by {@link StarTable#star(int)}. */
+    void addAll(List<Star> stars) {
+      for (Star star : stars) {
+        add(star.INDEX, star.RA, star.DEC, star.MAG.floatValue(), star.NAME, star.PROPER_NAME, star);
+      }
+    }
+    
+    /** Add a row. */
+    void add(int index, double ra, double dec, float mag, String name, String properName) {
+      add(index, ra, dec, mag, name, properName, null);
+    }
+    
+    /** Add a row, with an existing star object to be returned by {@link StarTable#star(int)}. The star object can be null. */
+    void add(int index, double ra, double dec, float mag, String name, String properName, Star flyweight) {
+      if (size == this.index.length) {
+        int capacity = Math.max(1024, 2 * size);
+        this.index = Arrays.copyOf(this.index, capacity);
+        this.ra = Arrays.copyOf(this.ra, capacity);
+        this.dec = Arrays.copyOf(this.dec, capacity);
+        this.mag = Arrays.copyOf(this.mag, capacity);
+        this.name = Arrays.copyOf(this.name, capacity);
+        this.properName = Arrays.copyOf(this.properName, capacity);
+        this.flyweights = Arrays.copyOf(this.flyweights, capacity);
+      }
+      this.index[size] = index;
+      this.ra[size] = ra;
+      this.dec[size] = dec;
+      this.mag[size] = mag;
+      this.name[size] = name;
+      this.properName[size] = properName;
+      this.flyweights[size] = flyweight;
+      ++size;
+    }
+    
+    /** The number of rows added so far. */
+    int size() {
+      return size;
+    }
+    
+    StarTable build() {
+      StarTable result = new StarTable(size);
+      for(int row = 0; row < size; ++row) {
+        result.set(row, index[row], ra[row], dec[row], mag[row], name[row], properName[row]);
+        result.flyweights[row] = flyweights[row];
+      }
+      return result;
+    }
+    
+    private int size;
+    private int[] index = new int[0];
+    private double[] ra = new double[0];
+    private double[] dec = new double[0];
+    private float[] mag = new float[0];
+    private String[] name = new String[0];
+    private String[] properName = new String[0];
+    private Star[] flyweights = new Star[0];
+  }
+
+  /** Undo the conversion of a magnitude to a float. */
+  static double asMagnitude(float mag) {
+    return Math.round(mag * 100.0) / 100.0;
+  }
+
+  /** Create an empty table, with a fixed number of rows. Each row is populated with {@link #set}. */
+  StarTable(int numRows) {
+    ra = new double[numRows];
+    dec = new double[numRows];
+    sinDec = new double[numRows];
+    cosDec = new double[numRows];
+    mag = new float[numRows];
+    index = new int[numRows];
+    name = new String[numRows];
+    properName = new String[numRows];
+    flyweights = new Star[numRows];
+  }
+
+  /** Populate the given row. */
+  void set(int row, int index, double ra, double dec, float mag, String name, String properName) {
+    this.index[row] = index;
+    this.ra[row] = ra;
+    this.dec[row] = dec;
+    this.sinDec[row] = Math.sin(dec);
+    this.cosDec[row] = Math.cos(dec);
+    this.mag[row] = mag;
+    this.name[row] = name;
+    this.properName[row] = properName;
+  }
+
+  // PRIVATE
+
+  private final double[] ra;
+  private final double[] dec;
+  private final double[] sinDec;
+  private final double[] cosDec;
+  private final float[] mag;
+  private final int[] index;
+  private final String[] name;
+  private final String[] properName;
+  private final Star[] flyweights;
+}
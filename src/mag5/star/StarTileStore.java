@@ -0,0 +1,390 @@
+package mag5.star;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import mag5.util.Maths;
+
+/**
+ A star catalog kept on disk, in tiles, instead of in memory.
+
+ <P>For very large catalogs, even a {@link StarTable} takes too much memory.
+ Here, the sky is divided into tiles (see {@link SkyGrid}), and each tile is stored in a single file as a compact binary blob.
+ Within each tile, the stars are sorted by magnitude, brightest first.
+ A query loads only the tiles that intersect the requested region, and stops scanning a tile at the first star that's too dim.
+
+ <P>Loaded tiles are kept in a least-recently-used cache, with a budget in bytes.
+ When the budget is exceeded, the least recently used tiles are dropped.
+ The number of hits, misses and evictions is tracked, in order to help with choosing a budget.
+
+ <P>The file is built ahead of time, by running {@link #main(String...)}:
+ <pre>java -Dmag5import=tyc2.dat.00.gz:... mag5.star.StarTileStore tiles.bin</pre>
+ At render time, the System property {@value StarCatalog#TILES_PROPERTY} points to the file.
+
+ <P>File layout (little-endian):
+ <pre>
+   header: magic, version, zone height (degs), cell width (degs), number of tiles
+   long[numTiles+1] offset of each tile's blob in the file
+   blobs, one per tile:
+     int count, int size of name-pool
+     double[count] right ascension, double[count] declination, float[count] magnitude, int[count] index
+     int[count+1] offsets of names, int[count+1] offsets of proper names, byte[] name-pool (UTF-8)
+ </pre>
+ The name-pool holds all of the names, followed by all of the proper names. 
+ The offsets of the proper names are relative to the start of their own section, not to the start of the pool.
+*/
+public final class StarTileStore {
+
+  /** Height of each zone of declination for the tiles. */
+  static final int ZONE_HEIGHT_DEGS = 10;
+
+  /** Width of each cell of right ascension for the tiles. */
+  static final int CELL_WIDTH_DEGS = 10;
+
+  /**
+   Build the star catalog (using the usual System properties), and save it as a tile file.
+   @param args the name of the tile file
+  */
+  public static void main(String... args) throws IOException {
+    StarCatalog catalog = new StarCatalog();
+    catalog.generateWholeStarCatalog();
+    write(catalog.table(), Paths.get(args[0]));
+  }
+
+  /** Save the given table as a tile file. Then read it back in, to check it. */
+  static void write(StarTable table, Path file) throws IOException {
+    log("Writing " + table.size() + " stars to the tile file " + file.toAbsolutePath());
+    SkyGrid grid = new SkyGrid(ZONE_HEIGHT_DEGS, CELL_WIDTH_DEGS);
+    int numTiles = grid.numCells();
+    //group the rows by tile, sorted by magnitude within each tile
+    List<List<Integer>> tiles = new ArrayList<>();
+    for(int tile = 0; tile < numTiles; ++tile) {
+      tiles.add(new ArrayList<>());
+    }
+    long[] keys = new long[table.size()];
+    for(int row = 0; row < table.size(); ++row) {
+      keys[row] = ((long)StarIndex.sortable(table.mag(row)) << 32) | row;
+    }
+    Arrays.sort(keys);
+    for(long key : keys) {
+      int row = (int)key;
+      tiles.get(grid.cellFor(table.dec(row), table.ra(row))).add(row);
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+      int headerBytes = 5 * Integer.BYTES + (numTiles + 1) * Long.BYTES;
+      ByteBuffer header = ByteBuffer.allocate(headerBytes).order(ORDER);
+      header.putInt(MAGIC).putInt(VERSION).putInt(ZONE_HEIGHT_DEGS).putInt(CELL_WIDTH_DEGS).putInt(numTiles);
+      long offset = headerBytes;
+      channel.position(offset);
+      for(List<Integer> rows : tiles) {
+        header.putLong(offset);
+        ByteBuffer blob = blob(table, rows);
+        offset = offset + blob.remaining();
+        writeFully(channel, blob);
+      }
+      header.putLong(offset);
+      header.flip();
+      channel.position(0);
+      writeFully(channel, header);
+    }
+    checkRoundTrip(table, tiles, file);
+  }
+
+  /**
+   Open an existing tile file.
+   @param budgetBytes the maximum number of bytes for the tiles held in memory.
+  */
+  public StarTileStore(Path file, long budgetBytes) throws IOException {
+    this.budgetBytes = budgetBytes;
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    ByteBuffer header = read(0, 5 * Integer.BYTES);
+    if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+      throw new IOException("Not a star tile file, or the wrong version: " + file);
+    }
+    grid = new SkyGrid(header.getInt(), header.getInt());
+    int numTiles = header.getInt();
+    offsets = new long[numTiles + 1];
+    read(5 * Integer.BYTES, offsets.length * Long.BYTES).asLongBuffer().get(offsets);
+  }
+
+  /**
+   Find the stars in the given region, using the same predicates as {@link StarCatalog#filterEquatorialView}.
+   Angles in rads. The range of right ascension is as in {@link Maths#inRangeRa(double, double, double)}.
+   The result is in order of increasing index.
+   @param inMemory if a star is also present in this table (at the row given by its index), then that star object is reused. Possibly null.
+  */
+  StarView query(double minDec, double maxDec, double minRa, double maxRa, float minMag, float maxMag, StarTable inMemory) throws IOException {
+    //each match is a tile (by its position in the list of tiles) and a slot in that tile
+    List<Tile> tiles = new ArrayList<>();
+    int[] matchTiles = new int[256];
+    int[] matchSlots = new int[256];
+    long[] order = new long[256];
+    int numMatches = 0;
+    for(int tileId : grid.cellsFor(minDec, maxDec, minRa, maxRa)) {
+      Tile tile = tile(tileId);
+      tiles.add(tile);
+      for(int slot = 0; slot < tile.index.length; ++slot) {
+        float mag = tile.mag[slot];
+        if (mag > maxMag) {
+          break; //the rest are dimmer
+        }
+        if (minMag <= mag && Maths.inRange(minDec, maxDec, tile.dec[slot]) && Maths.inRangeRa(minRa, maxRa, tile.ra[slot])) {
+          if (numMatches == order.length) {
+            order = Arrays.copyOf(order, 2 * numMatches);
+            matchTiles = Arrays.copyOf(matchTiles, 2 * numMatches);
+            matchSlots = Arrays.copyOf(matchSlots, 2 * numMatches);
+          }
+          order[numMatches] = ((long)tile.index[slot] << 32) | numMatches;
+          matchTiles[numMatches] = tiles.size() - 1;
+          matchSlots[numMatches] = slot;
+          ++numMatches;
+        }
+      }
+    }
+    Arrays.sort(order, 0, numMatches);
+    StarTable.Builder builder = new StarTable.Builder();
+    for(int i = 0; i < numMatches; ++i) {
+      int match = (int)order[i];
+      Tile tile = tiles.get(matchTiles[match]);
+      int slot = matchSlots[match];
+      int index = tile.index[slot];
+      Star existing = null;
+      if (inMemory != null && index < inMemory.size() && inMemory.index(index) == index) {
+        existing = inMemory.star(index);
+      }
+      builder.add(index, tile.ra[slot], tile.dec[slot], tile.mag[slot], tile.name[slot], tile.properName[slot], existing);
+    }
+    StarTable table = builder.build();
+    int[] rows = new int[table.size()];
+    for(int row = 0; row < rows.length; ++row) {
+      rows[row] = row;
+    }
+    return new StarView(table, rows, rows.length);
+  }
+
+  /** Number of times a tile was found in the cache. */
+  public synchronized long hits() { return hits; }
+
+  /** Number of times a tile was read from the file. */
+  public synchronized long misses() { return misses; }
+
+  /** Number of times a tile was dropped from the cache, to stay within the budget. */
+  public synchronized long evictions() { return evictions; }
+
+  /** Summary of the cache activity, for logging. */
+  public synchronized String stats() {
+    return "Tile cache: hits=" + hits + " misses=" + misses + " evictions=" + evictions +
+      " tiles-in-memory=" + cache.size() + " bytes-in-memory=" + usedBytes + " budget=" + budgetBytes;
+  }
+
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  // PRIVATE
+
+  private SkyGrid grid;
+  private FileChannel channel;
+  private long[] offsets;
+  private long budgetBytes;
+  private long usedBytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+  /** Access-order, so the eldest entry is the least recently used. */
+  private Map<Integer, Tile> cache = new LinkedHashMap<>(64, 0.75f, true);
+
+  /** 'M5ST' */
+  private static final int MAGIC = 0x4D355354;
+  private static final int VERSION = 1;
+  private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+  /** The stars in one tile, sorted by magnitude. */
+  private static final class Tile {
+    double[] ra;
+    double[] dec;
+    float[] mag;
+    int[] index;
+    String[] name;
+    String[] properName;
+    long bytes;
+  }
+
+  private synchronized Tile tile(int tileId) throws IOException {
+    Tile result = cache.get(tileId);
+    if (result != null) {
+      ++hits;
+    }
+    else {
+      ++misses;
+      result = load(tileId);
+      cache.put(tileId, result);
+      usedBytes = usedBytes + result.bytes;
+      evictIfOverBudget(tileId);
+    }
+    return result;
+  }
+
+  /** Never evicts the given tile, even if it alone is over the budget. */
+  private void evictIfOverBudget(int keep) {
+    Iterator<Map.Entry<Integer, Tile>> eldestFirst = cache.entrySet().iterator();
+    while (usedBytes > budgetBytes && eldestFirst.hasNext()) {
+      Map.Entry<Integer, Tile> entry = eldestFirst.next();
+      if (entry.getKey() != keep) {
+        usedBytes = usedBytes - entry.getValue().bytes;
+        eldestFirst.remove();
+        ++evictions;
+      }
+    }
+  }
+
+  private Tile load(int tileId) throws IOException {
+    int size = (int)(offsets[tileId + 1] - offsets[tileId]);
+    ByteBuffer blob = read(offsets[tileId], size);
+    int count = blob.getInt();
+    int poolBytes = blob.getInt();
+    Tile result = new Tile();
+    result.ra = new double[count];
+    result.dec = new double[count];
+    result.mag = new float[count];
+    result.index = new int[count];
+    result.name = new String[count];
+    result.properName = new String[count];
+    int[] nameOffsets = new int[count + 1];
+    int[] properNameOffsets = new int[count + 1];
+    byte[] pool = new byte[poolBytes];
+    blob.asDoubleBuffer().get(result.ra);
+    blob.position(blob.position() + count * Double.BYTES);
+    blob.asDoubleBuffer().get(result.dec);
+    blob.position(blob.position() + count * Double.BYTES);
+    blob.asFloatBuffer().get(result.mag);
+    blob.position(blob.position() + count * Float.BYTES);
+    blob.asIntBuffer().get(result.index);
+    blob.position(blob.position() + count * Integer.BYTES);
+    blob.asIntBuffer().get(nameOffsets);
+    blob.position(blob.position() + (count + 1) * Integer.BYTES);
+    blob.asIntBuffer().get(properNameOffsets);
+    blob.position(blob.position() + (count + 1) * Integer.BYTES);
+    blob.get(pool);
+    //the proper names come after all of the names, in the same pool
+    int properNamesStart = nameOffsets[count];
+    for(int slot = 0; slot < count; ++slot) {
+      result.name[slot] = text(pool, 0, nameOffsets, slot);
+      result.properName[slot] = text(pool, properNamesStart, properNameOffsets, slot);
+    }
+    result.bytes = size;
+    return result;
+  }
+
+  private ByteBuffer read(long position, int size) throws IOException {
+    ByteBuffer result = ByteBuffer.allocate(size).order(ORDER);
+    while (result.hasRemaining()) {
+      if (channel.read(result, position + result.position()) < 0) {
+        throw new IOException("Unexpected end of the tile file.");
+      }
+    }
+    result.flip();
+    return result;
+  }
+
+  private static ByteBuffer blob(StarTable table, List<Integer> rows) {
+    int count = rows.size();
+    byte[][] names = new byte[count][];
+    byte[][] properNames = new byte[count][];
+    int poolBytes = 0;
+    for(int i = 0; i < count; ++i) {
+      names[i] = table.name(rows.get(i)).getBytes(StandardCharsets.UTF_8);
+      properNames[i] = table.properName(rows.get(i)).getBytes(StandardCharsets.UTF_8);
+      poolBytes = poolBytes + names[i].length + properNames[i].length;
+    }
+    int size = 2 * Integer.BYTES + count * (2 * Double.BYTES + Float.BYTES + Integer.BYTES) + 2 * (count + 1) * Integer.BYTES + poolBytes;
+    ByteBuffer result = ByteBuffer.allocate(size).order(ORDER);
+    result.putInt(count).putInt(poolBytes);
+    for (int row : rows) {
+      result.putDouble(table.ra(row));
+    }
+    for (int row : rows) {
+      result.putDouble(table.dec(row));
+    }
+    for (int row : rows) {
+      result.putFloat(table.mag(row));
+    }
+    for (int row : rows) {
+      result.putInt(table.index(row));
+    }
+    putOffsets(names, result);
+    putOffsets(properNames, result);
+    for (byte[] name : names) {
+      result.put(name);
+    }
+    for (byte[] properName : properNames) {
+      result.put(properName);
+    }
+    result.flip();
+    return result;
+  }
+
+  private static void putOffsets(byte[][] texts, ByteBuffer buffer) {
+    int offset = 0;
+    for (byte[] text : texts) {
+      buffer.putInt(offset);
+      offset = offset + text.length;
+    }
+    buffer.putInt(offset);
+  }
+
+  /** The offsets are relative to the given start of a section of the pool. */
+  private static String text(byte[] pool, int start, int[] offsets, int slot) {
+    return new String(pool, start + offsets[slot], offsets[slot + 1] - offsets[slot], StandardCharsets.UTF_8);
+  }
+
+  /** 
+   Each tile read back from the file must hold exactly the rows of the table that were written to it, in the same order.
+   A tile file that reads back differently would silently corrupt every chart, so it's checked right away.
+  */
+  private static void checkRoundTrip(StarTable table, List<List<Integer>> tiles, Path file) throws IOException {
+    StarTileStore store = new StarTileStore(file, 0);
+    try {
+      for(int tileId = 0; tileId < tiles.size(); ++tileId) {
+        List<Integer> rows = tiles.get(tileId);
+        Tile tile = store.load(tileId);
+        if (tile.index.length != rows.size()) {
+          throw new IllegalStateException("Tile " + tileId + " has " + tile.index.length + " stars, but " + rows.size() + " were written.");
+        }
+        for(int slot = 0; slot < rows.size(); ++slot) {
+          int row = rows.get(slot);
+          boolean same = table.index(row) == tile.index[slot] && table.ra(row) == tile.ra[slot] && table.dec(row) == tile.dec[slot] 
+            && table.mag(row) == tile.mag[slot] && table.name(row).equals(tile.name[slot]) && table.properName(row).equals(tile.properName[slot]);
+          if (!same) {
+            throw new IllegalStateException("Tile file doesn't read back correctly, in tile " + tileId + " at slot " + slot + ": " + table.star(row));
+          }
+        }
+      }
+    }
+    finally {
+      store.close();
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static void log(Object text){
+    System.out.println(text.toString());
+  }
+}
@@ -0,0 +1,57 @@
+package mag5.star;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ A subset of the rows of a {@link StarTable}.
+
+ <P>The rows are in increasing order. No data is copied; the view only holds the row numbers.
+*/
+public final class StarView {
+
+  StarView(StarTable table, int[] rows, int size) {
+    this.table = table;
+    this.rows = rows;
+    this.size = size;
+  }
+
+  /** The underlying table. */
+  public StarTable table() {
+    return table;
+  }
+
+  /** The number of rows in this view. */
+  public int size() {
+    return size;
+  }
+
+  /** The row in the underlying table, for the i-th item in this view. */
+  public int row(int i) {
+    return rows[i];
+  }
+
+  /** The star object for the i-th item in this view. */
+  public Star star(int i) {
+    return table.star(rows[i]);
+  }
+
+  /**
+   Return a new, modifiable list of the stars in this view.
+   The list can be sorted by the caller, without affecting the view.
+  */
+  public List<Star> toList(){
+    List<Star> result = new ArrayList<>(size);
+    for(int i = 0; i < size; ++i) {
+      result.add(star(i));
+    }
+    return result;
+  }
+
+  // PRIVATE
+
+  private StarTable table;
+  private int[] rows;
+  private int size;
+
+}
@@ -3,6 +3,7 @@ package mag5.translate;
 import java.time.LocalDate;
 import java.time.Month;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -10,13 +11,21 @@ import java.util.Map;
 
 import mag5.util.DataFileReader;
 
-/** Translate a label key into a label value, in a given lang. */
+/** 
+ Translate a label key into a label value, in a given lang.
+ 
+ <P>All translations are read in when the object is created, and never change after that.
+ So a single object can be shared by charts that are rendered at the same time, by different threads.
+*/
 public class Label {
   
+  /** Reads in all translations. */
+  public Label() {
+    initAllLangs();
+    readInAllTranslations();
+  }
+  
   public String text(String key, Lang lang) {
-    if (translations.size() == 0) {
-      init();
-    }
     String result = translations.get(lang).get(key);
     if (result == null) {
       //should not happen for production
@@ -25,6 +34,11 @@ public class Label {
     return result;
   }
   
+  /** All translations for the given lang, in the order of the data file. Unmodifiable. */
+  public Map<String, String> all(Lang lang) {
+    return Collections.unmodifiableMap(translations.get(lang));
+  }
+
   /** Short month names, translated, are available thru the JDK. No need for text files. */
   public String shortMonthName(Lang lang, Month month) {
     LocalDate someDate = LocalDate.of(1962, month.getValue(), 1);
@@ -33,15 +47,9 @@ public class Label {
   }
 
   // PRIVATE
-  private static Map<Lang, Map<String, String>> translations = new LinkedHashMap<>();
+  private final Map<Lang, Map<String, String>> translations = new LinkedHashMap<>();
 
-  /** There's no need for the caller to init explicitly. */
-  private static void init() {
-    initAllLangs();
-    readInAllTranslations();
-  }
-  
-  static private void initAllLangs() {
+  private void initAllLangs() {
     for(Lang lang : Lang.values()) {
       Map<String, String> emptyMap = new LinkedHashMap<>();
       translations.put(lang, emptyMap);
@@ -49,7 +57,7 @@ public class Label {
   }
   
   /** Scan files in the current directory that start with 'labels_', and read their data. */
-  static private void readInAllTranslations() {
+  private void readInAllTranslations() {
     for(Lang lang : Lang.values()) {
       DataFileReader reader = new DataFileReader();
       String fileName = "labels_" + lang + ".utf8";
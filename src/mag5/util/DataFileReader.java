@@ -4,8 +4,13 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -14,6 +19,9 @@ import java.util.List;
   
   <P>This class allows the code to follow the 
   <a href='http://www.javapractices.com/topic/TopicAction.do?Id=205'>package-by-feature</a> design principle.
+  
+  <P>By default, the files are read from the class path. 
+  When editing the data files, it's handier to read them straight from the source tree; see {@link #DATA_DIR_PROPERTY}.
 */
 public class DataFileReader {
 
@@ -25,8 +33,8 @@ public class DataFileReader {
   public List<String> readFile(Class<?> aClass, String fileName){
     List<String> result = new ArrayList<>();
     try (
-      //uses the class loader search mechanism:
-      InputStream input = aClass.getResourceAsStream(fileName);
+      //uses the class loader search mechanism, unless the file is in the source tree:
+      InputStream input = openStream(aClass, fileName);
       InputStreamReader isr = new InputStreamReader(input, ENCODING);
       BufferedReader reader = new BufferedReader(isr);
     ){
@@ -41,6 +49,41 @@ public class DataFileReader {
     return result;
   }
   
+  /**
+   The name of the System property for reading the data files from the source tree, instead of the class path - {@value}.
+   Its value is the root directory of the source tree, as in <code>-Dmag5datadir=src</code>.
+   Each file is looked for in the directory of its package, just as on the class path.
+   A file that isn't found there is read from the class path, as usual.
+  */
+  public static final String DATA_DIR_PROPERTY = "mag5datadir";
+  
+  /** 
+   Where the data file is read from: the file in the source tree, if there is one, otherwise the file on the class path.
+   Returns null if the file is in neither place. 
+  */
+  public static URL locate(Class<?> aClass, String fileName) throws MalformedURLException {
+    Path source = inDataDir(aClass, fileName);
+    return (source != null && Files.isRegularFile(source)) ? source.toUri().toURL() : aClass.getResource(fileName);
+  }
+  
+  /** 
+   The place of the data file in the source tree given by {@link #DATA_DIR_PROPERTY}, whether or not the file exists.
+   Returns null if that property isn't set. 
+  */
+  public static Path inDataDir(Class<?> aClass, String fileName) {
+    Path result = null;
+    String dataDir = System.getProperty(DATA_DIR_PROPERTY);
+    if (dataDir != null) {
+      result = Paths.get(dataDir, aClass.getPackageName().split("\\.")).resolve(fileName);
+    }
+    return result;
+  }
+  
   public final static Charset ENCODING = StandardCharsets.UTF_8;
   public final static String COMMENT = "#";
+  
+  private InputStream openStream(Class<?> aClass, String fileName) throws IOException {
+    Path source = inDataDir(aClass, fileName);
+    return (source != null && Files.isRegularFile(source)) ? Files.newInputStream(source) : aClass.getResourceAsStream(fileName);
+  }
 }
\ No newline at end of file
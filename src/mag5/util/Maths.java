@@ -33,7 +33,7 @@ public class Maths {
   }
   
   /** Inclusive. Ra is tricky because its cyclical. Things are different if the range straddles 0h. */
-  public static boolean inRangeRa(Double min, Double max, Double val) {
+  public static boolean inRangeRa(double min, double max, double val) {
     boolean result = false;
     if (min < max) {
       result = (val >= min && val <= max);